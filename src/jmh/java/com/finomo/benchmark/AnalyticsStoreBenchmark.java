@@ -0,0 +1,114 @@
+package com.finomo.benchmark;
+
+import com.finomo.config.ExpenseDataGenerator;
+import com.finomo.dto.TimeSeriesPoint;
+import com.finomo.repository.ExpenseRepository;
+import com.finomo.service.ExpenseAnalyticsService;
+import com.finomo.service.ExpenseRollupService;
+import com.finomo.service.analytics.ExpenseColumnStore;
+import com.finomo.service.analytics.TimeBucket;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Analytics over the JPA path (table scans and the daily rollup) vs the columnar in-memory store.
+// Both contexts hold the same generated rows; the columnar one runs with finomo.analytics.store=columnar.
+// Run with -prof gc to compare allocation per operation. H2 reuses the result of an identical query on an unchanged
+// table, so the plain JPA aggregates here are a lower bound for what MySQL would do.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AnalyticsStoreBenchmark {
+    
+    private static final LocalDate END_DATE = LocalDate.of(2024, 12, 31);
+    private static final LocalDate START_DATE = END_DATE.minusDays(364);
+    private static final int LOAD_CHUNK_SIZE = 10_000;
+    
+    @Param({"100000", "1000000"})
+    private int rows;
+    
+    private ConfigurableApplicationContext jpaContext;
+    private ConfigurableApplicationContext columnarContext;
+    private ExpenseRepository expenseRepository;
+    private ExpenseAnalyticsService jpaAnalytics;
+    private ExpenseAnalyticsService columnarAnalytics;
+    private ExpenseColumnStore columnStore;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        jpaContext = BenchmarkContext.start();
+        columnarContext = BenchmarkContext.start("--finomo.analytics.store=columnar");
+        load(jpaContext);
+        load(columnarContext);
+        
+        expenseRepository = jpaContext.getBean(ExpenseRepository.class);
+        jpaAnalytics = jpaContext.getBean(ExpenseAnalyticsService.class);
+        jpaContext.getBean(ExpenseRollupService.class).rebuild();
+        
+        columnarAnalytics = columnarContext.getBean(ExpenseAnalyticsService.class);
+        columnStore = columnarContext.getBean(ExpenseColumnStore.class);
+        columnStore.rebuild();
+    }
+    
+    // insertAll bypasses the change listeners, so the rollup and store are rebuilt after loading
+    private void load(ConfigurableApplicationContext context) {
+        ExpenseRepository repository = context.getBean(ExpenseRepository.class);
+        ExpenseDataGenerator generator = new ExpenseDataGenerator(42, END_DATE, 365);
+        for (int loaded = 0; loaded < rows; loaded += LOAD_CHUNK_SIZE) {
+            repository.insertAll(generator.generate(Math.min(LOAD_CHUNK_SIZE, rows - loaded)));
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jpaContext.close();
+        columnarContext.close();
+    }
+    
+    @Benchmark
+    public List<Object[]> totalByCategoryJpa() {
+        return expenseRepository.findTotalAmountByCategory();
+    }
+    
+    @Benchmark
+    public List<Object[]> totalByCategoryColumnar() {
+        return columnStore.totalsByCategory();
+    }
+    
+    @Benchmark
+    public BigDecimal totalByDateRangeJpa() {
+        return expenseRepository.findTotalAmountByDateRange(START_DATE, START_DATE.plusDays(90));
+    }
+    
+    @Benchmark
+    public BigDecimal totalByDateRangeColumnar() {
+        return columnStore.totalByDateRange(START_DATE, START_DATE.plusDays(90));
+    }
+    
+    @Benchmark
+    public List<TimeSeriesPoint> weeklySeriesWithPercentilesJpa() {
+        return jpaAnalytics.getTimeSeries(TimeBucket.WEEK, null, START_DATE, END_DATE, 4, true);
+    }
+    
+    @Benchmark
+    public List<TimeSeriesPoint> weeklySeriesWithPercentilesColumnar() {
+        return columnarAnalytics.getTimeSeries(TimeBucket.WEEK, null, START_DATE, END_DATE, 4, true);
+    }
+    
+    @Benchmark
+    public List<TimeSeriesPoint> dailySeriesFromRollup() {
+        return jpaAnalytics.getTimeSeries(TimeBucket.DAY, "Dining", START_DATE, END_DATE, 7, false);
+    }
+    
+    @Benchmark
+    public List<TimeSeriesPoint> dailySeriesColumnar() {
+        return columnarAnalytics.getTimeSeries(TimeBucket.DAY, "Dining", START_DATE, END_DATE, 7, false);
+    }
+}
@@ -0,0 +1,32 @@
+package com.finomo.benchmark;
+
+import com.finomo.FinomoApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Boots the application without a web server against a private in-memory H2 database
+public final class BenchmarkContext {
+    
+    private BenchmarkContext() {
+    }
+    
+    public static ConfigurableApplicationContext start(String... extraArgs) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID()
+                        + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--finomo.sample-data.count=0",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.com.finomo=WARN"));
+        args.addAll(List.of(extraArgs));
+        
+        SpringApplication application = new SpringApplication(FinomoApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        return application.run(args.toArray(String[]::new));
+    }
+}
@@ -0,0 +1,52 @@
+package com.finomo.benchmark;
+
+import com.finomo.config.ExpenseDataGenerator;
+import com.finomo.dto.ExpenseAnomalies;
+import com.finomo.entity.Expense;
+import com.finomo.service.ExpenseAnomalyDetector;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Cost that write-path screening adds to each new expense, with the recent-expense structures full
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ExpenseAnomalyDetectorBenchmark {
+    
+    private static final int CANDIDATES = 4096;
+    
+    @Param({"100000"})
+    private int recent;
+    
+    private ExpenseAnomalyDetector detector;
+    private List<Expense> candidates;
+    private int next;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        detector = new ExpenseAnomalyDetector(ExpenseAnomalyDetector.DuplicateAction.FLAG, 3, 14, recent,
+                Duration.ofDays(30), 3.5, 30);
+        ExpenseDataGenerator generator = new ExpenseDataGenerator(42, LocalDate.of(2024, 12, 31), 365);
+        long id = 0;
+        for (Expense expense : generator.generate(recent)) {
+            expense.setTenantId("default");
+            expense.setId(++id);
+            detector.onCreated(expense);
+        }
+        candidates = generator.generate(CANDIDATES);
+        candidates.forEach(expense -> expense.setTenantId("default"));
+    }
+    
+    @Benchmark
+    public ExpenseAnomalies screen() {
+        next = (next + 1) & (CANDIDATES - 1);
+        return detector.screen(candidates.get(next));
+    }
+}
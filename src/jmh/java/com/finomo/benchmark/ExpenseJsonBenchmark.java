@@ -0,0 +1,54 @@
+package com.finomo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.finomo.config.ExpenseDataGenerator;
+import com.finomo.entity.Expense;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Jackson (de)serialization of Expense, configured like the application's ObjectMapper
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseJsonBenchmark {
+    
+    private ObjectMapper objectMapper;
+    private Expense expense;
+    private byte[] expenseJson;
+    private List<Expense> expenses;
+    
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        ExpenseDataGenerator generator = new ExpenseDataGenerator(42, LocalDate.of(2024, 12, 31), 365);
+        expense = generator.next();
+        expense.setId(123456L);
+        expenseJson = objectMapper.writeValueAsBytes(expense);
+        expenses = generator.generate(1000);
+    }
+    
+    @Benchmark
+    public byte[] serializeExpense() throws Exception {
+        return objectMapper.writeValueAsBytes(expense);
+    }
+    
+    @Benchmark
+    public Expense deserializeExpense() throws Exception {
+        return objectMapper.readValue(expenseJson, Expense.class);
+    }
+    
+    @Benchmark
+    public byte[] serializeThousandExpenses() throws Exception {
+        return objectMapper.writeValueAsBytes(expenses);
+    }
+}
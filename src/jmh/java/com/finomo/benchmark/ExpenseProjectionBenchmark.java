@@ -0,0 +1,73 @@
+package com.finomo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.finomo.config.ExpenseDataGenerator;
+import com.finomo.dto.ExpenseField;
+import com.finomo.repository.ExpenseRepository;
+import com.finomo.service.ExpenseService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Full entities vs fields= projections for a one-month date range: query, materialization and JSON payload.
+// Run with -prof gc to compare heap allocated per request; setUp prints the payload sizes.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ExpenseProjectionBenchmark {
+    
+    private static final LocalDate END_DATE = LocalDate.of(2024, 12, 31);
+    private static final LocalDate START_DATE = END_DATE.minusDays(30);
+    private static final Set<ExpenseField> SUMMARY_FIELDS =
+            EnumSet.of(ExpenseField.ID, ExpenseField.AMOUNT, ExpenseField.CATEGORY, ExpenseField.DATE);
+    
+    @Param({"100000"})
+    private int rows;
+    
+    private ConfigurableApplicationContext context;
+    private ExpenseService expenseService;
+    private ObjectMapper objectMapper;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkContext.start();
+        expenseService = context.getBean(ExpenseService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        ExpenseRepository repository = context.getBean(ExpenseRepository.class);
+        ExpenseDataGenerator generator = new ExpenseDataGenerator(42, END_DATE, 365);
+        for (int loaded = 0; loaded < rows; loaded += 10_000) {
+            repository.insertAll(generator.generate(Math.min(10_000, rows - loaded)));
+        }
+        System.out.printf("%nPayload for %s..%s: entities %d bytes, fields=id,amount,category,date %d bytes%n",
+                START_DATE, END_DATE, entities().length, summaryFields().length);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public byte[] entities() throws Exception {
+        return objectMapper.writeValueAsBytes(expenseService.getExpensesByDateRange(START_DATE, END_DATE));
+    }
+    
+    @Benchmark
+    public byte[] summaryFields() throws Exception {
+        return objectMapper.writeValueAsBytes(
+                expenseService.getExpensesByDateRange(START_DATE, END_DATE, SUMMARY_FIELDS));
+    }
+    
+    @Benchmark
+    public byte[] amountAndDateOnly() throws Exception {
+        return objectMapper.writeValueAsBytes(expenseService.getExpensesByDateRange(START_DATE, END_DATE,
+                EnumSet.of(ExpenseField.AMOUNT, ExpenseField.DATE)));
+    }
+}
@@ -0,0 +1,95 @@
+package com.finomo.benchmark;
+
+import com.finomo.config.ExpenseDataGenerator;
+import com.finomo.entity.Expense;
+import com.finomo.repository.ExpenseRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Every ExpenseRepository finder against embedded H2 at 10k and 1M rows
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ExpenseRepositoryBenchmark {
+    
+    private static final LocalDate END_DATE = LocalDate.of(2024, 12, 31);
+    private static final int LOAD_CHUNK_SIZE = 10_000;
+    
+    @Param({"10000", "1000000"})
+    private int rows;
+    
+    private ConfigurableApplicationContext context;
+    private ExpenseRepository expenseRepository;
+    private LocalDate weekStart;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        expenseRepository = context.getBean(ExpenseRepository.class);
+        ExpenseDataGenerator generator = new ExpenseDataGenerator(42, END_DATE, 365);
+        for (int loaded = 0; loaded < rows; loaded += LOAD_CHUNK_SIZE) {
+            expenseRepository.insertAll(generator.generate(Math.min(LOAD_CHUNK_SIZE, rows - loaded)));
+        }
+        weekStart = END_DATE.minusDays(100);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public Optional<Expense> findById() {
+        return expenseRepository.findById((long) rows / 2);
+    }
+    
+    @Benchmark
+    public List<Expense> findByCategory() {
+        return expenseRepository.findByCategory("Utilities");
+    }
+    
+    @Benchmark
+    public List<Expense> findByDateBetween() {
+        return expenseRepository.findByDateBetween(weekStart, weekStart.plusDays(6));
+    }
+    
+    @Benchmark
+    public List<Expense> findByCategoryAndDateBetween() {
+        return expenseRepository.findByCategoryAndDateBetween("Dining", weekStart, weekStart.plusDays(6));
+    }
+    
+    @Benchmark
+    public List<Expense> findByAmountGreaterThan() {
+        return expenseRepository.findByAmountGreaterThan(new BigDecimal("395.00"));
+    }
+    
+    @Benchmark
+    public List<Expense> findByDescriptionContainingIgnoreCase() {
+        return expenseRepository.findByDescriptionContainingIgnoreCase("netflix");
+    }
+    
+    @Benchmark
+    public List<Object[]> findTotalAmountByCategory() {
+        return expenseRepository.findTotalAmountByCategory();
+    }
+    
+    @Benchmark
+    public BigDecimal findTotalAmountByDateRange() {
+        return expenseRepository.findTotalAmountByDateRange(weekStart, weekStart.plusDays(30));
+    }
+    
+    @Benchmark
+    public List<Expense> findPageAfter() {
+        return expenseRepository.findPageAfter(weekStart, 0L, Limit.of(100));
+    }
+}
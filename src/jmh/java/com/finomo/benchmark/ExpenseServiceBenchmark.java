@@ -0,0 +1,93 @@
+package com.finomo.benchmark;
+
+import com.finomo.config.ExpenseDataGenerator;
+import com.finomo.dto.BatchItemResult;
+import com.finomo.entity.Expense;
+import com.finomo.service.ExpenseService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// ExpenseService CRUD and analytics against embedded H2, including single-row vs batched inserts (rows/sec)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ExpenseServiceBenchmark {
+    
+    private static final int PRELOADED = 10_000;
+    private static final int BATCH_SIZE = 500;
+    
+    private ConfigurableApplicationContext context;
+    private ExpenseService expenseService;
+    private ExpenseDataGenerator generator;
+    private long maxId;
+    private long nextId;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        expenseService = context.getBean(ExpenseService.class);
+        generator = new ExpenseDataGenerator(42, LocalDate.of(2024, 12, 31), 365);
+        for (int i = 0; i < PRELOADED; i += BATCH_SIZE) {
+            List<BatchItemResult> results = expenseService.createExpenses(generator.generate(BATCH_SIZE));
+            maxId = results.get(results.size() - 1).id();
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    private long nextExistingId() {
+        nextId = nextId % maxId + 1;
+        return nextId;
+    }
+    
+    @Benchmark
+    public Expense createExpense() {
+        return expenseService.createExpense(generator.next());
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<BatchItemResult> createExpensesBatch() {
+        return expenseService.createExpenses(generator.generate(BATCH_SIZE));
+    }
+    
+    @Benchmark
+    public Optional<Expense> getExpenseById() {
+        return expenseService.getExpenseById(nextExistingId());
+    }
+    
+    @Benchmark
+    public Expense updateExpense() {
+        Expense details = generator.next();
+        return expenseService.updateExpense(nextExistingId(), details);
+    }
+    
+    @Benchmark
+    public void createAndDeleteExpense() {
+        Expense expense = expenseService.createExpense(generator.next());
+        expenseService.deleteExpense(expense.getId());
+    }
+    
+    @Benchmark
+    public List<Object[]> getTotalAmountByCategory() {
+        return expenseService.getTotalAmountByCategory();
+    }
+    
+    @Benchmark
+    public BigDecimal getTotalAmountByDateRange() {
+        LocalDate start = LocalDate.of(2024, 1, 1).plusDays(nextId % 300);
+        return expenseService.getTotalAmountByDateRange(start, start.plusDays(30));
+    }
+}
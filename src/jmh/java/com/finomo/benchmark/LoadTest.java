@@ -0,0 +1,163 @@
+package com.finomo.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntFunction;
+
+/**
+ * Closed-loop HTTP load generator: each client keeps exactly one request in flight for the whole run.
+ * Reports throughput and latency percentiles so the platform-thread and virtual-thread modes can be compared:
+ *
+ * <pre>
+ * java -jar target/finomo-*.jar                                            # platform threads
+ * java -jar target/finomo-*.jar --spring.profiles.active=virtual-threads   # virtual threads (Java 21 build)
+ *
+ * mvn -Pbenchmark test-compile exec:java -Dexec.mainClass=com.finomo.benchmark.LoadTest \
+ *     -Dexec.args="--url=http://localhost:8080 --clients=1000 --duration=60 --label=virtual"
+ * </pre>
+ *
+ * Requests are spread over id lookups, category lists and analytics. Pass --tenants=N to send each request
+ * as one of N random tenants (X-Tenant-Id header). Every request comes from the same client address, so start
+ * the application with --finomo.http.rate-limit.enabled=false unless the limiter itself is being measured.
+ */
+public class LoadTest {
+    
+    private static final String[] CATEGORIES = {"Groceries", "Transportation", "Utilities", "Dining", "Entertainment"};
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String baseUrl = options.getOrDefault("url", "http://localhost:8080");
+        int clients = Integer.parseInt(options.getOrDefault("clients", "1000"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "60")));
+        int maxId = Integer.parseInt(options.getOrDefault("max-id", "1000"));
+        int tenants = Integer.parseInt(options.getOrDefault("tenants", "0"));
+        String label = options.getOrDefault("label", "run");
+        String output = options.get("output");
+        
+        IntFunction<String> paths = request -> switch (request % 4) {
+            case 0, 1 -> "/api/expenses/" + (1 + ThreadLocalRandom.current().nextInt(maxId));
+            case 2 -> "/api/expenses/category/" + CATEGORIES[ThreadLocalRandom.current().nextInt(CATEGORIES.length)];
+            default -> "/api/expenses/analytics/total-by-category";
+        };
+        
+        Result result = run(baseUrl, clients, duration, tenants, paths);
+        String json = result.toJson(label, clients);
+        System.out.println(json);
+        if (output != null) {
+            Files.writeString(Path.of(output), json);
+        }
+    }
+    
+    static Result run(String baseUrl, int clients, Duration duration, int tenants, IntFunction<String> paths)
+            throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        LatencyHistogram histogram = new LatencyHistogram();
+        AtomicLong errors = new AtomicLong();
+        AtomicLong sequence = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(clients);
+        
+        long started = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            Runnable[] next = new Runnable[1];
+            next[0] = () -> {
+                if (System.nanoTime() >= deadline) {
+                    done.countDown();
+                    return;
+                }
+                HttpRequest.Builder request = HttpRequest.newBuilder(
+                                URI.create(baseUrl + paths.apply((int) sequence.getAndIncrement())))
+                        .timeout(Duration.ofSeconds(30))
+                        .GET();
+                if (tenants > 0) {
+                    request.header("X-Tenant-Id", "tenant-" + ThreadLocalRandom.current().nextInt(tenants));
+                }
+                long sent = System.nanoTime();
+                client.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, failure) -> {
+                            if (failure != null || response.statusCode() >= 500 || response.statusCode() == 429) {
+                                errors.incrementAndGet();
+                            }
+                            histogram.record(System.nanoTime() - sent);
+                            next[0].run();
+                        });
+            };
+            next[0].run();
+        }
+        done.await();
+        return new Result(histogram, errors.get(), System.nanoTime() - started);
+    }
+    
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+    
+    // Log-bucketed latency histogram (about 1% relative precision), safe for concurrent recording
+    static final class LatencyHistogram {
+        private static final double GROWTH = 1.01;
+        private static final int BUCKETS = (int) Math.ceil(Math.log(120e6) / Math.log(GROWTH)) + 1;
+        
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong total = new AtomicLong();
+        
+        void record(long nanos) {
+            double micros = Math.max(1.0, nanos / 1e3);
+            int bucket = (int) Math.min(BUCKETS - 1, Math.floor(Math.log(micros) / Math.log(GROWTH)));
+            counts.incrementAndGet(bucket);
+            total.incrementAndGet();
+        }
+        
+        long count() {
+            return total.get();
+        }
+        
+        double percentileMillis(double percentile) {
+            long rank = (long) Math.ceil(percentile * total.get());
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += counts.get(bucket);
+                if (seen >= rank && seen > 0) {
+                    return Math.pow(GROWTH, bucket + 1) / 1e3;
+                }
+            }
+            return 0;
+        }
+    }
+    
+    record Result(LatencyHistogram latencies, long errors, long elapsedNanos) {
+        
+        double throughput() {
+            return latencies.count() / (elapsedNanos / 1e9);
+        }
+        
+        String toJson(String label, int clients) {
+            return String.format(Locale.ROOT,
+                    "{\"label\":\"%s\",\"clients\":%d,\"requests\":%d,\"errors\":%d,\"throughputPerSecond\":%.1f,"
+                            + "\"p50Millis\":%.2f,\"p99Millis\":%.2f,\"p999Millis\":%.2f}",
+                    label, clients, latencies.count(), errors, throughput(),
+                    latencies.percentileMillis(0.50), latencies.percentileMillis(0.99),
+                    latencies.percentileMillis(0.999));
+        }
+    }
+}
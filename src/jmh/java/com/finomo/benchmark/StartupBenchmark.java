@@ -0,0 +1,197 @@
+package com.finomo.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Starts the packaged application repeatedly in each startup mode and measures time to first request: from
+ * launching the JVM until GET /api/expenses/page?limit=1, a query through the full web and JPA stack, returns 200.
+ * Also reports the "Started ... in" time Spring logs.
+ *
+ * <pre>
+ * mvn -Pcds,aot package -DskipTests            # needs SPRING_DATASOURCE_* for the CDS training run
+ *
+ * mvn -Pbenchmark test-compile exec:java -Dexec.mainClass=com.finomo.benchmark.StartupBenchmark \
+ *     -Dexec.args="--modes=default,fast-startup,cds,aot --runs=5"
+ * </pre>
+ *
+ * Modes: default (the plain jar), fast-startup (the fast-startup profile), cds (fast-startup on the extracted jar
+ * with the -Pcds archive) and aot (fast-startup with -Dspring.aot.enabled, needs a -Paot build). Each start gets
+ * --app-args (for example the datasource) and, when given, --extra-classpath (for example a JDBC driver jar).
+ * Prints one JSON line per mode.
+ */
+public class StartupBenchmark {
+
+    private static final Pattern STARTED = Pattern.compile("Started \\w+ in ([0-9.]+) seconds");
+    private static final String FAT_JAR_LAUNCHER = "org.springframework.boot.loader.launch.JarLauncher";
+    private static final String MAIN_CLASS = "com.finomo.FinomoApplication";
+    private static final String FAST_STARTUP = "--spring.profiles.active=fast-startup";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        Path jar = Path.of(options.getOrDefault("jar", "target/finomo-0.0.1-SNAPSHOT.jar"));
+        Path cdsDirectory = Path.of(options.getOrDefault("cds-dir", "target/cds"));
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        int port = Integer.parseInt(options.getOrDefault("port", "18081"));
+        Duration timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout", "180")));
+        String extraClasspath = options.get("extra-classpath");
+        List<String> appArgs = split(options.getOrDefault("app-args", ""));
+        String output = options.get("output");
+
+        for (String mode : options.getOrDefault("modes", "default,fast-startup").split(",")) {
+            List<String> command = command(mode.trim(), jar, cdsDirectory, extraClasspath);
+            command.add("--server.port=" + port);
+            command.addAll(appArgs);
+
+            List<Long> firstRequestMillis = new ArrayList<>();
+            List<Double> startedSeconds = new ArrayList<>();
+            for (int run = 0; run < runs; run++) {
+                Sample sample = start(command, port, timeout);
+                firstRequestMillis.add(sample.firstRequestMillis());
+                if (sample.startedSeconds() != null) {
+                    startedSeconds.add(sample.startedSeconds());
+                }
+            }
+
+            String json = String.format(Locale.ROOT,
+                    "{\"mode\":\"%s\",\"runs\":%d,\"medianFirstRequestMillis\":%d,\"minFirstRequestMillis\":%d,"
+                            + "\"medianStartedSeconds\":%.3f}",
+                    mode.trim(), runs, median(firstRequestMillis), firstRequestMillis.stream().mapToLong(Long::longValue).min().orElse(0),
+                    startedSeconds.isEmpty() ? Double.NaN : median(startedSeconds));
+            System.out.println(json);
+            if (output != null) {
+                Files.writeString(Path.of(output), json + System.lineSeparator(),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+        }
+    }
+
+    private static List<String> command(String mode, Path jar, Path cdsDirectory, String extraClasspath) {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        Path launchJar = jar;
+        switch (mode) {
+            case "default", "fast-startup" -> {
+            }
+            case "cds" -> {
+                launchJar = cdsDirectory.resolve(jar.getFileName());
+                command.add("-XX:SharedArchiveFile=" + cdsDirectory.resolve("application.jsa"));
+            }
+            case "aot" -> command.add("-Dspring.aot.enabled=true");
+            default -> throw new IllegalArgumentException("Unknown mode " + mode);
+        }
+        if (!Files.exists(launchJar)) {
+            throw new IllegalStateException(launchJar + " not found; build it first (see the class comment)");
+        }
+        // The extracted (cds) jar lists its libraries in the manifest, so it starts the application class directly
+        String mainClass = mode.equals("cds") ? MAIN_CLASS : FAT_JAR_LAUNCHER;
+        command.add("-cp");
+        command.add(extraClasspath == null ? launchJar.toString() : launchJar + File.pathSeparator + extraClasspath);
+        command.add(mainClass);
+        if (!mode.equals("default")) {
+            command.add(FAST_STARTUP);
+        }
+        return command;
+    }
+
+    private static Sample start(List<String> command, int port, Duration timeout) throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest probe = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/expenses/page?limit=1"))
+                .timeout(Duration.ofSeconds(30))
+                .build();
+        AtomicReference<Double> startedSeconds = new AtomicReference<>();
+        StringBuilder log = new StringBuilder();
+
+        long launched = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Thread reader = new Thread(() -> {
+            try (BufferedReader lines = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    Matcher matcher = STARTED.matcher(line);
+                    if (matcher.find()) {
+                        startedSeconds.set(Double.parseDouble(matcher.group(1)));
+                    }
+                    synchronized (log) {
+                        log.append(line).append('\n');
+                    }
+                }
+            } catch (IOException e) {
+                // Process ended
+            }
+        });
+        reader.setDaemon(true);
+        reader.start();
+
+        try {
+            long deadline = launched + timeout.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    break;
+                }
+                try {
+                    if (client.send(probe, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return new Sample((System.nanoTime() - launched) / 1_000_000, startedSeconds.get());
+                    }
+                } catch (IOException e) {
+                    // Not listening yet
+                }
+                Thread.sleep(10);
+            }
+            synchronized (log) {
+                System.err.println(log);
+            }
+            throw new IllegalStateException("Application did not serve a request: " + String.join(" ", command));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static <T extends Comparable<T>> T median(List<T> values) {
+        List<T> sorted = new ArrayList<>(values);
+        sorted.sort(null);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    private static List<String> split(String arguments) {
+        return arguments.isBlank() ? List.of() : Arrays.asList(arguments.trim().split("\\s+"));
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    private record Sample(long firstRequestMillis, Double startedSeconds) {
+    }
+}
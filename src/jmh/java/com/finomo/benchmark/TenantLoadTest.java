@@ -0,0 +1,133 @@
+package com.finomo.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntFunction;
+
+/**
+ * Checks that per-tenant latency stays flat as the number of tenants grows. Each step seeds the tenants added
+ * since the previous step through the batch endpoint, then runs {@link LoadTest} against tenant-scoped reads
+ * (category lists, date ranges, the first page and analytics) spread over every tenant so far:
+ *
+ * <pre>
+ * java -jar target/finomo-*.jar --finomo.http.rate-limit.enabled=false
+ *
+ * mvn -Pbenchmark test-compile exec:java -Dexec.mainClass=com.finomo.benchmark.TenantLoadTest \
+ *     -Dexec.args="--url=http://localhost:8080 --tenants=10,100,1000,10000 --expenses-per-tenant=50"
+ * </pre>
+ *
+ * Prints one JSON line per step; the p50/p99 columns should not trend upwards with the tenant count.
+ */
+public class TenantLoadTest {
+
+    private static final String[] CATEGORIES = {"Groceries", "Transportation", "Utilities", "Dining", "Entertainment"};
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String baseUrl = options.getOrDefault("url", "http://localhost:8080");
+        int clients = Integer.parseInt(options.getOrDefault("clients", "200"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+        int expensesPerTenant = Integer.parseInt(options.getOrDefault("expenses-per-tenant", "50"));
+        String output = options.get("output");
+
+        IntFunction<String> paths = request -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            LocalDate from = START.plusDays(random.nextInt(300));
+            return switch (request % 4) {
+                case 0 -> "/api/expenses/category/" + CATEGORIES[random.nextInt(CATEGORIES.length)];
+                case 1 -> "/api/expenses/date-range?startDate=" + from + "&endDate=" + from.plusDays(30);
+                case 2 -> "/api/expenses/page?limit=20";
+                default -> "/api/expenses/analytics/total-by-category";
+            };
+        };
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        int seeded = 0;
+        for (String step : options.getOrDefault("tenants", "10,100,1000,10000").split(",")) {
+            int tenants = Integer.parseInt(step.trim());
+            seed(client, baseUrl, seeded, tenants, expensesPerTenant);
+            seeded = Math.max(seeded, tenants);
+
+            LoadTest.Result result = LoadTest.run(baseUrl, clients, duration, tenants, paths);
+            String json = result.toJson("tenants-" + tenants, clients);
+            System.out.println(json);
+            if (output != null) {
+                Files.writeString(Path.of(output), json + System.lineSeparator(),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+        }
+    }
+
+    // Create expensesPerTenant expenses for each of tenant-from .. tenant-(to - 1)
+    private static void seed(HttpClient client, String baseUrl, int from, int to, int expensesPerTenant)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> requests = new ArrayList<>();
+            for (int tenant = from; tenant < to; tenant++) {
+                String tenantId = "tenant-" + tenant;
+                String body = batchBody(expensesPerTenant);
+                requests.add(executor.submit(() -> {
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/expenses/batch"))
+                            .timeout(Duration.ofSeconds(60))
+                            .header("Content-Type", "application/json")
+                            .header("X-Tenant-Id", tenantId)
+                            .POST(HttpRequest.BodyPublishers.ofString(body))
+                            .build();
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() != 200) {
+                        throw new IllegalStateException("Seeding " + tenantId + " failed: " + response.statusCode());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> request : requests) {
+                request.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static String batchBody(int count) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append(String.format(Locale.ROOT,
+                    "{\"description\":\"Expense %d\",\"amount\":%d.%02d,\"category\":\"%s\",\"date\":\"%s\"}",
+                    i, 1 + random.nextInt(500), random.nextInt(100), CATEGORIES[random.nextInt(CATEGORIES.length)],
+                    START.plusDays(random.nextInt(365))));
+        }
+        return body.append(']').toString();
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+}
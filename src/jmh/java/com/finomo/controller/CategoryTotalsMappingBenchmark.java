@@ -0,0 +1,37 @@
+package com.finomo.controller;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Result mapping done by ExpenseController.getTotalAmountByCategory
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CategoryTotalsMappingBenchmark {
+    
+    @Param({"10", "1000"})
+    private int categories;
+    
+    private List<Object[]> rows;
+    
+    @Setup
+    public void setUp() {
+        rows = new ArrayList<>(categories);
+        for (int i = 0; i < categories; i++) {
+            rows.add(new Object[] {"Category " + i, BigDecimal.valueOf(1000 + i, 2)});
+        }
+    }
+    
+    @Benchmark
+    public Map<String, BigDecimal> toCategoryTotals() {
+        return ExpenseController.toCategoryTotals(rows);
+    }
+}
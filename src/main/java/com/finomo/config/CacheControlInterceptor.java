@@ -0,0 +1,45 @@
+package com.finomo.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Sets Cache-Control on GET and HEAD responses from finomo.http.cache-control.[<path pattern>]=<directives>.
+// The most specific matching pattern wins; the header is written before the handler runs so 304s carry it too.
+public class CacheControlInterceptor implements HandlerInterceptor {
+
+    private final List<Rule> rules = new ArrayList<>();
+
+    public CacheControlInterceptor(Map<String, String> cacheControl) {
+        cacheControl.forEach((pattern, directives) ->
+                rules.add(new Rule(PathPatternParser.defaultInstance.parse(pattern), directives)));
+        rules.sort((a, b) -> PathPattern.SPECIFICITY_COMPARATOR.compare(a.pattern(), b.pattern()));
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return true;
+        }
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        for (Rule rule : rules) {
+            if (rule.pattern().matches(path)) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, rule.directives());
+                break;
+            }
+        }
+        return true;
+    }
+
+    private record Rule(PathPattern pattern, String directives) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.finomo.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+// Wraps the application DataSource in a ConcurrencyLimitingDataSource when finomo.db.concurrency-limit.enabled=true
+@Configuration
+@ConditionalOnProperty(name = "finomo.db.concurrency-limit.enabled", havingValue = "true")
+public class DatabaseConcurrencyConfig {
+    
+    @Bean
+    public static BeanPostProcessor concurrencyLimitingDataSourcePostProcessor(Environment environment,
+                                                                              ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // Only pools are limited; wrappers such as the replica router's lazy proxy delegate to a limited pool
+                if (!(bean instanceof DataSource dataSource) || bean instanceof DelegatingDataSource) {
+                    return bean;
+                }
+                int permits = environment.getProperty("finomo.db.concurrency-limit.permits", Integer.class,
+                        environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10));
+                Duration acquireTimeout = environment.getProperty("finomo.db.concurrency-limit.acquire-timeout",
+                        Duration.class, Duration.ofSeconds(5));
+                ConcurrencyLimitingDataSource limited =
+                        new ConcurrencyLimitingDataSource(dataSource, permits, acquireTimeout);
+                
+                meterRegistry.ifAvailable(registry -> {
+                    Gauge.builder("finomo.db.permits.available", limited, ConcurrencyLimitingDataSource::getAvailablePermits)
+                            .tag("datasource", beanName)
+                            .register(registry);
+                    Gauge.builder("finomo.db.permits.waiting", limited, ConcurrencyLimitingDataSource::getQueueLength)
+                            .tag("datasource", beanName)
+                            .register(registry);
+                });
+                return limited;
+            }
+        };
+    }
+}
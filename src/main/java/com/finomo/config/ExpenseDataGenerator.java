@@ -0,0 +1,80 @@
+package com.finomo.config;
+
+import com.finomo.entity.Expense;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Generates realistic, reproducible expenses for sample data, benchmarks and load tests
+public class ExpenseDataGenerator {
+    
+    private static final Template[] TEMPLATES = {
+        new Template("Groceries", 20, 200, "Grocery shopping at Walmart", "Weekly grocery shopping",
+                "Farmers market produce", "Costco bulk order", "Corner store snacks"),
+        new Template("Transportation", 10, 90, "Gas station fill-up", "Monthly transit pass",
+                "Uber ride downtown", "Parking garage fee", "Car wash"),
+        new Template("Utilities", 30, 250, "Electric bill payment", "Water bill payment",
+                "Internet service", "Mobile phone plan", "Gas heating bill"),
+        new Template("Dining", 8, 120, "Lunch at restaurant", "Coffee with friends",
+                "Pizza delivery", "Team dinner", "Breakfast at diner"),
+        new Template("Entertainment", 5, 80, "Netflix subscription", "Movie tickets",
+                "Concert tickets", "Spotify subscription", "Board game night"),
+        new Template("Health", 15, 300, "Pharmacy prescription", "Gym membership",
+                "Dentist co-pay", "Vitamins and supplements", "Eye exam"),
+        new Template("Shopping", 10, 400, "New running shoes", "Winter jacket",
+                "Home office chair", "Birthday gift", "Books from bookstore")
+    };
+    
+    private static final String[] NOTES = {
+        null, "Monthly subscription", "Paid by card", "Split with roommate", "Business expense",
+        "Full tank for the week", "Reimbursable", "Recurring"
+    };
+    
+    private final SplittableRandom random;
+    private final LocalDate endDate;
+    private final int daysBack;
+    
+    public ExpenseDataGenerator(long seed) {
+        this(seed, LocalDate.now(), 365);
+    }
+    
+    public ExpenseDataGenerator(long seed, LocalDate endDate, int daysBack) {
+        this.random = new SplittableRandom(seed);
+        this.endDate = endDate;
+        this.daysBack = daysBack;
+    }
+    
+    // Next expense, dated within daysBack days before endDate
+    public Expense next() {
+        Template template = TEMPLATES[random.nextInt(TEMPLATES.length)];
+        String description = template.descriptions[random.nextInt(template.descriptions.length)];
+        BigDecimal amount = BigDecimal.valueOf(template.minAmount + random.nextDouble() * (template.maxAmount - template.minAmount))
+                .setScale(2, RoundingMode.HALF_UP);
+        LocalDate date = endDate.minusDays(random.nextInt(daysBack));
+        String notes = NOTES[random.nextInt(NOTES.length)];
+        return new Expense(description, amount, template.category, date, notes);
+    }
+    
+    public List<Expense> generate(int count) {
+        List<Expense> expenses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            expenses.add(next());
+        }
+        return expenses;
+    }
+    
+    public static String[] categories() {
+        String[] categories = new String[TEMPLATES.length];
+        for (int i = 0; i < TEMPLATES.length; i++) {
+            categories[i] = TEMPLATES[i].category;
+        }
+        return categories;
+    }
+    
+    private record Template(String category, double minAmount, double maxAmount, String... descriptions) {
+    }
+}
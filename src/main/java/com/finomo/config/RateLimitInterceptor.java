@@ -0,0 +1,143 @@
+package com.finomo.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+// Admission control for the API. Each request is matched to an endpoint class (finomo.http.rate-limit.classes.*)
+// by the most specific path pattern whose methods include the request's. The class's cost is taken from the
+// client's token bucket for that class, so a full scan drains a bucket much faster than id lookups; when the
+// bucket is short the request gets 429 with Retry-After. Classes with max-concurrent also shed load with 503
+// once that many requests are in flight, before they queue for a database connection.
+// Clients are told apart by remote address only. X-Client-Id and X-Tenant-Id are chosen by the client, so keying on
+// them would hand a client that rotates them a full bucket per request and push real clients' buckets out of the
+// bounded map. Behind the ingress, server.forward-headers-strategy=native makes the remote address the client's
+// from X-Forwarded-For, trusted only when it comes from an internal proxy address.
+// Buckets live in this instance's memory: with N instances a client that is spread over all of them by the load
+// balancer is admitted up to N times the configured rate, so the limits are set per instance.
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = RateLimitInterceptor.class.getName() + ".permit";
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final Map<String, Semaphore> inFlight = new HashMap<>();
+    private final Cache<BucketKey, TokenBucket> buckets;
+    private final long capacity;
+    private final double tokensPerSecond;
+    private final MeterRegistry meterRegistry;
+
+    public RateLimitInterceptor(WebConfig.RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.capacity = properties.getCapacity();
+        this.tokensPerSecond = properties.getRefillPerSecond();
+        this.meterRegistry = meterRegistry;
+        properties.getClasses().forEach((name, endpointClass) -> {
+            Set<String> methods = endpointClass.getMethods().stream()
+                    .map(method -> method.toUpperCase(Locale.ROOT))
+                    .collect(Collectors.toSet());
+            for (String path : endpointClass.getPaths()) {
+                rules.add(new Rule(PathPatternParser.defaultInstance.parse(path), methods, name, endpointClass.getCost()));
+            }
+            if (endpointClass.getMaxConcurrent() > 0) {
+                inFlight.put(name, new Semaphore(endpointClass.getMaxConcurrent()));
+            }
+        });
+        rules.sort((a, b) -> PathPattern.SPECIFICITY_COMPARATOR.compare(a.pattern(), b.pattern()));
+        // An idle bucket refills completely within capacity / rate, after which dropping it changes nothing
+        Duration idle = Duration.ofNanos((long) (1e9 * capacity / tokensPerSecond)).plusSeconds(1);
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(idle)
+                .maximumSize(properties.getMaxClients())
+                .build();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        // Async dispatches resume a request that was admitted on its first dispatch
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        Rule rule = match(request);
+        if (rule == null) {
+            return true;
+        }
+
+        Semaphore permits = inFlight.get(rule.endpointClass());
+        if (permits != null && !permits.tryAcquire()) {
+            reject(response, rule, HttpStatus.SERVICE_UNAVAILABLE, 1, "concurrency");
+            return false;
+        }
+
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(new BucketKey(request.getRemoteAddr(), rule.endpointClass()),
+                key -> new TokenBucket(capacity, tokensPerSecond, now));
+        long waitNanos = bucket.tryConsume(rule.cost(), now);
+        if (waitNanos > 0) {
+            if (permits != null) {
+                permits.release();
+            }
+            reject(response, rule, HttpStatus.TOO_MANY_REQUESTS, (waitNanos + 999_999_999) / 1_000_000_000, "rate");
+            return false;
+        }
+        if (permits != null) {
+            request.setAttribute(PERMIT_ATTRIBUTE, permits);
+        }
+        return true;
+    }
+
+    // Runs once the request is really finished: after the handler, or after the async dispatch for async handlers
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof Semaphore permits) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            permits.release();
+        }
+    }
+
+    private Rule match(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        String method = request.getMethod();
+        for (Rule rule : rules) {
+            if ((rule.methods().isEmpty() || rule.methods().contains(method)) && rule.pattern().matches(path)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private void reject(HttpServletResponse response, Rule rule, HttpStatus status, long retryAfterSeconds,
+                        String reason) throws IOException {
+        if (meterRegistry != null) {
+            meterRegistry.counter("finomo.http.rejected", "class", rule.endpointClass(), "reason", reason).increment();
+        }
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, retryAfterSeconds)));
+        response.sendError(status.value(), status.getReasonPhrase());
+    }
+
+    private record Rule(PathPattern pattern, Set<String> methods, String endpointClass, long cost) {
+    }
+
+    private record BucketKey(String client, String endpointClass) {
+    }
+}
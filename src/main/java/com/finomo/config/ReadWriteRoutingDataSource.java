@@ -0,0 +1,86 @@
+package com.finomo.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Routes connections for read-only transactions to the replica pool and everything else to the primary.
+// Must sit behind a LazyConnectionDataSourceProxy: the transaction manager only marks the transaction read-only
+// after it has asked for a connection, so the physical connection has to be fetched at the first statement.
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    
+    public enum Target {
+        PRIMARY, REPLICA
+    }
+    
+    // Set for the current thread while the caller has to see its own recent writes
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+    
+    private final Map<Target, Counter> routed = new EnumMap<>(Target.class);
+    
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, MeterRegistry meterRegistry) {
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        if (meterRegistry != null) {
+            for (Target target : Target.values()) {
+                routed.put(target, Counter.builder("finomo.datasource.routed")
+                        .description("Connections handed out by the read/write routing data source")
+                        .tag("target", target.name().toLowerCase())
+                        .register(meterRegistry));
+            }
+        }
+    }
+    
+    // Route every read-only transaction on this thread to the primary until the returned scope is closed
+    public static PrimaryScope pinToPrimary() {
+        PrimaryScope scope = new PrimaryScope(PINNED_TO_PRIMARY.get());
+        PINNED_TO_PRIMARY.set(Boolean.TRUE);
+        return scope;
+    }
+    
+    public static <T> T onPrimary(Supplier<T> work) {
+        try (PrimaryScope scope = pinToPrimary()) {
+            return work.get();
+        }
+    }
+    
+    public static Target currentTarget() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && PINNED_TO_PRIMARY.get() == null
+                ? Target.REPLICA
+                : Target.PRIMARY;
+    }
+    
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Target target = currentTarget();
+        Counter counter = routed.get(target);
+        if (counter != null) {
+            counter.increment();
+        }
+        return target;
+    }
+    
+    public static final class PrimaryScope implements AutoCloseable {
+        
+        private final Boolean previous;
+        
+        private PrimaryScope(Boolean previous) {
+            this.previous = previous;
+        }
+        
+        @Override
+        public void close() {
+            if (previous == null) {
+                PINNED_TO_PRIMARY.remove();
+            } else {
+                PINNED_TO_PRIMARY.set(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.finomo.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+// Read-your-writes for replica routing: once a client writes, its reads go to the primary for the configured
+// window, which should cover the replica's replication lag. The time of the write travels with the client, as a
+// cookie and as the X-Last-Write response header that clients without a cookie store send back, so any instance
+// behind the load balancer can honour it and no instance keeps per-client state. The time is set before the write
+// runs, as the response may be committed by then; a failed write only keeps the client on the primary a little
+// longer. A client can send any time it likes, but that only moves its own reads to the primary.
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    
+    public static final String LAST_WRITE_COOKIE = "finomo-last-write";
+    public static final String LAST_WRITE_HEADER = "X-Last-Write";
+    
+    private static final Set<String> WRITE_METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+    
+    private final Duration window;
+    
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        boolean recentWriter = isWithinWindow(lastWrite(request), now);
+        if (WRITE_METHODS.contains(request.getMethod())) {
+            Cookie cookie = new Cookie(LAST_WRITE_COOKIE, Long.toString(now));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+            response.addCookie(cookie);
+            response.setHeader(LAST_WRITE_HEADER, Long.toString(now));
+        }
+        if (!recentWriter) {
+            chain.doFilter(request, response);
+        } else {
+            try (ReadWriteRoutingDataSource.PrimaryScope scope = ReadWriteRoutingDataSource.pinToPrimary()) {
+                chain.doFilter(request, response);
+            }
+        }
+    }
+    
+    private boolean isWithinWindow(Long lastWrite, long now) {
+        return lastWrite != null && lastWrite <= now && now - lastWrite < window.toMillis();
+    }
+    
+    // Epoch milliseconds of the client's last write from the header or the cookie; null if absent or malformed
+    static Long lastWrite(HttpServletRequest request) {
+        String value = request.getHeader(LAST_WRITE_HEADER);
+        if (value == null && request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (LAST_WRITE_COOKIE.equals(cookie.getName())) {
+                    value = cookie.getValue();
+                }
+            }
+        }
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
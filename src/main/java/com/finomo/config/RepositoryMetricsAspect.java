@@ -0,0 +1,131 @@
+package com.finomo.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.BaseStream;
+import java.util.stream.Stream;
+
+// Latency histogram and rows-returned summary for every Spring Data repository method, tagged by repository
+// and method, plus a WARN log for calls slower than finomo.metrics.slow-query-threshold.
+// Streams are timed until the query has been issued; their rows are counted as they are consumed.
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+    
+    private static final Logger log = LoggerFactory.getLogger(RepositoryMetricsAspect.class);
+    
+    private final MeterRegistry registry;
+    private final long slowQueryThresholdNanos;
+    private final Map<MeterKey, Meters> meters = new ConcurrentHashMap<>();
+    
+    private record MeterKey(Class<?> proxyType, Method method) {
+    }
+    
+    private record Meters(String repository, String method, Timer success, Timer error, DistributionSummary rows) {
+    }
+    
+    public RepositoryMetricsAspect(MeterRegistry registry,
+                                   @Value("${finomo.metrics.slow-query-threshold:500ms}") Duration slowQueryThreshold) {
+        this.registry = registry;
+        this.slowQueryThresholdNanos = slowQueryThreshold.toNanos();
+    }
+    
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object proxy = joinPoint.getThis();
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Meters meters = this.meters.computeIfAbsent(new MeterKey(proxy.getClass(), method),
+                key -> register(proxy, key.method()));
+        
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Object result = joinPoint.proceed();
+            success = true;
+            return countRows(result, meters.rows());
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            (success ? meters.success() : meters.error()).record(elapsed, TimeUnit.NANOSECONDS);
+            if (elapsed >= slowQueryThresholdNanos) {
+                log.warn("Slow query {}.{} took {} ms ({} arguments, {})", meters.repository(), meters.method(),
+                        elapsed / 1_000_000, joinPoint.getArgs().length, success ? "succeeded" : "failed");
+            }
+        }
+    }
+    
+    private static Object countRows(Object result, DistributionSummary rows) {
+        if (result instanceof Stream<?> stream) {
+            long[] count = new long[1];
+            return stream.peek(row -> count[0]++).onClose(() -> rows.record(count[0]));
+        }
+        if (result instanceof BaseStream<?, ?>) {
+            return result;
+        }
+        long count;
+        if (result instanceof Collection<?> collection) {
+            count = collection.size();
+        } else if (result instanceof Slice<?> slice) {
+            count = slice.getNumberOfElements();
+        } else if (result instanceof Optional<?> optional) {
+            count = optional.isPresent() ? 1 : 0;
+        } else if (result instanceof Iterable<?> iterable) {
+            count = iterable.spliterator().getExactSizeIfKnown();
+        } else {
+            // Scalars (counts, sums, affected-row counts) and void are not row results
+            return result;
+        }
+        if (count >= 0) {
+            rows.record(count);
+        }
+        return result;
+    }
+    
+    private Meters register(Object proxy, Method method) {
+        String repository = repositoryName(proxy);
+        String name = method.getName();
+        return new Meters(repository, name, timer(repository, name, "success"), timer(repository, name, "error"),
+                DistributionSummary.builder("finomo.repository.rows")
+                        .description("Rows returned by repository method calls")
+                        .baseUnit("rows")
+                        .tags("repository", repository, "method", name)
+                        .publishPercentileHistogram()
+                        .register(registry));
+    }
+    
+    private Timer timer(String repository, String method, String outcome) {
+        return Timer.builder("finomo.repository.invocations")
+                .description("Latency of repository method calls")
+                .tags("repository", repository, "method", method, "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+    
+    // Name of the application repository interface behind a proxy, e.g. ExpenseRepository
+    private static String repositoryName(Object proxy) {
+        return Arrays.stream(AopProxyUtils.proxiedUserInterfaces(proxy))
+                .filter(candidate -> candidate.getName().startsWith("com.finomo."))
+                .findFirst()
+                .map(Class::getSimpleName)
+                .orElse(proxy.getClass().getSimpleName());
+    }
+}
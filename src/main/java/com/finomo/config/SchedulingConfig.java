@@ -0,0 +1,10 @@
+package com.finomo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Background jobs with @Scheduled methods (recurring expense materialization) run on Spring Boot's task scheduler
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,22 @@
+package com.finomo.config;
+
+import com.finomo.service.ExpenseChangeLog;
+import com.finomo.service.ExpenseIngestionService;
+import com.finomo.service.recurring.RecurringExpenseScheduler;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StartupConfig {
+
+    // Beans kept eager under spring.main.lazy-initialization (fast-startup profile). The ingestion service replays
+    // its durable log when it is created, which has to happen at startup rather than on the first POST. @Scheduled
+    // methods are only registered for beans that exist, so the recurring expense scheduler and the change log
+    // (retention and compaction) are eager as well.
+    @Bean
+    static LazyInitializationExcludeFilter eagerStartupBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(ExpenseIngestionService.class,
+                RecurringExpenseScheduler.class, ExpenseChangeLog.class);
+    }
+}
@@ -0,0 +1,28 @@
+package com.finomo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.task.TaskDecorator;
+
+@Configuration
+public class TenantConfig {
+
+    // Ahead of every other filter so read-your-writes and metrics already run as the request's tenant
+    @Bean
+    public FilterRegistrationBean<TenantFilter> tenantFilter(
+            @Value("${finomo.tenant.require-header:false}") boolean requireHeader) {
+        FilterRegistrationBean<TenantFilter> registration = new FilterRegistrationBean<>(new TenantFilter(requireHeader));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    // Applied by Boot to applicationTaskExecutor, so imports and streamed (async) responses keep the request's tenant
+    @Bean
+    public TaskDecorator tenantTaskDecorator() {
+        return TenantContext::propagate;
+    }
+}
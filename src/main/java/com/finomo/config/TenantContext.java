@@ -0,0 +1,78 @@
+package com.finomo.config;
+
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+// Tenant of the current thread. Requests set it from the X-Tenant-Id header (TenantFilter); threads without a
+// tenant act as the default tenant, which owns the rows that existed before tenants were introduced.
+// The root tenant sees every tenant's rows and is meant for background jobs such as index and rollup rebuilds;
+// it cannot be selected by a client.
+public final class TenantContext {
+
+    public static final String DEFAULT_TENANT = "default";
+    public static final String ROOT_TENANT = "*";
+
+    private static final Pattern VALID_TENANT = Pattern.compile("[A-Za-z0-9_.-]{1,64}");
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    public static String current() {
+        String tenant = CURRENT.get();
+        return tenant != null ? tenant : DEFAULT_TENANT;
+    }
+
+    public static boolean isRoot() {
+        return ROOT_TENANT.equals(CURRENT.get());
+    }
+
+    public static boolean isValid(String tenant) {
+        return tenant != null && VALID_TENANT.matcher(tenant).matches();
+    }
+
+    // Act as the given tenant until the returned scope is closed; scopes nest
+    public static TenantScope enter(String tenant) {
+        String previous = CURRENT.get();
+        CURRENT.set(tenant);
+        return new TenantScope(previous);
+    }
+
+    public static TenantScope root() {
+        return enter(ROOT_TENANT);
+    }
+
+    public static <T> T callAsRoot(Supplier<T> action) {
+        try (TenantScope scope = root()) {
+            return action.get();
+        }
+    }
+
+    // Capture the caller's tenant for a task that runs on another thread
+    public static Runnable propagate(Runnable task) {
+        String tenant = CURRENT.get();
+        return () -> {
+            try (TenantScope scope = enter(tenant)) {
+                task.run();
+            }
+        };
+    }
+
+    public static final class TenantScope implements AutoCloseable {
+
+        private final String previous;
+
+        private TenantScope(String previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.finomo.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Runs each API request as the tenant named by the X-Tenant-Id header. Without the header the request is served
+// as the default tenant, unless finomo.tenant.require-header is set.
+public class TenantFilter extends OncePerRequestFilter {
+
+    public static final String TENANT_HEADER = "X-Tenant-Id";
+
+    private final boolean requireHeader;
+
+    public TenantFilter(boolean requireHeader) {
+        this.requireHeader = requireHeader;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String tenant = request.getHeader(TENANT_HEADER);
+        if (tenant == null || tenant.isBlank()) {
+            if (requireHeader) {
+                response.sendError(HttpStatus.BAD_REQUEST.value(), TENANT_HEADER + " header is required");
+                return;
+            }
+            tenant = TenantContext.DEFAULT_TENANT;
+        } else if (!TenantContext.isValid(tenant)) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Invalid " + TENANT_HEADER);
+            return;
+        }
+        try (TenantContext.TenantScope scope = TenantContext.enter(tenant)) {
+            chain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.finomo.config;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free token bucket. Instead of a token count and a refill timestamp the bucket keeps one value, the time
+// at which it would be full again (generic cell rate algorithm); taking tokens pushes that time forward, and the
+// request fits while it stays within one full bucket of now. A single CAS per request, no refill thread.
+final class TokenBucket {
+
+    private final long capacity;
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    TokenBucket(long capacity, double tokensPerSecond, long now) {
+        this.capacity = capacity;
+        this.nanosPerToken = Math.max(1, (long) (1e9 / tokensPerSecond));
+        this.burstNanos = capacity * nanosPerToken;
+        this.fullAt = new AtomicLong(now);
+    }
+
+    // Take cost tokens at time now (nanos); 0 when admitted, otherwise the nanos until enough tokens are back.
+    // A cost above the capacity is charged as the whole bucket so it can still succeed.
+    long tryConsume(long cost, long now) {
+        long charge = Math.min(cost, capacity) * nanosPerToken;
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + charge;
+            long excess = next - now - burstNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.finomo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties(WebConfig.HttpProperties.class)
+public class WebConfig implements WebMvcConfigurer {
+
+    private final HttpProperties httpProperties;
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public WebConfig(HttpProperties httpProperties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.httpProperties = httpProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // First, so rejected requests skip every other interceptor
+        RateLimitProperties rateLimit = httpProperties.getRateLimit();
+        if (rateLimit.isEnabled() && !rateLimit.getClasses().isEmpty()) {
+            registry.addInterceptor(new RateLimitInterceptor(rateLimit, meterRegistry.getIfAvailable()))
+                    .addPathPatterns("/api/**");
+        }
+        if (!httpProperties.getCacheControl().isEmpty()) {
+            registry.addInterceptor(new CacheControlInterceptor(httpProperties.getCacheControl()))
+                    .addPathPatterns("/api/**");
+        }
+    }
+
+    // finomo.http.*: per-endpoint Cache-Control directives keyed by path pattern, and admission control
+    @ConfigurationProperties("finomo.http")
+    public static class HttpProperties {
+
+        private Map<String, String> cacheControl = new LinkedHashMap<>();
+
+        private RateLimitProperties rateLimit = new RateLimitProperties();
+
+        public Map<String, String> getCacheControl() {
+            return cacheControl;
+        }
+
+        public void setCacheControl(Map<String, String> cacheControl) {
+            this.cacheControl = cacheControl;
+        }
+
+        public RateLimitProperties getRateLimit() {
+            return rateLimit;
+        }
+
+        public void setRateLimit(RateLimitProperties rateLimit) {
+            this.rateLimit = rateLimit;
+        }
+    }
+
+    // finomo.http.rate-limit.*: one token bucket of capacity tokens, refilled at refill-per-second, per client and
+    // endpoint class
+    public static class RateLimitProperties {
+
+        private boolean enabled = true;
+
+        private long capacity = 200;
+
+        private double refillPerSecond = 100;
+
+        private long maxClients = 100_000;
+
+        private Map<String, EndpointClass> classes = new LinkedHashMap<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(long capacity) {
+            this.capacity = capacity;
+        }
+
+        public double getRefillPerSecond() {
+            return refillPerSecond;
+        }
+
+        public void setRefillPerSecond(double refillPerSecond) {
+            this.refillPerSecond = refillPerSecond;
+        }
+
+        public long getMaxClients() {
+            return maxClients;
+        }
+
+        public void setMaxClients(long maxClients) {
+            this.maxClients = maxClients;
+        }
+
+        public Map<String, EndpointClass> getClasses() {
+            return classes;
+        }
+
+        public void setClasses(Map<String, EndpointClass> classes) {
+            this.classes = classes;
+        }
+    }
+
+    // Path patterns and methods (empty = any) that make up an endpoint class, the tokens one request costs and
+    // an optional cap on requests in flight (0 = none)
+    public static class EndpointClass {
+
+        private List<String> paths = new ArrayList<>();
+
+        private List<String> methods = new ArrayList<>();
+
+        private long cost = 1;
+
+        private int maxConcurrent;
+
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        public void setPaths(List<String> paths) {
+            this.paths = paths;
+        }
+
+        public List<String> getMethods() {
+            return methods;
+        }
+
+        public void setMethods(List<String> methods) {
+            this.methods = methods;
+        }
+
+        public long getCost() {
+            return cost;
+        }
+
+        public void setCost(long cost) {
+            this.cost = cost;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+    }
+}
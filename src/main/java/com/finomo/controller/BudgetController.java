@@ -0,0 +1,184 @@
+package com.finomo.controller;
+
+import com.finomo.dto.BudgetAlert;
+import com.finomo.dto.BudgetStatus;
+import com.finomo.entity.Budget;
+import com.finomo.service.BudgetService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/budgets")
+@CrossOrigin(origins = "*")
+@Tag(name = "Budgets", description = "Monthly category budgets and threshold alerts")
+public class BudgetController {
+
+    @Autowired
+    private BudgetService budgetService;
+
+    // Create a budget
+    @Operation(
+        summary = "Create a budget",
+        description = "Sets a monthly spending limit for a category. Each category can have one budget."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "201", description = "Budget created successfully",
+                    content = @Content(schema = @Schema(implementation = Budget.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid input data"),
+        @ApiResponse(responseCode = "409", description = "The category already has a budget"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping
+    public ResponseEntity<Budget> createBudget(@Valid @RequestBody Budget budget) {
+        try {
+            Budget savedBudget = budgetService.createBudget(budget);
+            return new ResponseEntity<>(savedBudget, HttpStatus.CREATED);
+        } catch (DataIntegrityViolationException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Get all budgets
+    @Operation(summary = "Get all budgets")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Budgets retrieved successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping
+    public ResponseEntity<List<Budget>> getAllBudgets() {
+        try {
+            return new ResponseEntity<>(budgetService.getAllBudgets(), HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Get spend against every budget for a month
+    @Operation(
+        summary = "Get budget status",
+        description = "Returns the spend against each budget in a month (the current month by default). " +
+                      "Served from running totals kept in memory, so it costs no aggregate query."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Budget status retrieved successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/status")
+    public ResponseEntity<List<BudgetStatus>> getBudgetStatus(
+            @Parameter(description = "Month (yyyy-MM); defaults to the current month", example = "2024-06")
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth month) {
+        try {
+            return new ResponseEntity<>(budgetService.getStatus(month != null ? month : YearMonth.now()), HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Subscribe to budget alerts
+    @Operation(
+        summary = "Subscribe to budget alerts",
+        description = "Server-Sent Events stream with a '" + BudgetService.ALERT_EVENT + "' event each time a " +
+                      "category's spend for a month crosses an alert threshold (80% and 100% of the limit by default)."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Event stream opened",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+                                       schema = @Schema(implementation = BudgetAlert.class)))
+    })
+    @GetMapping(value = "/alerts", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToAlerts() {
+        return budgetService.subscribe();
+    }
+
+    // Get a budget by id
+    @Operation(summary = "Get a budget by ID")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Budget found and returned successfully",
+                    content = @Content(schema = @Schema(implementation = Budget.class))),
+        @ApiResponse(responseCode = "404", description = "Budget not found"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<Budget> getBudgetById(
+            @Parameter(description = "Unique identifier of the budget", required = true)
+            @PathVariable Long id) {
+        try {
+            Optional<Budget> budget = budgetService.getBudgetById(id);
+            return budget.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+                    .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Update a budget
+    @Operation(summary = "Update a budget", description = "Changes a budget's category or monthly limit.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Budget updated successfully",
+                    content = @Content(schema = @Schema(implementation = Budget.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid input data"),
+        @ApiResponse(responseCode = "404", description = "Budget not found"),
+        @ApiResponse(responseCode = "409", description = "The new category already has a budget"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PutMapping("/{id}")
+    public ResponseEntity<Budget> updateBudget(
+            @Parameter(description = "Unique identifier of the budget to update", required = true)
+            @PathVariable Long id,
+            @Valid @RequestBody Budget budgetDetails) {
+        try {
+            return new ResponseEntity<>(budgetService.updateBudget(id, budgetDetails), HttpStatus.OK);
+        } catch (DataIntegrityViolationException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Delete a budget
+    @Operation(summary = "Delete a budget")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Budget deleted successfully"),
+        @ApiResponse(responseCode = "404", description = "Budget not found"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Map<String, String>> deleteBudget(
+            @Parameter(description = "Unique identifier of the budget to delete", required = true)
+            @PathVariable Long id) {
+        try {
+            budgetService.deleteBudget(id);
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Budget deleted successfully");
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.finomo.controller;
+
+import com.finomo.dto.ExpenseChangePage;
+import com.finomo.service.ExpenseChangeFeed;
+import com.finomo.service.ExpenseChangeLog;
+import com.finomo.service.ExpenseService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+@RestController
+@RequestMapping("/api/expenses/changes")
+@CrossOrigin(origins = "*")
+@Tag(name = "Expense changes", description = "Ordered stream of committed expense creates, updates and deletes")
+public class ExpenseChangeController {
+
+    static final int MAX_WAIT_SECONDS = 60;
+
+    @Autowired
+    private ExpenseChangeLog changeLog;
+
+    @Autowired
+    private ExpenseChangeFeed changeFeed;
+
+    // Read changes after a sequence number, waiting for new ones
+    @Operation(
+        summary = "Get expense changes since a sequence number",
+        description = "Returns the changes after 'since', oldest first, each with the expense before and after it. " +
+                      "When there are none yet the request waits up to 'wait' seconds for the next commit and " +
+                      "otherwise returns an empty page. Continue with since=nextSince. Start from since=0, or " +
+                      "after 410 load the expenses again and continue from the returned lastSequence; old changes " +
+                      "are compacted, so apply changes as upserts."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Changes retrieved successfully",
+                    content = @Content(schema = @Schema(implementation = ExpenseChangePage.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid since, limit or wait"),
+        @ApiResponse(responseCode = "410", description = "Changes after 'since' were removed by retention"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping
+    public CompletableFuture<ResponseEntity<?>> getChanges(
+            @Parameter(description = "Sequence number of the last change already processed; 0 for all changes")
+            @RequestParam(defaultValue = "0") long since,
+            @Parameter(description = "Maximum number of changes (1-" + ExpenseService.MAX_PAGE_SIZE + ")")
+            @RequestParam(defaultValue = "" + ExpenseService.DEFAULT_PAGE_SIZE) int limit,
+            @Parameter(description = "Seconds to wait for a change when there is none yet (0-" + MAX_WAIT_SECONDS + ")")
+            @RequestParam(defaultValue = "30") int wait) {
+        if (since < 0 || limit < 1 || limit > ExpenseService.MAX_PAGE_SIZE || wait < 0 || wait > MAX_WAIT_SECONDS) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        }
+        try {
+            return changeFeed.poll(since, limit, Duration.ofSeconds(wait))
+                    .<ResponseEntity<?>>thenApply(page -> new ResponseEntity<>(page, HttpStatus.OK))
+                    .exceptionally(ExpenseChangeController::failure);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(failure(e));
+        }
+    }
+
+    // Stream changes as Server-Sent Events
+    @Operation(
+        summary = "Subscribe to expense changes",
+        description = "Server-Sent Events stream of the changes after 'since' (or the Last-Event-ID header of a " +
+                      "reconnecting EventSource) followed by every new change as it commits. Each 'change' event " +
+                      "has the sequence number as its id. A 'resync' event with the newest sequence number means " +
+                      "the subscriber fell behind retention and must load the expenses again."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Subscribed; events follow"),
+        @ApiResponse(responseCode = "400", description = "Invalid since"),
+        @ApiResponse(responseCode = "410", description = "Changes after 'since' were removed by retention")
+    })
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribe(
+            @Parameter(description = "Sequence number of the last change already processed; 0 for all changes")
+            @RequestParam(defaultValue = "0") long since,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        long position = lastEventId != null ? lastEventId : since;
+        if (position < 0) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        try {
+            changeLog.getChanges(position, 1);
+            return new ResponseEntity<>(changeFeed.subscribe(position), HttpStatus.OK);
+        } catch (ExpenseChangeLog.ChangesPurgedException e) {
+            return new ResponseEntity<>(HttpStatus.GONE);
+        } catch (Exception e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private static ResponseEntity<?> failure(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause()
+                : failure;
+        if (cause instanceof ExpenseChangeLog.ChangesPurgedException purged) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", purged.getMessage());
+            response.put("lastSequence", purged.getLastSequence());
+            return new ResponseEntity<>(response, HttpStatus.GONE);
+        }
+        return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+}
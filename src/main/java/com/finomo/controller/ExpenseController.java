@@ -1,7 +1,25 @@
 package com.finomo.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.finomo.dto.BatchItemResult;
+import com.finomo.dto.ExpenseAnomalies;
+import com.finomo.dto.ExpenseField;
+import com.finomo.dto.ExpensePage;
+import com.finomo.dto.ExpenseQuery;
+import com.finomo.dto.ImportReport;
+import com.finomo.dto.IngestionStatus;
+import com.finomo.dto.RollupVerification;
+import com.finomo.dto.TimeSeriesPoint;
 import com.finomo.entity.Expense;
+import com.finomo.service.ExpenseAnalyticsService;
+import com.finomo.service.ExpenseChangeCounter;
+import com.finomo.service.ExpenseExportWriter;
+import com.finomo.service.ExpenseImportService;
+import com.finomo.service.ExpenseIngestionService;
+import com.finomo.service.ExpenseRollupService;
+import com.finomo.service.ExpenseSearchIndex;
 import com.finomo.service.ExpenseService;
+import com.finomo.service.analytics.TimeBucket;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -11,10 +29,19 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.HashMap;
@@ -28,67 +55,372 @@ import java.util.Optional;
 @Tag(name = "Expense Management", description = "APIs for managing personal finance expenses")
 public class ExpenseController {
     
+    // Screening results on created expenses; X-Allow-Duplicate: true creates a suspected duplicate anyway
+    static final String ALLOW_DUPLICATE_HEADER = "X-Allow-Duplicate";
+    static final String SUSPECTED_DUPLICATE_HEADER = "X-Suspected-Duplicate";
+    static final String DUPLICATE_OF_HEADER = "X-Duplicate-Of";
+    static final String AMOUNT_Z_SCORE_HEADER = "X-Amount-Z-Score";
+    
+    // Access path and estimated matches of a combined query, e.g. "idx_expenses_tenant_category_date; rows=42"
+    static final String QUERY_PLAN_HEADER = "X-Query-Plan";
+    
     @Autowired
     private ExpenseService expenseService;
     
+    @Autowired
+    private ExpenseRollupService expenseRollupService;
+    
+    @Autowired
+    private ExpenseImportService expenseImportService;
+    
+    @Autowired
+    private ExpenseAnalyticsService expenseAnalyticsService;
+    
+    @Autowired
+    private ExpenseChangeCounter changeCounter;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    // Present only with finomo.ingestion.mode=write-behind
+    @Autowired(required = false)
+    private ExpenseIngestionService expenseIngestionService;
+    
     // Create a new expense
     @Operation(
         summary = "Create a new expense",
-        description = "Creates a new expense record with the provided details. All required fields must be provided."
+        description = "Creates a new expense record with the provided details. All required fields must be provided. " +
+                      "In write-behind ingestion mode the expense is appended to a durable log and 202 is returned " +
+                      "with a tracking id; poll /api/expenses/ingest/{trackingId} for the stored expense id. " +
+                      "The expense is screened against recent ones: a suspected duplicate is reported in the " +
+                      "X-Suspected-Duplicate (EXACT or SIMILAR) and X-Duplicate-Of headers, or rejected with 409 " +
+                      "when duplicate rejection is configured, and an unusual amount for the category in " +
+                      "X-Amount-Z-Score."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "201", description = "Expense created successfully",
                     content = @Content(schema = @Schema(implementation = Expense.class))),
+        @ApiResponse(responseCode = "202", description = "Expense accepted for write-behind ingestion",
+                    content = @Content(schema = @Schema(implementation = IngestionStatus.class))),
         @ApiResponse(responseCode = "400", description = "Invalid input data"),
+        @ApiResponse(responseCode = "409", description = "Rejected as a suspected duplicate of a recent expense",
+                    content = @Content(schema = @Schema(implementation = ExpenseAnomalies.class))),
+        @ApiResponse(responseCode = "503", description = "Ingestion backlog is full; retry later"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping
-    public ResponseEntity<Expense> createExpense(@Valid @RequestBody Expense expense) {
+    public ResponseEntity<?> createExpense(
+            @Valid @RequestBody Expense expense,
+            @Parameter(description = "Client key for safe retries in write-behind mode; a repeated key returns the " +
+                                     "status of the original tracking id instead of creating another expense")
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+            @Parameter(description = "Create the expense even if it looks like a duplicate of a recent one")
+            @RequestHeader(name = ALLOW_DUPLICATE_HEADER, defaultValue = "false") boolean allowDuplicate) {
+        try {
+            if (expenseIngestionService != null) {
+                IngestionStatus status = expenseIngestionService.ingest(expense, idempotencyKey);
+                return ResponseEntity.accepted()
+                        .header(HttpHeaders.LOCATION, "/api/expenses/ingest/" + status.trackingId())
+                        .body(status);
+            }
+            ExpenseService.ScreenedExpense created = expenseService.createExpense(expense, allowDuplicate);
+            if (created.expense() == null) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(created.anomalies());
+            }
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .eTag(expenseETag(created.expense()))
+                    .headers(anomalyHeaders(created.anomalies()))
+                    .body(created.expense());
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
+    // Get the state of an expense accepted by write-behind ingestion
+    @Operation(
+        summary = "Get ingestion status",
+        description = "Returns whether an expense accepted with 202 is still pending, committed (with its id), " +
+                      "a duplicate of an earlier idempotency key, or failed."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Tracking id found",
+                    content = @Content(schema = @Schema(implementation = IngestionStatus.class))),
+        @ApiResponse(responseCode = "404", description = "Tracking id not found or write-behind ingestion is disabled")
+    })
+    @GetMapping("/ingest/{trackingId}")
+    public ResponseEntity<IngestionStatus> getIngestionStatus(
+            @Parameter(description = "Tracking id returned by POST /api/expenses", required = true)
+            @PathVariable String trackingId) {
+        if (expenseIngestionService == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return expenseIngestionService.getStatus(trackingId)
+                .map(status -> new ResponseEntity<>(status, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+    
+    // Create expenses in bulk
+    @Operation(
+        summary = "Create expenses in bulk",
+        description = "Validates every expense in the array and inserts the valid ones in JDBC batches. " +
+                      "Returns one result per item, in request order. Items that look like duplicates of recent " +
+                      "expenses or of each other are flagged in their message, or get status DUPLICATE when " +
+                      "duplicate rejection is configured and X-Allow-Duplicate is not set."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Batch processed; see per-item results"),
+        @ApiResponse(responseCode = "400", description = "Batch too large"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchItemResult>> createExpenses(
+            @RequestBody List<Expense> expenses,
+            @Parameter(description = "Create items even if they look like duplicates")
+            @RequestHeader(name = ALLOW_DUPLICATE_HEADER, defaultValue = "false") boolean allowDuplicates) {
+        try {
+            List<BatchItemResult> results = expenseService.createExpenses(expenses, allowDuplicates);
+            return new ResponseEntity<>(results, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
+    // Update expenses in bulk
+    @Operation(
+        summary = "Update expenses in bulk",
+        description = "Updates every expense in the array by its id. Returns one result per item, in request order."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Batch processed; see per-item results"),
+        @ApiResponse(responseCode = "400", description = "Batch too large"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PutMapping("/batch")
+    public ResponseEntity<List<BatchItemResult>> updateExpenses(@RequestBody List<Expense> expenses) {
+        try {
+            List<BatchItemResult> results = expenseService.updateExpenses(expenses);
+            return new ResponseEntity<>(results, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
+    // Delete expenses in bulk
+    @Operation(
+        summary = "Delete expenses in bulk",
+        description = "Deletes every expense whose id is listed. Returns one result per id, in request order."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Batch processed; see per-item results"),
+        @ApiResponse(responseCode = "400", description = "Batch too large"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @DeleteMapping("/batch")
+    public ResponseEntity<List<BatchItemResult>> deleteExpenses(@RequestBody List<Long> ids) {
+        try {
+            List<BatchItemResult> results = expenseService.deleteExpenses(ids);
+            return new ResponseEntity<>(results, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
+    // Import expenses from a CSV or OFX file streamed in the request body
+    @Operation(
+        summary = "Import expenses from a CSV or OFX file",
+        description = "Streams the raw request body (not multipart) into the expenses table in batches. " +
+                      "CSV columns are description,amount,category,date[,notes] with an optional header row. " +
+                      "To resume a failed import, send the file from the reported committedOffset and pass it as 'offset'."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Import finished; see report for row-level errors",
+                    content = @Content(schema = @Schema(implementation = ImportReport.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid offset"),
+        @ApiResponse(responseCode = "409", description = "An import with this id is already running"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/import")
+    public ResponseEntity<ImportReport> importExpenses(
+            InputStream body,
+            @Parameter(description = "File format")
+            @RequestParam(defaultValue = "CSV") ExpenseImportService.Format format,
+            @Parameter(description = "Byte offset in the original file at which the request body starts")
+            @RequestParam(defaultValue = "0") long offset,
+            @Parameter(description = "Client-chosen id used to poll progress; generated when omitted")
+            @RequestParam(required = false) String importId,
+            @Parameter(description = "Category for rows that do not carry one (all OFX rows)")
+            @RequestParam(defaultValue = "Uncategorized") String category) {
         try {
-            Expense savedExpense = expenseService.createExpense(expense);
-            return new ResponseEntity<>(savedExpense, HttpStatus.CREATED);
+            ImportReport report = expenseImportService.importExpenses(body, format, offset, importId, category);
+            return new ResponseEntity<>(report, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
         } catch (Exception e) {
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
     
+    // Get the progress of an import
+    @Operation(
+        summary = "Get import progress",
+        description = "Returns the progress, committed offset and row-level errors of a running or finished import."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Import found",
+                    content = @Content(schema = @Schema(implementation = ImportReport.class))),
+        @ApiResponse(responseCode = "404", description = "Import not found")
+    })
+    @GetMapping("/import/{importId}")
+    public ResponseEntity<ImportReport> getImport(
+            @Parameter(description = "Identifier of the import", required = true)
+            @PathVariable String importId) {
+        return expenseImportService.getImport(importId)
+                .map(report -> new ResponseEntity<>(report, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+    
     // Get all expenses
     @Operation(
         summary = "Get all expenses",
-        description = "Retrieves a list of all expense records in the system."
+        description = "Retrieves a list of all expense records in the system. With fields=, only the named " +
+                      "columns and the id are read and returned."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successfully retrieved all expenses"),
+        @ApiResponse(responseCode = "400", description = "Unknown field in fields"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping
-    public ResponseEntity<List<Expense>> getAllExpenses() {
+    public ResponseEntity<List<?>> getAllExpenses(
+            @Parameter(description = "Comma-separated fields to return, e.g. amount,date (id is always included); omit for full expenses")
+            @RequestParam(required = false) String fields) {
         try {
-            List<Expense> expenses = expenseService.getAllExpenses();
+            List<?> expenses = fields == null
+                    ? expenseService.getAllExpenses()
+                    : expenseService.getAllExpenses(ExpenseField.parse(fields));
             return new ResponseEntity<>(expenses, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
+    // Get expenses one keyset page at a time
+    @Operation(
+        summary = "Get a page of expenses",
+        description = "Retrieves expenses ordered by date and id using keyset pagination. " +
+                      "Pass the returned nextCursor as 'cursor' to fetch the following page."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Page retrieved successfully",
+                    content = @Content(schema = @Schema(implementation = ExpensePage.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or limit"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/page")
+    public ResponseEntity<ExpensePage> getExpensePage(
+            @Parameter(description = "Opaque cursor returned by the previous page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Maximum number of expenses to return (1-" + ExpenseService.MAX_PAGE_SIZE + ")")
+            @RequestParam(defaultValue = "" + ExpenseService.DEFAULT_PAGE_SIZE) int limit) {
+        try {
+            ExpensePage page = expenseService.getExpensePage(cursor, limit);
+            return new ResponseEntity<>(page, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
     
+    // Stream all expenses as newline-delimited JSON
+    @Operation(
+        summary = "Stream all expenses",
+        description = "Streams every expense as newline-delimited JSON (one object per line), ordered by date and id. " +
+                      "Rows are written as they are read from the database, so memory use does not grow with the table."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Expenses streamed successfully")
+    })
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllExpenses() {
+        StreamingResponseBody body = exportBody(ExpenseExportWriter.Format.NDJSON, false, null, null, null);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+    
+    // Export expenses as CSV or NDJSON, optionally gzip-compressed
+    @Operation(
+        summary = "Export expenses",
+        description = "Streams expenses ordered by date and id straight from a database cursor to the response, " +
+                      "optionally filtered by category and/or date range (startDate and endDate together). " +
+                      "CSV output can be re-imported through POST /api/expenses/import."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Export streamed successfully"),
+        @ApiResponse(responseCode = "400", description = "Only one of startDate and endDate given")
+    })
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportExpenses(
+            @Parameter(description = "Output format")
+            @RequestParam(defaultValue = "CSV") ExpenseExportWriter.Format format,
+            @Parameter(description = "Compress the response with gzip")
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @Parameter(description = "Only export this category")
+            @RequestParam(required = false) String category,
+            @Parameter(description = "Only export expenses on or after this date")
+            @RequestParam(required = false) LocalDate startDate,
+            @Parameter(description = "Only export expenses on or before this date")
+            @RequestParam(required = false) LocalDate endDate) {
+        if ((startDate == null) != (endDate == null)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        String filename = "expenses." + format.getExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip")
+                                  : MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(exportBody(format, gzip, category, startDate, endDate));
+    }
+    
     // Get expense by ID
     @Operation(
         summary = "Get expense by ID",
-        description = "Retrieves a specific expense record by its unique identifier."
+        description = "Retrieves a specific expense record by its unique identifier. The response carries a strong " +
+                      "ETag derived from the expense version; send it back in If-None-Match to get 304 while " +
+                      "the expense is unchanged."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Expense found and returned successfully",
                     content = @Content(schema = @Schema(implementation = Expense.class))),
+        @ApiResponse(responseCode = "304", description = "Expense unchanged since the ETag in If-None-Match"),
         @ApiResponse(responseCode = "404", description = "Expense not found"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping("/{id}")
     public ResponseEntity<Expense> getExpenseById(
             @Parameter(description = "Unique identifier of the expense", required = true)
-            @PathVariable Long id) {
+            @PathVariable Long id,
+            WebRequest request) {
         try {
+            // Served from the expense cache, so a revalidation usually costs no query
             Optional<Expense> expense = expenseService.getExpenseById(id);
             if (expense.isPresent()) {
+                if (request.checkNotModified(expenseETag(expense.get()))) {
+                    return null;
+                }
                 return new ResponseEntity<>(expense.get(), HttpStatus.OK);
             } else {
                 return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -101,12 +433,15 @@ public class ExpenseController {
     // Update an expense
     @Operation(
         summary = "Update an existing expense",
-        description = "Updates an existing expense record with new details. The expense ID must exist."
+        description = "Updates an existing expense record with new details. The expense ID must exist. " +
+                      "Send the ETag from a previous read in If-Match to update only if nobody changed it since."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Expense updated successfully",
                     content = @Content(schema = @Schema(implementation = Expense.class))),
         @ApiResponse(responseCode = "404", description = "Expense not found"),
+        @ApiResponse(responseCode = "409", description = "Expense was changed concurrently; re-read and retry"),
+        @ApiResponse(responseCode = "412", description = "Expense no longer matches the ETag in If-Match"),
         @ApiResponse(responseCode = "400", description = "Invalid input data"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
@@ -114,10 +449,15 @@ public class ExpenseController {
     public ResponseEntity<Expense> updateExpense(
             @Parameter(description = "Unique identifier of the expense to update", required = true)
             @PathVariable Long id, 
-            @Valid @RequestBody Expense expenseDetails) {
+            @Valid @RequestBody Expense expenseDetails,
+            @Parameter(description = "ETag of the version being replaced")
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Expense updatedExpense = expenseService.updateExpense(id, expenseDetails);
-            return new ResponseEntity<>(updatedExpense, HttpStatus.OK);
+            Long expectedVersion = versionFromIfMatch(ifMatch, id);
+            Expense updatedExpense = expenseService.updateExpense(id, expenseDetails, expectedVersion);
+            return ResponseEntity.ok().eTag(expenseETag(updatedExpense)).body(updatedExpense);
+        } catch (OptimisticLockingFailureException e) {
+            return new ResponseEntity<>(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT);
         } catch (RuntimeException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         } catch (Exception e) {
@@ -153,10 +493,17 @@ public class ExpenseController {
     
     // Get expenses by category
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<Expense>> getExpensesByCategory(@PathVariable String category) {
+    public ResponseEntity<List<?>> getExpensesByCategory(
+            @PathVariable String category,
+            @Parameter(description = "Comma-separated fields to return, e.g. amount,date (id is always included); omit for full expenses")
+            @RequestParam(required = false) String fields) {
         try {
-            List<Expense> expenses = expenseService.getExpensesByCategory(category);
+            List<?> expenses = fields == null
+                    ? expenseService.getExpensesByCategory(category)
+                    : expenseService.getExpensesByCategory(category, ExpenseField.parse(fields));
             return new ResponseEntity<>(expenses, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
@@ -164,12 +511,18 @@ public class ExpenseController {
     
     // Get expenses by date range
     @GetMapping("/date-range")
-    public ResponseEntity<List<Expense>> getExpensesByDateRange(
+    public ResponseEntity<List<?>> getExpensesByDateRange(
             @RequestParam LocalDate startDate,
-            @RequestParam LocalDate endDate) {
+            @RequestParam LocalDate endDate,
+            @Parameter(description = "Comma-separated fields to return, e.g. amount,date (id is always included); omit for full expenses")
+            @RequestParam(required = false) String fields) {
         try {
-            List<Expense> expenses = expenseService.getExpensesByDateRange(startDate, endDate);
+            List<?> expenses = fields == null
+                    ? expenseService.getExpensesByDateRange(startDate, endDate)
+                    : expenseService.getExpensesByDateRange(startDate, endDate, ExpenseField.parse(fields));
             return new ResponseEntity<>(expenses, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
@@ -200,22 +553,71 @@ public class ExpenseController {
         }
     }
     
-    // Search expenses by keyword in description
+    // Search expenses by keyword in description and notes
     @Operation(
         summary = "Search expenses by keyword",
-        description = "Searches for expenses containing the specified keyword in their description (case-insensitive)."
+        description = "Searches expense descriptions and notes (case-insensitive) for one or more terms. " +
+                      "Terms of three or more characters also match inside words. Results are ranked by relevance."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Search completed successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid limit"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping("/search")
     public ResponseEntity<List<Expense>> searchExpensesByDescription(
-            @Parameter(description = "Keyword to search for in expense descriptions", required = true)
-            @RequestParam String keyword) {
+            @Parameter(description = "Space-separated terms to search for in expense descriptions and notes", required = true)
+            @RequestParam String keyword,
+            @Parameter(description = "AND requires every term to match, OR any of them")
+            @RequestParam(defaultValue = "AND") ExpenseSearchIndex.Mode mode,
+            @Parameter(description = "Maximum number of results (1-" + ExpenseService.MAX_PAGE_SIZE + ")")
+            @RequestParam(defaultValue = "50") int limit) {
         try {
-            List<Expense> expenses = expenseService.searchExpensesByDescription(keyword);
+            List<Expense> expenses = expenseService.searchExpenses(keyword, mode, limit);
             return new ResponseEntity<>(expenses, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
+    // Query expenses with any combination of filters
+    @Operation(
+        summary = "Query expenses with combined filters",
+        description = "Returns expenses matching every given filter (category, inclusive date and amount ranges, " +
+                      "keyword terms that must each appear in the description or notes), sorted and limited. " +
+                      "The filters run in the database through the index expected to read the fewest rows; the " +
+                      "chosen path is reported in X-Query-Plan."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Query completed successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid range or limit"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/query")
+    public ResponseEntity<List<Expense>> queryExpenses(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) LocalDate startDate,
+            @RequestParam(required = false) LocalDate endDate,
+            @Parameter(description = "Smallest amount, inclusive")
+            @RequestParam(required = false) BigDecimal minAmount,
+            @Parameter(description = "Largest amount, inclusive")
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @Parameter(description = "Space-separated terms that must all appear in the description or notes")
+            @RequestParam(required = false) String keyword,
+            @RequestParam(defaultValue = "DATE") ExpenseQuery.SortField sort,
+            @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+            @Parameter(description = "Maximum number of results (1-" + ExpenseService.MAX_PAGE_SIZE + ")")
+            @RequestParam(defaultValue = "" + ExpenseService.DEFAULT_PAGE_SIZE) int limit) {
+        try {
+            ExpenseService.QueryResult result = expenseService.queryExpenses(new ExpenseQuery(category, startDate,
+                    endDate, minAmount, maxAmount, keyword, sort, direction, limit));
+            return ResponseEntity.ok()
+                    .header(QUERY_PLAN_HEADER, result.plan().describe())
+                    .body(result.expenses());
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
@@ -223,18 +625,13 @@ public class ExpenseController {
     
     // Get total amount by category
     @GetMapping("/analytics/total-by-category")
-    public ResponseEntity<Map<String, BigDecimal>> getTotalAmountByCategory() {
+    public ResponseEntity<Map<String, BigDecimal>> getTotalAmountByCategory(WebRequest request) {
         try {
-            List<Object[]> results = expenseService.getTotalAmountByCategory();
-            Map<String, BigDecimal> categoryTotals = new HashMap<>();
-            
-            for (Object[] result : results) {
-                String category = (String) result[0];
-                BigDecimal total = (BigDecimal) result[1];
-                categoryTotals.put(category, total);
+            if (request.checkNotModified(changeCounter.etag())) {
+                return null;
             }
-            
-            return new ResponseEntity<>(categoryTotals, HttpStatus.OK);
+            List<Object[]> results = expenseService.getTotalAmountByCategory();
+            return new ResponseEntity<>(toCategoryTotals(results), HttpStatus.OK);
         } catch (Exception e) {
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
@@ -244,8 +641,12 @@ public class ExpenseController {
     @GetMapping("/analytics/total-by-date-range")
     public ResponseEntity<Map<String, BigDecimal>> getTotalAmountByDateRange(
             @RequestParam LocalDate startDate,
-            @RequestParam LocalDate endDate) {
+            @RequestParam LocalDate endDate,
+            WebRequest request) {
         try {
+            if (request.checkNotModified(changeCounter.etag())) {
+                return null;
+            }
             BigDecimal total = expenseService.getTotalAmountByDateRange(startDate, endDate);
             Map<String, BigDecimal> response = new HashMap<>();
             response.put("total", total);
@@ -254,4 +655,153 @@ public class ExpenseController {
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
+    
+    // Time-bucketed expense series with moving averages and approximate percentiles
+    @Operation(
+        summary = "Expense time series",
+        description = "Returns one point per day, week (Monday start) or month with the bucket total, count, " +
+                      "moving average of totals over the trailing window and approximate p50/p90/p99 amounts. " +
+                      "Defaults to the last 365 days. Responses carry an ETag that changes with any expense write; " +
+                      "If-None-Match answers 304 without recomputing the series."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Series computed"),
+        @ApiResponse(responseCode = "400", description = "Invalid range, bucket or window"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/analytics/timeseries")
+    public ResponseEntity<List<TimeSeriesPoint>> getTimeSeries(
+            @Parameter(description = "Bucket width: DAY, WEEK or MONTH")
+            @RequestParam(defaultValue = "DAY") TimeBucket bucket,
+            @Parameter(description = "Restrict to one category")
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) LocalDate startDate,
+            @RequestParam(required = false) LocalDate endDate,
+            @Parameter(description = "Moving average window in buckets (1-" + ExpenseAnalyticsService.MAX_WINDOW + ")")
+            @RequestParam(defaultValue = "" + ExpenseAnalyticsService.DEFAULT_WINDOW) int window,
+            @Parameter(description = "Compute percentiles; false answers from the daily rollup without scanning expenses")
+            @RequestParam(defaultValue = "true") boolean percentiles,
+            WebRequest request) {
+        try {
+            // An open-ended range moves with the calendar, so today's date is part of its ETag
+            String etag = startDate == null || endDate == null
+                    ? changeCounter.etag(LocalDate.now())
+                    : changeCounter.etag();
+            if (request.checkNotModified(etag)) {
+                return null;
+            }
+            List<TimeSeriesPoint> series = expenseAnalyticsService.getTimeSeries(
+                    bucket, category, startDate, endDate, window, percentiles);
+            return new ResponseEntity<>(series, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
+    // Rebuild the daily analytics rollup from the expenses table
+    @Operation(
+        summary = "Rebuild the analytics rollup",
+        description = "Recomputes every (category, day) rollup bucket from the expenses table and verifies the result."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Rollup rebuilt; see verification result"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/analytics/rollup/rebuild")
+    public ResponseEntity<RollupVerification> rebuildRollup() {
+        try {
+            RollupVerification verification = expenseRollupService.rebuild();
+            return new ResponseEntity<>(verification, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
+    // Check the daily analytics rollup against the expenses table
+    @Operation(
+        summary = "Verify the analytics rollup",
+        description = "Compares every (category, day) rollup bucket with the expenses table and reports mismatches."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Verification completed"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/analytics/rollup/verify")
+    public ResponseEntity<RollupVerification> verifyRollup() {
+        try {
+            RollupVerification verification = expenseRollupService.verify();
+            return new ResponseEntity<>(verification, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
+    // Strong ETag for one expense: the id and its optimistic-locking version
+    static String expenseETag(Expense expense) {
+        return "\"" + expense.getId() + "." + expense.getVersion() + "\"";
+    }
+    
+    // Headers reporting what screening flagged on a created expense
+    static HttpHeaders anomalyHeaders(ExpenseAnomalies anomalies) {
+        HttpHeaders headers = new HttpHeaders();
+        if (anomalies.isSuspectedDuplicate()) {
+            headers.set(SUSPECTED_DUPLICATE_HEADER, anomalies.duplicate().name());
+            if (anomalies.duplicateOf() != null) {
+                headers.set(DUPLICATE_OF_HEADER, anomalies.duplicateOf().toString());
+            }
+        }
+        if (anomalies.isAmountOutlier()) {
+            headers.set(AMOUNT_Z_SCORE_HEADER, anomalies.amountZScore().toString());
+        }
+        return headers;
+    }
+    
+    // Version named by an If-Match header for the given expense; null when absent or "*".
+    // Weak or foreign ETags map to -1, which never matches, because If-Match requires strong comparison.
+    static Long versionFromIfMatch(String ifMatch, Long id) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String prefix = "\"" + id + ".";
+        String etag = ifMatch.trim();
+        if (etag.startsWith(prefix) && etag.endsWith("\"") && etag.length() > prefix.length() + 1) {
+            try {
+                return Long.parseLong(etag.substring(prefix.length(), etag.length() - 1));
+            } catch (NumberFormatException e) {
+                return -1L;
+            }
+        }
+        return -1L;
+    }
+    
+    // Map (category, total) rows to a JSON object keyed by category
+    static Map<String, BigDecimal> toCategoryTotals(List<Object[]> results) {
+        Map<String, BigDecimal> categoryTotals = new HashMap<>();
+        
+        for (Object[] result : results) {
+            String category = (String) result[0];
+            BigDecimal total = (BigDecimal) result[1];
+            categoryTotals.put(category, total);
+        }
+        
+        return categoryTotals;
+    }
+    
+    // Response body that writes expenses from a database cursor as they are read
+    private StreamingResponseBody exportBody(ExpenseExportWriter.Format format, boolean gzip, String category,
+                                             LocalDate startDate, LocalDate endDate) {
+        return outputStream -> {
+            try (ExpenseExportWriter writer = new ExpenseExportWriter(outputStream, format, gzip, objectMapper)) {
+                expenseService.streamExpenses(category, startDate, endDate, expense -> {
+                    try {
+                        writer.write(expense);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+    }
 }
\ No newline at end of file
@@ -0,0 +1,170 @@
+package com.finomo.controller;
+
+import com.finomo.dto.RecurringOccurrence;
+import com.finomo.entity.RecurringExpense;
+import com.finomo.service.RecurringExpenseService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/recurring-expenses")
+@CrossOrigin(origins = "*")
+@Tag(name = "Recurring expenses", description = "Expenses created automatically on a schedule")
+public class RecurringExpenseController {
+
+    @Autowired
+    private RecurringExpenseService recurringExpenseService;
+
+    // Create a recurring expense
+    @Operation(
+        summary = "Create a recurring expense",
+        description = "Defines an expense that is created on every date of its schedule, from the start date until " +
+                      "the optional end date. The schedule is an RRULE (FREQ=DAILY|WEEKLY|MONTHLY|YEARLY with an " +
+                      "optional INTERVAL) or a cron expression. Due dates, including past ones, are created by the " +
+                      "scheduler within finomo.recurring.poll-interval."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "201", description = "Recurring expense created successfully",
+                    content = @Content(schema = @Schema(implementation = RecurringExpense.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid input data or schedule"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping
+    public ResponseEntity<RecurringExpense> createRecurringExpense(@Valid @RequestBody RecurringExpense recurringExpense) {
+        try {
+            RecurringExpense savedRecurringExpense = recurringExpenseService.createRecurringExpense(recurringExpense);
+            return new ResponseEntity<>(savedRecurringExpense, HttpStatus.CREATED);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Get all recurring expenses
+    @Operation(summary = "Get all recurring expenses")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Recurring expenses retrieved successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping
+    public ResponseEntity<List<RecurringExpense>> getAllRecurringExpenses() {
+        try {
+            return new ResponseEntity<>(recurringExpenseService.getAllRecurringExpenses(), HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Get a recurring expense by id
+    @Operation(summary = "Get a recurring expense by ID")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Recurring expense found and returned successfully",
+                    content = @Content(schema = @Schema(implementation = RecurringExpense.class))),
+        @ApiResponse(responseCode = "404", description = "Recurring expense not found"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<RecurringExpense> getRecurringExpenseById(
+            @Parameter(description = "Unique identifier of the recurring expense", required = true)
+            @PathVariable Long id) {
+        try {
+            Optional<RecurringExpense> recurringExpense = recurringExpenseService.getRecurringExpenseById(id);
+            return recurringExpense.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+                    .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Get the expenses created for a recurring expense
+    @Operation(
+        summary = "Get the occurrences of a recurring expense",
+        description = "Lists each scheduled date created so far with the id of the expense created for it."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Occurrences retrieved successfully"),
+        @ApiResponse(responseCode = "404", description = "Recurring expense not found"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/{id}/occurrences")
+    public ResponseEntity<List<RecurringOccurrence>> getOccurrences(
+            @Parameter(description = "Unique identifier of the recurring expense", required = true)
+            @PathVariable Long id) {
+        try {
+            return new ResponseEntity<>(recurringExpenseService.getOccurrences(id), HttpStatus.OK);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Update a recurring expense
+    @Operation(
+        summary = "Update a recurring expense",
+        description = "Changes the expense details or schedule for future occurrences. Expenses already created " +
+                      "are left as they are and their dates are not created again."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Recurring expense updated successfully",
+                    content = @Content(schema = @Schema(implementation = RecurringExpense.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid input data or schedule"),
+        @ApiResponse(responseCode = "404", description = "Recurring expense not found"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PutMapping("/{id}")
+    public ResponseEntity<RecurringExpense> updateRecurringExpense(
+            @Parameter(description = "Unique identifier of the recurring expense to update", required = true)
+            @PathVariable Long id,
+            @Valid @RequestBody RecurringExpense recurringExpenseDetails) {
+        try {
+            return new ResponseEntity<>(recurringExpenseService.updateRecurringExpense(id, recurringExpenseDetails),
+                    HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Delete a recurring expense
+    @Operation(summary = "Delete a recurring expense", description = "Stops future occurrences; created expenses stay.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Recurring expense deleted successfully"),
+        @ApiResponse(responseCode = "404", description = "Recurring expense not found"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Map<String, String>> deleteRecurringExpense(
+            @Parameter(description = "Unique identifier of the recurring expense to delete", required = true)
+            @PathVariable Long id) {
+        try {
+            recurringExpenseService.deleteRecurringExpense(id);
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Recurring expense deleted successfully");
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
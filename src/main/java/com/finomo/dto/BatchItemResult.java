@@ -0,0 +1,30 @@
+package com.finomo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Outcome of a single item in a batch request")
+public record BatchItemResult(
+        @Schema(description = "Position of the item in the request array", example = "0")
+        int index,
+
+        @Schema(description = "Identifier of the affected expense, if any", example = "42")
+        Long id,
+
+        @Schema(description = "Outcome of the item")
+        Status status,
+
+        @Schema(description = "Reason the item was not applied, or anomalies flagged on a created item, if any")
+        String message) {
+
+    public enum Status {
+        CREATED, UPDATED, DELETED, INVALID, NOT_FOUND, DUPLICATE, FAILED
+    }
+
+    public static BatchItemResult success(int index, Long id, Status status) {
+        return new BatchItemResult(index, id, status, null);
+    }
+
+    public static BatchItemResult failure(int index, Long id, Status status, String message) {
+        return new BatchItemResult(index, id, status, message);
+    }
+}
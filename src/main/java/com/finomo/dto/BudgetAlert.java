@@ -0,0 +1,24 @@
+package com.finomo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+@Schema(description = "Sent when a category's spend for a month crosses an alert threshold of its budget")
+public record BudgetAlert(
+        @Schema(description = "Budgeted category", example = "Dining")
+        String category,
+
+        @Schema(description = "Month the spend belongs to", example = "2024-06", type = "string")
+        YearMonth month,
+
+        @Schema(description = "Threshold crossed, as a percentage of the monthly limit", example = "80")
+        int thresholdPercent,
+
+        @Schema(description = "Spend in the month after the write that crossed the threshold", example = "326.40")
+        BigDecimal spent,
+
+        @Schema(description = "Monthly limit of the budget", example = "400.00")
+        BigDecimal monthlyLimit) {
+}
@@ -0,0 +1,27 @@
+package com.finomo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+@Schema(description = "Spend against one budget in one month")
+public record BudgetStatus(
+        @Schema(description = "Budget id", example = "1")
+        Long budgetId,
+
+        @Schema(description = "Budgeted category", example = "Dining")
+        String category,
+
+        @Schema(description = "Month", example = "2024-06", type = "string")
+        YearMonth month,
+
+        @Schema(description = "Monthly limit", example = "400.00")
+        BigDecimal monthlyLimit,
+
+        @Schema(description = "Spend so far in the month", example = "326.40")
+        BigDecimal spent,
+
+        @Schema(description = "Spend as a percentage of the limit, rounded down", example = "81")
+        int percentUsed) {
+}
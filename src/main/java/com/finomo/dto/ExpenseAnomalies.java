@@ -0,0 +1,60 @@
+package com.finomo.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.Locale;
+
+@Schema(description = "What screening found suspicious about a new expense")
+public record ExpenseAnomalies(
+        @Schema(description = "How the expense matches a recent one, if it looks like a duplicate")
+        DuplicateMatch duplicate,
+
+        @Schema(description = "Id of the recent expense it duplicates; absent while that expense is still being " +
+                              "written", example = "42")
+        Long duplicateOf,
+
+        @Schema(description = "Standard score of the amount within its category (on a log scale), if it is an outlier",
+                example = "4.2")
+        Double amountZScore) {
+
+    public static final ExpenseAnomalies NONE = new ExpenseAnomalies(null, null, null);
+
+    public enum DuplicateMatch {
+        // Same normalized description, amount and date
+        EXACT,
+        // Same amount, a few days apart, with a near-identical description
+        SIMILAR
+    }
+
+    @JsonIgnore
+    public boolean isSuspectedDuplicate() {
+        return duplicate != null;
+    }
+
+    @JsonIgnore
+    public boolean isAmountOutlier() {
+        return amountZScore != null;
+    }
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return duplicate == null && amountZScore == null;
+    }
+
+    // One-line summary for batch results and logs
+    public String describe() {
+        StringBuilder text = new StringBuilder();
+        if (duplicate != null) {
+            text.append(duplicate == DuplicateMatch.EXACT ? "Duplicate of " : "Similar to ")
+                    .append(duplicateOf != null ? "expense " + duplicateOf : "an expense being written");
+        }
+        if (amountZScore != null) {
+            if (text.length() > 0) {
+                text.append("; ");
+            }
+            text.append(String.format(Locale.ROOT, "Unusual amount for the category (z=%.1f)", amountZScore));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,42 @@
+package com.finomo.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.finomo.entity.Expense;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+
+@Schema(description = "A committed create, update or delete of an expense, as recorded in the change log")
+public record ExpenseChange(
+        @Schema(description = "Position in the tenant's change log; increases in commit order", example = "1042")
+        long sequence,
+
+        @Schema(description = "Kind of change", example = "UPDATE")
+        Operation operation,
+
+        @Schema(description = "Id of the changed expense", example = "42")
+        long expenseId,
+
+        @Schema(description = "When the change was written", example = "2024-06-01T12:30:00Z")
+        Instant changedAt,
+
+        @JsonRawValue
+        @Schema(description = "The expense before the change; null for CREATE", implementation = Expense.class)
+        String before,
+
+        @JsonRawValue
+        @Schema(description = "The expense after the change; null for DELETE", implementation = Expense.class)
+        String after,
+
+        @JsonIgnore
+        String tenantId) {
+
+    public enum Operation {
+        CREATE, UPDATE, DELETE
+    }
+
+    public ExpenseChange withSequence(long sequence) {
+        return new ExpenseChange(sequence, operation, expenseId, changedAt, before, after, tenantId);
+    }
+}
@@ -0,0 +1,17 @@
+package com.finomo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Changes after a sequence number, oldest first")
+public record ExpenseChangePage(
+        @Schema(description = "Changes in this page")
+        List<ExpenseChange> changes,
+
+        @Schema(description = "Sequence number to pass as 'since' to continue after this page", example = "1042")
+        long nextSince,
+
+        @Schema(description = "Whether more changes are already available after this page")
+        boolean hasMore) {
+}
@@ -0,0 +1,64 @@
+package com.finomo.dto;
+
+import com.finomo.entity.Expense;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// Expense attributes selectable with the fields= parameter of the list endpoints
+public enum ExpenseField {
+    ID("id", Expense::getId),
+    DESCRIPTION("description", Expense::getDescription),
+    AMOUNT("amount", Expense::getAmount),
+    CATEGORY("category", Expense::getCategory),
+    DATE("date", Expense::getDate),
+    NOTES("notes", Expense::getNotes);
+    
+    private final String attribute;
+    private final Function<Expense, Object> getter;
+    
+    ExpenseField(String attribute, Function<Expense, Object> getter) {
+        this.attribute = attribute;
+        this.getter = getter;
+    }
+    
+    // Entity attribute and JSON property name
+    public String attribute() {
+        return attribute;
+    }
+    
+    // Parse a comma-separated list such as "amount,date"; throws IllegalArgumentException for unknown names.
+    // The id is always selected so projected rows can be matched back to their expenses.
+    public static Set<ExpenseField> parse(String fields) {
+        Set<ExpenseField> selected = EnumSet.noneOf(ExpenseField.class);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            try {
+                selected.add(valueOf(trimmed.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown field: " + trimmed);
+            }
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("fields must name at least one field");
+        }
+        selected.add(ID);
+        return selected;
+    }
+    
+    // Copy the selected attributes of an already loaded expense
+    public static Map<String, Object> project(Expense expense, Set<ExpenseField> fields) {
+        Map<String, Object> row = new LinkedHashMap<>(fields.size() * 2);
+        for (ExpenseField field : fields) {
+            row.put(field.attribute, field.getter.apply(expense));
+        }
+        return row;
+    }
+}
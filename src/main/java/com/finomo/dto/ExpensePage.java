@@ -0,0 +1,16 @@
+package com.finomo.dto;
+
+import com.finomo.entity.Expense;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "A page of expenses ordered by (date, id) with an opaque cursor for the next page")
+public record ExpensePage(
+        @Schema(description = "Expenses in this page")
+        List<Expense> items,
+
+        @Schema(description = "Cursor to pass as 'cursor' to fetch the next page, null when this is the last page",
+                example = "MjAyNC0wMS0xNToxMjM")
+        String nextCursor) {
+}
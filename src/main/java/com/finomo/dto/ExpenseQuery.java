@@ -0,0 +1,64 @@
+package com.finomo.dto;
+
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Filters, order and limit of GET /api/expenses/query. Every filter is optional and they combine with AND;
+// the amount and date bounds are inclusive. keyword holds space-separated terms that must each appear in the
+// description or notes (case-insensitive).
+public record ExpenseQuery(String category, LocalDate startDate, LocalDate endDate, BigDecimal minAmount,
+                           BigDecimal maxAmount, String keyword, SortField sort, Sort.Direction direction,
+                           int limit) {
+
+    public enum SortField {
+        DATE("date"), AMOUNT("amount"), ID("id");
+
+        private final String attribute;
+
+        SortField(String attribute) {
+            this.attribute = attribute;
+        }
+
+        public String attribute() {
+            return attribute;
+        }
+    }
+
+    public ExpenseQuery {
+        if (category != null && category.isBlank()) {
+            category = null;
+        }
+        if (keyword != null && keyword.isBlank()) {
+            keyword = null;
+        }
+        if (sort == null) {
+            sort = SortField.DATE;
+        }
+        if (direction == null) {
+            direction = Sort.Direction.ASC;
+        }
+    }
+
+    // Throws IllegalArgumentException for an empty range or a limit outside 1..maxLimit
+    public void validate(int maxLimit) {
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxLimit);
+        }
+        if (startDate != null && endDate != null && endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("endDate must not be before startDate");
+        }
+        if (minAmount != null && maxAmount != null && maxAmount.compareTo(minAmount) < 0) {
+            throw new IllegalArgumentException("maxAmount must not be less than minAmount");
+        }
+    }
+
+    public boolean hasDateRange() {
+        return startDate != null || endDate != null;
+    }
+
+    public boolean hasAmountRange() {
+        return minAmount != null || maxAmount != null;
+    }
+}
@@ -0,0 +1,52 @@
+package com.finomo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+import java.util.List;
+
+@Schema(description = "Progress and outcome of a bulk expense import")
+public record ImportReport(
+        @Schema(description = "Identifier of the import, used to poll its status", example = "bank-2024-06")
+        String importId,
+
+        @Schema(description = "Current state of the import")
+        Status status,
+
+        @Schema(description = "Format of the uploaded file", example = "csv")
+        String format,
+
+        @Schema(description = "Byte offset of the file at which this upload started")
+        long startOffset,
+
+        @Schema(description = "Bytes of the file read so far, counted from the start of the file")
+        long bytesRead,
+
+        @Schema(description = "Offset up to which every row has been committed or rejected; resume the import from here")
+        long committedOffset,
+
+        @Schema(description = "Records read so far")
+        long rowsRead,
+
+        @Schema(description = "Records written to the database")
+        long rowsImported,
+
+        @Schema(description = "Records rejected by parsing, validation, duplicate screening or the database")
+        long rowsFailed,
+
+        @Schema(description = "Row-level errors, truncated to the first " + ImportReport.MAX_ERRORS)
+        List<RowError> errors,
+
+        Instant startedAt,
+
+        Instant finishedAt) {
+
+    public static final int MAX_ERRORS = 1000;
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    public record RowError(long line, String message) {
+    }
+}
@@ -0,0 +1,25 @@
+package com.finomo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "State of an expense accepted by write-behind ingestion")
+public record IngestionStatus(
+        @Schema(description = "Tracking id returned when the expense was accepted",
+                example = "3f2b9a64-8a7c-4d0e-9f51-2c6f7f0d1e42")
+        String trackingId,
+
+        @Schema(description = "PENDING until the background writer commits the expense; DUPLICATE when its " +
+                              "idempotency key had already been committed under another tracking id")
+        Status status,
+
+        @Schema(description = "Id of the stored expense, once committed (for DUPLICATE, the original expense)",
+                example = "1042")
+        Long expenseId,
+
+        @Schema(description = "Why the expense was not stored, for FAILED")
+        String message) {
+    
+    public enum Status {
+        PENDING, COMMITTED, DUPLICATE, FAILED
+    }
+}
@@ -0,0 +1,21 @@
+package com.finomo.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDate;
+
+@Schema(description = "Expense created for one date of a recurring expense's schedule")
+public record RecurringOccurrence(
+        @Schema(description = "Recurring expense the occurrence belongs to", example = "1")
+        long ruleId,
+
+        @Schema(description = "Scheduled date, also the date of the created expense", example = "2024-02-15")
+        LocalDate date,
+
+        @JsonIgnore
+        String tenantId,
+
+        @Schema(description = "Id of the created expense (it may have been deleted since)", example = "42")
+        long expenseId) {
+}
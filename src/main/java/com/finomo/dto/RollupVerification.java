@@ -0,0 +1,22 @@
+package com.finomo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Result of comparing the daily rollup table with the expenses table")
+public record RollupVerification(
+        @Schema(description = "True when every (category, day) bucket matches the expenses table")
+        boolean consistent,
+
+        @Schema(description = "Number of (category, day) groups in the expenses table")
+        int expenseGroups,
+
+        @Schema(description = "Number of (category, day) buckets in the rollup table")
+        int rollupBuckets,
+
+        @Schema(description = "Mismatched buckets, truncated to the first " + RollupVerification.MAX_MISMATCHES)
+        List<String> mismatches) {
+
+    public static final int MAX_MISMATCHES = 100;
+}
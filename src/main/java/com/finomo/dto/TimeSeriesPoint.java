@@ -0,0 +1,30 @@
+package com.finomo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Schema(description = "Aggregated expenses for one time bucket")
+public record TimeSeriesPoint(
+        @Schema(description = "First day of the bucket", example = "2024-06-01")
+        LocalDate bucketStart,
+
+        @Schema(description = "Sum of expense amounts in the bucket", example = "1250.40")
+        BigDecimal total,
+
+        @Schema(description = "Number of expenses in the bucket", example = "37")
+        long count,
+
+        @Schema(description = "Mean bucket total over the trailing window, including this bucket", example = "1105.10")
+        BigDecimal movingAverage,
+
+        @Schema(description = "Approximate median expense amount (within 1%); null without percentiles", example = "22.50")
+        BigDecimal p50,
+
+        @Schema(description = "Approximate 90th percentile expense amount (within 1%)", example = "95.00")
+        BigDecimal p90,
+
+        @Schema(description = "Approximate 99th percentile expense amount (within 1%)", example = "240.00")
+        BigDecimal p99) {
+}
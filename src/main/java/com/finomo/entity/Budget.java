@@ -0,0 +1,104 @@
+package com.finomo.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.*;
+import org.hibernate.annotations.TenantId;
+import java.math.BigDecimal;
+
+@Entity
+@Table(name = "budgets",
+       uniqueConstraints = @UniqueConstraint(name = "uk_budgets_tenant_category", columnNames = {"tenant_id", "category"}))
+@Schema(description = "Monthly spending limit for one expense category")
+public class Budget {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Schema(description = "Unique identifier for the budget", example = "1")
+    private Long id;
+    
+    @TenantId
+    @Column(name = "tenant_id", nullable = false, length = 64, updatable = false)
+    @JsonIgnore
+    private String tenantId;
+    
+    @NotBlank(message = "Category is required")
+    @Size(max = 100, message = "Category cannot exceed 100 characters")
+    @Column(nullable = false)
+    @Schema(description = "Expense category the budget applies to", example = "Dining")
+    private String category;
+    
+    @NotNull(message = "Monthly limit is required")
+    @DecimalMin(value = "0.0", inclusive = false, message = "Monthly limit must be greater than 0")
+    @Digits(integer = 10, fraction = 2, message = "Monthly limit must have at most 10 digits and 2 decimal places")
+    @Column(name = "monthly_limit", nullable = false, precision = 12, scale = 2)
+    @Schema(description = "Maximum spend per calendar month", example = "400.00")
+    private BigDecimal monthlyLimit;
+    
+    @Version
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Schema(description = "Optimistic-locking version", example = "0", accessMode = Schema.AccessMode.READ_ONLY)
+    private Long version;
+    
+    // Constructors
+    public Budget() {
+    }
+    
+    public Budget(String category, BigDecimal monthlyLimit) {
+        this.category = category;
+        this.monthlyLimit = monthlyLimit;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getTenantId() {
+        return tenantId;
+    }
+    
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public void setCategory(String category) {
+        this.category = category;
+    }
+    
+    public BigDecimal getMonthlyLimit() {
+        return monthlyLimit;
+    }
+    
+    public void setMonthlyLimit(BigDecimal monthlyLimit) {
+        this.monthlyLimit = monthlyLimit;
+    }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
+    @Override
+    public String toString() {
+        return "Budget{" +
+                "id=" + id +
+                ", category='" + category + '\'' +
+                ", monthlyLimit=" + monthlyLimit +
+                '}';
+    }
+}
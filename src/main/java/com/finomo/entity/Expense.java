@@ -1,13 +1,20 @@
 package com.finomo.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import org.hibernate.annotations.TenantId;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "expenses")
+@Table(name = "expenses", indexes = {
+    @Index(name = "idx_expenses_tenant_category_date", columnList = "tenant_id, category, date"),
+    @Index(name = "idx_expenses_tenant_date", columnList = "tenant_id, date"),
+    @Index(name = "idx_expenses_tenant_amount", columnList = "tenant_id, amount")
+})
 @Schema(description = "Expense entity representing a financial expense record")
 public class Expense {
     
@@ -16,6 +23,12 @@ public class Expense {
     @Schema(description = "Unique identifier for the expense", example = "1")
     private Long id;
     
+    // Owner of the expense; set from the session's tenant on insert and implicitly filtered on by every query
+    @TenantId
+    @Column(name = "tenant_id", nullable = false, length = 64, updatable = false)
+    @JsonIgnore
+    private String tenantId;
+    
     @NotBlank(message = "Description is required")
     @Size(max = 255, message = "Description cannot exceed 255 characters")
     @Column(nullable = false)
@@ -42,6 +55,13 @@ public class Expense {
     @Column(length = 500)
     private String notes;
     
+    // Incremented on every update; stale writes fail instead of silently overwriting a concurrent change
+    @Version
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Schema(description = "Optimistic-locking version, also used as the ETag", example = "0", accessMode = Schema.AccessMode.READ_ONLY)
+    private Long version;
+    
     // Constructors
     public Expense() {
     }
@@ -54,6 +74,18 @@ public class Expense {
         this.notes = notes;
     }
     
+    // Copy constructor, used to keep a snapshot of an expense before it is modified
+    public Expense(Expense other) {
+        this.id = other.id;
+        this.tenantId = other.tenantId;
+        this.description = other.description;
+        this.amount = other.amount;
+        this.category = other.category;
+        this.date = other.date;
+        this.notes = other.notes;
+        this.version = other.version;
+    }
+    
     // Getters and Setters
     public Long getId() {
         return id;
@@ -63,6 +95,14 @@ public class Expense {
         this.id = id;
     }
     
+    public String getTenantId() {
+        return tenantId;
+    }
+    
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+    
     public String getDescription() {
         return description;
     }
@@ -104,6 +144,14 @@ public class Expense {
         this.notes = notes;
     }
     
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
     // toString method for debugging
     @Override
     public String toString() {
@@ -0,0 +1,88 @@
+package com.finomo.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.TenantId;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Rollup of expenses per (tenant, category, day), maintained incrementally by ExpenseRollupService
+@Entity
+@Table(name = "expense_daily_totals",
+       uniqueConstraints = @UniqueConstraint(name = "uk_expense_daily_totals_tenant_category_day",
+                                             columnNames = {"tenant_id", "category", "bucket_date"}),
+       indexes = @Index(name = "idx_expense_daily_totals_tenant_date", columnList = "tenant_id, bucket_date"))
+public class ExpenseDailyTotal {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @TenantId
+    @Column(name = "tenant_id", nullable = false, length = 64, updatable = false)
+    private String tenantId;
+    
+    @Column(nullable = false)
+    private String category;
+    
+    @Column(name = "bucket_date", nullable = false)
+    private LocalDate day;
+    
+    @Column(name = "total_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalAmount;
+    
+    @Column(name = "expense_count", nullable = false)
+    private long expenseCount;
+    
+    // Constructors
+    public ExpenseDailyTotal() {
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getTenantId() {
+        return tenantId;
+    }
+    
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public void setCategory(String category) {
+        this.category = category;
+    }
+    
+    public LocalDate getDay() {
+        return day;
+    }
+    
+    public void setDay(LocalDate day) {
+        this.day = day;
+    }
+    
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+    
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+    
+    public long getExpenseCount() {
+        return expenseCount;
+    }
+    
+    public void setExpenseCount(long expenseCount) {
+        this.expenseCount = expenseCount;
+    }
+}
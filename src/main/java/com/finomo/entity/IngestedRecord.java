@@ -0,0 +1,125 @@
+package com.finomo.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.TenantId;
+import java.time.Instant;
+
+// Outcome of one record drained from the write-behind ingestion log by ExpenseIngestionService
+@Entity
+@Table(name = "ingested_records",
+       uniqueConstraints = @UniqueConstraint(name = "uk_ingested_records_tenant_idempotency_key",
+                                             columnNames = {"tenant_id", "idempotency_key"}))
+public class IngestedRecord {
+    
+    public enum Status {
+        COMMITTED, DUPLICATE, FAILED
+    }
+    
+    @Id
+    @Column(name = "tracking_id", length = 36)
+    private String trackingId;
+    
+    @TenantId
+    @Column(name = "tenant_id", nullable = false, length = 64, updatable = false)
+    private String tenantId;
+    
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+    
+    @Column(name = "expense_id")
+    private Long expenseId;
+    
+    @Column(length = 500)
+    private String message;
+    
+    @Column(name = "log_sequence", nullable = false)
+    private long logSequence;
+    
+    @Column(name = "ingested_at", nullable = false)
+    private Instant ingestedAt;
+    
+    // Constructors
+    public IngestedRecord() {
+    }
+    
+    public IngestedRecord(String trackingId, String tenantId, String idempotencyKey, Status status, Long expenseId,
+                          String message, long logSequence) {
+        this.trackingId = trackingId;
+        this.tenantId = tenantId;
+        this.idempotencyKey = idempotencyKey;
+        this.status = status;
+        this.expenseId = expenseId;
+        this.message = message;
+        this.logSequence = logSequence;
+        this.ingestedAt = Instant.now();
+    }
+    
+    // Getters and Setters
+    public String getTrackingId() {
+        return trackingId;
+    }
+    
+    public void setTrackingId(String trackingId) {
+        this.trackingId = trackingId;
+    }
+    
+    public String getTenantId() {
+        return tenantId;
+    }
+    
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+    
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+    
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+    
+    public Long getExpenseId() {
+        return expenseId;
+    }
+    
+    public void setExpenseId(Long expenseId) {
+        this.expenseId = expenseId;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    public void setMessage(String message) {
+        this.message = message;
+    }
+    
+    public long getLogSequence() {
+        return logSequence;
+    }
+    
+    public void setLogSequence(long logSequence) {
+        this.logSequence = logSequence;
+    }
+    
+    public Instant getIngestedAt() {
+        return ingestedAt;
+    }
+    
+    public void setIngestedAt(Instant ingestedAt) {
+        this.ingestedAt = ingestedAt;
+    }
+}
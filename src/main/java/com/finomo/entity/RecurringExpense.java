@@ -0,0 +1,210 @@
+package com.finomo.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.*;
+import org.hibernate.annotations.TenantId;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "recurring_expenses", indexes = {
+    @Index(name = "idx_recurring_expenses_next_occurrence", columnList = "next_occurrence"),
+    @Index(name = "idx_recurring_expenses_tenant", columnList = "tenant_id")
+})
+@Schema(description = "Expense that is created automatically on every date of a schedule")
+public class RecurringExpense {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Schema(description = "Unique identifier for the recurring expense", example = "1")
+    private Long id;
+
+    @TenantId
+    @Column(name = "tenant_id", nullable = false, length = 64, updatable = false)
+    @JsonIgnore
+    private String tenantId;
+
+    @NotBlank(message = "Description is required")
+    @Size(max = 255, message = "Description cannot exceed 255 characters")
+    @Column(nullable = false)
+    @Schema(description = "Description of each created expense", example = "Netflix subscription")
+    private String description;
+
+    @NotNull(message = "Amount is required")
+    @DecimalMin(value = "0.0", inclusive = false, message = "Amount must be greater than 0")
+    @Digits(integer = 10, fraction = 2, message = "Amount must have at most 10 digits and 2 decimal places")
+    @Column(nullable = false, precision = 12, scale = 2)
+    @Schema(description = "Amount of each created expense", example = "15.49")
+    private BigDecimal amount;
+
+    @NotBlank(message = "Category is required")
+    @Size(max = 100, message = "Category cannot exceed 100 characters")
+    @Column(nullable = false)
+    @Schema(description = "Category of each created expense", example = "Entertainment")
+    private String category;
+
+    @Size(max = 500, message = "Notes cannot exceed 500 characters")
+    @Column(length = 500)
+    private String notes;
+
+    // RRULE subset (FREQ=DAILY|WEEKLY|MONTHLY|YEARLY with optional INTERVAL) or a Spring cron expression
+    @NotBlank(message = "Schedule is required")
+    @Size(max = 100, message = "Schedule cannot exceed 100 characters")
+    @Column(nullable = false, length = 100)
+    @Schema(description = "RRULE (FREQ and INTERVAL, anchored on the start date) or a cron expression " +
+                          "(second minute hour day-of-month month day-of-week)", example = "FREQ=MONTHLY")
+    private String schedule;
+
+    @NotNull(message = "Start date is required")
+    @Column(name = "start_date", nullable = false)
+    @Schema(description = "First date the schedule may fall on", example = "2024-01-15")
+    private LocalDate startDate;
+
+    @Column(name = "end_date")
+    @Schema(description = "Last date the schedule may fall on; open-ended when absent", example = "2024-12-31")
+    private LocalDate endDate;
+
+    // Earliest date not materialized yet; null once the schedule has no dates left
+    @Column(name = "next_occurrence")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Schema(description = "Next date an expense will be created on", example = "2024-02-15",
+            accessMode = Schema.AccessMode.READ_ONLY)
+    private LocalDate nextOccurrence;
+
+    @Column(name = "last_occurrence")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Schema(description = "Latest date an expense was created for", example = "2024-01-15",
+            accessMode = Schema.AccessMode.READ_ONLY)
+    private LocalDate lastOccurrence;
+
+    @Version
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Schema(description = "Optimistic-locking version", example = "0", accessMode = Schema.AccessMode.READ_ONLY)
+    private Long version;
+
+    // Constructors
+    public RecurringExpense() {
+    }
+
+    public RecurringExpense(String description, BigDecimal amount, String category, String schedule,
+                            LocalDate startDate) {
+        this.description = description;
+        this.amount = amount;
+        this.category = category;
+        this.schedule = schedule;
+        this.startDate = startDate;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public void setNotes(String notes) {
+        this.notes = notes;
+    }
+
+    public String getSchedule() {
+        return schedule;
+    }
+
+    public void setSchedule(String schedule) {
+        this.schedule = schedule;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+
+    public LocalDate getNextOccurrence() {
+        return nextOccurrence;
+    }
+
+    public void setNextOccurrence(LocalDate nextOccurrence) {
+        this.nextOccurrence = nextOccurrence;
+    }
+
+    public LocalDate getLastOccurrence() {
+        return lastOccurrence;
+    }
+
+    public void setLastOccurrence(LocalDate lastOccurrence) {
+        this.lastOccurrence = lastOccurrence;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @Override
+    public String toString() {
+        return "RecurringExpense{" +
+                "id=" + id +
+                ", description='" + description + '\'' +
+                ", amount=" + amount +
+                ", category='" + category + '\'' +
+                ", schedule='" + schedule + '\'' +
+                ", nextOccurrence=" + nextOccurrence +
+                '}';
+    }
+}
@@ -0,0 +1,9 @@
+package com.finomo.repository;
+
+import com.finomo.entity.Budget;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BudgetRepository extends JpaRepository<Budget, Long> {
+}
@@ -0,0 +1,142 @@
+package com.finomo.repository;
+
+import com.finomo.dto.ExpenseChange;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The change log tables are written and read with plain JDBC: rows are appended in batches just before commit and
+// read by sequence range, with no entity state to track. JDBC bypasses @TenantId, so every statement names its
+// tenant.
+@Repository
+public class ExpenseChangeRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO expense_changes " +
+            "(tenant_id, seq, operation, expense_id, before_image, after_image, changed_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final RowMapper<ExpenseChange> CHANGE_MAPPER = (rs, row) -> new ExpenseChange(
+            rs.getLong("seq"),
+            ExpenseChange.Operation.valueOf(rs.getString("operation")),
+            rs.getLong("expense_id"),
+            rs.getTimestamp("changed_at").toInstant(),
+            rs.getString("before_image"),
+            rs.getString("after_image"),
+            rs.getString("tenant_id"));
+
+    // A tenant's newest sequence number and the highest one removed by retention
+    public record Position(long lastSequence, long purgedThrough) {
+    }
+
+    // Changes of one expense made superseded by its latest change, latestSequence
+    public record Superseded(String tenantId, long expenseId, long latestSequence) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Take the next count sequence numbers of the tenant and return the last of them. The row stays locked until
+    // the calling transaction ends, so concurrent writers of the tenant number their changes in commit order.
+    public long reserve(String tenantId, int count) {
+        jdbcTemplate.update("INSERT INTO expense_change_sequences (tenant_id, last_seq) VALUES (?, ?) " +
+                "ON DUPLICATE KEY UPDATE last_seq = last_seq + ?", tenantId, count, count);
+        return jdbcTemplate.queryForObject("SELECT last_seq FROM expense_change_sequences WHERE tenant_id = ?",
+                Long.class, tenantId);
+    }
+
+    public void insertAll(List<ExpenseChange> changes) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, changes, changes.size(), (ps, change) -> {
+            ps.setString(1, change.tenantId());
+            ps.setLong(2, change.sequence());
+            ps.setString(3, change.operation().name());
+            ps.setLong(4, change.expenseId());
+            ps.setString(5, change.before());
+            ps.setString(6, change.after());
+            ps.setTimestamp(7, Timestamp.from(change.changedAt()));
+        });
+    }
+
+    // Primary key range scan
+    public List<ExpenseChange> findAfter(String tenantId, long since, int limit) {
+        return jdbcTemplate.query("SELECT tenant_id, seq, operation, expense_id, before_image, after_image, " +
+                "changed_at FROM expense_changes WHERE tenant_id = ? AND seq > ? ORDER BY seq LIMIT ?",
+                CHANGE_MAPPER, tenantId, since, limit);
+    }
+
+    public Position findPosition(String tenantId) {
+        List<Position> positions = jdbcTemplate.query("SELECT last_seq, purged_through " +
+                "FROM expense_change_sequences WHERE tenant_id = ?",
+                (rs, row) -> new Position(rs.getLong(1), rs.getLong(2)), tenantId);
+        return positions.isEmpty() ? new Position(0, 0) : positions.get(0);
+    }
+
+    // Newest sequence number of every tenant
+    public Map<String, Long> findLastSequences() {
+        Map<String, Long> sequences = new HashMap<>();
+        jdbcTemplate.query("SELECT tenant_id, last_seq FROM expense_change_sequences",
+                rs -> {
+                    sequences.put(rs.getString(1), rs.getLong(2));
+                });
+        return sequences;
+    }
+
+    // Per tenant, the newest sequence number of the changes written before the cutoff
+    public Map<String, Long> findLastSequencesBefore(Instant cutoff) {
+        Map<String, Long> sequences = new HashMap<>();
+        jdbcTemplate.query("SELECT tenant_id, MAX(seq) FROM expense_changes WHERE changed_at < ? GROUP BY tenant_id",
+                rs -> {
+                    sequences.put(rs.getString(1), rs.getLong(2));
+                },
+                Timestamp.from(cutoff));
+        return sequences;
+    }
+
+    // Remove a tenant's changes up to and including the given sequence number, batchSize at a time. The purge
+    // position is advanced first, so a consumer can never read past a hole without being told to resynchronize.
+    public int purge(String tenantId, long through, int batchSize) {
+        jdbcTemplate.update("UPDATE expense_change_sequences SET purged_through = GREATEST(purged_through, ?) " +
+                "WHERE tenant_id = ?", through, tenantId);
+        Long first = jdbcTemplate.queryForObject("SELECT MIN(seq) FROM expense_changes WHERE tenant_id = ?",
+                Long.class, tenantId);
+        int removed = 0;
+        for (long from = first != null ? first : through + 1; from <= through; from += batchSize) {
+            removed += jdbcTemplate.update("DELETE FROM expense_changes WHERE tenant_id = ? AND seq BETWEEN ? AND ?",
+                    tenantId, from, Math.min(through, from + batchSize - 1));
+        }
+        return removed;
+    }
+
+    // Expenses with more than one change, at least one of them written before the cutoff
+    public List<Superseded> findSuperseded(Instant cutoff, int limit) {
+        return jdbcTemplate.query("SELECT tenant_id, expense_id, MAX(seq) FROM expense_changes " +
+                "GROUP BY tenant_id, expense_id HAVING COUNT(*) > 1 AND MIN(changed_at) < ? LIMIT ?",
+                (rs, row) -> new Superseded(rs.getString(1), rs.getLong(2), rs.getLong(3)),
+                Timestamp.from(cutoff), limit);
+    }
+
+    // Remove the changes written before the cutoff that a later change of the same expense supersedes
+    public int deleteSuperseded(List<Superseded> superseded, Instant cutoff) {
+        int[][] counts = jdbcTemplate.batchUpdate("DELETE FROM expense_changes " +
+                "WHERE tenant_id = ? AND expense_id = ? AND seq < ? AND changed_at < ?",
+                superseded, superseded.size(), (ps, expense) -> {
+                    ps.setString(1, expense.tenantId());
+                    ps.setLong(2, expense.expenseId());
+                    ps.setLong(3, expense.latestSequence());
+                    ps.setTimestamp(4, Timestamp.from(cutoff));
+                });
+        int removed = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                removed += Math.max(count, 0);
+            }
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,77 @@
+package com.finomo.repository;
+
+import com.finomo.entity.ExpenseDailyTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ExpenseDailyTotalRepository extends JpaRepository<ExpenseDailyTotal, Long> {
+    
+    // Add an amount/count delta to a (tenant, category, day) bucket, creating the bucket if needed.
+    // Native SQL is not tenant-filtered, so the tenant is always explicit.
+    @Modifying
+    @Query(value = "INSERT INTO expense_daily_totals (tenant_id, category, bucket_date, total_amount, expense_count) " +
+                   "VALUES (:tenantId, :category, :day, :amount, :count) " +
+                   "ON DUPLICATE KEY UPDATE total_amount = total_amount + :amount, expense_count = expense_count + :count",
+           nativeQuery = true)
+    int applyDelta(@Param("tenantId") String tenantId, @Param("category") String category, @Param("day") LocalDate day,
+                   @Param("amount") BigDecimal amount, @Param("count") long count);
+    
+    // Drop a bucket once its last expense is gone
+    @Modifying
+    @Query("DELETE FROM ExpenseDailyTotal t WHERE t.tenantId = :tenantId AND t.category = :category " +
+           "AND t.day = :day AND t.expenseCount <= 0")
+    int deleteIfEmpty(@Param("tenantId") String tenantId, @Param("category") String category,
+                      @Param("day") LocalDate day);
+    
+    // Rebuild every tenant's buckets from the expenses table
+    @Modifying
+    @Query(value = "INSERT INTO expense_daily_totals (tenant_id, category, bucket_date, total_amount, expense_count) " +
+                   "SELECT tenant_id, category, date, SUM(amount), COUNT(*) FROM expenses " +
+                   "GROUP BY tenant_id, category, date",
+           nativeQuery = true)
+    int insertFromExpenses();
+    
+    // Rebuild one tenant's buckets from its expenses
+    @Modifying
+    @Query(value = "INSERT INTO expense_daily_totals (tenant_id, category, bucket_date, total_amount, expense_count) " +
+                   "SELECT tenant_id, category, date, SUM(amount), COUNT(*) FROM expenses WHERE tenant_id = :tenantId " +
+                   "GROUP BY tenant_id, category, date",
+           nativeQuery = true)
+    int insertFromExpenses(@Param("tenantId") String tenantId);
+    
+    @Modifying
+    @Query(value = "DELETE FROM expense_daily_totals", nativeQuery = true)
+    int deleteAllBuckets();
+    
+    @Modifying
+    @Query(value = "DELETE FROM expense_daily_totals WHERE tenant_id = :tenantId", nativeQuery = true)
+    int deleteBuckets(@Param("tenantId") String tenantId);
+    
+    // Total amount per category across all days
+    @Query("SELECT t.category, SUM(t.totalAmount) FROM ExpenseDailyTotal t GROUP BY t.category")
+    List<Object[]> findTotalAmountByCategory();
+    
+    // Total amount across all categories in a date range
+    @Query("SELECT SUM(t.totalAmount) FROM ExpenseDailyTotal t WHERE t.day BETWEEN :startDate AND :endDate")
+    BigDecimal findTotalAmountByDateRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+    
+    // Total amount per (tenant, category, year, month) from a day on; tenant-filtered unless run as root
+    @Query("SELECT t.tenantId, t.category, YEAR(t.day), MONTH(t.day), SUM(t.totalAmount) FROM ExpenseDailyTotal t " +
+           "WHERE t.day >= :from GROUP BY t.tenantId, t.category, YEAR(t.day), MONTH(t.day)")
+    List<Object[]> findMonthlyTotals(@Param("from") LocalDate from);
+    
+    // Per-day totals in a date range, summed over categories when category is null
+    @Query("SELECT t.day, SUM(t.totalAmount), SUM(t.expenseCount) FROM ExpenseDailyTotal t " +
+           "WHERE t.day BETWEEN :startDate AND :endDate AND (:category IS NULL OR t.category = :category) " +
+           "GROUP BY t.day")
+    List<Object[]> findDailyTotals(@Param("category") String category,
+                                   @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+}
@@ -1,17 +1,24 @@
 package com.finomo.repository;
 
 import com.finomo.entity.Expense;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
-public interface ExpenseRepository extends JpaRepository<Expense, Long> {
+public interface ExpenseRepository extends JpaRepository<Expense, Long>, ExpenseRepositoryCustom {
     
     // Find expenses by category
     List<Expense> findByCategory(String category);
@@ -35,4 +42,76 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
     // Custom query to get total amount in a date range
     @Query("SELECT SUM(e.amount) FROM Expense e WHERE e.date BETWEEN :startDate AND :endDate")
     BigDecimal findTotalAmountByDateRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
-}
\ No newline at end of file
+    
+    // Total amount and count per (tenant, category, day), used to verify the daily rollup
+    @Query("SELECT e.tenantId, e.category, e.date, SUM(e.amount), COUNT(e) FROM Expense e " +
+           "GROUP BY e.tenantId, e.category, e.date")
+    List<Object[]> findDailyTotals();
+    
+    // Count, sum and sum of squares of ln(amount) per (tenant, category), to seed amount outlier statistics
+    @Query("SELECT e.tenantId, e.category, COUNT(e), SUM(LN(e.amount)), SUM(LN(e.amount) * LN(e.amount)) " +
+           "FROM Expense e GROUP BY e.tenantId, e.category")
+    List<Object[]> findLogAmountMoments();
+    
+    // First keyset page ordered by (date, id)
+    @Query("SELECT e FROM Expense e ORDER BY e.date, e.id")
+    List<Expense> findFirstPage(Limit limit);
+    
+    // Keyset page strictly after the given (date, id) position; the leading date >= bound keeps it an index range scan
+    @Query("SELECT e FROM Expense e WHERE e.date >= :date AND (e.date > :date OR e.id > :id) ORDER BY e.date, e.id")
+    List<Expense> findPageAfter(@Param("date") LocalDate date, @Param("id") Long id, Limit limit);
+    
+    // Forward-only stream over all expenses; rows are fetched from the server cursor in chunks
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT e FROM Expense e ORDER BY e.date, e.id")
+    Stream<Expense> streamAllOrderByDateAndId();
+    
+    // Forward-only stream over one category
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT e FROM Expense e WHERE e.category = :category ORDER BY e.date, e.id")
+    Stream<Expense> streamByCategory(@Param("category") String category);
+    
+    // Forward-only stream over a date range
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT e FROM Expense e WHERE e.date BETWEEN :startDate AND :endDate ORDER BY e.date, e.id")
+    Stream<Expense> streamByDateBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+    
+    // Forward-only stream over one category in a date range
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT e FROM Expense e WHERE e.category = :category AND e.date BETWEEN :startDate AND :endDate " +
+           "ORDER BY e.date, e.id")
+    Stream<Expense> streamByCategoryAndDateBetween(@Param("category") String category,
+                                                   @Param("startDate") LocalDate startDate,
+                                                   @Param("endDate") LocalDate endDate);
+    
+    // Forward-only (date, amount) projection for aggregation; category is optional
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT e.date, e.amount FROM Expense e WHERE e.date BETWEEN :startDate AND :endDate " +
+           "AND (:category IS NULL OR e.category = :category)")
+    Stream<Object[]> streamDateAndAmount(@Param("category") String category,
+                                         @Param("startDate") LocalDate startDate,
+                                         @Param("endDate") LocalDate endDate);
+    
+    // Forward-only (id, tenant, category, date, amount) projection of the whole table for in-memory stores
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT e.id, e.tenantId, e.category, e.date, e.amount FROM Expense e")
+    Stream<Object[]> streamAnalyticsColumns();
+}
@@ -0,0 +1,26 @@
+package com.finomo.repository;
+
+import com.finomo.dto.ExpenseField;
+import com.finomo.dto.ExpenseQuery;
+import com.finomo.entity.Expense;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface ExpenseRepositoryCustom {
+    
+    // Insert new expenses with a single JDBC batch and assign their generated ids
+    void insertAll(List<Expense> expenses);
+    
+    // Only the selected columns of matching expenses, as read-only rows keyed by attribute name.
+    // category and the date range are optional filters; the dates must be given together.
+    List<Map<String, Object>> findFields(Set<ExpenseField> fields, String category,
+                                         LocalDate startDate, LocalDate endDate);
+    
+    // Expenses matching every filter of the query, in its order and up to its limit. Each keyword term (lowercase
+    // letters and digits) must occur in the description or notes. index names the table index the database should
+    // read, or null to leave the choice to it.
+    List<Expense> findMatching(ExpenseQuery query, List<String> keywordTerms, String index);
+}
@@ -0,0 +1,193 @@
+package com.finomo.repository;
+
+import com.finomo.config.TenantContext;
+import com.finomo.dto.ExpenseField;
+import com.finomo.dto.ExpenseQuery;
+import com.finomo.entity.Expense;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+public class ExpenseRepositoryImpl implements ExpenseRepositoryCustom {
+    
+    private static final String INSERT_SQL =
+            "INSERT INTO expenses (tenant_id, description, amount, category, date, notes) VALUES (?, ?, ?, ?, ?, ?)";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    // Hibernate cannot batch inserts for IDENTITY ids, so bulk inserts go straight through JDBC.
+    // JDBC bypasses @TenantId, so expenses are stamped with the current tenant here; only the root tenant may
+    // insert expenses that already name another tenant.
+    @Override
+    public void insertAll(List<Expense> expenses) {
+        if (expenses.isEmpty()) {
+            return;
+        }
+        assignTenant(expenses);
+        
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Expense expense = expenses.get(i);
+                        ps.setString(1, expense.getTenantId());
+                        ps.setString(2, expense.getDescription());
+                        ps.setBigDecimal(3, expense.getAmount());
+                        ps.setString(4, expense.getCategory());
+                        ps.setDate(5, Date.valueOf(expense.getDate()));
+                        ps.setString(6, expense.getNotes());
+                    }
+                    
+                    @Override
+                    public int getBatchSize() {
+                        return expenses.size();
+                    }
+                },
+                keyHolder);
+        
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < expenses.size() && i < keys.size(); i++) {
+            Number id = (Number) keys.get(i).values().iterator().next();
+            expenses.get(i).setId(id.longValue());
+            expenses.get(i).setVersion(0L);
+        }
+    }
+    
+    private static void assignTenant(List<Expense> expenses) {
+        boolean root = TenantContext.isRoot();
+        String tenant = TenantContext.current();
+        for (Expense expense : expenses) {
+            if (expense.getTenantId() == null) {
+                if (root) {
+                    throw new IllegalStateException("Expenses inserted as the root tenant must name their tenant");
+                }
+                expense.setTenantId(tenant);
+            } else if (!root && !expense.getTenantId().equals(tenant)) {
+                throw new IllegalStateException("Cannot insert an expense of tenant " + expense.getTenantId()
+                        + " as tenant " + tenant);
+            }
+        }
+    }
+    
+    // Tuple query over the selected attributes: no entities are instantiated or snapshotted for dirty checking
+    @Override
+    public List<Map<String, Object>> findFields(Set<ExpenseField> fields, String category,
+                                                LocalDate startDate, LocalDate endDate) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Expense> expense = query.from(Expense.class);
+        
+        List<ExpenseField> selected = List.copyOf(fields);
+        query.multiselect(selected.stream()
+                .<Selection<?>>map(field -> expense.get(field.attribute()).alias(field.attribute()))
+                .toList());
+        
+        List<Predicate> predicates = new ArrayList<>();
+        if (category != null) {
+            predicates.add(cb.equal(expense.get("category"), category));
+        }
+        if (startDate != null) {
+            predicates.add(cb.between(expense.get("date"), startDate, endDate));
+        }
+        query.where(predicates.toArray(Predicate[]::new));
+        
+        List<Tuple> tuples = entityManager.createQuery(query)
+                .setHint(HINT_READ_ONLY, true)
+                .setHint(HINT_FETCH_SIZE, 1000)
+                .getResultList();
+        
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>(selected.size() * 2);
+            for (int i = 0; i < selected.size(); i++) {
+                row.put(selected.get(i).attribute(), tuple.get(i));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+    
+    // Criteria query with every filter as a SQL predicate. The index hint is rendered by the dialect (USE INDEX on
+    // MySQL and H2) and only changes the access path, not which rows match.
+    @Override
+    public List<Expense> findMatching(ExpenseQuery query, List<String> keywordTerms, String index) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Expense> criteria = cb.createQuery(Expense.class);
+        Root<Expense> expense = criteria.from(Expense.class);
+        
+        List<Predicate> predicates = new ArrayList<>();
+        if (query.category() != null) {
+            predicates.add(cb.equal(expense.get("category"), query.category()));
+        }
+        if (query.startDate() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(expense.<LocalDate>get("date"), query.startDate()));
+        }
+        if (query.endDate() != null) {
+            predicates.add(cb.lessThanOrEqualTo(expense.<LocalDate>get("date"), query.endDate()));
+        }
+        if (query.minAmount() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(expense.<BigDecimal>get("amount"), query.minAmount()));
+        }
+        if (query.maxAmount() != null) {
+            predicates.add(cb.lessThanOrEqualTo(expense.<BigDecimal>get("amount"), query.maxAmount()));
+        }
+        // Terms hold only letters and digits, so they need no LIKE escaping
+        Expression<String> description = cb.lower(expense.get("description"));
+        Expression<String> notes = cb.lower(expense.get("notes"));
+        for (String term : keywordTerms) {
+            String pattern = "%" + term + "%";
+            predicates.add(cb.or(cb.like(description, pattern), cb.like(notes, pattern)));
+        }
+        criteria.where(predicates.toArray(Predicate[]::new));
+        
+        boolean ascending = query.direction() == Sort.Direction.ASC;
+        String sort = query.sort().attribute();
+        List<Order> order = new ArrayList<>();
+        order.add(ascending ? cb.asc(expense.get(sort)) : cb.desc(expense.get(sort)));
+        if (query.sort() != ExpenseQuery.SortField.ID) {
+            order.add(ascending ? cb.asc(expense.get("id")) : cb.desc(expense.get("id")));
+        }
+        criteria.orderBy(order);
+        
+        TypedQuery<Expense> typedQuery = entityManager.createQuery(criteria).setMaxResults(query.limit());
+        if (index != null) {
+            typedQuery.unwrap(org.hibernate.query.Query.class).addQueryHint(index);
+        }
+        return typedQuery.getResultList();
+    }
+}
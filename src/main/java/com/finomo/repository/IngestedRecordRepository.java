@@ -0,0 +1,17 @@
+package com.finomo.repository;
+
+import com.finomo.entity.IngestedRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface IngestedRecordRepository extends JpaRepository<IngestedRecord, String> {
+    
+    Optional<IngestedRecord> findByIdempotencyKey(String idempotencyKey);
+    
+    List<IngestedRecord> findByIdempotencyKeyIn(Collection<String> idempotencyKeys);
+}
@@ -0,0 +1,27 @@
+package com.finomo.repository;
+
+import com.finomo.entity.RecurringExpense;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface RecurringExpenseRepository extends JpaRepository<RecurringExpense, Long>, RecurringExpenseRepositoryCustom {
+    
+    // The earliest-due rules, read off the next_occurrence index in due order. Rows are locked for the caller's
+    // transaction and rows locked by another scheduler are skipped (lock timeout -2 is SKIP LOCKED), so instances
+    // materialize disjoint batches.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT r FROM RecurringExpense r WHERE r.nextOccurrence <= :date ORDER BY r.nextOccurrence, r.id")
+    List<RecurringExpense> findDueForUpdate(@Param("date") LocalDate date, Limit limit);
+}
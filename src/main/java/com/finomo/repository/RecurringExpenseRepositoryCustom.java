@@ -0,0 +1,14 @@
+package com.finomo.repository;
+
+import com.finomo.dto.RecurringOccurrence;
+
+import java.util.List;
+
+public interface RecurringExpenseRepositoryCustom {
+    
+    // Record materialized occurrences with a single JDBC batch; fails if any (rule, date) was already recorded
+    void insertOccurrences(List<RecurringOccurrence> occurrences);
+    
+    // Occurrences of one rule, oldest first. Not tenant-filtered: callers look the rule up first.
+    List<RecurringOccurrence> findOccurrences(long ruleId);
+}
@@ -0,0 +1,40 @@
+package com.finomo.repository;
+
+import com.finomo.dto.RecurringOccurrence;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.util.List;
+
+public class RecurringExpenseRepositoryImpl implements RecurringExpenseRepositoryCustom {
+    
+    private static final String INSERT_SQL = "INSERT INTO recurring_expense_occurrences " +
+            "(rule_id, occurrence_date, tenant_id, expense_id) VALUES (?, ?, ?, ?)";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public void insertOccurrences(List<RecurringOccurrence> occurrences) {
+        if (occurrences.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, occurrences, occurrences.size(), (ps, occurrence) -> {
+            ps.setLong(1, occurrence.ruleId());
+            ps.setDate(2, Date.valueOf(occurrence.date()));
+            ps.setString(3, occurrence.tenantId());
+            ps.setLong(4, occurrence.expenseId());
+        });
+    }
+    
+    @Override
+    public List<RecurringOccurrence> findOccurrences(long ruleId) {
+        return jdbcTemplate.query(
+                "SELECT rule_id, occurrence_date, tenant_id, expense_id FROM recurring_expense_occurrences " +
+                "WHERE rule_id = ? ORDER BY occurrence_date",
+                (rs, row) -> new RecurringOccurrence(rs.getLong(1), rs.getDate(2).toLocalDate(), rs.getString(3),
+                        rs.getLong(4)),
+                ruleId);
+    }
+}
@@ -0,0 +1,39 @@
+package com.finomo.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Per-tenant count of rollup rebuilds, read and bumped with plain JDBC. A tenant without a row is at generation 0.
+@Repository
+public class RollupGenerationRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Generation of every tenant that has been rebuilt at least once
+    public Map<String, Long> findAll() {
+        Map<String, Long> generations = new HashMap<>();
+        jdbcTemplate.query("SELECT tenant_id, generation FROM rollup_generations",
+                rs -> {
+                    generations.put(rs.getString(1), rs.getLong(2));
+                });
+        return generations;
+    }
+
+    public void increment(String tenantId) {
+        jdbcTemplate.update("INSERT INTO rollup_generations (tenant_id, generation) VALUES (?, 1) " +
+                "ON DUPLICATE KEY UPDATE generation = generation + 1", tenantId);
+    }
+
+    // Bump every tenant that has a generation or any expense
+    public void incrementAll() {
+        jdbcTemplate.update("UPDATE rollup_generations SET generation = generation + 1");
+        jdbcTemplate.update("INSERT INTO rollup_generations (tenant_id, generation) " +
+                "SELECT DISTINCT e.tenant_id, 1 FROM expenses e " +
+                "WHERE NOT EXISTS (SELECT 1 FROM rollup_generations g WHERE g.tenant_id = e.tenant_id)");
+    }
+}
@@ -0,0 +1,493 @@
+package com.finomo.service;
+
+import com.finomo.config.TenantContext;
+import com.finomo.dto.BudgetAlert;
+import com.finomo.dto.BudgetStatus;
+import com.finomo.entity.Budget;
+import com.finomo.entity.Expense;
+import com.finomo.repository.BudgetRepository;
+import com.finomo.repository.ExpenseDailyTotalRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Per-category monthly budgets with alerts when a month's spend crosses a threshold (finomo.budget.alert-thresholds,
+// ascending percentages of the limit). Spend per (tenant, category, month) is held in memory: seeded from the daily
+// rollup at startup, then moved by each committed transaction's net delta per month, so a threshold check is a map
+// lookup and two comparisons and nothing on the alert path queries the database. Alerts are pushed to the tenant's
+// Server-Sent Event subscribers.
+// Only this instance's commits move the totals directly. With several instances, expenses and budgets written
+// elsewhere are picked up by re-seeding from the rollup every finomo.budget.reseed-interval, which also alerts for
+// the thresholds they crossed; until then getStatus and the alerts of this instance lag behind those writes.
+// A seed is built from a consistent snapshot while commits go on; the commits that land after the snapshot was
+// taken are recorded and replayed onto it before it replaces the live totals.
+@Service
+public class BudgetService implements ExpenseChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(BudgetService.class);
+
+    public static final String ALERT_EVENT = "budget-alert";
+
+    @Autowired
+    private BudgetRepository budgetRepository;
+
+    @Autowired
+    private ExpenseDailyTotalRepository dailyTotalRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private TaskExecutor taskExecutor;
+
+    @Value("${finomo.budget.alert-thresholds:80,100}")
+    private int[] thresholds;
+
+    // Spend is tracked for the current month and this many months back (older expenses never alert)
+    @Value("${finomo.budget.tracked-months:12}")
+    private int trackedMonths;
+
+    @Value("${finomo.budget.subscription-timeout:30m}")
+    private Duration subscriptionTimeout;
+
+    // Seeds read the rollup in a snapshot; the snapshot is fixed by their first query
+    private TransactionTemplate snapshotTemplate;
+
+    // A transaction holds the read lock from beforeCommit until its changes are applied in memory. A seed takes
+    // the write lock only while its snapshot is fixed and while it is swapped in, so every commit is either in the
+    // snapshot or recorded in meantime and replayed onto it, never both.
+    private final ReadWriteLock seedLock = new ReentrantReadWriteLock();
+
+    private volatile Map<SpendKey, AtomicLong> spendCents = new ConcurrentHashMap<>();
+
+    private volatile Map<BudgetKey, Long> limitCents = new ConcurrentHashMap<>();
+
+    // Changes committed since the running seed's snapshot; null while no seed is running
+    private volatile Queue<Pending> meantime;
+
+    private final Map<String, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    private volatile int prunedBefore;
+
+    @PostConstruct
+    void init() {
+        snapshotTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    // Get the current tenant's budgets
+    @Transactional(readOnly = true)
+    public List<Budget> getAllBudgets() {
+        return budgetRepository.findAll();
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Budget> getBudgetById(Long id) {
+        return budgetRepository.findById(id);
+    }
+
+    @Transactional
+    public Budget createBudget(Budget budget) {
+        Budget savedBudget = budgetRepository.save(budget);
+        changeLimit(savedBudget.getTenantId(), savedBudget.getCategory(), toCents(savedBudget.getMonthlyLimit()));
+        return savedBudget;
+    }
+
+    @Transactional
+    public Budget updateBudget(Long id, Budget budgetDetails) {
+        Budget budget = budgetRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Budget not found with id: " + id));
+        String tenantId = budget.getTenantId();
+        String previousCategory = budget.getCategory();
+        budget.setCategory(budgetDetails.getCategory());
+        budget.setMonthlyLimit(budgetDetails.getMonthlyLimit());
+        Budget savedBudget = budgetRepository.saveAndFlush(budget);
+        if (!previousCategory.equals(savedBudget.getCategory())) {
+            changeLimit(tenantId, previousCategory, null);
+        }
+        changeLimit(tenantId, savedBudget.getCategory(), toCents(savedBudget.getMonthlyLimit()));
+        return savedBudget;
+    }
+
+    @Transactional
+    public void deleteBudget(Long id) {
+        Budget budget = budgetRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Budget not found with id: " + id));
+        budgetRepository.delete(budget);
+        changeLimit(budget.getTenantId(), budget.getCategory(), null);
+    }
+
+    // Spend against each of the current tenant's budgets in a month, from the in-memory totals
+    @Transactional(readOnly = true)
+    public List<BudgetStatus> getStatus(YearMonth month) {
+        String tenantId = TenantContext.current();
+        int monthIndex = monthIndex(month);
+        List<BudgetStatus> statuses = new ArrayList<>();
+        for (Budget budget : budgetRepository.findAll()) {
+            AtomicLong spent = spendCents.get(new SpendKey(tenantId, budget.getCategory(), monthIndex));
+            long spentCents = spent == null ? 0 : spent.get();
+            long limit = toCents(budget.getMonthlyLimit());
+            statuses.add(new BudgetStatus(budget.getId(), budget.getCategory(), month, budget.getMonthlyLimit(),
+                    BigDecimal.valueOf(spentCents, 2), (int) (spentCents * 100 / limit)));
+        }
+        return statuses;
+    }
+
+    // Register a Server-Sent Events subscriber for the current tenant's alerts
+    public SseEmitter subscribe() {
+        String tenantId = TenantContext.current();
+        SseEmitter emitter = new SseEmitter(subscriptionTimeout.toMillis());
+        subscribers.compute(tenantId, (tenant, emitters) -> {
+            List<SseEmitter> list = emitters != null ? emitters : new CopyOnWriteArrayList<>();
+            list.add(emitter);
+            return list;
+        });
+        emitter.onCompletion(() -> unsubscribe(tenantId, emitter));
+        emitter.onTimeout(() -> unsubscribe(tenantId, emitter));
+        emitter.onError(e -> unsubscribe(tenantId, emitter));
+        return emitter;
+    }
+
+    @Override
+    public void onCreated(Expense expense) {
+        addDelta(expense.getTenantId(), expense.getCategory(), expense.getDate(), toCents(expense.getAmount()));
+    }
+
+    @Override
+    public void onUpdated(Expense before, Expense after) {
+        addDelta(before.getTenantId(), before.getCategory(), before.getDate(), -toCents(before.getAmount()));
+        addDelta(after.getTenantId(), after.getCategory(), after.getDate(), toCents(after.getAmount()));
+    }
+
+    @Override
+    public void onDeleted(Expense expense) {
+        addDelta(expense.getTenantId(), expense.getCategory(), expense.getDate(), -toCents(expense.getAmount()));
+    }
+
+    // Load every tenant's budgets and monthly spend; runs after ExpenseRollupService.initialize has filled the rollup
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        load(false);
+    }
+
+    // Catch up with expenses and budgets written by other instances
+    @Scheduled(initialDelayString = "${finomo.budget.reseed-interval:1m}",
+               fixedDelayString = "${finomo.budget.reseed-interval:1m}")
+    public void reseed() {
+        load(true);
+    }
+
+    // Replace the totals and limits with a fresh snapshot. The write lock is held while the snapshot is fixed by
+    // the first query, so each local commit either made it into the snapshot or is recorded from then on; the
+    // rollup is scanned without the lock, and the recorded commits are replayed onto the result while it is
+    // swapped in. With alert set, every tracked month whose threshold level the snapshot raised is alerted, as
+    // the writes on other instances would have been here.
+    private synchronized void load(boolean alert) {
+        int oldestMonth = oldestTrackedMonth();
+        Map<SpendKey, AtomicLong> spend = new ConcurrentHashMap<>();
+        Map<BudgetKey, Long> limits = new ConcurrentHashMap<>();
+        Queue<Pending> recorded = new ConcurrentLinkedQueue<>();
+        try (TenantContext.TenantScope scope = TenantContext.root()) {
+            snapshotTemplate.executeWithoutResult(status -> {
+                seedLock.writeLock().lock();
+                try {
+                    for (Budget budget : budgetRepository.findAll()) {
+                        limits.put(new BudgetKey(budget.getTenantId(), budget.getCategory()),
+                                toCents(budget.getMonthlyLimit()));
+                    }
+                    meantime = recorded;
+                } finally {
+                    seedLock.writeLock().unlock();
+                }
+                LocalDate from = LocalDate.of(oldestMonth / 12, oldestMonth % 12 + 1, 1);
+                for (Object[] row : dailyTotalRepository.findMonthlyTotals(from)) {
+                    int month = ((Number) row[2]).intValue() * 12 + ((Number) row[3]).intValue() - 1;
+                    spend.put(new SpendKey((String) row[0], (String) row[1], month),
+                            new AtomicLong(toCents((BigDecimal) row[4])));
+                }
+            });
+        } catch (RuntimeException e) {
+            meantime = null;
+            log.error("Failed to load budget totals", e);
+            return;
+        }
+
+        seedLock.writeLock().lock();
+        try {
+            meantime = null;
+            for (Pending changes : recorded) {
+                changes.limits().forEach((key, limit) -> {
+                    if (limit == null) {
+                        limits.remove(key);
+                    } else {
+                        limits.put(key, limit);
+                    }
+                });
+                changes.spend().forEach((key, cents) -> {
+                    if (key.month() >= oldestMonth) {
+                        spend.computeIfAbsent(key, k -> new AtomicLong()).addAndGet(cents);
+                    }
+                });
+            }
+            if (alert) {
+                alertRaisedLevels(spend, limits);
+            }
+            spendCents = spend;
+            limitCents = limits;
+            prunedBefore = oldestMonth;
+        } finally {
+            seedLock.writeLock().unlock();
+        }
+        if (!alert) {
+            log.info("Loaded {} budgets and {} monthly category totals", limits.size(), spend.size());
+        }
+    }
+
+    // Like setLimit, a limit changed elsewhere only alerts for the current month
+    private void alertRaisedLevels(Map<SpendKey, AtomicLong> spend, Map<BudgetKey, Long> limits) {
+        int currentMonth = monthIndex(YearMonth.now());
+        spend.forEach((key, total) -> {
+            BudgetKey budget = new BudgetKey(key.tenantId(), key.category());
+            Long limit = limits.get(budget);
+            if (limit == null) {
+                return;
+            }
+            AtomicLong previous = spendCents.get(key);
+            long previousCents = previous == null ? 0 : previous.get();
+            long spentCents = total.get();
+            if (spentCents == previousCents && key.month() != currentMonth) {
+                return;
+            }
+            Long previousLimit = limitCents.get(budget);
+            int reached = level(spentCents, limit);
+            int before = previousLimit == null ? 0 : level(previousCents, previousLimit);
+            if (reached > before) {
+                publish(key.tenantId(), key.category(), key.month(), reached, spentCents, limit);
+            }
+        });
+    }
+
+    // Changes are collected per transaction and applied once it commits: net per month, so an update within a
+    // month moves the total once rather than down and back up again
+    private void addDelta(String tenantId, String category, LocalDate date, long cents) {
+        SpendKey key = new SpendKey(tenantId, category, monthIndex(date));
+        Pending pending = pending();
+        if (pending == null) {
+            Pending change = Pending.empty();
+            change.spend().put(key, cents);
+            applyNow(change);
+        } else {
+            pending.spend().merge(key, cents, Long::sum);
+        }
+    }
+
+    // A null limit removes the budget
+    private void changeLimit(String tenantId, String category, Long limit) {
+        BudgetKey key = new BudgetKey(tenantId, category);
+        Pending pending = pending();
+        if (pending == null) {
+            Pending change = Pending.empty();
+            change.limits().put(key, limit);
+            applyNow(change);
+        } else {
+            pending.limits().put(key, limit);
+        }
+    }
+
+    private void applyNow(Pending change) {
+        seedLock.readLock().lock();
+        try {
+            apply(change);
+        } finally {
+            seedLock.readLock().unlock();
+        }
+    }
+
+    // This transaction's changes, registering the commit hook on first use; null outside a transaction
+    private Pending pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Pending changes = Pending.empty();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private boolean locked;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    seedLock.readLock().lock();
+                    locked = true;
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(BudgetService.this);
+                    if (!locked) {
+                        return;
+                    }
+                    try {
+                        if (status == STATUS_COMMITTED) {
+                            apply(changes);
+                        }
+                    } finally {
+                        seedLock.readLock().unlock();
+                    }
+                }
+            });
+            pending = changes;
+        }
+        return pending;
+    }
+
+    // Called with the read lock held
+    private void apply(Pending changes) {
+        changes.limits().forEach((key, limit) -> {
+            if (limit == null) {
+                limitCents.remove(key);
+            } else {
+                setLimit(key, limit);
+            }
+        });
+        changes.spend().forEach(this::applySpend);
+        Queue<Pending> recording = meantime;
+        if (recording != null) {
+            recording.add(changes);
+        }
+    }
+
+    private void applySpend(SpendKey key, long deltaCents) {
+        int oldestMonth = oldestTrackedMonth();
+        if (deltaCents == 0 || key.month() < oldestMonth) {
+            return;
+        }
+        if (oldestMonth > prunedBefore) {
+            prunedBefore = oldestMonth;
+            spendCents.keySet().removeIf(spendKey -> spendKey.month() < oldestMonth);
+        }
+        long after = spendCents.computeIfAbsent(key, k -> new AtomicLong()).addAndGet(deltaCents);
+        Long limit = limitCents.get(new BudgetKey(key.tenantId(), key.category()));
+        if (deltaCents < 0 || limit == null) {
+            return;
+        }
+        // The add is atomic, so exactly one writer sees the total move past each threshold
+        int reached = level(after, limit);
+        if (reached > level(after - deltaCents, limit)) {
+            publish(key.tenantId(), key.category(), key.month(), reached, after, limit);
+        }
+    }
+
+    // A new or changed limit alerts straight away if this month's spend is already past a threshold it was not before
+    private void setLimit(BudgetKey key, long limit) {
+        Long previous = limitCents.put(key, limit);
+        int month = monthIndex(YearMonth.now());
+        AtomicLong spent = spendCents.get(new SpendKey(key.tenantId(), key.category(), month));
+        long spentCents = spent == null ? 0 : spent.get();
+        int reached = level(spentCents, limit);
+        if (reached > (previous == null ? 0 : level(spentCents, previous))) {
+            publish(key.tenantId(), key.category(), month, reached, spentCents, limit);
+        }
+    }
+
+    // Number of thresholds the spend has reached
+    private int level(long spentCents, long limit) {
+        int reached = 0;
+        while (reached < thresholds.length && spentCents * 100 >= thresholds[reached] * limit) {
+            reached++;
+        }
+        return reached;
+    }
+
+    // Only the highest threshold crossed by one change is reported. Sent from the task executor so a slow
+    // subscriber never holds up the committing thread.
+    private void publish(String tenantId, String category, int month, int reached, long spentCents, long limit) {
+        BudgetAlert alert = new BudgetAlert(category, YearMonth.of(month / 12, month % 12 + 1), thresholds[reached - 1],
+                BigDecimal.valueOf(spentCents, 2), BigDecimal.valueOf(limit, 2));
+        log.debug("Budget alert for tenant {}: {}", tenantId, alert);
+        List<SseEmitter> emitters = subscribers.get(tenantId);
+        if (emitters == null) {
+            return;
+        }
+        taskExecutor.execute(() -> {
+            for (SseEmitter emitter : emitters) {
+                try {
+                    emitter.send(SseEmitter.event().name(ALERT_EVENT).data(alert, MediaType.APPLICATION_JSON));
+                } catch (IOException | IllegalStateException e) {
+                    unsubscribe(tenantId, emitter);
+                }
+            }
+        });
+    }
+
+    private void unsubscribe(String tenantId, SseEmitter emitter) {
+        subscribers.computeIfPresent(tenantId, (tenant, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    private int oldestTrackedMonth() {
+        return monthIndex(YearMonth.now()) - trackedMonths;
+    }
+
+    private static int monthIndex(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    private static int monthIndex(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount == null ? 0 : amount.movePointRight(2).longValue();
+    }
+
+    private record SpendKey(String tenantId, String category, int month) {
+    }
+
+    private record BudgetKey(String tenantId, String category) {
+    }
+
+    // Net spend per month and the last limit per budget (null once deleted) of one transaction
+    private record Pending(Map<SpendKey, Long> spend, Map<BudgetKey, Long> limits) {
+        static Pending empty() {
+            return new Pending(new HashMap<>(), new LinkedHashMap<>());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.finomo.service;
+
+import com.finomo.dto.TimeSeriesPoint;
+import com.finomo.repository.ExpenseDailyTotalRepository;
+import com.finomo.repository.ExpenseRepository;
+import com.finomo.service.analytics.ExpenseColumnStore;
+import com.finomo.service.analytics.TimeBucket;
+import com.finomo.service.analytics.TimeSeriesAggregator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Service
+public class ExpenseAnalyticsService {
+    
+    public static final int DEFAULT_WINDOW = 7;
+    public static final int MAX_WINDOW = 366;
+    
+    private static final int COLUMN_BATCH_SIZE = 4096;
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private ExpenseDailyTotalRepository dailyTotalRepository;
+    
+    // Present only with finomo.analytics.store=columnar
+    @Autowired(required = false)
+    private ExpenseColumnStore columnStore;
+    
+    // Time series of totals, counts, moving averages and (optionally) percentiles, computed in one pass.
+    // With the columnar store loaded every series is scanned from memory. Otherwise the series comes from the daily
+    // rollup without percentiles, or from a scan of every expense in range with them.
+    @Transactional(readOnly = true)
+    public List<TimeSeriesPoint> getTimeSeries(TimeBucket bucket, String category, LocalDate startDate,
+                                               LocalDate endDate, int window, boolean percentiles) {
+        if ((startDate == null) != (endDate == null)) {
+            throw new IllegalArgumentException("startDate and endDate must be given together");
+        }
+        if (window < 1 || window > MAX_WINDOW) {
+            throw new IllegalArgumentException("window must be between 1 and " + MAX_WINDOW);
+        }
+        if (endDate == null) {
+            endDate = LocalDate.now();
+            startDate = endDate.minusDays(364);
+        }
+        
+        TimeSeriesAggregator aggregator = new TimeSeriesAggregator(bucket, startDate, endDate, percentiles);
+        if (columnStore != null && columnStore.isReady()) {
+            columnStore.scan(category, aggregator);
+        } else if (percentiles) {
+            scanExpenses(aggregator, category, startDate, endDate);
+        } else {
+            for (Object[] row : dailyTotalRepository.findDailyTotals(category, startDate, endDate)) {
+                aggregator.addTotal((int) ((LocalDate) row[0]).toEpochDay(), toCents((BigDecimal) row[1]),
+                        ((Number) row[2]).longValue());
+            }
+        }
+        return aggregator.result(window);
+    }
+    
+    // Copy the (date, amount) projection into primitive column batches and feed them to the aggregator
+    private void scanExpenses(TimeSeriesAggregator aggregator, String category, LocalDate startDate, LocalDate endDate) {
+        int[] days = new int[COLUMN_BATCH_SIZE];
+        long[] cents = new long[COLUMN_BATCH_SIZE];
+        try (Stream<Object[]> rows = expenseRepository.streamDateAndAmount(category, startDate, endDate)) {
+            Iterator<Object[]> iterator = rows.iterator();
+            int size = 0;
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                days[size] = (int) ((LocalDate) row[0]).toEpochDay();
+                cents[size] = toCents((BigDecimal) row[1]);
+                if (++size == COLUMN_BATCH_SIZE) {
+                    aggregator.addColumns(days, cents, size);
+                    size = 0;
+                }
+            }
+            aggregator.addColumns(days, cents, size);
+        }
+    }
+    
+    private static long toCents(BigDecimal amount) {
+        return amount == null ? 0 : amount.movePointRight(2).longValue();
+    }
+}
@@ -0,0 +1,485 @@
+package com.finomo.service;
+
+import com.finomo.config.TenantContext;
+import com.finomo.dto.ExpenseAnomalies;
+import com.finomo.dto.ExpenseAnomalies.DuplicateMatch;
+import com.finomo.entity.Expense;
+import com.finomo.repository.ExpenseRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Screens new expenses for likely duplicates (bank re-imports, double taps) and unusual amounts, in memory only:
+// screening costs a few hash lookups and no database query. Memory is bounded by Caffeine size limits.
+//   - Exact duplicates: a 64-bit fingerprint of (tenant, normalized description, amount, date) maps to the recent
+//     expense that has it.
+//   - Similar duplicates: recent expenses are also kept per (tenant, amount) in a small ring. A candidate matches
+//     one dated within duplicate-window days whose description simhash (over character trigrams) differs in at
+//     most max-description-distance bits, which tolerates reference numbers, case and small wording changes.
+//   - Outliers: running mean and variance (Welford) of ln(amount) per (tenant, category). Amounts are roughly
+//     log-normal, so the log scale keeps a few large purchases from dominating. The z-score is only reported once
+//     a category has outlier-min-samples expenses; statistics are seeded from the table at startup.
+// A screened expense is reserved as recent at once, so a concurrent copy is caught before either commits. The
+// reservation is dropped when its transaction rolls back or ends without creating the expense.
+@Service
+public class ExpenseAnomalyDetector implements ExpenseChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseAnomalyDetector.class);
+
+    private static final int WINDOW_SIZE = 8;
+    // Floor on the standard deviation so a category of identical amounts does not make every change infinite
+    private static final double MIN_DEVIATION = 0.01;
+
+    public enum DuplicateAction {
+        // Create the expense and report the suspected duplicate
+        FLAG,
+        // Refuse to create a suspected duplicate unless the caller allows it
+        REJECT
+    }
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private TaskExecutor taskExecutor;
+
+    private final DuplicateAction duplicateAction;
+    private final int windowDays;
+    private final int maxDescriptionDistance;
+    private final double outlierZScore;
+    private final long outlierMinSamples;
+
+    private final Cache<Long, Entry> recentByFingerprint;
+    private final Cache<AmountKey, Window> recentByAmount;
+    private final Cache<CategoryKey, AmountStatistics> statistics;
+
+    public ExpenseAnomalyDetector(
+            @Value("${finomo.anomaly.duplicate-action:flag}") DuplicateAction duplicateAction,
+            @Value("${finomo.anomaly.duplicate-window:3}") int windowDays,
+            @Value("${finomo.anomaly.max-description-distance:14}") int maxDescriptionDistance,
+            @Value("${finomo.anomaly.max-recent:100000}") long maxRecent,
+            @Value("${finomo.anomaly.recent-retention:30d}") Duration recentRetention,
+            @Value("${finomo.anomaly.outlier-z-score:3.5}") double outlierZScore,
+            @Value("${finomo.anomaly.outlier-min-samples:30}") long outlierMinSamples) {
+        this.duplicateAction = duplicateAction;
+        this.windowDays = windowDays;
+        this.maxDescriptionDistance = maxDescriptionDistance;
+        this.outlierZScore = outlierZScore;
+        this.outlierMinSamples = outlierMinSamples;
+        this.recentByFingerprint = Caffeine.newBuilder()
+                .maximumSize(maxRecent)
+                .expireAfterWrite(recentRetention)
+                .build();
+        this.recentByAmount = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, maxRecent / WINDOW_SIZE))
+                .expireAfterAccess(recentRetention)
+                .build();
+        this.statistics = Caffeine.newBuilder()
+                .maximumSize(maxRecent)
+                .build();
+    }
+
+    public DuplicateAction getDuplicateAction() {
+        return duplicateAction;
+    }
+
+    // Compare a new expense with recent ones and its category's amounts. Within a transaction the expense is
+    // reserved as recent until the transaction ends; outside one screening only checks.
+    public ExpenseAnomalies screen(Expense candidate) {
+        Entry entry = entryOf(candidate);
+        boolean reserve = reserve(candidate, entry);
+
+        DuplicateMatch match = null;
+        Long duplicateOf = null;
+        Entry original = reserve
+                ? recentByFingerprint.asMap().putIfAbsent(entry.fingerprint, entry)
+                : recentByFingerprint.getIfPresent(entry.fingerprint);
+        if (original != null) {
+            match = DuplicateMatch.EXACT;
+            duplicateOf = original.id;
+        }
+        Window window = reserve
+                ? recentByAmount.get(entry.amountKey, key -> new Window())
+                : recentByAmount.getIfPresent(entry.amountKey);
+        Entry similar = window == null ? null : window.findSimilar(entry, windowDays, maxDescriptionDistance, reserve);
+        if (match == null && similar != null) {
+            match = DuplicateMatch.SIMILAR;
+            duplicateOf = similar.id;
+        }
+
+        Double zScore = outlierScore(entry.amountKey.tenant(), candidate.getCategory(), candidate.getAmount());
+        return match == null && zScore == null ? ExpenseAnomalies.NONE : new ExpenseAnomalies(match, duplicateOf, zScore);
+    }
+
+    private Double outlierScore(String tenant, String category, BigDecimal amount) {
+        AmountStatistics stats = statistics.getIfPresent(new CategoryKey(tenant, category));
+        if (stats == null) {
+            return null;
+        }
+        double zScore = stats.zScore(Math.log(amount.doubleValue()), outlierMinSamples);
+        if (Double.isNaN(zScore) || Math.abs(zScore) < outlierZScore) {
+            return null;
+        }
+        return Math.round(zScore * 10) / 10.0;
+    }
+
+    @Override
+    public void onCreated(Expense expense) {
+        Entry reserved = claimReservation(expense);
+        if (reserved != null) {
+            reserved.id = expense.getId();
+        } else {
+            Entry entry = entryOf(expense);
+            entry.id = expense.getId();
+            afterCommit(() -> remember(entry));
+        }
+        CategoryKey key = new CategoryKey(entryTenant(expense), expense.getCategory());
+        double value = Math.log(expense.getAmount().doubleValue());
+        afterCommit(() -> statistics.get(key, k -> new AmountStatistics()).add(value));
+    }
+
+    @Override
+    public void onUpdated(Expense before, Expense after) {
+        Entry previous = entryOf(before);
+        Entry current = entryOf(after);
+        current.id = after.getId();
+        CategoryKey previousKey = new CategoryKey(entryTenant(before), before.getCategory());
+        CategoryKey currentKey = new CategoryKey(entryTenant(after), after.getCategory());
+        double previousValue = Math.log(before.getAmount().doubleValue());
+        double currentValue = Math.log(after.getAmount().doubleValue());
+        afterCommit(() -> {
+            forget(previous, before.getId());
+            remember(current);
+            AmountStatistics previousStats = statistics.getIfPresent(previousKey);
+            if (previousStats != null) {
+                previousStats.remove(previousValue);
+            }
+            statistics.get(currentKey, k -> new AmountStatistics()).add(currentValue);
+        });
+    }
+
+    @Override
+    public void onDeleted(Expense expense) {
+        Entry entry = entryOf(expense);
+        Long id = expense.getId();
+        CategoryKey key = new CategoryKey(entryTenant(expense), expense.getCategory());
+        double value = Math.log(expense.getAmount().doubleValue());
+        afterCommit(() -> {
+            forget(entry, id);
+            AmountStatistics stats = statistics.getIfPresent(key);
+            if (stats != null) {
+                stats.remove(value);
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedInBackground() {
+        taskExecutor.execute(this::seedStatistics);
+    }
+
+    // One grouped query over the table. Commits racing with it may be counted twice or not at all, which only
+    // nudges the statistics of a few categories.
+    void seedStatistics() {
+        try (TenantContext.TenantScope scope = TenantContext.root()) {
+            List<Object[]> rows = transactionTemplate.execute(status -> expenseRepository.findLogAmountMoments());
+            for (Object[] row : rows) {
+                long count = ((Number) row[2]).longValue();
+                if (count > 0) {
+                    statistics.put(new CategoryKey((String) row[0], (String) row[1]), AmountStatistics.of(count,
+                            ((Number) row[3]).doubleValue(), ((Number) row[4]).doubleValue()));
+                }
+            }
+            log.info("Seeded amount statistics for {} tenant categories", rows.size());
+        } catch (RuntimeException e) {
+            log.warn("Failed to seed amount statistics; outliers are flagged once categories collect samples", e);
+        }
+    }
+
+    private void remember(Entry entry) {
+        recentByFingerprint.asMap().putIfAbsent(entry.fingerprint, entry);
+        recentByAmount.get(entry.amountKey, key -> new Window()).add(entry);
+    }
+
+    // Drop a recent expense by id, or a reservation (id null) by identity
+    private void forget(Entry entry, Long id) {
+        recentByFingerprint.asMap().computeIfPresent(entry.fingerprint,
+                (key, recent) -> recent == entry || (id != null && id.equals(recent.id)) ? null : recent);
+        Window window = recentByAmount.getIfPresent(entry.amountKey);
+        if (window != null) {
+            window.remove(entry, id);
+        }
+    }
+
+    // Reservations of the current transaction, keyed by the screened expense instance
+    private boolean reserve(Expense candidate, Entry entry) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        Reservations reservations = (Reservations) TransactionSynchronizationManager.getResource(this);
+        if (reservations == null) {
+            Reservations bound = new Reservations();
+            reservations = bound;
+            TransactionSynchronizationManager.bindResource(this, bound);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ExpenseAnomalyDetector.this);
+                    bound.pending.values().forEach(unused -> forget(unused, null));
+                    if (status != STATUS_COMMITTED) {
+                        bound.claimed.forEach(rolledBack -> forget(rolledBack, null));
+                    }
+                }
+            });
+        }
+        reservations.pending.put(candidate, entry);
+        return true;
+    }
+
+    private Entry claimReservation(Expense expense) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Reservations reservations = (Reservations) TransactionSynchronizationManager.getResource(this);
+        if (reservations == null) {
+            return null;
+        }
+        Entry entry = reservations.pending.remove(expense);
+        if (entry != null) {
+            reservations.claimed.add(entry);
+        }
+        return entry;
+    }
+
+    private static Entry entryOf(Expense expense) {
+        String tenant = entryTenant(expense);
+        long cents = expense.getAmount().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        String description = normalize(expense.getDescription());
+        long day = expense.getDate().toEpochDay();
+        return new Entry(fingerprint(tenant, description, cents, day), simhash(description), day,
+                new AmountKey(tenant, cents));
+    }
+
+    private static String entryTenant(Expense expense) {
+        return expense.getTenantId() != null ? expense.getTenantId() : TenantContext.current();
+    }
+
+    // Lower case letters and digits only; tokens of three or more characters containing a digit (reference and
+    // card numbers, store ids) are dropped
+    static String normalize(String description) {
+        StringBuilder normalized = new StringBuilder(description.length());
+        int length = description.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(description.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            boolean digit = false;
+            while (i < length && Character.isLetterOrDigit(description.charAt(i))) {
+                digit |= Character.isDigit(description.charAt(i));
+                i++;
+            }
+            if (i == start || (digit && i - start >= 3)) {
+                continue;
+            }
+            if (normalized.length() > 0) {
+                normalized.append(' ');
+            }
+            for (int j = start; j < i; j++) {
+                normalized.append(Character.toLowerCase(description.charAt(j)));
+            }
+        }
+        return normalized.toString();
+    }
+
+    // 64-bit FNV-1a over the fields
+    private static long fingerprint(String tenant, String description, long cents, long day) {
+        long hash = 0xcbf29ce484222325L;
+        hash = fnv(hash, tenant);
+        hash = fnv(hash, description);
+        hash = (hash ^ cents) * 0x100000001b3L;
+        hash = (hash ^ day) * 0x100000001b3L;
+        return hash;
+    }
+
+    private static long fnv(long hash, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        return (hash ^ 0xff) * 0x100000001b3L;
+    }
+
+    // Charikar simhash over character trigrams of the padded text: similar texts share most trigrams, so most
+    // bit votes agree and the hashes differ in few bits
+    static long simhash(String text) {
+        String padded = " " + text + " ";
+        int[] votes = new int[64];
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            long gram = mix(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+            for (int bit = 0; bit < 64; bit++) {
+                votes[bit] += ((gram >>> bit) & 1) == 1 ? 1 : -1;
+            }
+        }
+        long hash = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (votes[bit] > 0) {
+                hash |= 1L << bit;
+            }
+        }
+        return hash;
+    }
+
+    // MurmurHash3 64-bit finalizer
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private record AmountKey(String tenant, long cents) {
+    }
+
+    private record CategoryKey(String tenant, String category) {
+    }
+
+    private static final class Entry {
+        final long fingerprint;
+        final long simhash;
+        final long day;
+        final AmountKey amountKey;
+        // Null while the expense is being written
+        volatile Long id;
+
+        Entry(long fingerprint, long simhash, long day, AmountKey amountKey) {
+            this.fingerprint = fingerprint;
+            this.simhash = simhash;
+            this.day = day;
+            this.amountKey = amountKey;
+        }
+    }
+
+    private static final class Reservations {
+        final Map<Expense, Entry> pending = new IdentityHashMap<>();
+        final List<Entry> claimed = new ArrayList<>();
+    }
+
+    // The most recent expenses with one (tenant, amount), oldest overwritten first
+    private static final class Window {
+        private final Entry[] entries = new Entry[WINDOW_SIZE];
+        private int next;
+
+        synchronized Entry findSimilar(Entry candidate, int days, int maxDistance, boolean add) {
+            Entry similar = null;
+            for (Entry entry : entries) {
+                if (entry != null && Math.abs(entry.day - candidate.day) <= days
+                        && Long.bitCount(entry.simhash ^ candidate.simhash) <= maxDistance) {
+                    similar = entry;
+                    break;
+                }
+            }
+            if (add) {
+                add(candidate);
+            }
+            return similar;
+        }
+
+        synchronized void add(Entry entry) {
+            entries[next] = entry;
+            next = (next + 1) % entries.length;
+        }
+
+        synchronized void remove(Entry removed, Long id) {
+            for (int i = 0; i < entries.length; i++) {
+                Entry entry = entries[i];
+                if (entry != null && (entry == removed || (id != null && id.equals(entry.id)))) {
+                    entries[i] = null;
+                }
+            }
+        }
+    }
+
+    // Welford's running mean and sum of squared deviations; removal reverses an earlier add
+    static final class AmountStatistics {
+        private long count;
+        private double mean;
+        private double m2;
+
+        static AmountStatistics of(long count, double sum, double sumOfSquares) {
+            AmountStatistics stats = new AmountStatistics();
+            stats.count = count;
+            stats.mean = sum / count;
+            stats.m2 = Math.max(0, sumOfSquares - sum * stats.mean);
+            return stats;
+        }
+
+        synchronized void add(double value) {
+            count++;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+        }
+
+        synchronized void remove(double value) {
+            if (count <= 1) {
+                count = 0;
+                mean = 0;
+                m2 = 0;
+                return;
+            }
+            double previousMean = (count * mean - value) / (count - 1);
+            m2 = Math.max(0, m2 - (value - mean) * (value - previousMean));
+            mean = previousMean;
+            count--;
+        }
+
+        // NaN until there are minSamples values
+        synchronized double zScore(double value, long minSamples) {
+            if (count < Math.max(2, minSamples)) {
+                return Double.NaN;
+            }
+            double deviation = Math.max(MIN_DEVIATION, Math.sqrt(m2 / count));
+            return (value - mean) / deviation;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.finomo.service;
+
+import com.finomo.config.TenantContext;
+import com.finomo.entity.Expense;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Bounded read-through cache for expense lookups and analytics, invalidated by the committed changes of every
+// instance as ExpenseChangeCounter delivers them: this instance's own writes right after commit, so a concurrent
+// reader cannot re-cache the pre-commit state, and other instances' within finomo.changes.poll-interval.
+// Every key carries the tenant, so one tenant never reads another's entries; the root tenant bypasses the cache.
+// A load that was already reading when an eviction of its tenant ran may have read the old state, and Caffeine
+// only stores it after the eviction is done. Each tenant therefore has an eviction generation, bumped before
+// every eviction; a load that sees it changed removes the value it stored instead of keeping it until the TTL.
+@Component
+public class ExpenseCache implements ExpenseChangeFollower {
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${finomo.cache.max-size:10000}")
+    private long maxSize;
+    
+    @Value("${finomo.cache.max-category-rows:100000}")
+    private long maxCategoryRows;
+    
+    @Value("${finomo.cache.ttl:10m}")
+    private Duration ttl;
+    
+    private Cache<TenantKey<Long>, Expense> byId;
+    private Cache<TenantKey<String>, List<Expense>> byCategory;
+    private Cache<String, List<Object[]>> categoryTotals;
+    private Cache<TenantKey<DateRange>, BigDecimal> dateRangeTotals;
+    
+    private final Map<String, AtomicLong> evictions = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    void init() {
+        byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        // Category lists are weighed by row count so a few large categories cannot exhaust the heap
+        byCategory = Caffeine.newBuilder()
+                .maximumWeight(maxCategoryRows)
+                .<TenantKey<String>, List<Expense>>weigher((category, expenses) -> Math.max(1, expenses.size()))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        categoryTotals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        dateRangeTotals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "expensesById");
+        CaffeineCacheMetrics.monitor(meterRegistry, byCategory, "expensesByCategory");
+        CaffeineCacheMetrics.monitor(meterRegistry, categoryTotals, "totalsByCategory");
+        CaffeineCacheMetrics.monitor(meterRegistry, dateRangeTotals, "totalsByDateRange");
+    }
+    
+    public Optional<Expense> getById(Long id, Supplier<Optional<Expense>> loader) {
+        if (TenantContext.isRoot()) {
+            return loader.get();
+        }
+        return Optional.ofNullable(load(byId, TenantKey.of(id), key -> loader.get().map(Expense::new).orElse(null)));
+    }
+    
+    public List<Expense> getByCategory(String category, Supplier<List<Expense>> loader) {
+        if (TenantContext.isRoot()) {
+            return loader.get();
+        }
+        return load(byCategory, TenantKey.of(category), key -> loader.get().stream().map(Expense::new).toList());
+    }
+    
+    public List<Object[]> getCategoryTotals(Supplier<List<Object[]>> loader) {
+        if (TenantContext.isRoot()) {
+            return loader.get();
+        }
+        return load(categoryTotals, TenantContext.current(), key -> List.copyOf(loader.get()));
+    }
+    
+    public BigDecimal getDateRangeTotal(LocalDate startDate, LocalDate endDate, Supplier<BigDecimal> loader) {
+        if (TenantContext.isRoot()) {
+            return loader.get();
+        }
+        return load(dateRangeTotals, TenantKey.of(new DateRange(startDate, endDate)), key -> loader.get());
+    }
+    
+    @Override
+    public void apply(Expense before, Expense after) {
+        if (before != null) {
+            evict(before);
+        }
+        if (after != null) {
+            evict(after);
+        }
+    }
+    
+    @Override
+    public void reload(String tenant) {
+        invalidateTenant(tenant);
+    }
+    
+    // Drop the current tenant's entries, or every entry as root
+    public void invalidateAll() {
+        if (TenantContext.isRoot()) {
+            afterCommit(() -> {
+                evictions.values().forEach(AtomicLong::incrementAndGet);
+                byId.invalidateAll();
+                byCategory.invalidateAll();
+                categoryTotals.invalidateAll();
+                dateRangeTotals.invalidateAll();
+            });
+            return;
+        }
+        String tenant = TenantContext.current();
+        afterCommit(() -> invalidateTenant(tenant));
+    }
+    
+    // Drop the tenant's entries right away, for changes that are already committed
+    public void invalidateTenant(String tenant) {
+        evictionGeneration(tenant).incrementAndGet();
+        byId.asMap().keySet().removeIf(key -> key.tenantId().equals(tenant));
+        byCategory.asMap().keySet().removeIf(key -> key.tenantId().equals(tenant));
+        categoryTotals.invalidate(tenant);
+        dateRangeTotals.asMap().keySet().removeIf(key -> key.tenantId().equals(tenant));
+    }
+    
+    // Evict only the id, the category list and the date ranges of the expense's tenant that contain the expense
+    private void evict(Expense expense) {
+        String tenant = expense.getTenantId();
+        evictionGeneration(tenant).incrementAndGet();
+        if (expense.getId() != null) {
+            byId.invalidate(new TenantKey<>(tenant, expense.getId()));
+        }
+        byCategory.invalidate(new TenantKey<>(tenant, expense.getCategory()));
+        categoryTotals.invalidate(tenant);
+        LocalDate date = expense.getDate();
+        dateRangeTotals.asMap().keySet().removeIf(key -> key.tenantId().equals(tenant) && key.key().contains(date));
+    }
+    
+    private <K, V> V load(Cache<K, V> cache, K key, Function<K, V> loader) {
+        AtomicLong generation = evictionGeneration(TenantContext.current());
+        long before = generation.get();
+        V value = cache.get(key, loader);
+        if (value != null && generation.get() != before) {
+            cache.asMap().remove(key, value);
+        }
+        return value;
+    }
+    
+    private AtomicLong evictionGeneration(String tenant) {
+        return evictions.computeIfAbsent(tenant, key -> new AtomicLong());
+    }
+    
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+    
+    private record TenantKey<K>(String tenantId, K key) {
+        static <K> TenantKey<K> of(K key) {
+            return new TenantKey<>(TenantContext.current(), key);
+        }
+    }
+    
+    private record DateRange(LocalDate startDate, LocalDate endDate) {
+        boolean contains(LocalDate date) {
+            return !date.isBefore(startDate) && !date.isAfter(endDate);
+        }
+    }
+}
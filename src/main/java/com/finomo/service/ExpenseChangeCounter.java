@@ -0,0 +1,306 @@
+package com.finomo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.finomo.config.TenantContext;
+import com.finomo.dto.ExpenseChange;
+import com.finomo.entity.Expense;
+import com.finomo.repository.ExpenseChangeRepository;
+import com.finomo.repository.RollupGenerationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-tenant version of the expenses table, used to derive ETags for analytics without running the query, and the
+// point up to which this instance's ExpenseChangeFollowers have seen every committed change.
+// The version is a sequence number of the tenant's change log (ExpenseChangeLog), which every write already takes
+// just before it commits, so versioning adds no row lock to the write path and no query to the read path. Changes
+// reach the followers in sequence order, and the version only moves past a change once every follower has it, so
+// a representation tagged with a version is never computed from older data:
+//   - A transaction of this instance reports the sequence numbers it reserved. Once it has committed and every
+//     lower number has been delivered, its changes are delivered on the committing thread.
+//   - Changes committed by other instances are found by comparing each tenant's newest sequence number every
+//     finomo.changes.poll-interval and read from the change log; until then this instance keeps serving the
+//     older version with the older data.
+//   - Changes removed from the log before they were read (after falling behind retention or compaction) make the
+//     followers reload the tenant.
+// A rollup rebuild changes totals without writing a change, so it bumps the tenant's row in rollup_generations,
+// which is the other half of the ETag and is polled together with the sequence numbers.
+@Component
+public class ExpenseChangeCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseChangeCounter.class);
+
+    // Changes read per query while catching up with other instances
+    private static final int CATCH_UP_PAGE_SIZE = 500;
+
+    @Autowired
+    private ExpenseChangeRepository changeRepository;
+
+    @Autowired
+    private RollupGenerationRepository generationRepository;
+
+    @Autowired
+    private ExpenseCache expenseCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    private List<ExpenseChangeFollower> followers = List.of();
+
+    private final Map<String, Position> positions = new ConcurrentHashMap<>();
+    private volatile Map<String, Long> generations = Map.of();
+
+    // Until the positions are loaded, changes are left to the followers' startup rebuilds
+    private volatile boolean started;
+
+    // Start following every tenant from its newest change, before the followers rebuild from the table
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void start() {
+        try {
+            changeRepository.findLastSequences().forEach((tenant, last) -> position(tenant).moveTo(last));
+            generations = generationRepository.findAll();
+            started = true;
+        } catch (RuntimeException e) {
+            log.error("Failed to read the expense change log positions; retrying on the next poll", e);
+        }
+    }
+
+    // Version of the current tenant's expenses
+    public long current() {
+        Position position = positions.get(TenantContext.current());
+        return position == null ? 0 : position.delivered;
+    }
+
+    // Strong ETag for a representation derived from the current tenant's expenses; parts distinguish derived values
+    // (for example a default date range) that change without a write
+    public String etag(Object... parts) {
+        StringBuilder etag = new StringBuilder("\"")
+                .append(generations.getOrDefault(TenantContext.current(), 0L))
+                .append('.')
+                .append(current());
+        for (Object part : parts) {
+            etag.append('-').append(part);
+        }
+        return etag.append('"').toString();
+    }
+
+    // Sequence numbers first..last of the tenant were reserved by a transaction of this instance; called just
+    // before it commits, while the tenant's sequence row is locked
+    void reserved(String tenant, long first, long last) {
+        if (!started) {
+            return;
+        }
+        Position position = position(tenant);
+        synchronized (position) {
+            position.inFlight.put(first, last);
+        }
+    }
+
+    // The transaction that reserved the numbered changes has ended
+    void completed(List<ExpenseChange> changes, boolean committed) {
+        if (!started || changes.isEmpty()) {
+            return;
+        }
+        Map<String, List<ExpenseChange>> byTenant = new TreeMap<>();
+        for (ExpenseChange change : changes) {
+            byTenant.computeIfAbsent(change.tenantId(), tenant -> new ArrayList<>()).add(change);
+        }
+        byTenant.forEach((tenant, tenantChanges) -> {
+            Position position = position(tenant);
+            synchronized (position) {
+                position.inFlight.remove(tenantChanges.get(0).sequence());
+                if (!committed) {
+                    return;
+                }
+                List<ExpenseChange> undelivered = tenantChanges.stream()
+                        .filter(change -> change.sequence() > position.delivered)
+                        .toList();
+                if (undelivered.isEmpty()) {
+                    return;
+                }
+                position.committed.put(undelivered.get(0).sequence(), undelivered);
+                try {
+                    catchUp(tenant, position, undelivered.get(undelivered.size() - 1).sequence());
+                } catch (RuntimeException e) {
+                    log.warn("Failed to deliver expense changes of tenant {}; retrying on the next poll", tenant, e);
+                }
+            }
+        });
+    }
+
+    // A rollup rebuild of the current tenant (every tenant as root) is about to commit
+    public void rollupRebuilt() {
+        if (TenantContext.isRoot()) {
+            generationRepository.incrementAll();
+        } else {
+            generationRepository.increment(TenantContext.current());
+        }
+        Runnable reload = () -> generations = generationRepository.findAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reload.run();
+                }
+            });
+        } else {
+            reload.run();
+        }
+    }
+
+    // Deliver what other instances committed since the last poll
+    @Scheduled(fixedDelayString = "${finomo.changes.poll-interval:1s}")
+    public void followOtherInstances() {
+        if (!started) {
+            start();
+            return;
+        }
+        Map<String, Long> lastSequences;
+        Map<String, Long> latestGenerations;
+        try {
+            lastSequences = changeRepository.findLastSequences();
+            latestGenerations = generationRepository.findAll();
+        } catch (RuntimeException e) {
+            log.warn("Failed to poll the expense change log", e);
+            return;
+        }
+
+        // Cached totals of a tenant whose rollup was rebuilt elsewhere may be wrong; drop them before the new tag
+        latestGenerations.forEach((tenant, generation) -> {
+            if (generation > generations.getOrDefault(tenant, 0L)) {
+                expenseCache.invalidateTenant(tenant);
+            }
+        });
+        generations = latestGenerations;
+
+        lastSequences.forEach((tenant, last) -> {
+            Position position = position(tenant);
+            synchronized (position) {
+                try {
+                    catchUp(tenant, position, last);
+                } catch (RuntimeException e) {
+                    log.warn("Failed to follow the expense changes of tenant {}", tenant, e);
+                }
+            }
+        });
+    }
+
+    private Position position(String tenant) {
+        return positions.computeIfAbsent(tenant, key -> new Position());
+    }
+
+    // Deliver the tenant's changes up to target in order: this instance's own committed changes as they are, the
+    // others read from the change log. Stops below a transaction of this instance that has not completed yet,
+    // which continues from there when it does. Caller holds the position's monitor.
+    private void catchUp(String tenant, Position position, long target) {
+        while (position.delivered < target) {
+            long next = position.delivered + 1;
+            if (position.inFlight.containsKey(next)) {
+                return;
+            }
+            Map.Entry<Long, List<ExpenseChange>> local = position.committed.firstEntry();
+            if (local != null && local.getKey() <= next) {
+                // Changes below next were passed over by a reload, which read them from the table
+                position.committed.pollFirstEntry();
+                deliver(local.getValue().stream().filter(change -> change.sequence() >= next).toList());
+                continue;
+            }
+            long end = target;
+            Long nextInFlight = position.inFlight.ceilingKey(next);
+            if (nextInFlight != null) {
+                end = Math.min(end, nextInFlight - 1);
+            }
+            if (local != null) {
+                end = Math.min(end, local.getKey() - 1);
+            }
+            readAndDeliver(tenant, position, end);
+        }
+    }
+
+    private void readAndDeliver(String tenant, Position position, long end) {
+        while (position.delivered < end) {
+            long since = position.delivered;
+            List<ExpenseChange> changes = changeRepository.findAfter(tenant, since,
+                    (int) Math.min(CATCH_UP_PAGE_SIZE, end - since));
+            for (int i = 0; i < changes.size(); i++) {
+                if (changes.get(i).sequence() != since + 1 + i) {
+                    changes = List.of();
+                    break;
+                }
+            }
+            if (changes.isEmpty()) {
+                log.warn("Expense changes of tenant {} after {} are no longer in the change log; reloading", tenant,
+                        since);
+                for (ExpenseChangeFollower follower : followers) {
+                    follower.reload(tenant);
+                }
+                position.moveTo(end);
+                return;
+            }
+            deliver(changes);
+        }
+    }
+
+    private void deliver(List<ExpenseChange> changes) {
+        for (ExpenseChange change : changes) {
+            Expense before = read(change.before(), change.tenantId());
+            Expense after = read(change.after(), change.tenantId());
+            for (ExpenseChangeFollower follower : followers) {
+                try {
+                    follower.apply(before, after);
+                } catch (RuntimeException e) {
+                    log.warn("{} failed to apply change {} of tenant {}; reloading", follower.getClass().getSimpleName(),
+                            change.sequence(), change.tenantId(), e);
+                    follower.reload(change.tenantId());
+                }
+            }
+            positions.get(change.tenantId()).moveTo(change.sequence());
+        }
+    }
+
+    private Expense read(String image, String tenant) {
+        if (image == null) {
+            return null;
+        }
+        try {
+            Expense expense = objectMapper.readValue(image, Expense.class);
+            expense.setTenantId(tenant);
+            return expense;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read an expense image of tenant " + tenant, e);
+        }
+    }
+
+    // How far one tenant's changes have reached the followers. delivered is read without locking; everything else
+    // is guarded by the position's monitor.
+    private static final class Position {
+        private volatile long delivered;
+        // Sequence ranges (first to last) reserved by transactions of this instance that have not completed
+        private final TreeMap<Long, Long> inFlight = new TreeMap<>();
+        // Changes this instance committed above delivered, by first sequence number, waiting for lower ones
+        private final TreeMap<Long, List<ExpenseChange>> committed = new TreeMap<>();
+
+        void moveTo(long sequence) {
+            if (sequence > delivered) {
+                delivered = sequence;
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.finomo.service;
+
+import com.finomo.config.TenantContext;
+import com.finomo.dto.ExpenseChange;
+import com.finomo.dto.ExpenseChangePage;
+import com.finomo.entity.Expense;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Delivers the change log to waiting consumers: long polls that complete with the first changes after their
+// position, and Server-Sent Events subscribers that receive every change as it commits. Consumers always read from
+// the change log itself, so delivery follows sequence order and nothing is lost between a read and a wait.
+// A commit on this instance wakes its tenant's consumers right away; changes committed by other instances are
+// noticed by comparing each waiting tenant's newest sequence number every finomo.changes.poll-interval.
+@Component
+public class ExpenseChangeFeed implements ExpenseChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseChangeFeed.class);
+
+    static final String CHANGE_EVENT = "change";
+    static final String RESYNC_EVENT = "resync";
+
+    // Changes read per query while an SSE subscriber catches up
+    private static final int SUBSCRIPTION_PAGE_SIZE = 500;
+
+    @Autowired
+    private ExpenseChangeLog changeLog;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private TaskExecutor taskExecutor;
+
+    @Value("${finomo.changes.subscription-timeout:30m}")
+    private Duration subscriptionTimeout;
+
+    private final Map<String, List<Consumer>> consumers = new ConcurrentHashMap<>();
+
+    // The first changes after since, as soon as there are any; an empty page once wait has passed without any.
+    // The future fails with ChangesPurgedException when changes after since have been purged.
+    public CompletableFuture<ExpenseChangePage> poll(long since, int limit, Duration wait) {
+        if (wait.isZero()) {
+            try {
+                return CompletableFuture.completedFuture(changeLog.getChanges(since, limit));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        LongPoll poll = new LongPoll(TenantContext.current(), since, limit);
+        poll.result.completeOnTimeout(new ExpenseChangePage(List.of(), since, false), wait.toMillis(),
+                TimeUnit.MILLISECONDS);
+        register(poll);
+        poll.result.whenComplete((page, failure) -> unregister(poll));
+        poll.wake();
+        return poll.result;
+    }
+
+    // Stream every change after since, then each new change as it commits, as "change" events whose id is the
+    // sequence number (so a reconnecting EventSource resumes from Last-Event-ID). A subscriber that falls behind
+    // retention gets a "resync" event carrying the newest sequence number and is disconnected.
+    public SseEmitter subscribe(long since) {
+        SseEmitter emitter = new SseEmitter(subscriptionTimeout.toMillis());
+        Subscription subscription = new Subscription(TenantContext.current(), since, emitter);
+        register(subscription);
+        emitter.onCompletion(() -> unregister(subscription));
+        emitter.onTimeout(() -> unregister(subscription));
+        emitter.onError(e -> unregister(subscription));
+        subscription.wake();
+        return emitter;
+    }
+
+    @Override
+    public void onCreated(Expense expense) {
+        wakeAfterCommit(expense);
+    }
+
+    @Override
+    public void onUpdated(Expense before, Expense after) {
+        wakeAfterCommit(after);
+    }
+
+    @Override
+    public void onDeleted(Expense expense) {
+        wakeAfterCommit(expense);
+    }
+
+    // Wake consumers behind their tenant's newest change, which may have been committed by another instance
+    @Scheduled(fixedDelayString = "${finomo.changes.poll-interval:1s}")
+    public void wakeBehindConsumers() {
+        consumers.forEach((tenant, tenantConsumers) -> {
+            long last;
+            try (TenantContext.TenantScope scope = TenantContext.enter(tenant)) {
+                last = changeLog.getLastSequence();
+            } catch (RuntimeException e) {
+                log.warn("Failed to check the expense change log of tenant {}", tenant, e);
+                return;
+            }
+            for (Consumer consumer : tenantConsumers) {
+                if (consumer.position() < last) {
+                    consumer.wake();
+                }
+            }
+        });
+    }
+
+    private void wakeAfterCommit(Expense expense) {
+        String tenant = expense.getTenantId() != null ? expense.getTenantId() : TenantContext.current();
+        if (!consumers.containsKey(tenant)) {
+            return;
+        }
+        Runnable wake = () -> consumers.getOrDefault(tenant, List.of()).forEach(Consumer::wake);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wake.run();
+                }
+            });
+        } else {
+            wake.run();
+        }
+    }
+
+    private void register(Consumer consumer) {
+        consumers.computeIfAbsent(consumer.tenant, tenant -> new CopyOnWriteArrayList<>()).add(consumer);
+    }
+
+    private void unregister(Consumer consumer) {
+        consumers.computeIfPresent(consumer.tenant, (tenant, tenantConsumers) -> {
+            tenantConsumers.remove(consumer);
+            return tenantConsumers.isEmpty() ? null : tenantConsumers;
+        });
+    }
+
+    // A waiting consumer. Wake-ups are coalesced: however many arrive while one delivery runs on the task executor,
+    // at most one more delivery follows it.
+    private abstract class Consumer {
+        final String tenant;
+        private final AtomicInteger wakeups = new AtomicInteger();
+
+        Consumer(String tenant) {
+            this.tenant = tenant;
+        }
+
+        // Sequence number the consumer has read up to
+        abstract long position();
+
+        abstract void deliver();
+
+        void wake() {
+            if (wakeups.getAndIncrement() == 0) {
+                taskExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int seen;
+            do {
+                seen = wakeups.get();
+                try (TenantContext.TenantScope scope = TenantContext.enter(tenant)) {
+                    deliver();
+                } catch (RuntimeException e) {
+                    log.warn("Failed to deliver expense changes to a consumer of tenant {}", tenant, e);
+                }
+            } while (!wakeups.compareAndSet(seen, 0));
+        }
+    }
+
+    private final class LongPoll extends Consumer {
+        private final long since;
+        private final int limit;
+        private final CompletableFuture<ExpenseChangePage> result = new CompletableFuture<>();
+
+        LongPoll(String tenant, long since, int limit) {
+            super(tenant);
+            this.since = since;
+            this.limit = limit;
+        }
+
+        @Override
+        long position() {
+            return since;
+        }
+
+        @Override
+        void deliver() {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                ExpenseChangePage page = changeLog.getChanges(since, limit);
+                if (!page.changes().isEmpty()) {
+                    result.complete(page);
+                }
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private final class Subscription extends Consumer {
+        private final SseEmitter emitter;
+        private volatile long position;
+        private volatile boolean closed;
+
+        Subscription(String tenant, long since, SseEmitter emitter) {
+            super(tenant);
+            this.position = since;
+            this.emitter = emitter;
+        }
+
+        @Override
+        long position() {
+            return position;
+        }
+
+        @Override
+        void deliver() {
+            if (closed) {
+                return;
+            }
+            try {
+                ExpenseChangePage page;
+                do {
+                    page = changeLog.getChanges(position, SUBSCRIPTION_PAGE_SIZE);
+                    for (ExpenseChange change : page.changes()) {
+                        emitter.send(SseEmitter.event()
+                                .id(String.valueOf(change.sequence()))
+                                .name(CHANGE_EVENT)
+                                .data(change, MediaType.APPLICATION_JSON));
+                    }
+                    position = page.nextSince();
+                } while (page.hasMore());
+            } catch (ExpenseChangeLog.ChangesPurgedException e) {
+                closed = true;
+                try {
+                    emitter.send(SseEmitter.event().name(RESYNC_EVENT).data(Map.of("lastSequence", e.getLastSequence()),
+                            MediaType.APPLICATION_JSON));
+                    emitter.complete();
+                } catch (IOException | IllegalStateException sendFailure) {
+                    unregister(this);
+                }
+            } catch (IOException | IllegalStateException e) {
+                closed = true;
+                unregister(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.finomo.service;
+
+import com.finomo.entity.Expense;
+
+// In-memory state derived from the expenses table that has to follow writes committed by every instance.
+// ExpenseChangeCounter hands each committed change to every follower in its tenant's sequence order, outside any
+// transaction, before the tenant's analytics ETag moves past it. A change may reach a follower more than once, so
+// applying one must be idempotent, as an upsert or a removal by id is.
+public interface ExpenseChangeFollower {
+
+    // before is null for a created expense and after for a deleted one; both carry the tenant id
+    void apply(Expense before, Expense after);
+
+    // Changes of the tenant were removed from the change log before this instance read them, so its state has to
+    // be reloaded from the table
+    void reload(String tenant);
+}
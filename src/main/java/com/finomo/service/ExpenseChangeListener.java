@@ -0,0 +1,17 @@
+package com.finomo.service;
+
+import com.finomo.entity.Expense;
+
+// Notified by ExpenseService for every write, inside the writing transaction
+public interface ExpenseChangeListener {
+    
+    default void onCreated(Expense expense) {
+    }
+    
+    // before is a detached copy of the expense as it was prior to the update
+    default void onUpdated(Expense before, Expense after) {
+    }
+    
+    default void onDeleted(Expense expense) {
+    }
+}
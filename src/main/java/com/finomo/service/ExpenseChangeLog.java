@@ -0,0 +1,228 @@
+package com.finomo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.finomo.config.TenantContext;
+import com.finomo.dto.ExpenseChange;
+import com.finomo.dto.ExpenseChangePage;
+import com.finomo.entity.Expense;
+import com.finomo.repository.ExpenseChangeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Change data capture for expenses through a transactional outbox. Every create, update and delete made through
+// ExpenseService is recorded with the expense's JSON image before and after, in the same transaction as the change
+// itself, so the log holds exactly the committed changes. Just before a transaction commits its changes are
+// numbered from the tenant's sequence row, whose lock is then held until the commit: each tenant's sequence
+// numbers increase in commit order with no gaps, and a consumer that has read up to N never later finds a change
+// numbered below N. Retention and compaction keep the log bounded (see compact()).
+@Service
+public class ExpenseChangeLog implements ExpenseChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseChangeLog.class);
+
+    // Sequence numbers removed per DELETE and superseded expenses compacted per pass
+    private static final int PURGE_BATCH_SIZE = 1000;
+
+    // Thrown for a read after changes were purged by retention; the consumer has to resynchronize
+    public static class ChangesPurgedException extends RuntimeException {
+
+        private final long lastSequence;
+
+        public ChangesPurgedException(long since, long lastSequence) {
+            super("Changes after " + since + " have been purged; resynchronize and continue from " + lastSequence);
+            this.lastSequence = lastSequence;
+        }
+
+        public long getLastSequence() {
+            return lastSequence;
+        }
+    }
+
+    @Autowired
+    private ExpenseChangeRepository changeRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ExpenseChangeCounter changeCounter;
+
+    // Changes older than this are removed; consumers that have not read them by then have to resynchronize
+    @Value("${finomo.changes.retention:7d}")
+    private Duration retention;
+
+    // At most this many of each tenant's newest changes are kept, however recent the older ones are
+    @Value("${finomo.changes.max-per-tenant:1000000}")
+    private long maxPerTenant;
+
+    // A change older than this is removed once a later change of the same expense exists
+    @Value("${finomo.changes.compact-after:1h}")
+    private Duration compactAfter;
+
+    @Override
+    public void onCreated(Expense expense) {
+        record(ExpenseChange.Operation.CREATE, expense, null, expense);
+    }
+
+    @Override
+    public void onUpdated(Expense before, Expense after) {
+        record(ExpenseChange.Operation.UPDATE, after, before, after);
+    }
+
+    @Override
+    public void onDeleted(Expense expense) {
+        record(ExpenseChange.Operation.DELETE, expense, expense, null);
+    }
+
+    // The current tenant's changes after the given sequence number, oldest first. Throws ChangesPurgedException
+    // when some of them have already been removed by retention.
+    public ExpenseChangePage getChanges(long since, int limit) {
+        String tenant = TenantContext.current();
+        List<ExpenseChange> changes = changeRepository.findAfter(tenant, since, limit + 1);
+        // Read after the changes: a purge advances the position before it deletes anything
+        ExpenseChangeRepository.Position position = changeRepository.findPosition(tenant);
+        if (since < position.purgedThrough()) {
+            throw new ChangesPurgedException(since, position.lastSequence());
+        }
+        boolean hasMore = changes.size() > limit;
+        if (hasMore) {
+            changes = changes.subList(0, limit);
+        }
+        long nextSince = changes.isEmpty() ? since : changes.get(changes.size() - 1).sequence();
+        return new ExpenseChangePage(changes, nextSince, hasMore);
+    }
+
+    // Newest sequence number of the current tenant's changes, 0 before the first change
+    public long getLastSequence() {
+        return changeRepository.findPosition(TenantContext.current()).lastSequence();
+    }
+
+    @Scheduled(initialDelayString = "${finomo.changes.compaction-interval:10m}",
+               fixedDelayString = "${finomo.changes.compaction-interval:10m}")
+    public void compactInBackground() {
+        try {
+            compact(Instant.now());
+        } catch (DataAccessException e) {
+            log.warn("Compacting the expense change log failed; retrying on the next pass", e);
+        }
+    }
+
+    // Keep the log bounded. Retention removes every change older than finomo.changes.retention, and each
+    // tenant's changes beyond its newest finomo.changes.max-per-tenant; a consumer behind them gets
+    // ChangesPurgedException. Compaction then removes changes older than finomo.changes.compact-after that a later
+    // change of the same expense supersedes, like a compacted Kafka topic: a consumer still converges on every
+    // expense's latest state, but may see an UPDATE for an expense whose CREATE it never saw, so consumers apply
+    // changes as upserts. Returns the number of changes removed.
+    public int compact(Instant now) {
+        Map<String, Long> purgeThrough = new TreeMap<>(changeRepository.findLastSequencesBefore(now.minus(retention)));
+        changeRepository.findLastSequences().forEach((tenant, last) -> {
+            if (last > maxPerTenant) {
+                purgeThrough.merge(tenant, last - maxPerTenant, Math::max);
+            }
+        });
+        int removed = 0;
+        for (Map.Entry<String, Long> entry : purgeThrough.entrySet()) {
+            removed += changeRepository.purge(entry.getKey(), entry.getValue(), PURGE_BATCH_SIZE);
+        }
+
+        Instant cutoff = now.minus(compactAfter);
+        List<ExpenseChangeRepository.Superseded> superseded;
+        do {
+            superseded = changeRepository.findSuperseded(cutoff, PURGE_BATCH_SIZE);
+            if (!superseded.isEmpty()) {
+                removed += changeRepository.deleteSuperseded(superseded, cutoff);
+            }
+        } while (superseded.size() == PURGE_BATCH_SIZE);
+
+        if (removed > 0) {
+            log.info("Removed {} changes from the expense change log", removed);
+        }
+        return removed;
+    }
+
+    // Serialize the images now; the entity may change before the transaction commits
+    private void record(ExpenseChange.Operation operation, Expense expense, Expense before, Expense after) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            transactionTemplate.executeWithoutResult(status -> record(operation, expense, before, after));
+            return;
+        }
+        String tenant = expense.getTenantId() != null ? expense.getTenantId() : TenantContext.current();
+        ExpenseChange change = new ExpenseChange(0, operation, expense.getId(), Instant.now(), toJson(before),
+                toJson(after), tenant);
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.changes.add(change);
+    }
+
+    // Number the changes per tenant and insert them, collecting the numbered changes. Tenants are taken in a fixed
+    // order so transactions writing several tenants (materializing recurring expenses as root) cannot deadlock on
+    // the sequence rows.
+    private void append(List<ExpenseChange> changes, List<ExpenseChange> numbered) {
+        Map<String, List<ExpenseChange>> byTenant = new TreeMap<>();
+        for (ExpenseChange change : changes) {
+            byTenant.computeIfAbsent(change.tenantId(), tenant -> new ArrayList<>()).add(change);
+        }
+        for (Map.Entry<String, List<ExpenseChange>> entry : byTenant.entrySet()) {
+            List<ExpenseChange> tenantChanges = entry.getValue();
+            long last = changeRepository.reserve(entry.getKey(), tenantChanges.size());
+            long sequence = last - tenantChanges.size();
+            for (ExpenseChange change : tenantChanges) {
+                numbered.add(change.withSequence(++sequence));
+            }
+            changeCounter.reserved(entry.getKey(), last - tenantChanges.size() + 1, last);
+        }
+        changeRepository.insertAll(numbered);
+    }
+
+    private String toJson(Expense expense) {
+        if (expense == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(expense);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize expense " + expense.getId(), e);
+        }
+    }
+
+    // Changes of the current transaction, numbered and written just before it commits, then handed to the
+    // ExpenseChangeCounter for this instance's followers
+    private final class PendingChanges implements TransactionSynchronization {
+        private final List<ExpenseChange> changes = new ArrayList<>();
+        private final List<ExpenseChange> numbered = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            append(changes, numbered);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ExpenseChangeLog.this);
+            changeCounter.completed(numbered, status == STATUS_COMMITTED);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.finomo.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.finomo.entity.Expense;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+// Writes expenses one at a time as CSV or NDJSON, optionally gzip-compressed. Output is flushed every
+// FLUSH_INTERVAL rows so the response goes out in chunks; a slow client blocks the writer rather than
+// letting rows pile up in memory.
+public class ExpenseExportWriter implements Closeable {
+    
+    public static final String CSV_HEADER = "description,amount,category,date,notes,id";
+    
+    private static final int FLUSH_INTERVAL = 1000;
+    
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+        
+        private final String contentType;
+        private final String extension;
+        
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+        
+        public String getContentType() {
+            return contentType;
+        }
+        
+        public String getExtension() {
+            return extension;
+        }
+    }
+    
+    private final Format format;
+    private final Writer writer;
+    private final ObjectWriter jsonWriter;
+    private long rows;
+    
+    public ExpenseExportWriter(OutputStream out, Format format, boolean gzip, ObjectMapper objectMapper)
+            throws IOException {
+        this.format = format;
+        OutputStream target = gzip ? new GZIPOutputStream(out, 8192, true) : out;
+        this.writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 8192);
+        this.jsonWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+    }
+    
+    public void write(Expense expense) throws IOException {
+        if (format == Format.CSV) {
+            writer.write(csv(expense.getDescription()));
+            writer.write(',');
+            writer.write(expense.getAmount().toPlainString());
+            writer.write(',');
+            writer.write(csv(expense.getCategory()));
+            writer.write(',');
+            writer.write(expense.getDate().toString());
+            writer.write(',');
+            writer.write(csv(expense.getNotes()));
+            writer.write(',');
+            writer.write(String.valueOf(expense.getId()));
+        } else {
+            jsonWriter.writeValue(writer, expense);
+        }
+        writer.write('\n');
+        if (++rows % FLUSH_INTERVAL == 0) {
+            writer.flush();
+        }
+    }
+    
+    public long getRows() {
+        return rows;
+    }
+    
+    // Finishes the gzip trailer (if any) and closes the underlying stream
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+    
+    static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        // Line breaks are flattened so every record stays on one line, as the importer expects
+        String flattened = value.replace("\r", " ").replace("\n", " ");
+        return '"' + flattened.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,292 @@
+package com.finomo.service;
+
+import com.finomo.dto.BatchItemResult;
+import com.finomo.dto.ImportReport;
+import com.finomo.dto.ImportReport.RowError;
+import com.finomo.dto.ImportReport.Status;
+import com.finomo.entity.Expense;
+import com.finomo.service.ExpenseAnomalyDetector.DuplicateAction;
+import com.finomo.service.imports.CountingLineReader;
+import com.finomo.service.imports.CsvExpenseParser;
+import com.finomo.service.imports.ExpenseImportParser;
+import com.finomo.service.imports.OfxExpenseParser;
+import com.finomo.service.imports.ParsedRow;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Streams CSV/OFX uploads into the expenses table. The request thread parses and validates rows and hands
+// fixed-size chunks to a single writer through a bounded queue, so a slow database stops the upload from
+// being read instead of buffering it. The writer inserts each chunk with ExpenseService.createExpenses and
+// advances the committed offset a client can resume from. Suspected duplicates are skipped whatever
+// finomo.anomaly.duplicate-action says, so re-importing a statement fails its rows instead of doubling them.
+@Service
+public class ExpenseImportService {
+    
+    private static final Logger log = LoggerFactory.getLogger(ExpenseImportService.class);
+    
+    private static final int MAX_LINE_BYTES = 16 * 1024;
+    private static final Chunk END_OF_INPUT = new Chunk(List.of(), List.of(), 0);
+    
+    @Autowired
+    private ExpenseService expenseService;
+    
+    @Autowired
+    private Validator validator;
+    
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private TaskExecutor taskExecutor;
+    
+    @Value("${finomo.import.chunk-size:500}")
+    private int chunkSize;
+    
+    @Value("${finomo.import.queue-capacity:4}")
+    private int queueCapacity;
+    
+    @Value("${finomo.import.retention:1h}")
+    private Duration retention;
+    
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    
+    public enum Format {
+        CSV, OFX
+    }
+    
+    public Optional<ImportReport> getImport(String importId) {
+        return Optional.ofNullable(jobs.get(importId)).map(ImportJob::report);
+    }
+    
+    // Import the stream, which holds the file from byte startOffset onwards; blocks until every row is handled
+    public ImportReport importExpenses(InputStream input, Format format, long startOffset, String importId,
+                                       String defaultCategory) throws IOException, InterruptedException {
+        if (startOffset < 0) {
+            throw new IllegalArgumentException("offset cannot be negative");
+        }
+        evictFinishedJobs();
+        String id = importId == null || importId.isBlank() ? UUID.randomUUID().toString() : importId;
+        ImportJob job = new ImportJob(id, format, startOffset);
+        ImportJob running = jobs.compute(id, (key, existing) ->
+                existing != null && existing.status == Status.RUNNING ? existing : job);
+        if (running != job) {
+            throw new IllegalStateException("Import " + id + " is already running");
+        }
+        
+        CountingLineReader reader = new CountingLineReader(input, startOffset, MAX_LINE_BYTES);
+        ExpenseImportParser parser = format == Format.OFX
+                ? new OfxExpenseParser(reader, defaultCategory)
+                : new CsvExpenseParser(reader, startOffset, defaultCategory);
+        
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(queueCapacity);
+        CountDownLatch writerDone = new CountDownLatch(1);
+        taskExecutor.execute(() -> {
+            try {
+                drain(queue, job);
+            } finally {
+                writerDone.countDown();
+            }
+        });
+        
+        try {
+            produce(parser, reader, queue, job);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            // Chunks still queued were never committed; committedOffset tells the client where to resume
+            job.fail("Upload interrupted at byte " + reader.position() + ": " + e.getMessage());
+            queue.clear();
+            throw e;
+        } finally {
+            putUninterruptibly(queue, END_OF_INPUT, writerDone);
+            writerDone.await();
+        }
+        
+        job.finish();
+        log.info("Import {} finished: {} imported, {} failed", id, job.rowsImported, job.rowsFailed);
+        return job.report();
+    }
+    
+    private void produce(ExpenseImportParser parser, CountingLineReader reader, BlockingQueue<Chunk> queue,
+                         ImportJob job) throws IOException, InterruptedException {
+        List<Expense> expenses = new ArrayList<>(chunkSize);
+        List<Long> lines = new ArrayList<>(chunkSize);
+        ParsedRow row;
+        while ((row = parser.next()) != null && job.status == Status.RUNNING) {
+            job.rowsRead++;
+            job.bytesRead = reader.position();
+            String error = row.error() != null ? row.error() : validate(row.expense());
+            if (error != null) {
+                // Rejected rows are part of the next chunk's offset range so they are not retried on resume
+                job.rowFailed(row.lineNumber(), error);
+            } else {
+                expenses.add(row.expense());
+                lines.add(row.lineNumber());
+            }
+            if (expenses.size() == chunkSize) {
+                if (!put(queue, new Chunk(expenses, lines, row.endOffset()), job)) {
+                    return;
+                }
+                expenses = new ArrayList<>(chunkSize);
+                lines = new ArrayList<>(chunkSize);
+            }
+        }
+        job.bytesRead = reader.position();
+        put(queue, new Chunk(expenses, lines, reader.position()), job);
+    }
+    
+    // Wait for room in the queue while the import is running; false once it has failed, as the writer then
+    // discards whatever it is given
+    private static boolean put(BlockingQueue<Chunk> queue, Chunk chunk, ImportJob job) throws InterruptedException {
+        while (job.status == Status.RUNNING) {
+            if (queue.offer(chunk, 1, TimeUnit.SECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // A failed chunk fails the job, but the writer keeps taking chunks until the end marker and discards them,
+    // so the producer is never left waiting on a full queue
+    private void drain(BlockingQueue<Chunk> queue, ImportJob job) {
+        Chunk chunk;
+        while (true) {
+            try {
+                chunk = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                job.fail("Import writer was interrupted");
+                return;
+            }
+            if (chunk == END_OF_INPUT) {
+                return;
+            }
+            if (job.status != Status.RUNNING) {
+                continue;
+            }
+            try {
+                List<BatchItemResult> results = expenseService.createExpenses(chunk.expenses(), DuplicateAction.REJECT);
+                for (BatchItemResult result : results) {
+                    if (result.status() == BatchItemResult.Status.CREATED) {
+                        job.rowsImported++;
+                    } else {
+                        job.rowFailed(chunk.lines().get(result.index()), result.message());
+                    }
+                }
+                job.committedOffset = chunk.endOffset();
+            } catch (RuntimeException e) {
+                log.error("Import {} failed while writing", job.id, e);
+                job.fail("Database write failed: " + e.getMessage());
+            }
+        }
+    }
+    
+    private String validate(Expense expense) {
+        Set<ConstraintViolation<Expense>> violations = validator.validate(expense);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+    
+    private void evictFinishedJobs() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+    
+    // Hand the writer the chunk unless it has already stopped
+    private static void putUninterruptibly(BlockingQueue<Chunk> queue, Chunk chunk, CountDownLatch writerDone) {
+        boolean interrupted = false;
+        while (writerDone.getCount() > 0) {
+            try {
+                if (queue.offer(chunk, 1, TimeUnit.SECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private record Chunk(List<Expense> expenses, List<Long> lines, long endOffset) {
+    }
+    
+    // Mutable progress of one import; counters are written by one thread each and read by status polls
+    private static final class ImportJob {
+        private final String id;
+        private final Format format;
+        private final long startOffset;
+        private final Instant startedAt = Instant.now();
+        private final List<RowError> errors = new ArrayList<>();
+        private volatile Status status = Status.RUNNING;
+        private volatile long bytesRead;
+        private volatile long committedOffset;
+        private volatile long rowsRead;
+        private volatile long rowsImported;
+        private volatile long rowsFailed;
+        private volatile Instant finishedAt;
+        
+        ImportJob(String id, Format format, long startOffset) {
+            this.id = id;
+            this.format = format;
+            this.startOffset = startOffset;
+            this.bytesRead = startOffset;
+            this.committedOffset = startOffset;
+        }
+        
+        synchronized void rowFailed(long line, String message) {
+            rowsFailed++;
+            if (errors.size() < ImportReport.MAX_ERRORS) {
+                errors.add(new RowError(line, message));
+            }
+        }
+        
+        synchronized void fail(String message) {
+            if (status == Status.RUNNING) {
+                status = Status.FAILED;
+                finishedAt = Instant.now();
+                if (errors.size() < ImportReport.MAX_ERRORS) {
+                    errors.add(new RowError(0, message));
+                }
+            }
+        }
+        
+        synchronized void finish() {
+            if (status == Status.RUNNING) {
+                status = Status.COMPLETED;
+                finishedAt = Instant.now();
+            }
+        }
+        
+        synchronized ImportReport report() {
+            return new ImportReport(id, status, format.name().toLowerCase(), startOffset, bytesRead,
+                    committedOffset, rowsRead, rowsImported, rowsFailed, List.copyOf(errors), startedAt, finishedAt);
+        }
+    }
+}
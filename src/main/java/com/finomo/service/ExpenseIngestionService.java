@@ -0,0 +1,338 @@
+package com.finomo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.finomo.config.TenantContext;
+import com.finomo.dto.IngestionStatus;
+import com.finomo.entity.Expense;
+import com.finomo.entity.IngestedRecord;
+import com.finomo.repository.IngestedRecordRepository;
+import com.finomo.service.ingestion.IngestionLog;
+import com.finomo.service.ingestion.IngestionRecord;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Write-behind ingestion for POST /api/expenses, enabled with finomo.ingestion.mode=write-behind.
+// Accepted expenses are appended to a memory-mapped log and acknowledged with a tracking id; a single background
+// writer drains them into the database in grouped transactions, recording each tracking id in ingested_records
+// in the same transaction. On startup the log is replayed and tracking ids already recorded are skipped, so a
+// record is stored exactly once even if the process dies between the commit and the log cleanup.
+// Each record carries the tenant it was accepted for; idempotency keys are scoped to that tenant and the writer
+// runs as the root tenant so one group can hold several tenants' expenses.
+@Service
+@ConditionalOnProperty(name = "finomo.ingestion.mode", havingValue = "write-behind")
+public class ExpenseIngestionService {
+    
+    private static final Logger log = LoggerFactory.getLogger(ExpenseIngestionService.class);
+    
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+    
+    @Autowired
+    private ExpenseService expenseService;
+    
+    @Autowired
+    private IngestedRecordRepository ingestedRecordRepository;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${finomo.ingestion.directory:data/ingestion}")
+    private Path directory;
+    
+    @Value("${finomo.ingestion.segment-size:64MB}")
+    private DataSize segmentSize;
+    
+    @Value("${finomo.ingestion.fsync:true}")
+    private boolean fsync;
+    
+    @Value("${finomo.ingestion.group-size:500}")
+    private int groupSize;
+    
+    @Value("${finomo.ingestion.max-pending:100000}")
+    private int maxPending;
+    
+    private IngestionLog ingestionLog;
+    
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    
+    // Accepted but not yet committed, by tracking id and by (tenant, idempotency key)
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final Map<TenantKey, String> pendingKeys = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    
+    private volatile boolean running;
+    private Thread writer;
+    
+    private record Pending(long sequence, IngestionRecord record) {
+        
+        TenantKey tenantKey() {
+            return record.idempotencyKey() == null ? null : new TenantKey(record.tenantId(), record.idempotencyKey());
+        }
+    }
+    
+    private record TenantKey(String tenantId, String idempotencyKey) {
+    }
+    
+    @PostConstruct
+    void openLog() throws IOException {
+        ingestionLog = new IngestionLog(directory, Math.toIntExact(segmentSize.toBytes()), fsync, entry -> {
+            try {
+                enqueue(new Pending(entry.sequence(), objectMapper.readValue(entry.payload(), IngestionRecord.class)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unreadable ingestion log record " + entry.sequence(), e);
+            }
+        });
+        if (!queue.isEmpty()) {
+            log.info("Recovered {} expenses from the ingestion log in {}", queue.size(), directory);
+        }
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWriter() {
+        running = true;
+        writer = new Thread(this::drain, "expense-ingestion-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+    
+    @PreDestroy
+    void stop() throws IOException, InterruptedException {
+        running = false;
+        if (writer != null) {
+            // Let an in-flight group commit; only interrupt a writer stuck in backoff
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+            writer.interrupt();
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        ingestionLog.close();
+    }
+    
+    // Accept an already-validated expense and return it as PENDING. A retried idempotency key returns the current
+    // status of the record it was first accepted as. Throws IllegalStateException when the backlog is full.
+    public IngestionStatus ingest(Expense expense, String idempotencyKey) throws IOException {
+        String tenant = TenantContext.current();
+        TenantKey tenantKey = idempotencyKey == null ? null : new TenantKey(tenant, idempotencyKey);
+        if (tenantKey != null) {
+            String existing = pendingKeys.get(tenantKey);
+            if (existing != null) {
+                return pendingStatus(existing);
+            }
+            Optional<IngestedRecord> stored = ingestedRecordRepository.findByIdempotencyKey(idempotencyKey);
+            if (stored.isPresent()) {
+                return toStatus(stored.get());
+            }
+        }
+        if (pendingCount.get() >= maxPending) {
+            throw new IllegalStateException("Ingestion backlog is full");
+        }
+        
+        String trackingId = UUID.randomUUID().toString();
+        if (tenantKey != null) {
+            String raced = pendingKeys.putIfAbsent(tenantKey, trackingId);
+            if (raced != null) {
+                return pendingStatus(raced);
+            }
+        }
+        IngestionRecord record = IngestionRecord.of(trackingId, idempotencyKey, tenant, expense);
+        try {
+            long sequence = ingestionLog.append(objectMapper.writeValueAsBytes(record));
+            enqueue(new Pending(sequence, record));
+        } catch (IOException | RuntimeException e) {
+            if (tenantKey != null) {
+                pendingKeys.remove(tenantKey, trackingId);
+            }
+            throw e;
+        }
+        return pendingStatus(trackingId);
+    }
+    
+    // Status of a tracking id accepted for the current tenant
+    public Optional<IngestionStatus> getStatus(String trackingId) {
+        Pending entry = pending.get(trackingId);
+        if (entry != null) {
+            return entry.record().tenantId().equals(TenantContext.current())
+                    ? Optional.of(pendingStatus(trackingId))
+                    : Optional.empty();
+        }
+        return ingestedRecordRepository.findById(trackingId).map(ExpenseIngestionService::toStatus);
+    }
+    
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+    
+    private static IngestionStatus pendingStatus(String trackingId) {
+        return new IngestionStatus(trackingId, IngestionStatus.Status.PENDING, null, null);
+    }
+    
+    private static IngestionStatus toStatus(IngestedRecord stored) {
+        return new IngestionStatus(stored.getTrackingId(), IngestionStatus.Status.valueOf(stored.getStatus().name()),
+                stored.getExpenseId(), stored.getMessage());
+    }
+    
+    private void enqueue(Pending entry) {
+        pending.put(entry.record().trackingId(), entry);
+        if (entry.tenantKey() != null) {
+            pendingKeys.putIfAbsent(entry.tenantKey(), entry.record().trackingId());
+        }
+        pendingCount.incrementAndGet();
+        queue.add(entry);
+    }
+    
+    // Writer loop: take whatever is queued, up to a group, and commit it; back off while the database is failing
+    private void drain() {
+        try (TenantContext.TenantScope scope = TenantContext.root()) {
+            drainAsRoot();
+        }
+    }
+    
+    private void drainAsRoot() {
+        List<Pending> group = new ArrayList<>(groupSize);
+        long backoffMillis = 100;
+        while (running) {
+            try {
+                if (group.isEmpty()) {
+                    Pending first = queue.poll(1, TimeUnit.SECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    group.add(first);
+                    queue.drainTo(group, groupSize - 1);
+                }
+                write(group);
+                ingestionLog.release(group.get(group.size() - 1).sequence());
+                group.clear();
+                backoffMillis = 100;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                // Any failure, including CannotCreateTransactionException while the pool or database is down,
+                // is retried: the writer is the only thread that moves accepted records out of PENDING
+                log.warn("Ingestion writer failed, retrying {} expenses in {} ms", group.size(), backoffMillis, e);
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF.toMillis());
+            }
+        }
+    }
+    
+    // Commit a group in one transaction; if a row violates a constraint, fall back to one transaction per record
+    // so that only the offending record is marked FAILED
+    private void write(List<Pending> group) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> store(group));
+        } catch (DataIntegrityViolationException e) {
+            if (group.size() == 1) {
+                Pending failed = group.get(0);
+                transactionTemplate.executeWithoutResult(status -> entityManager.persist(
+                        new IngestedRecord(failed.record().trackingId(), failed.record().tenantId(), null,
+                                IngestedRecord.Status.FAILED, null, truncate(e.getMostSpecificCause().getMessage()),
+                                failed.sequence())));
+            } else {
+                for (Pending single : group) {
+                    write(List.of(single));
+                }
+                return;
+            }
+        }
+        group.forEach(this::completed);
+    }
+    
+    private void store(List<Pending> group) {
+        Set<String> done = ingestedRecordRepository
+                .findAllById(group.stream().map(entry -> entry.record().trackingId()).toList())
+                .stream()
+                .map(IngestedRecord::getTrackingId)
+                .collect(Collectors.toSet());
+        // Root sees every tenant's keys; only a match on the same tenant counts
+        Map<TenantKey, IngestedRecord> committedKeys = ingestedRecordRepository
+                .findByIdempotencyKeyIn(group.stream()
+                        .map(entry -> entry.record().idempotencyKey())
+                        .filter(Objects::nonNull)
+                        .distinct()
+                        .toList())
+                .stream()
+                .collect(Collectors.toMap(stored -> new TenantKey(stored.getTenantId(), stored.getIdempotencyKey()),
+                        Function.identity()));
+        
+        List<Pending> toInsert = new ArrayList<>();
+        for (Pending entry : group) {
+            IngestionRecord record = entry.record();
+            if (done.contains(record.trackingId())) {
+                continue;
+            }
+            IngestedRecord original = entry.tenantKey() == null ? null : committedKeys.get(entry.tenantKey());
+            if (original != null && !original.getTrackingId().equals(record.trackingId())) {
+                entityManager.persist(new IngestedRecord(record.trackingId(), record.tenantId(), null,
+                        IngestedRecord.Status.DUPLICATE, original.getExpenseId(),
+                        "Idempotency key already used by " + original.getTrackingId(), entry.sequence()));
+            } else {
+                toInsert.add(entry);
+            }
+        }
+        
+        List<Expense> expenses = toInsert.stream().map(entry -> entry.record().toExpense()).toList();
+        expenseService.insertExpenses(expenses);
+        for (int i = 0; i < toInsert.size(); i++) {
+            Pending entry = toInsert.get(i);
+            entityManager.persist(new IngestedRecord(entry.record().trackingId(), entry.record().tenantId(),
+                    entry.record().idempotencyKey(), IngestedRecord.Status.COMMITTED, expenses.get(i).getId(), null,
+                    entry.sequence()));
+        }
+    }
+    
+    private void completed(Pending entry) {
+        if (pending.remove(entry.record().trackingId()) != null) {
+            pendingCount.decrementAndGet();
+        }
+        if (entry.tenantKey() != null) {
+            pendingKeys.remove(entry.tenantKey(), entry.record().trackingId());
+        }
+    }
+    
+    private static String truncate(String message) {
+        return message == null || message.length() <= 500 ? message : message.substring(0, 500);
+    }
+}
@@ -0,0 +1,124 @@
+package com.finomo.service;
+
+import com.finomo.dto.ExpenseQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+
+// Chooses how GET /api/expenses/query reads its rows. Each access path is costed by the rows it is expected to
+// read, from the per-filter selectivities in ExpenseQueryStatistics: an index of the expenses table reads the
+// rows in its range, or only enough to fill the limit when it already returns them in the requested order; a
+// table scan reads every row. Index reads cost ROW_LOOKUP_COST times a scanned row. A keyword's selectivity is
+// counted in the in-memory search index, which only follows this instance's writes, so it is never used to
+// answer the query. The chosen index is passed to the database as a hint, and every filter, the keyword
+// included, is applied in SQL, so a plan only changes how fast a query runs, never its results.
+@Component
+public class ExpenseQueryPlanner {
+
+    // Relative cost of reading a row through a secondary index (random access) rather than by scanning
+    static final double ROW_LOOKUP_COST = 4;
+
+    // Share of rows assumed to match a keyword the search index cannot count
+    static final double KEYWORD_SELECTIVITY = 0.1;
+
+    public enum AccessPath {
+        CATEGORY_INDEX("idx_expenses_tenant_category_date"),
+        DATE_INDEX("idx_expenses_tenant_date"),
+        AMOUNT_INDEX("idx_expenses_tenant_amount"),
+        TABLE_SCAN(null);
+
+        private final String index;
+
+        AccessPath(String index) {
+            this.index = index;
+        }
+
+        // Name of the table index read, or null
+        public String index() {
+            return index;
+        }
+    }
+
+    // How a query is read. indexHint is the index the database is told to use (null leaves the choice to it),
+    // keywordTerms the terms each matching expense contains.
+    public record Plan(AccessPath accessPath, String indexHint, double estimatedRows, List<String> keywordTerms) {
+
+        public String describe() {
+            String path = accessPath.index() != null
+                    ? accessPath.index()
+                    : accessPath.name().toLowerCase(Locale.ROOT).replace('_', '-');
+            return String.format(Locale.ROOT, "%s; rows=%d", path, Math.round(estimatedRows));
+        }
+    }
+
+    @Autowired
+    private ExpenseQueryStatistics statistics;
+
+    @Autowired
+    private ExpenseSearchIndex searchIndex;
+
+    // Pass the chosen index to the database; false leaves every choice to the database's optimizer
+    @Value("${finomo.query.index-hints:true}")
+    private boolean indexHints;
+
+    public Plan plan(ExpenseQuery query) {
+        List<String> terms = query.keyword() != null ? ExpenseSearchIndex.tokenize(query.keyword()) : List.of();
+        ExpenseQueryStatistics.Selectivity selectivity = statistics.estimate(query);
+        double rows = selectivity.rows();
+        double keyword = keywordSelectivity(query, terms, rows);
+        double combined = selectivity.combined() * keyword;
+        double matching = rows * combined;
+
+        // The estimates are meaningless until the statistics are loaded; let the database decide
+        if (!statistics.isReady()) {
+            return new Plan(AccessPath.TABLE_SCAN, null, matching, terms);
+        }
+
+        Candidate best = new Candidate(AccessPath.TABLE_SCAN, rows);
+        if (query.category() != null) {
+            best = cheaper(best, AccessPath.CATEGORY_INDEX, rows,
+                    selectivity.category() * selectivity.dateRange(), combined, query,
+                    query.sort() == ExpenseQuery.SortField.DATE);
+        }
+        if (query.hasDateRange() || query.sort() == ExpenseQuery.SortField.DATE) {
+            best = cheaper(best, AccessPath.DATE_INDEX, rows, selectivity.dateRange(), combined, query,
+                    query.sort() == ExpenseQuery.SortField.DATE);
+        }
+        if (query.hasAmountRange() || query.sort() == ExpenseQuery.SortField.AMOUNT) {
+            best = cheaper(best, AccessPath.AMOUNT_INDEX, rows, selectivity.amountRange(), combined, query,
+                    query.sort() == ExpenseQuery.SortField.AMOUNT);
+        }
+
+        String hint = indexHints ? best.accessPath().index() : null;
+        return new Plan(best.accessPath(), hint, matching, terms);
+    }
+
+    // Share of the tenant's rows the search index matches. Substring matching there needs at least a trigram, so
+    // shorter terms get the default. At least one row is assumed, as the index may miss other instances' writes.
+    private double keywordSelectivity(ExpenseQuery query, List<String> terms, double rows) {
+        if (terms.isEmpty()) {
+            return 1;
+        }
+        if (rows == 0 || !searchIndex.isReady() || !terms.stream().allMatch(term -> term.length() >= 3)) {
+            return KEYWORD_SELECTIVITY;
+        }
+        return Math.min(1, Math.max(1, searchIndex.countMatching(query.keyword())) / rows);
+    }
+
+    // An index holding its matches in the requested order can stop once the limit is filled
+    private static Candidate cheaper(Candidate best, AccessPath accessPath, double rows, double indexSelectivity,
+                                     double combined, ExpenseQuery query, boolean ordered) {
+        double read = rows * indexSelectivity;
+        if (ordered && combined > 0) {
+            read = Math.min(read, query.limit() * indexSelectivity / combined);
+        }
+        double cost = read * ROW_LOOKUP_COST;
+        return cost < best.cost() ? new Candidate(accessPath, cost) : best;
+    }
+
+    private record Candidate(AccessPath accessPath, double cost) {
+    }
+}
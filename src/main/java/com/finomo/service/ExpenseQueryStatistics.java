@@ -0,0 +1,267 @@
+package com.finomo.service;
+
+import com.finomo.config.TenantContext;
+import com.finomo.dto.ExpenseQuery;
+import com.finomo.entity.Expense;
+import com.finomo.repository.ExpenseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Per-tenant distribution of the filterable expense columns, for the query planner's selectivity estimates:
+// row counts per category, per month and per quarter-octave amount bucket. Memory grows with the number of
+// categories and months, not with the number of expenses. Loaded from the table at startup and then kept in
+// sync with committed writes; a write committed while the startup scan runs may be counted twice, which only
+// skews an estimate.
+@Component
+public class ExpenseQueryStatistics implements ExpenseChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseQueryStatistics.class);
+
+    // Amount buckets are quarter-octaves of log2(amount): from 0.01 (about 2^-6.6) to 10 integer digits (2^33.3)
+    private static final int BUCKETS_PER_OCTAVE = 4;
+    private static final int AMOUNT_BUCKET_OFFSET = 7 * BUCKETS_PER_OCTAVE;
+    private static final int AMOUNT_BUCKETS = AMOUNT_BUCKET_OFFSET + 34 * BUCKETS_PER_OCTAVE;
+
+    // Fraction of a tenant's expenses matching each filter of a query; 1 for absent filters
+    public record Selectivity(long rows, double category, double dateRange, double amountRange) {
+
+        public double combined() {
+            return category * dateRange * amountRange;
+        }
+    }
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private TaskExecutor taskExecutor;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<String, Distribution> distributionsByTenant = new HashMap<>();
+    private volatile boolean ready;
+
+    // Changes committed while a rebuild is streaming the table; replayed on top of the snapshot
+    private List<Runnable> pendingChanges;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Estimate the current tenant's matches for each filter of the query, assuming a uniform spread within a
+    // month or amount bucket
+    public Selectivity estimate(ExpenseQuery query) {
+        lock.readLock().lock();
+        try {
+            Distribution distribution = distributionsByTenant.get(TenantContext.current());
+            if (distribution == null || distribution.rows == 0) {
+                return new Selectivity(0, 1, 1, 1);
+            }
+            double rows = distribution.rows;
+            double category = query.category() == null ? 1
+                    : distribution.categories.getOrDefault(query.category(), 0L) / rows;
+            double dateRange = query.hasDateRange()
+                    ? distribution.countDates(query.startDate(), query.endDate()) / rows : 1;
+            double amountRange = query.hasAmountRange()
+                    ? distribution.countAmounts(query.minAmount(), query.maxAmount()) / rows : 1;
+            return new Selectivity(distribution.rows, clamp(category), clamp(dateRange), clamp(amountRange));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCreated(Expense expense) {
+        afterCommit(changeAction(expense, 1));
+    }
+
+    @Override
+    public void onUpdated(Expense before, Expense after) {
+        Runnable removal = changeAction(before, -1);
+        Runnable addition = changeAction(after, 1);
+        afterCommit(() -> {
+            removal.run();
+            addition.run();
+        });
+    }
+
+    @Override
+    public void onDeleted(Expense expense) {
+        afterCommit(changeAction(expense, -1));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        taskExecutor.execute(this::rebuild);
+    }
+
+    // Count every tenant's expenses into fresh distributions, then swap them in and replay changes that raced
+    // with the scan
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<String, Distribution> fresh = new HashMap<>();
+        try (TenantContext.TenantScope scope = TenantContext.root()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (var rows = expenseRepository.streamAnalyticsColumns()) {
+                    rows.forEach(row -> fresh.computeIfAbsent((String) row[1], tenant -> new Distribution())
+                            .add((String) row[2], (LocalDate) row[3], (BigDecimal) row[4], 1));
+                }
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.error("Failed to load expense query statistics", e);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            distributionsByTenant = fresh;
+            List<Runnable> changes = pendingChanges;
+            pendingChanges = null;
+            changes.forEach(Runnable::run);
+            ready = true;
+            log.info("Loaded expense query statistics for {} tenants", fresh.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Capture the values now; the entity may change after the listener returns
+    private Runnable changeAction(Expense expense, int delta) {
+        String tenant = expense.getTenantId() != null ? expense.getTenantId() : TenantContext.current();
+        String category = expense.getCategory();
+        LocalDate date = expense.getDate();
+        BigDecimal amount = expense.getAmount();
+        Runnable change = () -> {
+            Distribution distribution = distributionsByTenant.computeIfAbsent(tenant, key -> new Distribution());
+            distribution.add(category, date, amount, delta);
+            if (distribution.rows <= 0) {
+                distributionsByTenant.remove(tenant);
+            }
+        };
+        return () -> {
+            lock.writeLock().lock();
+            try {
+                change.run();
+                if (pendingChanges != null) {
+                    pendingChanges.add(change);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+    }
+
+    private static double clamp(double fraction) {
+        return Math.max(0, Math.min(1, fraction));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // Counts of one tenant's expenses; not thread-safe, guarded by the enclosing lock
+    private static final class Distribution {
+        private long rows;
+        private final Map<String, Long> categories = new HashMap<>();
+        private final NavigableMap<Long, Long> months = new TreeMap<>();
+        private final long[] amounts = new long[AMOUNT_BUCKETS];
+
+        void add(String category, LocalDate date, BigDecimal amount, int delta) {
+            rows += delta;
+            categories.merge(category, (long) delta, (count, change) -> count + change > 0 ? count + change : null);
+            months.merge(month(date), (long) delta, (count, change) -> count + change > 0 ? count + change : null);
+            amounts[(int) Math.floor(amountPosition(amount))] += delta;
+        }
+
+        // Expenses dated within [start, end], either bound open; partly covered months count pro rata by days
+        double countDates(LocalDate start, LocalDate end) {
+            if (months.isEmpty()) {
+                return 0;
+            }
+            long firstMonth = start != null ? month(start) : months.firstKey();
+            long lastMonth = end != null ? month(end) : months.lastKey();
+            if (firstMonth > lastMonth) {
+                return 0;
+            }
+            double count = 0;
+            for (Map.Entry<Long, Long> entry : months.subMap(firstMonth, true, lastMonth, true).entrySet()) {
+                LocalDate monthStart = LocalDate.of((int) (entry.getKey() / 12), (int) (entry.getKey() % 12) + 1, 1);
+                LocalDate monthEnd = monthStart.plusMonths(1).minusDays(1);
+                LocalDate from = start != null && start.isAfter(monthStart) ? start : monthStart;
+                LocalDate to = end != null && end.isBefore(monthEnd) ? end : monthEnd;
+                double covered = (to.toEpochDay() - from.toEpochDay() + 1.0) / monthStart.lengthOfMonth();
+                count += entry.getValue() * covered;
+            }
+            return count;
+        }
+
+        // Expenses with an amount within [min, max], either bound open; partly covered buckets count pro rata
+        double countAmounts(BigDecimal min, BigDecimal max) {
+            double from = min != null ? amountPosition(min) : 0;
+            double to = max != null ? amountPosition(max) : AMOUNT_BUCKETS;
+            double count = 0;
+            for (int bucket = (int) Math.floor(from); bucket < AMOUNT_BUCKETS && bucket < to; bucket++) {
+                double covered = Math.min(to, bucket + 1) - Math.max(from, bucket);
+                count += amounts[bucket] * Math.min(1, covered);
+            }
+            return count;
+        }
+
+        private static long month(LocalDate date) {
+            return date.getYear() * 12L + date.getMonthValue() - 1;
+        }
+
+        private static double amountPosition(BigDecimal amount) {
+            double value = amount.doubleValue();
+            if (value <= 0) {
+                return 0;
+            }
+            double position = Math.log(value) / Math.log(2) * BUCKETS_PER_OCTAVE + AMOUNT_BUCKET_OFFSET;
+            return Math.max(0, Math.min(AMOUNT_BUCKETS - 1e-9, position));
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.finomo.service;
+
+import com.finomo.config.TenantContext;
+import com.finomo.dto.RollupVerification;
+import com.finomo.entity.Expense;
+import com.finomo.entity.ExpenseDailyTotal;
+import com.finomo.repository.ExpenseDailyTotalRepository;
+import com.finomo.repository.ExpenseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Keeps expense_daily_totals in step with the expenses table so analytics never scan raw expenses
+@Service
+public class ExpenseRollupService implements ExpenseChangeListener {
+    
+    private static final Logger log = LoggerFactory.getLogger(ExpenseRollupService.class);
+    
+    private static final Comparator<BucketKey> BUCKET_ORDER =
+            Comparator.comparing(BucketKey::tenantId).thenComparing(BucketKey::category).thenComparing(BucketKey::day);
+    
+    @Autowired
+    private ExpenseDailyTotalRepository dailyTotalRepository;
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private ExpenseCache expenseCache;
+    
+    @Autowired
+    private ExpenseChangeCounter changeCounter;
+    
+    // Calls from within this class bypass the @Transactional proxy, so they open their transaction explicitly
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Override
+    public void onCreated(Expense expense) {
+        addDelta(expense.getTenantId(), expense.getCategory(), expense.getDate(), expense.getAmount(), 1);
+    }
+    
+    @Override
+    public void onUpdated(Expense before, Expense after) {
+        addDelta(before.getTenantId(), before.getCategory(), before.getDate(), before.getAmount().negate(), -1);
+        addDelta(after.getTenantId(), after.getCategory(), after.getDate(), after.getAmount(), 1);
+    }
+    
+    @Override
+    public void onDeleted(Expense expense) {
+        addDelta(expense.getTenantId(), expense.getCategory(), expense.getDate(), expense.getAmount().negate(), -1);
+    }
+    
+    // Rebuild the current tenant's rollup (every tenant's as root) and check the result against the expenses table
+    @Transactional
+    public RollupVerification rebuild() {
+        int buckets;
+        if (TenantContext.isRoot()) {
+            dailyTotalRepository.deleteAllBuckets();
+            buckets = dailyTotalRepository.insertFromExpenses();
+        } else {
+            dailyTotalRepository.deleteBuckets(TenantContext.current());
+            buckets = dailyTotalRepository.insertFromExpenses(TenantContext.current());
+        }
+        log.info("Rebuilt expense rollup for tenant {} with {} buckets", TenantContext.current(), buckets);
+        expenseCache.invalidateAll();
+        changeCounter.rollupRebuilt();
+        return verify();
+    }
+    
+    // Compare every (category, day) bucket of the current tenant (every tenant as root) with a GROUP BY over
+    // the expenses table
+    @Transactional(readOnly = true)
+    public RollupVerification verify() {
+        Map<BucketKey, Bucket> expected = new HashMap<>();
+        for (Object[] row : expenseRepository.findDailyTotals()) {
+            expected.put(new BucketKey((String) row[0], (String) row[1], (LocalDate) row[2]),
+                    new Bucket((BigDecimal) row[3], ((Number) row[4]).longValue()));
+        }
+        
+        Map<BucketKey, Bucket> actual = new HashMap<>();
+        for (ExpenseDailyTotal total : dailyTotalRepository.findAll()) {
+            actual.put(new BucketKey(total.getTenantId(), total.getCategory(), total.getDay()),
+                    new Bucket(total.getTotalAmount(), total.getExpenseCount()));
+        }
+        
+        List<String> mismatches = new ArrayList<>();
+        int mismatchCount = 0;
+        for (Map.Entry<BucketKey, Bucket> entry : expected.entrySet()) {
+            Bucket rollup = actual.get(entry.getKey());
+            if (!entry.getValue().matches(rollup)) {
+                mismatchCount++;
+                addMismatch(mismatches, entry.getKey() + " expected " + entry.getValue() + " but was " + rollup);
+            }
+        }
+        for (Map.Entry<BucketKey, Bucket> entry : actual.entrySet()) {
+            if (!expected.containsKey(entry.getKey()) && entry.getValue().count() != 0) {
+                mismatchCount++;
+                addMismatch(mismatches, entry.getKey() + " has no expenses but rollup is " + entry.getValue());
+            }
+        }
+        
+        if (mismatchCount > 0) {
+            log.warn("Expense rollup has {} mismatched buckets", mismatchCount);
+        }
+        return new RollupVerification(mismatchCount == 0, expected.size(), actual.size(), mismatches);
+    }
+    
+    // Populate the rollup the first time the application starts against existing expenses; ahead of other
+    // startup listeners, such as BudgetService, that load from the rollup
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void initialize() {
+        try (TenantContext.TenantScope scope = TenantContext.root()) {
+            if (dailyTotalRepository.count() == 0 && expenseRepository.count() > 0) {
+                transactionTemplate.execute(status -> rebuild());
+            }
+        }
+    }
+    
+    // Deltas are collected per transaction and written just before commit, one upsert per touched bucket
+    private void addDelta(String tenantId, String category, LocalDate day, BigDecimal amount, long count) {
+        BucketKey key = new BucketKey(tenantId, category, day);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Map<BucketKey, Bucket> single = new TreeMap<>(BUCKET_ORDER);
+            single.put(key, new Bucket(amount, count));
+            transactionTemplate.executeWithoutResult(status -> applyDeltas(single));
+            return;
+        }
+        
+        @SuppressWarnings("unchecked")
+        Map<BucketKey, Bucket> pending = (Map<BucketKey, Bucket>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            // Sorted so concurrent transactions lock buckets in the same order
+            Map<BucketKey, Bucket> deltas = new TreeMap<>(BUCKET_ORDER);
+            TransactionSynchronizationManager.bindResource(this, deltas);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    applyDeltas(deltas);
+                }
+                
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ExpenseRollupService.this);
+                }
+            });
+            pending = deltas;
+        }
+        pending.merge(key, new Bucket(amount, count), Bucket::plus);
+    }
+    
+    private void applyDeltas(Map<BucketKey, Bucket> deltas) {
+        for (Map.Entry<BucketKey, Bucket> entry : deltas.entrySet()) {
+            BucketKey key = entry.getKey();
+            Bucket delta = entry.getValue();
+            if (delta.isZero()) {
+                continue;
+            }
+            dailyTotalRepository.applyDelta(key.tenantId(), key.category(), key.day(), delta.amount(), delta.count());
+            if (delta.count() < 0) {
+                dailyTotalRepository.deleteIfEmpty(key.tenantId(), key.category(), key.day());
+            }
+        }
+        deltas.clear();
+    }
+    
+    private static void addMismatch(List<String> mismatches, String mismatch) {
+        if (mismatches.size() < RollupVerification.MAX_MISMATCHES) {
+            mismatches.add(mismatch);
+        }
+    }
+    
+    private record BucketKey(String tenantId, String category, LocalDate day) {
+        @Override
+        public String toString() {
+            return tenantId + "/" + category + "/" + day;
+        }
+    }
+    
+    private record Bucket(BigDecimal amount, long count) {
+        Bucket plus(Bucket other) {
+            return new Bucket(amount.add(other.amount), count + other.count);
+        }
+        
+        boolean isZero() {
+            return count == 0 && amount.signum() == 0;
+        }
+        
+        boolean matches(Bucket other) {
+            return other != null && count == other.count && amount.compareTo(other.amount) == 0;
+        }
+        
+        @Override
+        public String toString() {
+            return "amount=" + amount + ", count=" + count;
+        }
+    }
+}
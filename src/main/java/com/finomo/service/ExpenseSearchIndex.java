@@ -0,0 +1,403 @@
+package com.finomo.service;
+
+import com.finomo.config.TenantContext;
+import com.finomo.entity.Expense;
+import com.finomo.repository.ExpenseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index over expense description and notes.
+// Whole tokens and their trigrams are indexed so both word and substring terms are answered from posting lists,
+// without touching the expenses table. The index is rebuilt from the table at startup and then follows the
+// change log through ExpenseChangeCounter: this instance's writes right after commit, other instances' within
+// finomo.changes.poll-interval. Each tenant has its own postings, so a search only touches the caller's documents.
+@Component
+public class ExpenseSearchIndex implements ExpenseChangeFollower {
+    
+    private static final Logger log = LoggerFactory.getLogger(ExpenseSearchIndex.class);
+    
+    private static final int TRIGRAM = 3;
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+    private static final double NOTES_WEIGHT = 0.5;
+    private static final double WHOLE_TOKEN_BOOST = 2.0;
+    
+    public enum Mode {
+        AND, OR
+    }
+    
+    public record SearchHit(long id, double score) {
+    }
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private TaskExecutor taskExecutor;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<String, Postings> postingsByTenant = new HashMap<>();
+    private volatile boolean ready;
+    
+    // Changes committed while a rebuild is streaming the table; replayed on top of the snapshot
+    private List<Runnable> pendingChanges;
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentCount(postingsByTenant);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Rank documents matching the query terms; AND requires every term, OR any of them
+    public List<SearchHit> search(String query, Mode mode, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (terms.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        
+        lock.readLock().lock();
+        try {
+            Postings postings = postingsByTenant.get(TenantContext.current());
+            if (postings == null) {
+                return List.of();
+            }
+            Map<Long, Double> scores = null;
+            for (String term : terms) {
+                Map<Long, Double> termScores = postings.match(term);
+                if (scores == null) {
+                    scores = termScores;
+                } else if (mode == Mode.AND) {
+                    Map<Long, Double> intersection = scores;
+                    intersection.keySet().retainAll(termScores.keySet());
+                    termScores.forEach((id, score) -> intersection.computeIfPresent(id, (key, total) -> total + score));
+                } else {
+                    Map<Long, Double> union = scores;
+                    termScores.forEach((id, score) -> union.merge(id, score, Double::sum));
+                }
+                if (mode == Mode.AND && scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+            return topHits(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Number of the current tenant's documents matching every term, unranked; for estimates only, as the index
+    // may be up to a poll interval behind writes committed on other instances
+    public int countMatching(String query) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if (terms.isEmpty()) {
+            return 0;
+        }
+
+        lock.readLock().lock();
+        try {
+            Postings postings = postingsByTenant.get(TenantContext.current());
+            if (postings == null) {
+                return 0;
+            }
+            Set<Long> ids = null;
+            for (String term : terms) {
+                Set<Long> termIds = postings.match(term).keySet();
+                if (ids == null) {
+                    ids = new HashSet<>(termIds);
+                } else {
+                    ids.retainAll(termIds);
+                }
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+            }
+            return ids.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void apply(Expense before, Expense after) {
+        if (after == null) {
+            remove(before.getTenantId(), before.getId());
+        } else {
+            index(after);
+        }
+    }
+    
+    // Rebuilds every tenant; only needed once this instance fell behind the change log's retention
+    @Override
+    public void reload(String tenant) {
+        rebuildInBackground();
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        taskExecutor.execute(this::rebuild);
+    }
+    
+    // Stream every tenant's expenses into a fresh index, then swap it in and replay changes that raced with the scan.
+    // Rebuilds run one at a time so they do not share the pending changes.
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        
+        Map<String, Postings> fresh = new HashMap<>();
+        try (TenantContext.TenantScope scope = TenantContext.root()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (var expenses = expenseRepository.streamAllOrderByDateAndId()) {
+                    expenses.forEach(expense -> fresh.computeIfAbsent(expense.getTenantId(), tenant -> new Postings())
+                            .add(expense.getId(), expense.getDescription(), expense.getNotes()));
+                }
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.error("Failed to rebuild expense search index", e);
+            return;
+        }
+        
+        lock.writeLock().lock();
+        try {
+            Map<String, Postings> previous = postingsByTenant;
+            postingsByTenant = fresh;
+            List<Runnable> changes = pendingChanges;
+            pendingChanges = null;
+            changes.forEach(Runnable::run);
+            ready = true;
+            log.info("Rebuilt expense search index with {} documents for {} tenants (previously {})",
+                    documentCount(fresh), fresh.size(), documentCount(previous));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    void index(Expense expense) {
+        String tenant = expense.getTenantId() != null ? expense.getTenantId() : TenantContext.current();
+        long id = expense.getId();
+        String description = expense.getDescription();
+        String notes = expense.getNotes();
+        Runnable change = () -> {
+            Postings postings = postingsByTenant.computeIfAbsent(tenant, key -> new Postings());
+            postings.remove(id);
+            postings.add(id, description, notes);
+        };
+        lock.writeLock().lock();
+        try {
+            change.run();
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    void remove(String tenant, long id) {
+        Runnable change = () -> {
+            Postings postings = postingsByTenant.get(tenant);
+            if (postings != null) {
+                postings.remove(id);
+                if (postings.documents.isEmpty()) {
+                    postingsByTenant.remove(tenant);
+                }
+            }
+        };
+        lock.writeLock().lock();
+        try {
+            change.run();
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private static int documentCount(Map<String, Postings> postingsByTenant) {
+        return postingsByTenant.values().stream().mapToInt(postings -> postings.documents.size()).sum();
+    }
+    
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+    
+    private static List<SearchHit> topHits(Map<Long, Double> scores, int limit) {
+        Comparator<SearchHit> ranking = Comparator.comparingDouble(SearchHit::score)
+                .thenComparingLong(SearchHit::id);
+        PriorityQueue<SearchHit> top = new PriorityQueue<>(ranking);
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            top.offer(new SearchHit(entry.getKey(), entry.getValue()));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<SearchHit> hits = new ArrayList<>(top);
+        hits.sort(ranking.reversed());
+        return hits;
+    }
+    
+    private record Document(Set<String> descriptionTokens, Set<String> notesTokens) {
+        Set<String> allTokens() {
+            Set<String> all = new HashSet<>(descriptionTokens);
+            all.addAll(notesTokens);
+            return all;
+        }
+    }
+    
+    // Token and trigram posting lists; not thread-safe, guarded by the enclosing lock
+    private static final class Postings {
+        private final Map<Long, Document> documents = new HashMap<>();
+        private final Map<String, Set<Long>> tokens = new HashMap<>();
+        private final Map<String, Set<Long>> trigrams = new HashMap<>();
+        
+        void add(long id, String description, String notes) {
+            Document document = new Document(new HashSet<>(tokenize(description)), new HashSet<>(tokenize(notes)));
+            documents.put(id, document);
+            for (String token : document.allTokens()) {
+                tokens.computeIfAbsent(token, key -> new HashSet<>()).add(id);
+                for (String trigram : trigrams(token)) {
+                    trigrams.computeIfAbsent(trigram, key -> new HashSet<>()).add(id);
+                }
+            }
+        }
+        
+        void remove(long id) {
+            Document document = documents.remove(id);
+            if (document == null) {
+                return;
+            }
+            for (String token : document.allTokens()) {
+                removePosting(tokens, token, id);
+                for (String trigram : trigrams(token)) {
+                    removePosting(trigrams, trigram, id);
+                }
+            }
+        }
+        
+        // Score every document containing the term, as a whole token or (for 3+ characters) as a substring of one
+        Map<Long, Double> match(String term) {
+            Set<Long> candidates;
+            if (term.length() < TRIGRAM) {
+                candidates = tokens.getOrDefault(term, Set.of());
+            } else {
+                candidates = intersectTrigrams(term);
+            }
+            
+            Map<Long, Double> matches = new HashMap<>();
+            for (Long id : candidates) {
+                Document document = documents.get(id);
+                double score = fieldScore(document.descriptionTokens(), term) * DESCRIPTION_WEIGHT
+                        + fieldScore(document.notesTokens(), term) * NOTES_WEIGHT;
+                if (score > 0) {
+                    matches.put(id, score);
+                }
+            }
+            
+            // Rarer terms count for more
+            double idf = Math.log(1.0 + (double) documents.size() / Math.max(1, matches.size()));
+            matches.replaceAll((id, score) -> score * idf);
+            return matches;
+        }
+        
+        private Set<Long> intersectTrigrams(String term) {
+            List<Set<Long>> lists = new ArrayList<>();
+            for (String trigram : trigrams(term)) {
+                Set<Long> ids = trigrams.get(trigram);
+                if (ids == null) {
+                    return Set.of();
+                }
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+            Set<Long> result = new HashSet<>(lists.get(0));
+            for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+                result.retainAll(lists.get(i));
+            }
+            return result;
+        }
+        
+        private static double fieldScore(Set<String> fieldTokens, String term) {
+            if (fieldTokens.contains(term)) {
+                return WHOLE_TOKEN_BOOST;
+            }
+            if (term.length() >= TRIGRAM) {
+                for (String token : fieldTokens) {
+                    if (token.contains(term)) {
+                        return 1.0;
+                    }
+                }
+            }
+            return 0;
+        }
+        
+        private static Set<String> trigrams(String token) {
+            if (token.length() < TRIGRAM) {
+                return Collections.emptySet();
+            }
+            Set<String> grams = new HashSet<>();
+            for (int i = 0; i + TRIGRAM <= token.length(); i++) {
+                grams.add(token.substring(i, i + TRIGRAM));
+            }
+            return grams;
+        }
+        
+        private static void removePosting(Map<String, Set<Long>> index, String key, long id) {
+            Set<Long> ids = index.get(key);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    index.remove(key);
+                }
+            }
+        }
+    }
+}
@@ -1,95 +1,525 @@
 package com.finomo.service;
 
+import com.finomo.dto.BatchItemResult;
+import com.finomo.dto.BatchItemResult.Status;
+import com.finomo.dto.ExpenseAnomalies;
+import com.finomo.dto.ExpenseField;
+import com.finomo.dto.ExpensePage;
+import com.finomo.dto.ExpenseQuery;
 import com.finomo.entity.Expense;
+import com.finomo.repository.ExpenseDailyTotalRepository;
 import com.finomo.repository.ExpenseRepository;
+import com.finomo.service.ExpenseAnomalyDetector.DuplicateAction;
+import com.finomo.service.analytics.ExpenseColumnStore;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ExpenseService {
     
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    
     @Autowired
     private ExpenseRepository expenseRepository;
     
-    // Create a new expense
+    @Autowired
+    private ExpenseDailyTotalRepository dailyTotalRepository;
+    
+    @Autowired
+    private ExpenseCache expenseCache;
+    
+    @Autowired
+    private ExpenseSearchIndex searchIndex;
+    
+    @Autowired
+    private ExpenseAnomalyDetector anomalyDetector;
+    
+    @Autowired
+    private ExpenseQueryPlanner queryPlanner;
+    
+    @Autowired(required = false)
+    private List<ExpenseChangeListener> changeListeners = List.of();
+    
+    // Present only with finomo.analytics.store=columnar; analytics fall back to the rollup until it is loaded
+    @Autowired(required = false)
+    private ExpenseColumnStore columnStore;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private Validator validator;
+    
+    @Value("${finomo.batch.chunk-size:500}")
+    private int batchChunkSize;
+    
+    @Value("${finomo.batch.max-items:10000}")
+    private int batchMaxItems;
+    
+    // A created expense with what screening flagged; expense is null when it was rejected as a duplicate
+    public record ScreenedExpense(Expense expense, ExpenseAnomalies anomalies) {
+    }
+    
+    // Expenses matching a combined query, with the plan they were read with
+    public record QueryResult(List<Expense> expenses, ExpenseQueryPlanner.Plan plan) {
+    }
+    
+    // Create a new expense; suspected duplicates and outlier amounts are only flagged
+    @Transactional
     public Expense createExpense(Expense expense) {
-        return expenseRepository.save(expense);
+        return createExpense(expense, true).expense();
+    }
+    
+    // Create a new expense after screening it against recent expenses. With finomo.anomaly.duplicate-action=reject
+    // a suspected duplicate is not created unless allowDuplicate is set.
+    @Transactional
+    public ScreenedExpense createExpense(Expense expense, boolean allowDuplicate) {
+        ExpenseAnomalies anomalies = anomalyDetector.screen(expense);
+        if (rejects(anomalies, duplicateAction(allowDuplicate))) {
+            return new ScreenedExpense(null, anomalies);
+        }
+        Expense savedExpense = expenseRepository.save(expense);
+        changeListeners.forEach(listener -> listener.onCreated(savedExpense));
+        return new ScreenedExpense(savedExpense, anomalies);
+    }
+    
+    private DuplicateAction duplicateAction(boolean allowDuplicate) {
+        return allowDuplicate ? DuplicateAction.FLAG : anomalyDetector.getDuplicateAction();
+    }
+    
+    private static boolean rejects(ExpenseAnomalies anomalies, DuplicateAction duplicateAction) {
+        return duplicateAction == DuplicateAction.REJECT && anomalies.isSuspectedDuplicate();
     }
     
     // Get all expenses
+    @Transactional(readOnly = true)
     public List<Expense> getAllExpenses() {
         return expenseRepository.findAll();
     }
     
+    // Get the selected fields of all expenses
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllExpenses(Set<ExpenseField> fields) {
+        return expenseRepository.findFields(fields, null, null, null);
+    }
+    
+    // Get one keyset page of expenses ordered by (date, id), starting after the given cursor
+    @Transactional(readOnly = true)
+    public ExpensePage getExpensePage(String cursor, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        
+        // Fetch one extra row to find out whether another page exists
+        Limit fetchLimit = Limit.of(limit + 1);
+        List<Expense> expenses;
+        if (cursor == null || cursor.isBlank()) {
+            expenses = expenseRepository.findFirstPage(fetchLimit);
+        } else {
+            ExpenseCursor position = ExpenseCursor.decode(cursor);
+            expenses = expenseRepository.findPageAfter(position.date(), position.id(), fetchLimit);
+        }
+        
+        if (expenses.size() <= limit) {
+            return new ExpensePage(expenses, null);
+        }
+        List<Expense> page = expenses.subList(0, limit);
+        return new ExpensePage(page, ExpenseCursor.of(page.get(limit - 1)).encode());
+    }
+    
+    // Stream all expenses ordered by (date, id) without materializing them in memory
+    @Transactional(readOnly = true)
+    public void streamAllExpenses(Consumer<Expense> consumer) {
+        streamExpenses(null, null, null, consumer);
+    }
+    
+    // Stream expenses ordered by (date, id), optionally filtered by category and/or date range (both dates required)
+    @Transactional(readOnly = true)
+    public void streamExpenses(String category, LocalDate startDate, LocalDate endDate, Consumer<Expense> consumer) {
+        if ((startDate == null) != (endDate == null)) {
+            throw new IllegalArgumentException("startDate and endDate must be given together");
+        }
+        Stream<Expense> stream;
+        if (category != null && startDate != null) {
+            stream = expenseRepository.streamByCategoryAndDateBetween(category, startDate, endDate);
+        } else if (category != null) {
+            stream = expenseRepository.streamByCategory(category);
+        } else if (startDate != null) {
+            stream = expenseRepository.streamByDateBetween(startDate, endDate);
+        } else {
+            stream = expenseRepository.streamAllOrderByDateAndId();
+        }
+        
+        try (Stream<Expense> expenses = stream) {
+            expenses.forEach(expense -> {
+                consumer.accept(expense);
+                // Keep the persistence context from growing with every row read
+                entityManager.detach(expense);
+            });
+        }
+    }
+    
     // Get expense by ID
     public Optional<Expense> getExpenseById(Long id) {
-        return expenseRepository.findById(id);
+        return expenseCache.getById(id, () -> expenseRepository.findById(id));
     }
     
     // Update an expense
+    @Transactional
     public Expense updateExpense(Long id, Expense expenseDetails) {
+        return updateExpense(id, expenseDetails, null);
+    }
+    
+    // Update an expense only if it is still at expectedVersion (null skips the check).
+    // A concurrent update between the read and the flush fails the version check in the UPDATE statement.
+    @Transactional
+    public Expense updateExpense(Long id, Expense expenseDetails, Long expectedVersion) {
         Optional<Expense> optionalExpense = expenseRepository.findById(id);
         
         if (optionalExpense.isPresent()) {
             Expense expense = optionalExpense.get();
-            expense.setDescription(expenseDetails.getDescription());
-            expense.setAmount(expenseDetails.getAmount());
-            expense.setCategory(expenseDetails.getCategory());
-            expense.setDate(expenseDetails.getDate());
-            expense.setNotes(expenseDetails.getNotes());
-            return expenseRepository.save(expense);
+            if (expectedVersion != null && !expectedVersion.equals(expense.getVersion())) {
+                throw new ObjectOptimisticLockingFailureException(Expense.class, id);
+            }
+            Expense before = new Expense(expense);
+            applyDetails(expense, expenseDetails);
+            // Flush so the returned expense carries the incremented version
+            Expense savedExpense = expenseRepository.saveAndFlush(expense);
+            changeListeners.forEach(listener -> listener.onUpdated(before, savedExpense));
+            return savedExpense;
         } else {
             throw new RuntimeException("Expense not found with id: " + id);
         }
     }
     
     // Delete an expense
+    @Transactional
     public void deleteExpense(Long id) {
-        if (expenseRepository.existsById(id)) {
-            expenseRepository.deleteById(id);
+        Optional<Expense> optionalExpense = expenseRepository.findById(id);
+        
+        if (optionalExpense.isPresent()) {
+            Expense expense = optionalExpense.get();
+            expenseRepository.delete(expense);
+            changeListeners.forEach(listener -> listener.onDeleted(expense));
         } else {
             throw new RuntimeException("Expense not found with id: " + id);
         }
     }
     
+    // Create many expenses, validating each item and inserting valid ones in JDBC batches of batchChunkSize.
+    // Suspected duplicates and outlier amounts are only flagged in the item messages.
+    public List<BatchItemResult> createExpenses(List<Expense> expenses) {
+        return createExpenses(expenses, true);
+    }
+    
+    // Create many expenses; with finomo.anomaly.duplicate-action=reject suspected duplicates are not created unless
+    // allowDuplicates is set
+    public List<BatchItemResult> createExpenses(List<Expense> expenses, boolean allowDuplicates) {
+        return createExpenses(expenses, duplicateAction(allowDuplicates));
+    }
+    
+    // Create many expenses, screening each valid item inside its chunk's transaction (so copies within the batch
+    // are caught too). Under REJECT duplicates get status DUPLICATE; flags on created items are in their message.
+    public List<BatchItemResult> createExpenses(List<Expense> expenses, DuplicateAction duplicateAction) {
+        checkBatchSize(expenses.size());
+        BatchItemResult[] results = new BatchItemResult[expenses.size()];
+        List<Integer> pending = new ArrayList<>();
+        
+        for (int i = 0; i < expenses.size(); i++) {
+            String violations = validate(expenses.get(i));
+            if (violations != null) {
+                results[i] = BatchItemResult.failure(i, null, Status.INVALID, violations);
+            } else {
+                pending.add(i);
+            }
+        }
+        
+        ExpenseAnomalies[] anomalies = new ExpenseAnomalies[expenses.size()];
+        for (List<Integer> chunk : chunks(pending)) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    List<Expense> toInsert = new ArrayList<>(chunk.size());
+                    for (int i : chunk) {
+                        anomalies[i] = anomalyDetector.screen(expenses.get(i));
+                        if (!rejects(anomalies[i], duplicateAction)) {
+                            toInsert.add(expenses.get(i));
+                        }
+                    }
+                    expenseRepository.insertAll(toInsert);
+                    toInsert.forEach(expense -> changeListeners.forEach(listener -> listener.onCreated(expense)));
+                });
+                for (int i : chunk) {
+                    results[i] = rejects(anomalies[i], duplicateAction)
+                            ? BatchItemResult.failure(i, null, Status.DUPLICATE, anomalies[i].describe())
+                            : new BatchItemResult(i, expenses.get(i).getId(), Status.CREATED,
+                                    anomalies[i].isEmpty() ? null : anomalies[i].describe());
+                }
+            } catch (DataAccessException e) {
+                for (int i : chunk) {
+                    results[i] = BatchItemResult.failure(i, null, Status.FAILED, e.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+    
+    // Insert already-validated expenses in the caller's transaction and notify listeners, for writers that commit
+    // other rows atomically with the expenses
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void insertExpenses(List<Expense> expenses) {
+        expenseRepository.insertAll(expenses);
+        expenses.forEach(expense -> changeListeners.forEach(listener -> listener.onCreated(expense)));
+    }
+    
+    // Update many existing expenses; Hibernate groups the UPDATE statements into JDBC batches
+    public List<BatchItemResult> updateExpenses(List<Expense> expenses) {
+        checkBatchSize(expenses.size());
+        BatchItemResult[] results = new BatchItemResult[expenses.size()];
+        List<Integer> pending = new ArrayList<>();
+        
+        for (int i = 0; i < expenses.size(); i++) {
+            Expense expense = expenses.get(i);
+            String violations = expense.getId() == null ? "id: Id is required" : validate(expense);
+            if (violations != null) {
+                results[i] = BatchItemResult.failure(i, expense.getId(), Status.INVALID, violations);
+            } else {
+                pending.add(i);
+            }
+        }
+        
+        for (List<Integer> chunk : chunks(pending)) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    List<Long> ids = chunk.stream().map(i -> expenses.get(i).getId()).toList();
+                    Map<Long, Expense> existing = expenseRepository.findAllById(ids).stream()
+                            .collect(Collectors.toMap(Expense::getId, Function.identity()));
+                    List<Expense> toSave = new ArrayList<>();
+                    for (int i : chunk) {
+                        Expense details = expenses.get(i);
+                        Expense expense = existing.get(details.getId());
+                        if (expense == null) {
+                            results[i] = BatchItemResult.failure(i, details.getId(), Status.NOT_FOUND,
+                                    "Expense not found with id: " + details.getId());
+                        } else {
+                            Expense before = new Expense(expense);
+                            applyDetails(expense, details);
+                            toSave.add(expense);
+                            changeListeners.forEach(listener -> listener.onUpdated(before, expense));
+                            results[i] = BatchItemResult.success(i, expense.getId(), Status.UPDATED);
+                        }
+                    }
+                    expenseRepository.saveAll(toSave);
+                    expenseRepository.flush();
+                });
+            } catch (DataAccessException e) {
+                for (int i : chunk) {
+                    results[i] = BatchItemResult.failure(i, expenses.get(i).getId(), Status.FAILED,
+                            e.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+    
+    // Delete many expenses by id with one DELETE ... WHERE id IN (...) per chunk
+    public List<BatchItemResult> deleteExpenses(List<Long> ids) {
+        checkBatchSize(ids.size());
+        BatchItemResult[] results = new BatchItemResult[ids.size()];
+        List<Integer> pending = new ArrayList<>();
+        
+        for (int i = 0; i < ids.size(); i++) {
+            if (ids.get(i) == null) {
+                results[i] = BatchItemResult.failure(i, null, Status.INVALID, "id: Id is required");
+            } else {
+                pending.add(i);
+            }
+        }
+        
+        for (List<Integer> chunk : chunks(pending)) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    List<Long> chunkIds = chunk.stream().map(ids::get).toList();
+                    List<Expense> found = expenseRepository.findAllById(chunkIds);
+                    Set<Long> existing = found.stream()
+                            .map(Expense::getId)
+                            .collect(Collectors.toSet());
+                    expenseRepository.deleteAllByIdInBatch(existing);
+                    found.forEach(expense -> changeListeners.forEach(listener -> listener.onDeleted(expense)));
+                    for (int i : chunk) {
+                        Long id = ids.get(i);
+                        results[i] = existing.contains(id)
+                                ? BatchItemResult.success(i, id, Status.DELETED)
+                                : BatchItemResult.failure(i, id, Status.NOT_FOUND, "Expense not found with id: " + id);
+                    }
+                });
+            } catch (DataAccessException e) {
+                for (int i : chunk) {
+                    results[i] = BatchItemResult.failure(i, ids.get(i), Status.FAILED,
+                            e.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+    
     // Get expenses by category
     public List<Expense> getExpensesByCategory(String category) {
-        return expenseRepository.findByCategory(category);
+        return expenseCache.getByCategory(category, () -> expenseRepository.findByCategory(category));
+    }
+    
+    // Get the selected fields of expenses in a category, projected from the cached category list
+    public List<Map<String, Object>> getExpensesByCategory(String category, Set<ExpenseField> fields) {
+        return getExpensesByCategory(category).stream()
+                .map(expense -> ExpenseField.project(expense, fields))
+                .toList();
     }
     
     // Get expenses by date range
+    @Transactional(readOnly = true)
     public List<Expense> getExpensesByDateRange(LocalDate startDate, LocalDate endDate) {
         return expenseRepository.findByDateBetween(startDate, endDate);
     }
     
+    // Get the selected fields of expenses in a date range
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getExpensesByDateRange(LocalDate startDate, LocalDate endDate,
+                                                            Set<ExpenseField> fields) {
+        return expenseRepository.findFields(fields, null, startDate, endDate);
+    }
+    
     // Get expenses by category and date range
+    @Transactional(readOnly = true)
     public List<Expense> getExpensesByCategoryAndDateRange(String category, LocalDate startDate, LocalDate endDate) {
         return expenseRepository.findByCategoryAndDateBetween(category, startDate, endDate);
     }
     
     // Get expenses greater than amount
+    @Transactional(readOnly = true)
     public List<Expense> getExpensesGreaterThanAmount(BigDecimal amount) {
         return expenseRepository.findByAmountGreaterThan(amount);
     }
     
     // Search expenses by keyword in description
+    @Transactional(readOnly = true)
     public List<Expense> searchExpensesByDescription(String keyword) {
         return expenseRepository.findByDescriptionContainingIgnoreCase(keyword);
     }
     
-    // Get total amount by category
+    // Ranked search over description and notes using the in-memory index; falls back to a LIKE scan
+    // on description until the index has finished its startup rebuild
+    @Transactional(readOnly = true)
+    public List<Expense> searchExpenses(String query, ExpenseSearchIndex.Mode mode, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (!searchIndex.isReady()) {
+            List<Expense> expenses = searchExpensesByDescription(query);
+            return expenses.subList(0, Math.min(limit, expenses.size()));
+        }
+        
+        List<ExpenseSearchIndex.SearchHit> hits = searchIndex.search(query, mode, limit);
+        Map<Long, Expense> expenses = expenseRepository.findAllById(
+                        hits.stream().map(ExpenseSearchIndex.SearchHit::id).toList())
+                .stream()
+                .collect(Collectors.toMap(Expense::getId, Function.identity()));
+        return hits.stream()
+                .map(hit -> expenses.get(hit.id()))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+    
+    // Any combination of filters in one query; the planner picks the access path and every filter runs in SQL.
+    // Throws IllegalArgumentException for an invalid query.
+    @Transactional(readOnly = true)
+    public QueryResult queryExpenses(ExpenseQuery query) {
+        query.validate(MAX_PAGE_SIZE);
+        ExpenseQueryPlanner.Plan plan = queryPlanner.plan(query);
+        List<Expense> expenses = expenseRepository.findMatching(query, plan.keywordTerms(), plan.indexHint());
+        return new QueryResult(expenses, plan);
+    }
+    
+    // Get total amount by category, read from the daily rollup
     public List<Object[]> getTotalAmountByCategory() {
-        return expenseRepository.findTotalAmountByCategory();
+        if (columnStore != null && columnStore.isReady()) {
+            return columnStore.totalsByCategory();
+        }
+        return expenseCache.getCategoryTotals(dailyTotalRepository::findTotalAmountByCategory);
     }
     
-    // Get total amount in date range
+    // Get total amount in date range, read from the daily rollup
     public BigDecimal getTotalAmountByDateRange(LocalDate startDate, LocalDate endDate) {
-        BigDecimal total = expenseRepository.findTotalAmountByDateRange(startDate, endDate);
-        return total != null ? total : BigDecimal.ZERO;
+        if (columnStore != null && columnStore.isReady()) {
+            return columnStore.totalByDateRange(startDate, endDate);
+        }
+        return expenseCache.getDateRangeTotal(startDate, endDate, () -> {
+            BigDecimal total = dailyTotalRepository.findTotalAmountByDateRange(startDate, endDate);
+            return total != null ? total : BigDecimal.ZERO;
+        });
+    }
+    
+    private void applyDetails(Expense expense, Expense expenseDetails) {
+        expense.setDescription(expenseDetails.getDescription());
+        expense.setAmount(expenseDetails.getAmount());
+        expense.setCategory(expenseDetails.getCategory());
+        expense.setDate(expenseDetails.getDate());
+        expense.setNotes(expenseDetails.getNotes());
+    }
+    
+    private void checkBatchSize(int size) {
+        if (size > batchMaxItems) {
+            throw new IllegalArgumentException("Batch cannot exceed " + batchMaxItems + " items");
+        }
+    }
+    
+    // Bean Validation messages for an expense, or null if it is valid
+    private String validate(Expense expense) {
+        if (expense == null) {
+            return "Expense is required";
+        }
+        Set<ConstraintViolation<Expense>> violations = validator.validate(expense);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+    
+    private <T> List<List<T>> chunks(List<T> items) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += batchChunkSize) {
+            chunks.add(items.subList(from, Math.min(from + batchChunkSize, items.size())));
+        }
+        return chunks;
     }
 }
\ No newline at end of file
@@ -0,0 +1,184 @@
+package com.finomo.service;
+
+import com.finomo.config.TenantContext;
+import com.finomo.dto.RecurringOccurrence;
+import com.finomo.entity.Expense;
+import com.finomo.entity.RecurringExpense;
+import com.finomo.repository.RecurringExpenseRepository;
+import com.finomo.service.recurring.RecurrenceSchedule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+// Recurring expense definitions and their materialization into expenses. Each rule keeps the date of its next
+// occurrence, indexed, so a pass reads only the due rules in due order however many rules exist. A pass takes
+// batches of due rules (locked, skipping rules another instance holds) and in one transaction per batch inserts
+// their occurrences' expenses with a JDBC batch, records each (rule, date) and advances the rules. A batch commits
+// completely or not at all, and the occurrence table's primary key rejects a date materialized twice.
+@Service
+public class RecurringExpenseService {
+
+    private static final Logger log = LoggerFactory.getLogger(RecurringExpenseService.class);
+
+    // A rule that fell behind (downtime, or a start date in the past) catches up this many dates per batch, so one
+    // daily rule with years of backlog cannot blow up a transaction; it stays due and the next batch continues.
+    private static final int MAX_OCCURRENCES_PER_RULE = 31;
+
+    @Autowired
+    private RecurringExpenseRepository recurringExpenseRepository;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Rules per materialization transaction
+    @Value("${finomo.recurring.batch-size:200}")
+    private int batchSize;
+
+    // Get the current tenant's recurring expenses
+    @Transactional(readOnly = true)
+    public List<RecurringExpense> getAllRecurringExpenses() {
+        return recurringExpenseRepository.findAll();
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<RecurringExpense> getRecurringExpenseById(Long id) {
+        return recurringExpenseRepository.findById(id);
+    }
+
+    // Occurrences materialized so far for one of the current tenant's recurring expenses
+    @Transactional(readOnly = true)
+    public List<RecurringOccurrence> getOccurrences(Long id) {
+        RecurringExpense recurringExpense = recurringExpenseRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Recurring expense not found with id: " + id));
+        return recurringExpenseRepository.findOccurrences(recurringExpense.getId());
+    }
+
+    // Throws IllegalArgumentException for an invalid schedule or date range
+    @Transactional
+    public RecurringExpense createRecurringExpense(RecurringExpense recurringExpense) {
+        recurringExpense.setLastOccurrence(null);
+        schedule(recurringExpense);
+        return recurringExpenseRepository.save(recurringExpense);
+    }
+
+    // Dates already materialized are never created again: the schedule resumes after the last occurrence
+    @Transactional
+    public RecurringExpense updateRecurringExpense(Long id, RecurringExpense details) {
+        RecurringExpense recurringExpense = recurringExpenseRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Recurring expense not found with id: " + id));
+        recurringExpense.setDescription(details.getDescription());
+        recurringExpense.setAmount(details.getAmount());
+        recurringExpense.setCategory(details.getCategory());
+        recurringExpense.setNotes(details.getNotes());
+        recurringExpense.setSchedule(details.getSchedule());
+        recurringExpense.setStartDate(details.getStartDate());
+        recurringExpense.setEndDate(details.getEndDate());
+        schedule(recurringExpense);
+        return recurringExpenseRepository.saveAndFlush(recurringExpense);
+    }
+
+    // Expenses already created stay; only future occurrences stop
+    @Transactional
+    public void deleteRecurringExpense(Long id) {
+        RecurringExpense recurringExpense = recurringExpenseRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Recurring expense not found with id: " + id));
+        recurringExpenseRepository.delete(recurringExpense);
+    }
+
+    // Set the next occurrence from the schedule: the first date after the last materialized one
+    private static void schedule(RecurringExpense recurringExpense) {
+        LocalDate start = recurringExpense.getStartDate();
+        LocalDate end = recurringExpense.getEndDate();
+        if (start != null && end != null && end.isBefore(start)) {
+            throw new IllegalArgumentException("End date must not be before the start date");
+        }
+        RecurrenceSchedule schedule = RecurrenceSchedule.parse(recurringExpense.getSchedule());
+        LocalDate after = recurringExpense.getLastOccurrence() != null
+                ? recurringExpense.getLastOccurrence()
+                : start.minusDays(1);
+        recurringExpense.setNextOccurrence(within(schedule.next(start, after), end));
+    }
+
+    private static LocalDate within(LocalDate date, LocalDate end) {
+        return date == null || (end != null && date.isAfter(end)) ? null : date;
+    }
+
+    // Materialize every occurrence due on or before the given date, for all tenants. Returns the number of
+    // expenses created. A batch that fails (for example because another instance materialized the same dates) is
+    // rolled back and the pass stops; its rules stay due for the next pass.
+    public int materializeDue(LocalDate today) {
+        int created = 0;
+        try (TenantContext.TenantScope scope = TenantContext.root()) {
+            while (true) {
+                Batch batch = transactionTemplate.execute(status -> materializeBatch(today));
+                if (batch.rules() == 0) {
+                    break;
+                }
+                created += batch.expenses();
+            }
+        } catch (DataAccessException e) {
+            log.warn("Materializing recurring expenses failed; due rules are retried on the next pass", e);
+        }
+        if (created > 0) {
+            log.info("Materialized {} recurring expenses due by {}", created, today);
+        }
+        return created;
+    }
+
+    private Batch materializeBatch(LocalDate today) {
+        List<RecurringExpense> due = recurringExpenseRepository.findDueForUpdate(today, Limit.of(batchSize));
+        List<Expense> expenses = new ArrayList<>();
+        List<RecurringExpense> owners = new ArrayList<>();
+
+        for (RecurringExpense rule : due) {
+            RecurrenceSchedule schedule;
+            try {
+                schedule = RecurrenceSchedule.parse(rule.getSchedule());
+            } catch (IllegalArgumentException e) {
+                // Schedules are validated on write, so this is a row edited behind the API; park it
+                log.warn("Recurring expense {} has an invalid schedule and is no longer materialized", rule.getId(), e);
+                rule.setNextOccurrence(null);
+                continue;
+            }
+            LocalDate date = rule.getNextOccurrence();
+            for (int i = 0; i < MAX_OCCURRENCES_PER_RULE && date != null && !date.isAfter(today); i++) {
+                Expense expense = new Expense(rule.getDescription(), rule.getAmount(), rule.getCategory(), date,
+                        rule.getNotes());
+                expense.setTenantId(rule.getTenantId());
+                expenses.add(expense);
+                owners.add(rule);
+                rule.setLastOccurrence(date);
+                date = within(schedule.next(rule.getStartDate(), date), rule.getEndDate());
+            }
+            rule.setNextOccurrence(date);
+        }
+
+        expenseService.insertExpenses(expenses);
+        List<RecurringOccurrence> occurrences = new ArrayList<>(expenses.size());
+        for (int i = 0; i < expenses.size(); i++) {
+            Expense expense = expenses.get(i);
+            occurrences.add(new RecurringOccurrence(owners.get(i).getId(), expense.getDate(), expense.getTenantId(),
+                    expense.getId()));
+        }
+        recurringExpenseRepository.insertOccurrences(occurrences);
+        // The rules' new next/last occurrences are flushed as batched updates on commit
+        return new Batch(due.size(), expenses.size());
+    }
+
+    private record Batch(int rules, int expenses) {
+    }
+}
@@ -0,0 +1,342 @@
+package com.finomo.service.analytics;
+
+import com.finomo.config.TenantContext;
+import com.finomo.entity.Expense;
+import com.finomo.repository.ExpenseRepository;
+import com.finomo.service.ExpenseChangeFollower;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory copy of the expenses table in primitive columns for analytics scans.
+// Amounts are held as long cents, dates as int epoch days and categories as dictionary codes, so filters and
+// aggregates run over plain arrays without allocating per row. Like the search index, the store is loaded
+// from the table at startup and then follows the change log through ExpenseChangeCounter, whose analytics ETags
+// only move past a change once the store has applied it, so a tag never labels older columns. Each tenant has
+// its own columns, so a scan only reads the caller's rows.
+// Enabled with finomo.analytics.store=columnar.
+@Component
+@ConditionalOnProperty(name = "finomo.analytics.store", havingValue = "columnar")
+public class ExpenseColumnStore implements ExpenseChangeFollower {
+    
+    private static final Logger log = LoggerFactory.getLogger(ExpenseColumnStore.class);
+    
+    private static final Columns EMPTY = new Columns(0);
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private TaskExecutor taskExecutor;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private Map<String, Columns> columnsByTenant = new HashMap<>();
+    
+    private volatile boolean ready;
+    
+    // Changes committed while a rebuild is streaming the table; replayed on top of the snapshot
+    private List<Runnable> pendingChanges;
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rowCount(columnsByTenant);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // (category, total) rows for every category with at least one expense
+    public List<Object[]> totalsByCategory() {
+        lock.readLock().lock();
+        try {
+            Columns c = tenantColumns();
+            long[] totals = new long[c.categoryNames.size()];
+            int[] counts = new int[totals.length];
+            for (int row = 0; row < c.size; row++) {
+                totals[c.categories[row]] += c.cents[row];
+                counts[c.categories[row]]++;
+            }
+            List<Object[]> results = new ArrayList<>();
+            for (int code = 0; code < totals.length; code++) {
+                if (counts[code] > 0) {
+                    results.add(new Object[] {c.categoryNames.get(code), BigDecimal.valueOf(totals[code], 2)});
+                }
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Sum of amounts dated within [startDate, endDate]
+    public BigDecimal totalByDateRange(LocalDate startDate, LocalDate endDate) {
+        int firstDay = (int) startDate.toEpochDay();
+        int lastDay = (int) endDate.toEpochDay();
+        lock.readLock().lock();
+        try {
+            Columns c = tenantColumns();
+            long total = 0;
+            for (int row = 0; row < c.size; row++) {
+                int day = c.days[row];
+                if (day >= firstDay && day <= lastDay) {
+                    total += c.cents[row];
+                }
+            }
+            return BigDecimal.valueOf(total, 2);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Feed every expense in the aggregator's range, optionally restricted to one category, into the aggregator
+    public void scan(String category, TimeSeriesAggregator aggregator) {
+        int firstDay = aggregator.firstDay();
+        int lastDay = aggregator.lastDay();
+        lock.readLock().lock();
+        try {
+            Columns c = tenantColumns();
+            if (category == null) {
+                for (int row = 0; row < c.size; row++) {
+                    int day = c.days[row];
+                    if (day >= firstDay && day <= lastDay) {
+                        aggregator.add(day, c.cents[row]);
+                    }
+                }
+                return;
+            }
+            Integer code = c.categoryCodes.get(category);
+            if (code == null) {
+                return;
+            }
+            int wanted = code;
+            for (int row = 0; row < c.size; row++) {
+                int day = c.days[row];
+                if (c.categories[row] == wanted && day >= firstDay && day <= lastDay) {
+                    aggregator.add(day, c.cents[row]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public void apply(Expense before, Expense after) {
+        if (after == null) {
+            remove(before.getTenantId(), before.getId());
+        } else {
+            upsert(after);
+        }
+    }
+    
+    // Reloads every tenant; only needed once this instance fell behind the change log's retention
+    @Override
+    public void reload(String tenant) {
+        rebuildInBackground();
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        taskExecutor.execute(this::rebuild);
+    }
+    
+    // Stream every tenant's expenses into fresh columns, then swap them in and replay changes that raced with the
+    // scan. Rebuilds run one at a time so they do not share the pending changes.
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        
+        Map<String, Columns> fresh = new HashMap<>();
+        try (TenantContext.TenantScope scope = TenantContext.root()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (var rows = expenseRepository.streamAnalyticsColumns()) {
+                    rows.forEach(row -> fresh.computeIfAbsent((String) row[1], tenant -> new Columns(16))
+                            .upsert((Long) row[0], (String) row[2],
+                                    (int) ((LocalDate) row[3]).toEpochDay(), toCents((BigDecimal) row[4])));
+                }
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.error("Failed to rebuild columnar expense store", e);
+            return;
+        }
+        
+        lock.writeLock().lock();
+        try {
+            columnsByTenant = fresh;
+            List<Runnable> changes = pendingChanges;
+            pendingChanges = null;
+            changes.forEach(Runnable::run);
+            ready = true;
+            log.info("Loaded columnar expense store with {} rows for {} tenants", rowCount(fresh), fresh.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    void upsert(Expense expense) {
+        upsertAction(expense).run();
+    }
+    
+    void remove(String tenant, long id) {
+        Runnable change = () -> {
+            Columns columns = columnsByTenant.get(tenant);
+            if (columns != null) {
+                columns.remove(id);
+                if (columns.size == 0) {
+                    columnsByTenant.remove(tenant);
+                }
+            }
+        };
+        lock.writeLock().lock();
+        try {
+            change.run();
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Capture the primitive values now; the entity may change after the listener returns
+    private Runnable upsertAction(Expense expense) {
+        String tenant = expense.getTenantId() != null ? expense.getTenantId() : TenantContext.current();
+        long id = expense.getId();
+        String category = expense.getCategory();
+        int day = (int) expense.getDate().toEpochDay();
+        long cents = toCents(expense.getAmount());
+        Runnable change = () -> columnsByTenant.computeIfAbsent(tenant, key -> new Columns(16))
+                .upsert(id, category, day, cents);
+        return () -> {
+            lock.writeLock().lock();
+            try {
+                change.run();
+                if (pendingChanges != null) {
+                    pendingChanges.add(change);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+    }
+    
+    // The current tenant's columns; caller holds the read lock
+    private Columns tenantColumns() {
+        return columnsByTenant.getOrDefault(TenantContext.current(), EMPTY);
+    }
+    
+    private static int rowCount(Map<String, Columns> columnsByTenant) {
+        return columnsByTenant.values().stream().mapToInt(columns -> columns.size).sum();
+    }
+    
+    private static long toCents(BigDecimal amount) {
+        return amount == null ? 0 : amount.movePointRight(2).longValue();
+    }
+    
+    // Parallel primitive columns with an id -> row index; deletes move the last row into the hole.
+    // Not thread-safe, guarded by the enclosing lock.
+    private static final class Columns {
+        
+        private long[] ids;
+        private long[] cents;
+        private int[] days;
+        private int[] categories;
+        private int size;
+        private final LongIntHashMap rowsById;
+        private final Map<String, Integer> categoryCodes = new HashMap<>();
+        private final List<String> categoryNames = new ArrayList<>();
+        
+        Columns(int capacity) {
+            ids = new long[capacity];
+            cents = new long[capacity];
+            days = new int[capacity];
+            categories = new int[capacity];
+            rowsById = new LongIntHashMap(capacity);
+        }
+        
+        void upsert(long id, String category, int day, long amountCents) {
+            int row = rowsById.get(id);
+            if (row < 0) {
+                if (size == ids.length) {
+                    grow();
+                }
+                row = size++;
+                ids[row] = id;
+                rowsById.put(id, row);
+            }
+            cents[row] = amountCents;
+            days[row] = day;
+            categories[row] = code(category);
+        }
+        
+        void remove(long id) {
+            int row = rowsById.remove(id);
+            if (row < 0) {
+                return;
+            }
+            int last = --size;
+            if (row != last) {
+                ids[row] = ids[last];
+                cents[row] = cents[last];
+                days[row] = days[last];
+                categories[row] = categories[last];
+                rowsById.put(ids[row], row);
+            }
+        }
+        
+        private int code(String category) {
+            Integer code = categoryCodes.get(category);
+            if (code == null) {
+                code = categoryNames.size();
+                categoryCodes.put(category, code);
+                categoryNames.add(category);
+            }
+            return code;
+        }
+        
+        private void grow() {
+            int capacity = ids.length + (ids.length >> 1) + 1;
+            ids = Arrays.copyOf(ids, capacity);
+            cents = Arrays.copyOf(cents, capacity);
+            days = Arrays.copyOf(days, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+        }
+    }
+}
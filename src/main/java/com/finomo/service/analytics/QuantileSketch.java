@@ -0,0 +1,69 @@
+package com.finomo.service.analytics;
+
+import java.util.Arrays;
+
+// Approximate quantiles of positive values using logarithmic buckets (DDSketch-style).
+// Every reported quantile is within relativeAccuracy of a true sample value; memory grows with the
+// log of the value range, not with the number of values.
+public class QuantileSketch {
+    
+    private final double gamma;
+    private final double logGamma;
+    private long[] counts = new long[64];
+    private int offset;
+    private boolean empty = true;
+    private long count;
+    
+    public QuantileSketch(double relativeAccuracy) {
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+    }
+    
+    public void add(double value) {
+        add(value, 1);
+    }
+    
+    public void add(double value, long times) {
+        int index = (int) Math.ceil(Math.log(Math.max(value, Double.MIN_NORMAL)) / logGamma);
+        ensureCapacity(index);
+        counts[index - offset] += times;
+        count += times;
+    }
+    
+    public long count() {
+        return count;
+    }
+    
+    // Value at quantile q in [0, 1], or NaN when the sketch is empty
+    public double quantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // Midpoint of bucket (gamma^(k-1), gamma^k] in the log sense
+                return 2 * Math.pow(gamma, i + offset) / (gamma + 1);
+            }
+        }
+        return Math.pow(gamma, counts.length - 1 + offset);
+    }
+    
+    private void ensureCapacity(int index) {
+        if (empty) {
+            offset = index - counts.length / 2;
+            empty = false;
+        }
+        if (index < offset) {
+            int shift = offset - index + counts.length / 2;
+            long[] grown = new long[counts.length + shift];
+            System.arraycopy(counts, 0, grown, shift, counts.length);
+            counts = grown;
+            offset -= shift;
+        } else if (index - offset >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(counts.length * 2, index - offset + 1));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.finomo.service.analytics;
+
+import com.finomo.dto.TimeSeriesPoint;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Single-pass, column-oriented aggregation of expenses into time buckets.
+// Rows are fed as primitive columns (epoch day, amount in cents); the day-to-bucket mapping is precomputed
+// for the requested range, so the per-row work is an array lookup and a few additions, with no allocation
+// beyond the per-bucket quantile sketches.
+public class TimeSeriesAggregator {
+    
+    public static final int MAX_RANGE_DAYS = 20 * 366;
+    
+    private static final double SKETCH_ACCURACY = 0.01;
+    
+    private final TimeBucket bucket;
+    private final int firstDay;
+    private final int lastDay;
+    private final int[] dayToBucket;
+    private final LocalDate[] bucketStarts;
+    private final long[] sums;
+    private final long[] counts;
+    private final QuantileSketch[] sketches;
+    
+    public TimeSeriesAggregator(TimeBucket bucket, LocalDate startDate, LocalDate endDate, boolean percentiles) {
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("endDate must not be before startDate");
+        }
+        if (endDate.toEpochDay() - startDate.toEpochDay() >= MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("Date range cannot exceed " + MAX_RANGE_DAYS + " days");
+        }
+        this.bucket = bucket;
+        this.firstDay = (int) startDate.toEpochDay();
+        this.lastDay = (int) endDate.toEpochDay();
+        this.dayToBucket = new int[lastDay - firstDay + 1];
+        
+        List<LocalDate> starts = new ArrayList<>();
+        LocalDate bucketStart = bucket.start(startDate);
+        LocalDate nextStart = bucket.next(bucketStart);
+        starts.add(bucketStart);
+        for (int day = firstDay; day <= lastDay; day++) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            if (!date.isBefore(nextStart)) {
+                bucketStart = nextStart;
+                nextStart = bucket.next(bucketStart);
+                starts.add(bucketStart);
+            }
+            dayToBucket[day - firstDay] = starts.size() - 1;
+        }
+        
+        this.bucketStarts = starts.toArray(LocalDate[]::new);
+        this.sums = new long[bucketStarts.length];
+        this.counts = new long[bucketStarts.length];
+        this.sketches = percentiles ? new QuantileSketch[bucketStarts.length] : null;
+        if (percentiles) {
+            for (int i = 0; i < sketches.length; i++) {
+                sketches[i] = new QuantileSketch(SKETCH_ACCURACY);
+            }
+        }
+    }
+    
+    public int firstDay() {
+        return firstDay;
+    }
+    
+    public int lastDay() {
+        return lastDay;
+    }
+    
+    // Add one expense; rows outside the range are ignored
+    public void add(int epochDay, long amountCents) {
+        if (epochDay < firstDay || epochDay > lastDay) {
+            return;
+        }
+        int index = dayToBucket[epochDay - firstDay];
+        sums[index] += amountCents;
+        counts[index]++;
+        if (sketches != null) {
+            sketches[index].add(amountCents);
+        }
+    }
+    
+    // Add a pre-aggregated (day, total, count) row, e.g. from the daily rollup; percentiles are not available
+    public void addTotal(int epochDay, long totalCents, long count) {
+        if (epochDay < firstDay || epochDay > lastDay) {
+            return;
+        }
+        int index = dayToBucket[epochDay - firstDay];
+        sums[index] += totalCents;
+        counts[index] += count;
+    }
+    
+    // Add a batch of rows held in parallel columns
+    public void addColumns(int[] epochDays, long[] amountCents, int rows) {
+        for (int i = 0; i < rows; i++) {
+            add(epochDays[i], amountCents[i]);
+        }
+    }
+    
+    // One point per bucket; movingAverage is the mean bucket total over the trailing window (in buckets)
+    public List<TimeSeriesPoint> result(int window) {
+        List<TimeSeriesPoint> points = new ArrayList<>(bucketStarts.length);
+        long windowSum = 0;
+        for (int i = 0; i < bucketStarts.length; i++) {
+            windowSum += sums[i];
+            if (i >= window) {
+                windowSum -= sums[i - window];
+            }
+            int windowSize = Math.min(i + 1, window);
+            BigDecimal movingAverage = BigDecimal.valueOf(Math.round((double) windowSum / windowSize), 2);
+            points.add(new TimeSeriesPoint(bucketStarts[i], BigDecimal.valueOf(sums[i], 2), counts[i], movingAverage,
+                    percentile(i, 0.50), percentile(i, 0.90), percentile(i, 0.99)));
+        }
+        return points;
+    }
+    
+    private BigDecimal percentile(int index, double q) {
+        if (sketches == null || sketches[index].count() == 0) {
+            return null;
+        }
+        return BigDecimal.valueOf(Math.round(sketches[index].quantile(q)), 2);
+    }
+}
@@ -0,0 +1,82 @@
+package com.finomo.service.imports;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Reads UTF-8 lines from a stream while tracking the absolute byte offset of the next unread byte.
+// Lines longer than maxLineBytes are truncated rather than buffered, so memory stays bounded.
+public class CountingLineReader {
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private final InputStream in;
+    private final int maxLineBytes;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferPosition;
+    private int bufferLimit;
+    private byte[] line = new byte[256];
+    private long position;
+    private long lineNumber;
+    private boolean truncated;
+    
+    public CountingLineReader(InputStream in, long startOffset, int maxLineBytes) {
+        this.in = in;
+        this.position = startOffset;
+        this.maxLineBytes = maxLineBytes;
+    }
+    
+    // Next line without its terminator, or null at end of stream
+    public String readLine() throws IOException {
+        int length = 0;
+        boolean sawAnyByte = false;
+        truncated = false;
+        while (true) {
+            if (bufferPosition == bufferLimit) {
+                bufferLimit = in.read(buffer, 0, buffer.length);
+                bufferPosition = 0;
+                if (bufferLimit <= 0) {
+                    bufferLimit = 0;
+                    if (!sawAnyByte) {
+                        return null;
+                    }
+                    break;
+                }
+            }
+            byte b = buffer[bufferPosition++];
+            position++;
+            sawAnyByte = true;
+            if (b == '\n') {
+                break;
+            }
+            if (length == maxLineBytes) {
+                truncated = true;
+                continue;
+            }
+            if (length == line.length) {
+                line = Arrays.copyOf(line, Math.min(maxLineBytes, line.length * 2));
+            }
+            line[length++] = b;
+        }
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        lineNumber++;
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+    
+    // Absolute offset just past the last line returned
+    public long position() {
+        return position;
+    }
+    
+    // 1-based number of the last line returned, counted from the start offset
+    public long lineNumber() {
+        return lineNumber;
+    }
+    
+    public boolean wasTruncated() {
+        return truncated;
+    }
+}
@@ -0,0 +1,103 @@
+package com.finomo.service.imports;
+
+import com.finomo.entity.Expense;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Parses CSV rows in the column order description,amount,category,date[,notes[,id]]; a trailing id column,
+// as written by the CSV export, is ignored.
+// A header row starting with "description" is skipped when the import starts at offset 0.
+// Quoted fields (with "" escapes) are supported; fields cannot span lines.
+public class CsvExpenseParser implements ExpenseImportParser {
+    
+    private final CountingLineReader reader;
+    private final String defaultCategory;
+    private boolean firstLine;
+    
+    public CsvExpenseParser(CountingLineReader reader, long startOffset, String defaultCategory) {
+        this.reader = reader;
+        this.defaultCategory = defaultCategory;
+        this.firstLine = startOffset == 0;
+    }
+    
+    @Override
+    public ParsedRow next() throws IOException {
+        while (true) {
+            String line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            long lineNumber = reader.lineNumber();
+            long endOffset = reader.position();
+            boolean header = firstLine && line.toLowerCase(Locale.ROOT).startsWith("description");
+            firstLine = false;
+            if (header || line.isBlank()) {
+                continue;
+            }
+            if (reader.wasTruncated()) {
+                return ParsedRow.error(lineNumber, endOffset, "Line is too long");
+            }
+            return parse(line, lineNumber, endOffset);
+        }
+    }
+    
+    private ParsedRow parse(String line, long lineNumber, long endOffset) {
+        List<String> fields = split(line);
+        if (fields == null) {
+            return ParsedRow.error(lineNumber, endOffset, "Unterminated quoted field");
+        }
+        if (fields.size() < 4 || fields.size() > 6) {
+            return ParsedRow.error(lineNumber, endOffset,
+                    "Expected 4 to 6 columns (description,amount,category,date[,notes[,id]]) but found " + fields.size());
+        }
+        try {
+            String category = fields.get(2).isBlank() ? defaultCategory : fields.get(2).trim();
+            String notes = fields.size() >= 5 && !fields.get(4).isBlank() ? fields.get(4) : null;
+            Expense expense = new Expense(fields.get(0).trim(), new BigDecimal(fields.get(1).trim()), category,
+                    LocalDate.parse(fields.get(3).trim()), notes);
+            return ParsedRow.of(lineNumber, endOffset, expense);
+        } catch (NumberFormatException e) {
+            return ParsedRow.error(lineNumber, endOffset, "Invalid amount: " + fields.get(1));
+        } catch (DateTimeParseException e) {
+            return ParsedRow.error(lineNumber, endOffset, "Invalid date (expected yyyy-MM-dd): " + fields.get(3));
+        }
+    }
+    
+    // Split one CSV line into fields, or null if a quote is left open
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
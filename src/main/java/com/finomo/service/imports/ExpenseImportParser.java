@@ -0,0 +1,9 @@
+package com.finomo.service.imports;
+
+import java.io.IOException;
+
+// Pull parser over an import stream; returns null once the stream is exhausted
+public interface ExpenseImportParser {
+    
+    ParsedRow next() throws IOException;
+}
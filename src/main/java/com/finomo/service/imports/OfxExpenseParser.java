@@ -0,0 +1,79 @@
+package com.finomo.service.imports;
+
+import com.finomo.entity.Expense;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Streams <STMTTRN> transactions out of an OFX 1.x (SGML) or 2.x (XML) bank statement.
+// Each transaction becomes an expense: NAME is the description, MEMO the notes, |TRNAMT| the amount
+// and DTPOSTED the date. Resumed imports must start at a transaction boundary.
+public class OfxExpenseParser implements ExpenseImportParser {
+    
+    private static final DateTimeFormatter OFX_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final int MAX_FIELD_LENGTH = 500;
+    
+    private final CountingLineReader reader;
+    private final String defaultCategory;
+    
+    public OfxExpenseParser(CountingLineReader reader, String defaultCategory) {
+        this.reader = reader;
+        this.defaultCategory = defaultCategory;
+    }
+    
+    @Override
+    public ParsedRow next() throws IOException {
+        Map<String, String> fields = null;
+        long startLine = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            // Tags may share a line (XML, single-line exports) or sit one per line (SGML)
+            for (String segment : line.split("<")) {
+                if (segment.isBlank()) {
+                    continue;
+                }
+                int close = segment.indexOf('>');
+                if (close < 0) {
+                    continue;
+                }
+                String tag = segment.substring(0, close).trim().toUpperCase(Locale.ROOT);
+                String value = segment.substring(close + 1).trim();
+                if (tag.equals("STMTTRN")) {
+                    fields = new HashMap<>();
+                    startLine = reader.lineNumber();
+                } else if (tag.equals("/STMTTRN") && fields != null) {
+                    return toRow(fields, startLine, reader.position());
+                } else if (fields != null && !tag.startsWith("/") && !value.isEmpty()) {
+                    fields.put(tag, value.length() > MAX_FIELD_LENGTH ? value.substring(0, MAX_FIELD_LENGTH) : value);
+                }
+            }
+        }
+        return null;
+    }
+    
+    private ParsedRow toRow(Map<String, String> fields, long lineNumber, long endOffset) {
+        String amount = fields.get("TRNAMT");
+        String posted = fields.get("DTPOSTED");
+        if (amount == null || posted == null) {
+            return ParsedRow.error(lineNumber, endOffset, "Transaction is missing TRNAMT or DTPOSTED");
+        }
+        try {
+            String description = fields.getOrDefault("NAME", fields.getOrDefault("MEMO", fields.get("FITID")));
+            String notes = fields.containsKey("NAME") ? fields.get("MEMO") : null;
+            // DTPOSTED is yyyyMMdd[HHmmss[.XXX]][[tz]]
+            LocalDate date = LocalDate.parse(posted.substring(0, Math.min(8, posted.length())), OFX_DATE);
+            Expense expense = new Expense(description, new BigDecimal(amount).abs(), defaultCategory, date, notes);
+            return ParsedRow.of(lineNumber, endOffset, expense);
+        } catch (NumberFormatException e) {
+            return ParsedRow.error(lineNumber, endOffset, "Invalid TRNAMT: " + amount);
+        } catch (DateTimeParseException e) {
+            return ParsedRow.error(lineNumber, endOffset, "Invalid DTPOSTED: " + posted);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.finomo.service.imports;
+
+import com.finomo.entity.Expense;
+
+// One record read from an import: either an expense or the reason it could not be parsed.
+// endOffset is the byte offset just past the record, i.e. where a resumed import would continue.
+public record ParsedRow(long lineNumber, long endOffset, Expense expense, String error) {
+    
+    public static ParsedRow of(long lineNumber, long endOffset, Expense expense) {
+        return new ParsedRow(lineNumber, endOffset, expense, null);
+    }
+    
+    public static ParsedRow error(long lineNumber, long endOffset, String error) {
+        return new ParsedRow(lineNumber, endOffset, null, error);
+    }
+}
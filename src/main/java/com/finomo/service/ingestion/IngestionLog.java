@@ -0,0 +1,170 @@
+package com.finomo.service.ingestion;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Durable append-only log of opaque records in fixed-size memory-mapped segment files.
+// Each record is [int length][int crc32c][long sequence][payload]; the length is written last, so a record
+// torn by a crash reads back as the end of its segment. Segments are deleted once every record in them has been
+// released by the consumer. Thread-safe.
+public class IngestionLog implements Closeable {
+    
+    private static final int HEADER_SIZE = 16;
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+    
+    public record Entry(long sequence, byte[] payload) {
+    }
+    
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final Deque<Segment> sealed = new ArrayDeque<>();
+    private Segment active;
+    private long nextSequence = 1;
+    
+    // Open the log in a directory, passing every intact record left by a previous run to recovered in order.
+    // Appends always go to a fresh segment; recovered segments are deleted once released.
+    public IngestionLog(Path directory, int segmentSize, boolean fsync, Consumer<Entry> recovered) throws IOException {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size must exceed " + HEADER_SIZE + " bytes");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().startsWith(PREFIX)
+                                           && path.getFileName().toString().endsWith(SUFFIX))
+                           .sorted()
+                           .toList();
+        }
+        for (Path file : files) {
+            long last = recover(file, recovered);
+            if (last < 0) {
+                Files.delete(file);
+            } else {
+                sealed.add(new Segment(file, last));
+                nextSequence = Math.max(nextSequence, last + 1);
+            }
+        }
+        active = openSegment();
+    }
+    
+    public synchronized long append(byte[] payload) throws IOException {
+        int size = HEADER_SIZE + payload.length;
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes exceeds the segment size");
+        }
+        if (active.position + size > segmentSize) {
+            roll();
+        }
+        long sequence = nextSequence++;
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        
+        MappedByteBuffer buffer = active.buffer;
+        int position = active.position;
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.putLong(position + 8, sequence);
+        buffer.put(position + HEADER_SIZE, payload);
+        buffer.putInt(position, payload.length);
+        if (fsync) {
+            buffer.force(position, size);
+        }
+        active.position += size;
+        active.lastSequence = sequence;
+        return sequence;
+    }
+    
+    // Delete sealed segments whose records all have sequences up to and including sequence
+    public synchronized void release(long sequence) throws IOException {
+        while (!sealed.isEmpty() && sealed.peekFirst().lastSequence <= sequence) {
+            Files.deleteIfExists(sealed.pollFirst().file);
+        }
+    }
+    
+    public synchronized int segmentCount() {
+        return sealed.size() + 1;
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (active != null) {
+            active.buffer.force();
+            active.channel.close();
+            if (active.lastSequence < 0) {
+                Files.deleteIfExists(active.file);
+            }
+            active = null;
+        }
+    }
+    
+    private void roll() throws IOException {
+        active.buffer.force();
+        active.channel.close();
+        sealed.add(new Segment(active.file, active.lastSequence));
+        active = openSegment();
+    }
+    
+    private Segment openSegment() throws IOException {
+        Path file = directory.resolve(String.format("%s%020d%s", PREFIX, nextSequence, SUFFIX));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(file, -1);
+        segment.channel = channel;
+        segment.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        return segment;
+    }
+    
+    // Replay the intact prefix of a segment file; returns the last sequence read, or -1 if there was none
+    private static long recover(Path file, Consumer<Entry> recovered) throws IOException {
+        long last = -1;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int position = 0;
+            while (position + HEADER_SIZE <= buffer.limit()) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || position + HEADER_SIZE + length > buffer.limit()) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                buffer.get(position + HEADER_SIZE, payload);
+                CRC32C crc = new CRC32C();
+                crc.update(payload);
+                if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                    break;
+                }
+                last = buffer.getLong(position + 8);
+                recovered.accept(new Entry(last, payload));
+                position += HEADER_SIZE + length;
+            }
+        }
+        return last;
+    }
+    
+    private static final class Segment {
+        private final Path file;
+        private long lastSequence;
+        private FileChannel channel;
+        private MappedByteBuffer buffer;
+        private int position;
+        
+        Segment(Path file, long lastSequence) {
+            this.file = file;
+            this.lastSequence = lastSequence;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.finomo.service.ingestion;
+
+import com.finomo.config.TenantContext;
+import com.finomo.entity.Expense;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// An accepted expense as written to the ingestion log
+public record IngestionRecord(String trackingId, String idempotencyKey, String tenantId, String description,
+                              BigDecimal amount, String category, LocalDate date, String notes) {
+    
+    // Records logged before tenants existed have no tenant and belong to the default one
+    public IngestionRecord {
+        if (tenantId == null) {
+            tenantId = TenantContext.DEFAULT_TENANT;
+        }
+    }
+    
+    public static IngestionRecord of(String trackingId, String idempotencyKey, String tenantId, Expense expense) {
+        return new IngestionRecord(trackingId, idempotencyKey, tenantId, expense.getDescription(), expense.getAmount(),
+                expense.getCategory(), expense.getDate(), expense.getNotes());
+    }
+    
+    public Expense toExpense() {
+        Expense expense = new Expense(description, amount, category, date, notes);
+        expense.setTenantId(tenantId);
+        return expense;
+    }
+}
@@ -0,0 +1,108 @@
+package com.finomo.service.recurring;
+
+import org.springframework.scheduling.support.CronExpression;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+// Dates a recurring expense falls on. Two notations are accepted:
+//   - an RRULE subset, "FREQ=DAILY|WEEKLY|MONTHLY|YEARLY[;INTERVAL=n]" (optionally prefixed "RRULE:"). Occurrences
+//     are the start date plus multiples of the interval, so a rule starting on the 31st falls on the last day of
+//     shorter months and returns to the 31st afterwards.
+//   - a Spring cron expression (six fields, or a macro such as @monthly); only the date it selects matters.
+// next() is computed directly from the start date, so catching up after downtime does not walk every period.
+public final class RecurrenceSchedule {
+
+    private final ChronoUnit unit;
+    private final int interval;
+    private final CronExpression cron;
+
+    private RecurrenceSchedule(ChronoUnit unit, int interval, CronExpression cron) {
+        this.unit = unit;
+        this.interval = interval;
+        this.cron = cron;
+    }
+
+    // Throws IllegalArgumentException for a schedule in neither notation
+    public static RecurrenceSchedule parse(String schedule) {
+        if (schedule == null || schedule.isBlank()) {
+            throw new IllegalArgumentException("Schedule is required");
+        }
+        String trimmed = schedule.trim();
+        String upper = trimmed.toUpperCase(Locale.ROOT);
+        if (upper.startsWith("RRULE:")) {
+            return parseRule(upper.substring("RRULE:".length()));
+        }
+        if (upper.startsWith("FREQ=")) {
+            return parseRule(upper);
+        }
+        try {
+            return new RecurrenceSchedule(null, 0, CronExpression.parse(trimmed));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Schedule must be an RRULE (FREQ=...) or a cron expression: "
+                    + e.getMessage(), e);
+        }
+    }
+
+    private static RecurrenceSchedule parseRule(String rule) {
+        ChronoUnit unit = null;
+        int interval = 1;
+        for (String part : rule.split(";")) {
+            int separator = part.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid RRULE part: " + part);
+            }
+            String name = part.substring(0, separator).trim();
+            String value = part.substring(separator + 1).trim();
+            switch (name) {
+                case "FREQ" -> unit = switch (value) {
+                    case "DAILY" -> ChronoUnit.DAYS;
+                    case "WEEKLY" -> ChronoUnit.WEEKS;
+                    case "MONTHLY" -> ChronoUnit.MONTHS;
+                    case "YEARLY" -> ChronoUnit.YEARS;
+                    default -> throw new IllegalArgumentException("Unsupported FREQ: " + value);
+                };
+                case "INTERVAL" -> {
+                    try {
+                        interval = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("INTERVAL must be a number: " + value);
+                    }
+                    if (interval < 1) {
+                        throw new IllegalArgumentException("INTERVAL must be at least 1");
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unsupported RRULE part " + name
+                        + "; use a cron expression for day-of-week or day-of-month rules");
+            }
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("RRULE needs a FREQ");
+        }
+        return new RecurrenceSchedule(unit, interval, null);
+    }
+
+    // First date on or after start and strictly after the given date, or null if the schedule has none
+    public LocalDate next(LocalDate start, LocalDate after) {
+        if (after.isBefore(start)) {
+            after = start.minusDays(1);
+        }
+        if (cron != null) {
+            LocalDateTime next = cron.next(after.atTime(LocalTime.MAX));
+            return next != null ? next.toLocalDate() : null;
+        }
+        if (after.isBefore(start)) {
+            return start;
+        }
+        long periods = unit.between(start, after) / interval;
+        LocalDate candidate = start.plus(periods * interval, unit);
+        while (!candidate.isAfter(after)) {
+            periods++;
+            candidate = start.plus(periods * interval, unit);
+        }
+        return candidate;
+    }
+}
@@ -0,0 +1,25 @@
+package com.finomo.service.recurring;
+
+import com.finomo.service.RecurringExpenseService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+// Materializes due recurring expenses every finomo.recurring.poll-interval. With nothing due a tick is a single
+// probe of the next-occurrence index. Every instance may run it: due batches are locked with SKIP LOCKED.
+@Component
+@ConditionalOnProperty(name = "finomo.recurring.enabled", havingValue = "true", matchIfMissing = true)
+public class RecurringExpenseScheduler {
+
+    @Autowired
+    private RecurringExpenseService recurringExpenseService;
+
+    @Scheduled(initialDelayString = "${finomo.recurring.initial-delay:30s}",
+               fixedDelayString = "${finomo.recurring.poll-interval:5m}")
+    public void materializeDue() {
+        recurringExpenseService.materializeDue(LocalDate.now());
+    }
+}
@@ -0,0 +1,7 @@
+-- Per-tenant version of the expenses table, bumped in the transaction of every expense write. Analytics ETags are
+-- derived from it, so a write committed by any instance changes the ETag every instance serves.
+CREATE TABLE IF NOT EXISTS expense_versions (
+    tenant_id VARCHAR(64) NOT NULL,
+    version   BIGINT      NOT NULL,
+    PRIMARY KEY (tenant_id)
+);
@@ -0,0 +1,10 @@
+-- Analytics ETags now follow each tenant's change log sequence (expense_change_sequences), which writes already
+-- lock, so the per-write version row is gone. A rollup rebuild changes totals without writing a change; it bumps
+-- the tenant's generation instead, which is part of the ETag as well.
+DROP TABLE IF EXISTS expense_versions;
+
+CREATE TABLE IF NOT EXISTS rollup_generations (
+    tenant_id  VARCHAR(64) NOT NULL,
+    generation BIGINT      NOT NULL,
+    PRIMARY KEY (tenant_id)
+);
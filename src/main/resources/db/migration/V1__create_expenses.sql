@@ -0,0 +1,10 @@
+-- Baseline of the schema previously created by hibernate.ddl-auto=update
+CREATE TABLE IF NOT EXISTS expenses (
+    id          BIGINT         NOT NULL AUTO_INCREMENT,
+    description VARCHAR(255)   NOT NULL,
+    amount      DECIMAL(12, 2) NOT NULL,
+    category    VARCHAR(255)   NOT NULL,
+    date        DATE           NOT NULL,
+    notes       VARCHAR(500),
+    PRIMARY KEY (id)
+);
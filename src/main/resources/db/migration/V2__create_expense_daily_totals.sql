@@ -0,0 +1,10 @@
+-- Daily (category, day) rollup maintained by ExpenseRollupService
+CREATE TABLE IF NOT EXISTS expense_daily_totals (
+    id            BIGINT         NOT NULL AUTO_INCREMENT,
+    category      VARCHAR(255)   NOT NULL,
+    bucket_date   DATE           NOT NULL,
+    total_amount  DECIMAL(14, 2) NOT NULL,
+    expense_count BIGINT         NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_expense_daily_totals_category_day UNIQUE (category, bucket_date)
+);
@@ -0,0 +1,7 @@
+-- Secondary indexes backing the ExpenseRepository finders.
+-- InnoDB appends the primary key to every secondary index, so idx_expenses_date also serves (date, id) keyset pages.
+CREATE INDEX idx_expenses_category_date ON expenses (category, date);
+CREATE INDEX idx_expenses_date ON expenses (date);
+CREATE INDEX idx_expenses_amount ON expenses (amount);
+
+CREATE INDEX idx_expense_daily_totals_date ON expense_daily_totals (bucket_date);
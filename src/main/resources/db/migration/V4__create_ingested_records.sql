@@ -0,0 +1,13 @@
+-- Outcome of every record written by the write-behind ingestion writer, keyed by tracking id.
+-- Replaying the ingestion log skips tracking ids found here; the unique idempotency key rejects client retries.
+CREATE TABLE IF NOT EXISTS ingested_records (
+    tracking_id     VARCHAR(36)  NOT NULL,
+    idempotency_key VARCHAR(255),
+    status          VARCHAR(16)  NOT NULL,
+    expense_id      BIGINT,
+    message         VARCHAR(500),
+    log_sequence    BIGINT       NOT NULL,
+    ingested_at     TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (tracking_id),
+    CONSTRAINT uk_ingested_records_idempotency_key UNIQUE (idempotency_key)
+);
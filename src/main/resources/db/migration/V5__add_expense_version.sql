@@ -0,0 +1,3 @@
+-- Optimistic-locking version for expenses: bumped by every JPA update and exposed to clients as the ETag.
+-- Existing rows start at 0, matching the value Hibernate assigns to new entities.
+ALTER TABLE expenses ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
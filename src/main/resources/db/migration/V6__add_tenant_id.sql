@@ -0,0 +1,27 @@
+-- Tenant (user) dimension. Rows that existed before belong to the default tenant; after the backfill the
+-- column has no default so every writer has to name a tenant.
+-- Secondary indexes lead with tenant_id so a tenant's queries range-scan only its own rows however many
+-- tenants share the table. InnoDB appends the primary key, so (tenant_id, date) also serves keyset pages.
+ALTER TABLE expenses ADD COLUMN tenant_id VARCHAR(64) NOT NULL DEFAULT 'default';
+ALTER TABLE expenses ALTER COLUMN tenant_id DROP DEFAULT;
+DROP INDEX idx_expenses_category_date ON expenses;
+DROP INDEX idx_expenses_date ON expenses;
+DROP INDEX idx_expenses_amount ON expenses;
+CREATE INDEX idx_expenses_tenant_category_date ON expenses (tenant_id, category, date);
+CREATE INDEX idx_expenses_tenant_date ON expenses (tenant_id, date);
+CREATE INDEX idx_expenses_tenant_amount ON expenses (tenant_id, amount);
+
+ALTER TABLE expense_daily_totals ADD COLUMN tenant_id VARCHAR(64) NOT NULL DEFAULT 'default';
+ALTER TABLE expense_daily_totals ALTER COLUMN tenant_id DROP DEFAULT;
+ALTER TABLE expense_daily_totals DROP INDEX uk_expense_daily_totals_category_day;
+DROP INDEX idx_expense_daily_totals_date ON expense_daily_totals;
+ALTER TABLE expense_daily_totals
+    ADD CONSTRAINT uk_expense_daily_totals_tenant_category_day UNIQUE (tenant_id, category, bucket_date);
+CREATE INDEX idx_expense_daily_totals_tenant_date ON expense_daily_totals (tenant_id, bucket_date);
+
+-- Idempotency keys are chosen by clients, so they only need to be unique within a tenant
+ALTER TABLE ingested_records ADD COLUMN tenant_id VARCHAR(64) NOT NULL DEFAULT 'default';
+ALTER TABLE ingested_records ALTER COLUMN tenant_id DROP DEFAULT;
+ALTER TABLE ingested_records DROP INDEX uk_ingested_records_idempotency_key;
+ALTER TABLE ingested_records
+    ADD CONSTRAINT uk_ingested_records_tenant_idempotency_key UNIQUE (tenant_id, idempotency_key);
@@ -0,0 +1,10 @@
+-- Monthly spending limit per (tenant, category); BudgetService keeps running totals against it in memory
+CREATE TABLE IF NOT EXISTS budgets (
+    id            BIGINT         NOT NULL AUTO_INCREMENT,
+    tenant_id     VARCHAR(64)    NOT NULL,
+    category      VARCHAR(255)   NOT NULL,
+    monthly_limit DECIMAL(12, 2) NOT NULL,
+    version       BIGINT         NOT NULL DEFAULT 0,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_budgets_tenant_category UNIQUE (tenant_id, category)
+);
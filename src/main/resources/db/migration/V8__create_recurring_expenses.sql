@@ -0,0 +1,33 @@
+-- Recurring expense definitions. next_occurrence is the earliest date not yet materialized (NULL once the rule has
+-- ended); the index on it is the scheduler's priority queue, so finding due rules is a range scan over the due
+-- entries only, however many rules exist. last_occurrence is the latest date materialized so far.
+CREATE TABLE IF NOT EXISTS recurring_expenses (
+    id              BIGINT         NOT NULL AUTO_INCREMENT,
+    tenant_id       VARCHAR(64)    NOT NULL,
+    description     VARCHAR(255)   NOT NULL,
+    amount          DECIMAL(12, 2) NOT NULL,
+    category        VARCHAR(255)   NOT NULL,
+    notes           VARCHAR(500),
+    schedule        VARCHAR(100)   NOT NULL,
+    start_date      DATE           NOT NULL,
+    end_date        DATE,
+    next_occurrence DATE,
+    last_occurrence DATE,
+    version         BIGINT         NOT NULL DEFAULT 0,
+    PRIMARY KEY (id)
+);
+CREATE INDEX idx_recurring_expenses_next_occurrence ON recurring_expenses (next_occurrence);
+CREATE INDEX idx_recurring_expenses_tenant ON recurring_expenses (tenant_id);
+
+-- One row per materialized occurrence. The primary key makes materialization idempotent per (rule, date): a second
+-- writer of the same occurrence fails and rolls back instead of inserting a duplicate expense. The expense may be
+-- deleted later; its occurrence row stays so the date is not materialized again.
+CREATE TABLE IF NOT EXISTS recurring_expense_occurrences (
+    rule_id         BIGINT      NOT NULL,
+    occurrence_date DATE        NOT NULL,
+    tenant_id       VARCHAR(64) NOT NULL,
+    expense_id      BIGINT      NOT NULL,
+    PRIMARY KEY (rule_id, occurrence_date),
+    CONSTRAINT fk_recurring_expense_occurrences_rule FOREIGN KEY (rule_id)
+        REFERENCES recurring_expenses (id) ON DELETE CASCADE
+);
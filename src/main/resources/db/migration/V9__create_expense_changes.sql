@@ -0,0 +1,26 @@
+-- Transactional outbox of expense changes for incremental consumers (GET /api/expenses/changes).
+-- Each tenant's changes are numbered 1, 2, 3... in commit order: a writing transaction takes its numbers from the
+-- tenant's expense_change_sequences row just before committing and holds that row's lock until it has committed.
+CREATE TABLE IF NOT EXISTS expense_change_sequences (
+    tenant_id      VARCHAR(64) NOT NULL,
+    last_seq       BIGINT      NOT NULL,
+    -- Highest sequence number removed by retention; a consumer further behind has to resynchronize
+    purged_through BIGINT      NOT NULL DEFAULT 0,
+    PRIMARY KEY (tenant_id)
+);
+
+-- One row per created, updated or deleted expense with its JSON image before and after the change.
+-- Compaction removes changes superseded by a later change of the same expense once they are old enough.
+CREATE TABLE IF NOT EXISTS expense_changes (
+    tenant_id    VARCHAR(64)  NOT NULL,
+    seq          BIGINT       NOT NULL,
+    operation    VARCHAR(8)   NOT NULL,
+    expense_id   BIGINT       NOT NULL,
+    before_image TEXT,
+    after_image  TEXT,
+    changed_at   TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (tenant_id, seq)
+);
+
+CREATE INDEX idx_expense_changes_expense ON expense_changes (tenant_id, expense_id, seq);
+CREATE INDEX idx_expense_changes_changed_at ON expense_changes (changed_at);
@@ -0,0 +1,9 @@
+-- MySQL only, enabled by the partitioned profile. Hash-partitions the per-tenant tables on tenant_id so each
+-- tenant's rows (and their index entries) live in one partition, and a tenant's query is pruned to it.
+-- MySQL requires every unique key to include the partitioning column, so the primary keys gain tenant_id.
+-- Repeatable: changing spring.flyway.placeholders.partitions re-runs it and MySQL repartitions in place.
+ALTER TABLE expenses DROP PRIMARY KEY, ADD PRIMARY KEY (id, tenant_id);
+ALTER TABLE expenses PARTITION BY KEY (tenant_id) PARTITIONS ${partitions};
+
+ALTER TABLE expense_daily_totals DROP PRIMARY KEY, ADD PRIMARY KEY (id, tenant_id);
+ALTER TABLE expense_daily_totals PARTITION BY KEY (tenant_id) PARTITIONS ${partitions};
@@ -0,0 +1,102 @@
+package com.finomo.config;
+
+import com.finomo.service.ExpenseService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "finomo.sample-data.count=0",
+        "finomo.http.rate-limit.capacity=40",
+        "finomo.http.rate-limit.refill-per-second=0.01",
+        "finomo.http.rate-limit.classes.analytics.max-concurrent=1"
+})
+@AutoConfigureMockMvc
+class RateLimitInterceptorTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private ExpenseService expenseService;
+
+    @Test
+    void scansExhaustTheBucketFasterThanLookups() throws Exception {
+        // Scans cost 20 of the 40 tokens
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/api/expenses").with(from("10.0.0.1")))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/api/expenses").with(from("10.0.0.1")))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+        // A fresh client id does not buy a fresh bucket
+        mockMvc.perform(get("/api/expenses").with(from("10.0.0.1"))
+                        .header("X-Client-Id", "fresh-id"))
+                .andExpect(status().isTooManyRequests());
+
+        // Lookups are a separate class, and other addresses have their own buckets
+        mockMvc.perform(get("/api/expenses/1").with(from("10.0.0.1")))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/expenses").with(from("10.0.0.2")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void analyticsBeyondTheConcurrencyCapAreShed() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(expenseService.getTotalAmountByCategory()).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        CompletableFuture<MvcResult> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return mockMvc.perform(get("/api/expenses/analytics/total-by-category")
+                        .with(from("10.0.1.1"))).andReturn();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(entered.await(10, TimeUnit.SECONDS)).isTrue();
+
+        mockMvc.perform(get("/api/expenses/analytics/total-by-category")
+                        .with(from("10.0.1.2")))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+
+        release.countDown();
+        assertThat(first.get(10, TimeUnit.SECONDS).getResponse().getStatus()).isEqualTo(200);
+        // The permit is returned once the first request completes
+        when(expenseService.getTotalAmountByCategory()).thenReturn(List.of());
+        mockMvc.perform(get("/api/expenses/analytics/total-by-category")
+                        .with(from("10.0.1.2")))
+                .andExpect(status().isOk());
+    }
+
+    private static RequestPostProcessor from(String remoteAddress) {
+        return request -> {
+            request.setRemoteAddr(remoteAddress);
+            return request;
+        };
+    }
+}
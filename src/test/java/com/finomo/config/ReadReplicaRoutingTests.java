@@ -0,0 +1,139 @@
+package com.finomo.config;
+
+import com.finomo.entity.Expense;
+import com.finomo.service.ExpenseService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.Cookie;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Two embedded H2 databases stand in for the primary and an (unreplicated) replica,
+// so every row shows which pool served it
+@SpringBootTest(properties = {
+    "spring.datasource.url=" + ReadReplicaRoutingTests.PRIMARY_URL,
+    "finomo.datasource.replica.enabled=true",
+    "finomo.datasource.replica.url=" + ReadReplicaRoutingTests.REPLICA_URL,
+    "finomo.datasource.replica.read-your-writes-window=1m",
+    "finomo.sample-data.count=0"
+})
+@AutoConfigureMockMvc
+class ReadReplicaRoutingTests {
+    
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    
+    static {
+        // The replica has to have the schema before the context starts
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "").load().migrate();
+    }
+    
+    @Autowired
+    private ExpenseService expenseService;
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+    
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+    
+    @BeforeEach
+    void setUp() {
+        for (DataSource dataSource : List.of(primaryDataSource, replicaDataSource)) {
+            new JdbcTemplate(dataSource).update("DELETE FROM expenses");
+        }
+        new JdbcTemplate(replicaDataSource).update(
+                "INSERT INTO expenses (tenant_id, description, amount, category, date) " +
+                "VALUES ('default', 'replica row', 1.00, 'Misc', ?)",
+                LocalDate.of(2024, 1, 1));
+    }
+    
+    @Test
+    void writesGoToPrimaryAndReadsToReplica() {
+        expenseService.createExpense(new Expense("primary row", new BigDecimal("2.00"), "Misc", LocalDate.of(2024, 1, 2), null));
+        
+        assertThat(new JdbcTemplate(primaryDataSource).queryForObject("SELECT COUNT(*) FROM expenses", Long.class))
+                .isEqualTo(1);
+        assertThat(descriptions(expenseService.getAllExpenses())).containsExactly("replica row");
+        assertThat(descriptions(expenseService.getExpensesByDateRange(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31))))
+                .containsExactly("replica row");
+        assertThat(descriptions(ReadWriteRoutingDataSource.onPrimary(expenseService::getAllExpenses)))
+                .containsExactly("primary row");
+    }
+    
+    @Test
+    void clientReadsItsOwnWritesFromPrimary() throws Exception {
+        MvcResult write = mockMvc.perform(post("/api/expenses")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\":\"primary row\",\"amount\":2.00,\"category\":\"Misc\",\"date\":\"2024-01-02\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(cookie().exists(ReadYourWritesFilter.LAST_WRITE_COOKIE))
+                .andReturn();
+        Cookie lastWrite = write.getResponse().getCookie(ReadYourWritesFilter.LAST_WRITE_COOKIE);
+        String lastWriteHeader = write.getResponse().getHeader(ReadYourWritesFilter.LAST_WRITE_HEADER);
+        
+        // Any instance honours the time the client carries, as a cookie or as the header
+        mockMvc.perform(get("/api/expenses").cookie(lastWrite))
+                .andExpect(jsonPath("$[0].description").value("primary row"));
+        mockMvc.perform(get("/api/expenses").header(ReadYourWritesFilter.LAST_WRITE_HEADER, lastWriteHeader))
+                .andExpect(jsonPath("$[0].description").value("primary row"));
+        mockMvc.perform(get("/api/expenses"))
+                .andExpect(jsonPath("$[0].description").value("replica row"));
+    }
+    
+    @Test
+    void writeTimesOutsideTheWindowAreIgnored() throws Exception {
+        long now = System.currentTimeMillis();
+        for (long lastWrite : new long[] {now - Duration.ofMinutes(2).toMillis(), now + Duration.ofMinutes(2).toMillis()}) {
+            mockMvc.perform(get("/api/expenses").cookie(new Cookie(ReadYourWritesFilter.LAST_WRITE_COOKIE,
+                            Long.toString(lastWrite))))
+                    .andExpect(jsonPath("$[0].description").value("replica row"));
+        }
+        mockMvc.perform(get("/api/expenses").header(ReadYourWritesFilter.LAST_WRITE_HEADER, "not-a-time"))
+                .andExpect(jsonPath("$[0].description").value("replica row"));
+    }
+    
+    @Test
+    void publishesPerPoolMetrics() {
+        expenseService.getAllExpenses();
+        
+        for (String pool : List.of("primary", "replica")) {
+            assertThat(meterRegistry.find("hikaricp.connections.max").tag("pool", pool).gauge()).isNotNull();
+        }
+        assertThat(meterRegistry.get("finomo.datasource.routed").tag("target", "replica").counter().count())
+                .isPositive();
+    }
+    
+    private static List<String> descriptions(List<Expense> expenses) {
+        return expenses.stream().map(Expense::getDescription).toList();
+    }
+}
@@ -0,0 +1,76 @@
+package com.finomo.config;
+
+import com.finomo.entity.Expense;
+import com.finomo.repository.ExpenseRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "finomo.sample-data.count=0")
+@AutoConfigureMockMvc
+class TenantIsolationTests {
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void expensesAreOnlyVisibleToTheirTenant() throws Exception {
+        String body = mockMvc.perform(post("/api/expenses").header(TenantFilter.TENANT_HEADER, "iso-a")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\":\"Rent\",\"amount\":900.00,\"category\":\"Housing\"," +
+                                 "\"date\":\"2024-04-01\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.tenantId").doesNotExist())
+                .andReturn().getResponse().getContentAsString();
+        long id = Long.parseLong(body.replaceAll(".*\"id\":(\\d+).*", "$1"));
+
+        try (TenantContext.TenantScope scope = TenantContext.root()) {
+            assertThat(expenseRepository.findById(id).orElseThrow().getTenantId()).isEqualTo("iso-a");
+        }
+
+        mockMvc.perform(get("/api/expenses/" + id).header(TenantFilter.TENANT_HEADER, "iso-a"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/expenses/" + id).header(TenantFilter.TENANT_HEADER, "iso-b"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/expenses/category/Housing").header(TenantFilter.TENANT_HEADER, "iso-b"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void analyticsAreComputedPerTenant() throws Exception {
+        for (String tenant : new String[] {"iso-c", "iso-d"}) {
+            String amount = tenant.equals("iso-c") ? "10.00" : "25.00";
+            mockMvc.perform(post("/api/expenses").header(TenantFilter.TENANT_HEADER, tenant)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"description\":\"Bus\",\"amount\":" + amount + ",\"category\":\"Transit\"," +
+                                     "\"date\":\"2024-04-02\"}"))
+                    .andExpect(status().isCreated());
+        }
+
+        mockMvc.perform(get("/api/expenses/analytics/total-by-category").header(TenantFilter.TENANT_HEADER, "iso-c"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.Transit").value(10.00));
+        mockMvc.perform(get("/api/expenses/analytics/total-by-category").header(TenantFilter.TENANT_HEADER, "iso-d"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.Transit").value(25.00));
+    }
+
+    @Test
+    void invalidTenantHeaderIsRejected() throws Exception {
+        mockMvc.perform(get("/api/expenses").header(TenantFilter.TENANT_HEADER, "not a tenant!"))
+                .andExpect(status().isBadRequest());
+    }
+}
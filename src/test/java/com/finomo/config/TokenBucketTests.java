@@ -0,0 +1,64 @@
+package com.finomo.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTests {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void admitsABurstUpToCapacityThenRefillsAtTheRate() {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+
+        assertThat(bucket.tryConsume(4, 0)).isZero();
+        assertThat(bucket.tryConsume(6, 0)).isZero();
+        // Empty: one token comes back every 200ms
+        assertThat(bucket.tryConsume(1, 0)).isEqualTo(SECOND / 5);
+        assertThat(bucket.tryConsume(1, SECOND / 5)).isZero();
+        assertThat(bucket.tryConsume(5, SECOND / 5)).isEqualTo(SECOND);
+        assertThat(bucket.tryConsume(5, SECOND / 5 + SECOND)).isZero();
+    }
+
+    @Test
+    void idleTimeDoesNotOverfillTheBucket() {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+
+        assertThat(bucket.tryConsume(10, 60 * SECOND)).isZero();
+        assertThat(bucket.tryConsume(1, 60 * SECOND)).isPositive();
+    }
+
+    @Test
+    void costAboveCapacityTakesTheWholeBucket() {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+
+        assertThat(bucket.tryConsume(50, 0)).isZero();
+        assertThat(bucket.tryConsume(1, 0)).isPositive();
+    }
+
+    @Test
+    void concurrentCallersNeverOverdrawTheBucket() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1000, 1, 0);
+        AtomicInteger admitted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    if (bucket.tryConsume(1, 0) == 0) {
+                        admitted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(admitted.get()).isEqualTo(1000);
+    }
+}
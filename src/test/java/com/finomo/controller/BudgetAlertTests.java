@@ -0,0 +1,143 @@
+package com.finomo.controller;
+
+import com.finomo.config.TenantFilter;
+import com.finomo.service.BudgetService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "finomo.sample-data.count=0")
+@AutoConfigureMockMvc
+class BudgetAlertTests {
+
+    private static final String TENANT = "budget-alerts";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void crossingThresholdsIsPushedToSubscribers() throws Exception {
+        mockMvc.perform(post("/api/budgets").header(TenantFilter.TENANT_HEADER, TENANT)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"category\":\"Dining\",\"monthlyLimit\":100.00}"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/api/budgets").header(TenantFilter.TENANT_HEADER, TENANT)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"category\":\"Dining\",\"monthlyLimit\":50.00}"))
+                .andExpect(status().isConflict());
+
+        MvcResult subscription = mockMvc.perform(get("/api/budgets/alerts").header(TenantFilter.TENANT_HEADER, TENANT))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockHttpServletResponse events = subscription.getResponse();
+
+        createExpense(TENANT, "50.00");
+        long id = createExpense(TENANT, "35.00");
+        waitForEvents(events, 1);
+        assertThat(events.getContentAsString()).contains("\"thresholdPercent\":80").doesNotContain("\"thresholdPercent\":100");
+
+        // Another tenant's spend in the same category does not count
+        createExpense("budget-others", "500.00");
+
+        // An update within the month counts once, by its net change
+        mockMvc.perform(put("/api/expenses/" + id).header(TenantFilter.TENANT_HEADER, TENANT)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(expenseBody("55.00")))
+                .andExpect(status().isOk());
+        waitForEvents(events, 2);
+        assertThat(events.getContentAsString()).contains("\"thresholdPercent\":100").contains("\"spent\":105.00");
+
+        mockMvc.perform(get("/api/budgets/status").header(TenantFilter.TENANT_HEADER, TENANT))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].category").value("Dining"))
+                .andExpect(jsonPath("$[0].spent").value(105.00))
+                .andExpect(jsonPath("$[0].percentUsed").value(105));
+
+        mockMvc.perform(delete("/api/expenses/" + id).header(TenantFilter.TENANT_HEADER, TENANT))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/budgets/status").header(TenantFilter.TENANT_HEADER, TENANT)
+                        .param("month", YearMonth.now().toString()))
+                .andExpect(jsonPath("$[0].spent").value(50.00));
+        assertThat(countEvents(events)).isEqualTo(2);
+    }
+
+    @Test
+    void reseedPicksUpWritesOfOtherInstances() throws Exception {
+        String tenant = "budget-reseed";
+        MvcResult subscription = mockMvc.perform(get("/api/budgets/alerts").header(TenantFilter.TENANT_HEADER, tenant))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockHttpServletResponse events = subscription.getResponse();
+
+        // A budget and an expense committed by another instance reach only the shared tables
+        jdbcTemplate.update("INSERT INTO budgets (tenant_id, category, monthly_limit) VALUES (?, 'Dining', 100.00)",
+                tenant);
+        jdbcTemplate.update("INSERT INTO expense_daily_totals (tenant_id, category, bucket_date, total_amount, " +
+                            "expense_count) VALUES (?, 'Dining', ?, 90.00, 1)", tenant, LocalDate.now());
+        mockMvc.perform(get("/api/budgets/status").header(TenantFilter.TENANT_HEADER, tenant))
+                .andExpect(jsonPath("$[0].spent").value(0.0));
+
+        budgetService.reseed();
+        mockMvc.perform(get("/api/budgets/status").header(TenantFilter.TENANT_HEADER, tenant))
+                .andExpect(jsonPath("$[0].category").value("Dining"))
+                .andExpect(jsonPath("$[0].spent").value(90.00));
+        waitForEvents(events, 1);
+        assertThat(events.getContentAsString()).contains("\"thresholdPercent\":80");
+
+        // Nothing moved since, so another re-seed stays quiet
+        budgetService.reseed();
+        Thread.sleep(100);
+        assertThat(countEvents(events)).isEqualTo(1);
+    }
+
+    private long createExpense(String tenant, String amount) throws Exception {
+        String body = mockMvc.perform(post("/api/expenses").header(TenantFilter.TENANT_HEADER, tenant)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(expenseBody(amount)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return Long.parseLong(body.replaceAll(".*\"id\":(\\d+).*", "$1"));
+    }
+
+    private static String expenseBody(String amount) {
+        return "{\"description\":\"Dinner\",\"amount\":" + amount + ",\"category\":\"Dining\",\"date\":\"" +
+               LocalDate.now() + "\"}";
+    }
+
+    private static void waitForEvents(MockHttpServletResponse events, int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (countEvents(events) < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(countEvents(events)).isEqualTo(count);
+    }
+
+    // Events written completely so far (each ends with a blank line)
+    private static int countEvents(MockHttpServletResponse events) throws Exception {
+        return events.getContentAsString().split("\n\n", -1).length - 1;
+    }
+}
@@ -0,0 +1,139 @@
+package com.finomo.controller;
+
+import com.finomo.config.TenantFilter;
+import com.finomo.service.ExpenseChangeLog;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "finomo.sample-data.count=0")
+@AutoConfigureMockMvc
+class ExpenseChangeFeedTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ExpenseChangeLog changeLog;
+
+    @Test
+    void everyWriteIsLoggedInOrderWithItsImages() throws Exception {
+        String tenant = "changes-ordered";
+        long id = create(tenant, "Coffee beans", "18.50");
+        mockMvc.perform(put("/api/expenses/" + id).header(TenantFilter.TENANT_HEADER, tenant)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body("Coffee beans", "21.00")))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/expenses/" + id).header(TenantFilter.TENANT_HEADER, tenant))
+                .andExpect(status().isOk());
+
+        perform(get("/api/expenses/changes").header(TenantFilter.TENANT_HEADER, tenant)
+                        .param("since", "0").param("wait", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes", hasSize(3)))
+                .andExpect(jsonPath("$.changes[0].sequence").value(1))
+                .andExpect(jsonPath("$.changes[0].operation").value("CREATE"))
+                .andExpect(jsonPath("$.changes[0].before").doesNotExist())
+                .andExpect(jsonPath("$.changes[1].operation").value("UPDATE"))
+                .andExpect(jsonPath("$.changes[1].before.amount").value(18.5))
+                .andExpect(jsonPath("$.changes[1].after.amount").value(21.0))
+                .andExpect(jsonPath("$.changes[2].operation").value("DELETE"))
+                .andExpect(jsonPath("$.changes[2].expenseId").value(id))
+                .andExpect(jsonPath("$.nextSince").value(3))
+                .andExpect(jsonPath("$.hasMore").value(false));
+
+        perform(get("/api/expenses/changes").header(TenantFilter.TENANT_HEADER, tenant)
+                        .param("since", "1").param("limit", "1").param("wait", "0"))
+                .andExpect(jsonPath("$.changes[0].sequence").value(2))
+                .andExpect(jsonPath("$.hasMore").value(true));
+
+        // Other tenants have their own sequence
+        perform(get("/api/expenses/changes").header(TenantFilter.TENANT_HEADER, "changes-other")
+                        .param("wait", "0"))
+                .andExpect(jsonPath("$.changes", hasSize(0)));
+    }
+
+    @Test
+    void longPollCompletesWithTheNextCommit() throws Exception {
+        String tenant = "changes-long-poll";
+        MvcResult poll = mockMvc.perform(get("/api/expenses/changes").header(TenantFilter.TENANT_HEADER, tenant)
+                        .param("since", "0").param("wait", "10"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        long id = create(tenant, "Bus pass", "45.00");
+
+        mockMvc.perform(asyncDispatch(poll))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes", hasSize(1)))
+                .andExpect(jsonPath("$.changes[0].expenseId").value(id))
+                .andExpect(jsonPath("$.changes[0].after.description").value("Bus pass"));
+    }
+
+    @Test
+    void compactionKeepsTheLatestChangeAndRetentionAsksToResynchronize() throws Exception {
+        String tenant = "changes-compaction";
+        long first = create(tenant, "Gym", "30.00");
+        for (String amount : new String[] {"31.00", "32.00", "33.00"}) {
+            mockMvc.perform(put("/api/expenses/" + first).header(TenantFilter.TENANT_HEADER, tenant)
+                            .contentType(MediaType.APPLICATION_JSON).content(body("Gym", amount)))
+                    .andExpect(status().isOk());
+        }
+        long second = create(tenant, "Pool", "12.00");
+
+        changeLog.compact(Instant.now().plus(Duration.ofHours(2)));
+
+        perform(get("/api/expenses/changes").header(TenantFilter.TENANT_HEADER, tenant).param("wait", "0"))
+                .andExpect(jsonPath("$.changes", hasSize(2)))
+                .andExpect(jsonPath("$.changes[0].sequence").value(4))
+                .andExpect(jsonPath("$.changes[0].after.amount").value(33.0))
+                .andExpect(jsonPath("$.changes[1].expenseId").value(second));
+
+        changeLog.compact(Instant.now().plus(Duration.ofDays(8)));
+
+        perform(get("/api/expenses/changes").header(TenantFilter.TENANT_HEADER, tenant).param("wait", "0"))
+                .andExpect(status().isGone())
+                .andExpect(jsonPath("$.lastSequence").value(5));
+        perform(get("/api/expenses/changes").header(TenantFilter.TENANT_HEADER, tenant)
+                        .param("since", "5").param("wait", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes", hasSize(0)));
+    }
+
+    private long create(String tenant, String description, String amount) throws Exception {
+        String response = mockMvc.perform(post("/api/expenses").header(TenantFilter.TENANT_HEADER, tenant)
+                        .contentType(MediaType.APPLICATION_JSON).content(body(description, amount)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return Long.parseLong(response.replaceAll(".*\"id\":(\\d+).*", "$1"));
+    }
+
+    // Every response of the change endpoint is asynchronous, including those completed right away
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        return mockMvc.perform(asyncDispatch(mockMvc.perform(request).andReturn()));
+    }
+
+    private static String body(String description, String amount) {
+        return "{\"description\":\"" + description + "\",\"amount\":" + amount + ",\"category\":\"Health\"," +
+               "\"date\":\"2024-06-01\"}";
+    }
+}
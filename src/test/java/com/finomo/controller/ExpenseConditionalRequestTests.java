@@ -0,0 +1,145 @@
+package com.finomo.controller;
+
+import com.finomo.config.TenantFilter;
+import com.finomo.entity.Expense;
+import com.finomo.repository.ExpenseChangeRepository;
+import com.finomo.service.ExpenseChangeCounter;
+import com.finomo.service.ExpenseService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "finomo.sample-data.count=0")
+@AutoConfigureMockMvc
+class ExpenseConditionalRequestTests {
+
+    private static final String UPDATE_BODY =
+            "{\"description\":\"Lunch\",\"amount\":12.50,\"category\":\"Food\",\"date\":\"2024-03-01\"}";
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ExpenseChangeRepository changeRepository;
+
+    @Autowired
+    private ExpenseChangeCounter changeCounter;
+
+    @Test
+    void singleExpenseRevalidatesUntilItChanges() throws Exception {
+        Expense expense = expenseService.createExpense(
+                new Expense("Lunch", new BigDecimal("10.00"), "Food", LocalDate.of(2024, 3, 1), null));
+        String path = "/api/expenses/" + expense.getId();
+
+        String etag = mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "private, no-cache"))
+                .andExpect(jsonPath("$.version").value(0))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isEqualTo("\"" + expense.getId() + ".0\"");
+
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+
+        String updatedEtag = mockMvc.perform(put(path).contentType(MediaType.APPLICATION_JSON).content(UPDATE_BODY)
+                        .header(HttpHeaders.IF_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(1))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(updatedEtag).isEqualTo("\"" + expense.getId() + ".1\"");
+
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, updatedEtag));
+    }
+
+    @Test
+    void staleIfMatchIsRejected() throws Exception {
+        Expense expense = expenseService.createExpense(
+                new Expense("Taxi", new BigDecimal("20.00"), "Transport", LocalDate.of(2024, 3, 2), null));
+        String path = "/api/expenses/" + expense.getId();
+        String staleEtag = "\"" + expense.getId() + ".0\"";
+        expenseService.updateExpense(expense.getId(),
+                new Expense("Cab", new BigDecimal("20.00"), "Transport", LocalDate.of(2024, 3, 2), null));
+
+        mockMvc.perform(put(path).contentType(MediaType.APPLICATION_JSON).content(UPDATE_BODY)
+                        .header(HttpHeaders.IF_MATCH, staleEtag))
+                .andExpect(status().isPreconditionFailed());
+        assertThat(expenseService.getExpenseById(expense.getId()).orElseThrow().getDescription()).isEqualTo("Cab");
+    }
+
+    @Test
+    void analyticsEtagChangesWithAnyWrite() throws Exception {
+        String path = "/api/expenses/analytics/total-by-category";
+        String etag = mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "private, max-age=5, must-revalidate"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        expenseService.createExpense(
+                new Expense("Books", new BigDecimal("30.00"), "Education", LocalDate.of(2024, 3, 3), null));
+
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.Education").value(30.00));
+    }
+
+    @Test
+    void analyticsEtagFollowsWritesOfOtherInstances() throws Exception {
+        String tenant = "etag-other-instance";
+        String path = "/api/expenses/analytics/total-by-category";
+        String etag = mockMvc.perform(get(path).header(TenantFilter.TENANT_HEADER, tenant))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // What another instance commits for a new expense: the row, its rollup bucket and its change
+        jdbcTemplate.update("INSERT INTO expenses (tenant_id, description, amount, category, date, version) " +
+                "VALUES (?, 'Flight', 40.00, 'Travel', DATE '2024-03-04', 0)", tenant);
+        Long id = jdbcTemplate.queryForObject("SELECT MAX(id) FROM expenses WHERE tenant_id = ?", Long.class, tenant);
+        jdbcTemplate.update("INSERT INTO expense_daily_totals " +
+                "(tenant_id, category, bucket_date, total_amount, expense_count) " +
+                "VALUES (?, 'Travel', DATE '2024-03-04', 40.00, 1)", tenant);
+        long sequence = changeRepository.reserve(tenant, 1);
+        jdbcTemplate.update("INSERT INTO expense_changes " +
+                "(tenant_id, seq, operation, expense_id, before_image, after_image, changed_at) " +
+                "VALUES (?, ?, 'CREATE', ?, NULL, ?, CURRENT_TIMESTAMP)", tenant, sequence, id,
+                "{\"id\":" + id + ",\"description\":\"Flight\",\"amount\":40.00,\"category\":\"Travel\"," +
+                        "\"date\":\"2024-03-04\",\"version\":0}");
+        changeCounter.followOtherInstances();
+
+        String changed = mockMvc.perform(get(path).header(TenantFilter.TENANT_HEADER, tenant)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.Travel").value(40.00))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(changed).isNotEqualTo(etag);
+
+        mockMvc.perform(get(path).header(TenantFilter.TENANT_HEADER, tenant).header(HttpHeaders.IF_NONE_MATCH, changed))
+                .andExpect(status().isNotModified());
+    }
+}
@@ -0,0 +1,249 @@
+package com.finomo.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.finomo.config.TenantContext;
+import com.finomo.config.TenantFilter;
+import com.finomo.entity.Expense;
+import com.finomo.service.ExpenseService;
+import com.finomo.service.imports.CountingLineReader;
+import com.finomo.service.imports.CsvExpenseParser;
+import com.finomo.service.imports.ParsedRow;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "finomo.sample-data.count=0")
+@AutoConfigureMockMvc
+class ExpenseControllerTests {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 6, 1);
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void pagesWalkTiesOnOneDateWithoutGapsOrRepeats() throws Exception {
+        String tenant = "page-ties";
+        // Five expenses share a date, so only the id orders them
+        List<Long> expected = create(tenant, DAY.minusDays(1), DAY, DAY, DAY, DAY, DAY, DAY.plusDays(1));
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            var request = get("/api/expenses/page").header(TenantFilter.TENANT_HEADER, tenant).param("limit", "2");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            JsonNode page = json(mockMvc.perform(request).andExpect(status().isOk()).andReturn());
+            page.get("items").forEach(item -> seen.add(item.get("id").asLong()));
+            cursor = page.hasNonNull("nextCursor") ? page.get("nextCursor").asText() : null;
+            pages++;
+        } while (cursor != null);
+
+        assertThat(seen).containsExactlyElementsOf(expected);
+        assertThat(pages).isEqualTo(4);
+    }
+
+    @Test
+    void lastPageHasNoCursorEvenWhenItIsFull() throws Exception {
+        String tenant = "page-last";
+        create(tenant, DAY, DAY, DAY, DAY.plusDays(1));
+
+        String cursor = mockMvc.perform(get("/api/expenses/page").header(TenantFilter.TENANT_HEADER, tenant)
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn().getResponse().getContentAsString()
+                .replaceAll(".*\"nextCursor\":\"([^\"]+)\".*", "$1");
+
+        mockMvc.perform(get("/api/expenses/page").header(TenantFilter.TENANT_HEADER, tenant)
+                        .param("limit", "2").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void invalidOrTamperedCursorsAreRejected() throws Exception {
+        for (String cursor : List.of("not base64!", encode("2024-06-01"), encode("2024-13-40:1"),
+                encode("2024-06-01:abc"), encode("x:1"))) {
+            mockMvc.perform(get("/api/expenses/page").header(TenantFilter.TENANT_HEADER, "page-invalid")
+                            .param("cursor", cursor))
+                    .andExpect(status().isBadRequest());
+        }
+        mockMvc.perform(get("/api/expenses/page").header(TenantFilter.TENANT_HEADER, "page-invalid")
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamOrdersTiesById() throws Exception {
+        String tenant = "stream-ties";
+        List<Long> expected = create(tenant, DAY.plusDays(2), DAY, DAY, DAY.plusDays(1), DAY);
+
+        MvcResult started = mockMvc.perform(get("/api/expenses/stream").header(TenantFilter.TENANT_HEADER, tenant))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<Long> streamed = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            streamed.add(objectMapper.readTree(line).get("id").asLong());
+        }
+        assertThat(streamed).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void csvExportReadsBackThroughTheImportParser() throws Exception {
+        String tenant = "export-round-trip";
+        try (TenantContext.TenantScope scope = TenantContext.enter(tenant)) {
+            expenseService.createExpense(new Expense("Plain", new BigDecimal("4.20"), "Food", DAY, null));
+            expenseService.createExpense(new Expense("Dinner, \"downtown\"", new BigDecimal("31.05"), "Food",
+                    DAY.plusDays(1), "Split three ways"));
+            expenseService.createExpense(new Expense("Taxi", new BigDecimal("18.00"), "Travel", DAY.plusDays(2),
+                    "Airport\r\nlate flight"));
+        }
+
+        byte[] csv = export(tenant, "false");
+        assertThat(new String(csv, StandardCharsets.UTF_8)).startsWith("description,amount,category,date,notes,id\n");
+
+        List<Expense> imported = new ArrayList<>();
+        CsvExpenseParser parser = new CsvExpenseParser(new CountingLineReader(new ByteArrayInputStream(csv), 0, 4096),
+                0, "Uncategorized");
+        for (ParsedRow row = parser.next(); row != null; row = parser.next()) {
+            assertThat(row.error()).isNull();
+            imported.add(row.expense());
+        }
+
+        assertThat(imported).extracting(Expense::getDescription, Expense::getAmount, Expense::getCategory,
+                        Expense::getDate, Expense::getNotes)
+                .containsExactly(
+                        tuple("Plain", new BigDecimal("4.20"), "Food", DAY, null),
+                        tuple("Dinner, \"downtown\"", new BigDecimal("31.05"), "Food", DAY.plusDays(1),
+                                "Split three ways"),
+                        // Line breaks are flattened to spaces so the record stays on one line
+                        tuple("Taxi", new BigDecimal("18.00"), "Travel", DAY.plusDays(2), "Airport  late flight"));
+    }
+
+    @Test
+    void gzipExportDecompressesToThePlainExport() throws Exception {
+        String tenant = "export-gzip";
+        create(tenant, DAY, DAY.plusDays(1), DAY.plusDays(2));
+
+        byte[] plain = export(tenant, "false");
+        byte[] compressed = export(tenant, "true");
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertThat(in.readAllBytes()).isEqualTo(plain);
+        }
+        assertThat(new String(plain, StandardCharsets.UTF_8).split("\n")).hasSize(4);
+    }
+
+    @Test
+    void projectionsAlwaysIncludeTheId() throws Exception {
+        String tenant = "projection-id";
+        Long id = create(tenant, DAY).get(0);
+
+        mockMvc.perform(get("/api/expenses").header(TenantFilter.TENANT_HEADER, tenant).param("fields", "amount"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(id))
+                .andExpect(jsonPath("$[0].amount").value(10.0))
+                .andExpect(jsonPath("$[0].description").doesNotExist());
+        mockMvc.perform(get("/api/expenses/date-range").header(TenantFilter.TENANT_HEADER, tenant)
+                        .param("startDate", DAY.toString()).param("endDate", DAY.toString()).param("fields", "date"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(id))
+                .andExpect(jsonPath("$[0].date").value(DAY.toString()))
+                .andExpect(jsonPath("$[0].amount").doesNotExist());
+        mockMvc.perform(get("/api/expenses/category/Misc").header(TenantFilter.TENANT_HEADER, tenant)
+                        .param("fields", "category"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(id))
+                .andExpect(jsonPath("$[0].category").value("Misc"));
+    }
+
+    @Test
+    void unknownProjectionFieldsAreRejected() throws Exception {
+        for (String fields : List.of("amount,bogus", "tenantId", ",")) {
+            mockMvc.perform(get("/api/expenses").header(TenantFilter.TENANT_HEADER, "projection-unknown")
+                            .param("fields", fields))
+                    .andExpect(status().isBadRequest());
+        }
+        mockMvc.perform(get("/api/expenses/date-range").header(TenantFilter.TENANT_HEADER, "projection-unknown")
+                        .param("startDate", DAY.toString()).param("endDate", DAY.toString()).param("fields", "bogus"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/expenses/category/Misc").header(TenantFilter.TENANT_HEADER, "projection-unknown")
+                        .param("fields", "bogus"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Creates one expense per date and returns the ids in (date, id) order
+    private List<Long> create(String tenant, LocalDate... dates) {
+        List<Expense> created = new ArrayList<>();
+        try (TenantContext.TenantScope scope = TenantContext.enter(tenant)) {
+            for (LocalDate date : dates) {
+                created.add(expenseService.createExpense(
+                        new Expense("Expense on " + date, new BigDecimal("10.00"), "Misc", date, null)));
+            }
+        }
+        return created.stream()
+                .sorted(Comparator.comparing(Expense::getDate).thenComparing(Expense::getId))
+                .map(Expense::getId)
+                .toList();
+    }
+
+    private byte[] export(String tenant, String gzip) throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/expenses/export").header(TenantFilter.TENANT_HEADER, tenant)
+                        .param("format", "CSV").param("gzip", gzip))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", startsWith(
+                        Boolean.parseBoolean(gzip) ? "application/gzip" : "text/csv")))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    private JsonNode json(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,66 @@
+package com.finomo.controller;
+
+import com.finomo.config.TenantFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"finomo.sample-data.count=0", "finomo.anomaly.duplicate-action=reject"})
+@AutoConfigureMockMvc
+class ExpenseDuplicateDetectionTests {
+
+    private static final String TENANT = "duplicates";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void suspectedDuplicatesAreRejectedUnlessAllowed() throws Exception {
+        String body = "{\"description\":\"Bookshop\",\"amount\":31.90,\"category\":\"Shopping\",\"date\":\"2024-05-10\"}";
+        String response = mockMvc.perform(post("/api/expenses").header(TenantFilter.TENANT_HEADER, TENANT)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(ExpenseController.SUSPECTED_DUPLICATE_HEADER))
+                .andReturn().getResponse().getContentAsString();
+        long id = Long.parseLong(response.replaceAll(".*\"id\":(\\d+).*", "$1"));
+
+        mockMvc.perform(post("/api/expenses").header(TenantFilter.TENANT_HEADER, TENANT)
+                        .contentType(MediaType.APPLICATION_JSON).content(body.replace("Bookshop", "BOOKSHOP #4471")))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.duplicate").value("EXACT"))
+                .andExpect(jsonPath("$.duplicateOf").value(id));
+
+        mockMvc.perform(post("/api/expenses").header(TenantFilter.TENANT_HEADER, TENANT)
+                        .header(ExpenseController.ALLOW_DUPLICATE_HEADER, "true")
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(ExpenseController.SUSPECTED_DUPLICATE_HEADER, "EXACT"))
+                .andExpect(header().string(ExpenseController.DUPLICATE_OF_HEADER, String.valueOf(id)));
+
+        // Other tenants are not compared
+        mockMvc.perform(post("/api/expenses").header(TenantFilter.TENANT_HEADER, "duplicates-other")
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    void batchCatchesCopiesWithinTheBatch() throws Exception {
+        String item = "{\"description\":\"Train ticket\",\"amount\":17.40,\"category\":\"Transportation\"," +
+                      "\"date\":\"2024-05-11\"}";
+        mockMvc.perform(post("/api/expenses/batch").header(TenantFilter.TENANT_HEADER, TENANT)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + item + "," + item.replace("2024-05-11", "2024-05-12") + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[1].status").value("DUPLICATE"))
+                .andExpect(jsonPath("$[1].id").doesNotExist());
+    }
+}
@@ -0,0 +1,171 @@
+package com.finomo.controller;
+
+import com.finomo.config.TenantFilter;
+import com.finomo.repository.ExpenseChangeRepository;
+import com.finomo.service.ExpenseChangeCounter;
+import com.finomo.service.ExpenseQueryStatistics;
+import com.finomo.service.ExpenseSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.StringJoiner;
+
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "finomo.sample-data.count=0")
+@AutoConfigureMockMvc
+class ExpenseQueryTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ExpenseQueryStatistics statistics;
+
+    @Autowired
+    private ExpenseSearchIndex searchIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ExpenseChangeRepository changeRepository;
+
+    @Autowired
+    private ExpenseChangeCounter changeCounter;
+
+    @BeforeEach
+    void loadStatistics() {
+        statistics.rebuild();
+        searchIndex.rebuild();
+    }
+
+    @Test
+    void filtersCombineAndSortInTheDatabase() throws Exception {
+        String tenant = "query-combined";
+        load(tenant);
+
+        // Lunches dated 2024-01-10..2024-02-10 cost 19..50; those of at least 30, most expensive first
+        mockMvc.perform(get("/api/expenses/query").header(TenantFilter.TENANT_HEADER, tenant)
+                        .param("category", "Food")
+                        .param("minAmount", "30")
+                        .param("startDate", "2024-01-10")
+                        .param("endDate", "2024-02-10")
+                        .param("keyword", "LUNCH")
+                        .param("sort", "AMOUNT")
+                        .param("direction", "DESC")
+                        .param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(ExpenseController.QUERY_PLAN_HEADER))
+                .andExpect(jsonPath("$", hasSize(5)))
+                .andExpect(jsonPath("$[*].category", everyItem(is("Food"))))
+                .andExpect(jsonPath("$[0].amount").value(50.0))
+                .andExpect(jsonPath("$[4].amount").value(46.0));
+
+        mockMvc.perform(get("/api/expenses/query").header(TenantFilter.TENANT_HEADER, tenant)
+                        .param("startDate", "2024-02-10")
+                        .param("endDate", "2024-01-10"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void plannerReadsThroughTheMostSelectiveIndex() throws Exception {
+        String tenant = "query-planner";
+        load(tenant);
+
+        mockMvc.perform(get("/api/expenses/query").header(TenantFilter.TENANT_HEADER, tenant)
+                        .param("category", "Gifts")
+                        .param("startDate", "2024-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ExpenseController.QUERY_PLAN_HEADER,
+                        startsWith("idx_expenses_tenant_category_date")))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].description").value("Sushi dinner"));
+
+        mockMvc.perform(get("/api/expenses/query").header(TenantFilter.TENANT_HEADER, tenant)
+                        .param("minAmount", "5000"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ExpenseController.QUERY_PLAN_HEADER,
+                        startsWith("idx_expenses_tenant_amount")))
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        mockMvc.perform(get("/api/expenses/query").header(TenantFilter.TENANT_HEADER, tenant)
+                        .param("keyword", "sushi"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].amount").value(9000.0));
+    }
+
+    // Another instance's write never reaches this one's search index, but the keyword is matched in SQL
+    @Test
+    void keywordMatchesWritesTheSearchIndexHasNotSeen() throws Exception {
+        String tenant = "query-other-instance";
+        load(tenant);
+        jdbcTemplate.update("INSERT INTO expenses (tenant_id, description, amount, category, date, version) " +
+                "VALUES (?, 'Zeppelin tour', 120.00, 'Travel', DATE '2024-03-04', 0)", tenant);
+
+        mockMvc.perform(get("/api/expenses/query").header(TenantFilter.TENANT_HEADER, tenant)
+                        .param("keyword", "zeppelin"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].description").value("Zeppelin tour"));
+    }
+
+    // The search index follows another instance's write once it is read from the change log
+    @Test
+    void searchFollowsWritesOfOtherInstances() throws Exception {
+        String tenant = "search-other-instance";
+        jdbcTemplate.update("INSERT INTO expenses (tenant_id, description, amount, category, date, version) " +
+                "VALUES (?, 'Gondola ride', 35.00, 'Travel', DATE '2024-03-04', 0)", tenant);
+        Long id = jdbcTemplate.queryForObject("SELECT MAX(id) FROM expenses WHERE tenant_id = ?", Long.class, tenant);
+        jdbcTemplate.update("INSERT INTO expense_changes " +
+                "(tenant_id, seq, operation, expense_id, before_image, after_image, changed_at) " +
+                "VALUES (?, ?, 'CREATE', ?, NULL, ?, CURRENT_TIMESTAMP)", tenant, changeRepository.reserve(tenant, 1),
+                id, "{\"id\":" + id + ",\"description\":\"Gondola ride\",\"amount\":35.00," +
+                        "\"category\":\"Travel\",\"date\":\"2024-03-04\",\"version\":0}");
+
+        changeCounter.followOtherInstances();
+
+        mockMvc.perform(get("/api/expenses/search").header(TenantFilter.TENANT_HEADER, tenant)
+                        .param("keyword", "gondola"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(id));
+    }
+
+    // 50 lunches costing 10..59 dated from 2024-01-01, 9 train tickets and a single expensive gift
+    private void load(String tenant) throws Exception {
+        StringJoiner batch = new StringJoiner(",", "[", "]");
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < 50; i++) {
+            batch.add(expense("Lunch with team", 10 + i, "Food", start.plusDays(i)));
+        }
+        for (int i = 0; i < 9; i++) {
+            batch.add(expense("Train ticket", 20 + i, "Transportation", start.plusDays(i * 5L)));
+        }
+        batch.add(expense("Sushi dinner", 9000, "Gifts", start.plusDays(3)));
+        mockMvc.perform(post("/api/expenses/batch").header(TenantFilter.TENANT_HEADER, tenant)
+                        .contentType(MediaType.APPLICATION_JSON).content(batch.toString()))
+                .andExpect(status().isOk());
+    }
+
+    private static String expense(String description, int amount, String category, LocalDate date) {
+        return "{\"description\":\"" + description + "\",\"amount\":" + amount + ",\"category\":\"" + category
+                + "\",\"date\":\"" + date + "\"}";
+    }
+}
@@ -0,0 +1,197 @@
+package com.finomo.repository;
+
+import com.finomo.config.TenantContext;
+import com.finomo.config.TenantIdentifierResolver;
+import com.finomo.entity.Expense;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.transaction.AfterTransaction;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs each finder as a tenant, captures the SQL Hibernate generates for it (tenant_id restriction included) and
+// runs EXPLAIN on that SQL against the migrated H2 schema.
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "com.finomo.repository.ExpenseRepositoryIndexTests$CapturingStatementInspector")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TenantIdentifierResolver.class)
+class ExpenseRepositoryIndexTests {
+    
+    private static final String[] CATEGORIES = {"Groceries", "Transportation", "Utilities", "Dining", "Entertainment"};
+    private static final int TENANTS = 20;
+    private static final LocalDate MARCH_1 = LocalDate.of(2024, 3, 1);
+    private static final LocalDate MARCH_7 = LocalDate.of(2024, 3, 7);
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private ExpenseDailyTotalRepository dailyTotalRepository;
+    
+    @Autowired
+    private RecurringExpenseRepository recurringExpenseRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @BeforeEach
+    void loadRows() {
+        List<Expense> expenses = new ArrayList<>();
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < 2000; i++) {
+            Expense expense = new Expense("Expense " + i, BigDecimal.valueOf(1 + i % 500, 0),
+                    CATEGORIES[i % CATEGORIES.length], start.plusDays(i % 365), null);
+            expense.setTenantId("tenant-" + i % TENANTS);
+            expenses.add(expense);
+        }
+        try (TenantContext.TenantScope scope = TenantContext.root()) {
+            expenseRepository.insertAll(expenses);
+        }
+        jdbcTemplate.execute("ANALYZE");
+    }
+    
+    @Test
+    void findByCategoryUsesTenantCategoryDateIndex() {
+        assertUsesIndex(sqlOf(() -> expenseRepository.findByCategory("Dining")),
+                "idx_expenses_tenant_category_date", "tenant_id = ?", "category = ?");
+    }
+    
+    @Test
+    void findAllUsesTenantDateIndex() {
+        assertUsesIndex(sqlOf(() -> expenseRepository.findAll()),
+                "idx_expenses_tenant_date", "tenant_id = ?");
+    }
+    
+    @Test
+    void findByDateBetweenUsesTenantDateIndex() {
+        assertUsesIndex(sqlOf(() -> expenseRepository.findByDateBetween(MARCH_1, MARCH_7)),
+                "idx_expenses_tenant_date", "tenant_id = ?", "date >= ?");
+    }
+    
+    @Test
+    void findByCategoryAndDateBetweenUsesTenantCategoryDateIndex() {
+        assertUsesIndex(sqlOf(() -> expenseRepository.findByCategoryAndDateBetween("Dining", MARCH_1, MARCH_7)),
+                "idx_expenses_tenant_category_date", "tenant_id = ?", "category = ?", "date >= ?");
+    }
+    
+    @Test
+    void findByAmountGreaterThanUsesTenantAmountIndex() {
+        assertUsesIndex(sqlOf(() -> expenseRepository.findByAmountGreaterThan(BigDecimal.valueOf(490))),
+                "idx_expenses_tenant_amount", "tenant_id = ?", "amount > ?");
+    }
+    
+    // A substring match cannot use an index; the tenant index still keeps the scan to the tenant's rows
+    @Test
+    void findByDescriptionContainingScansOnlyTheTenant() {
+        assertUsesIndex(sqlOf(() -> expenseRepository.findByDescriptionContainingIgnoreCase("expense 1")),
+                "idx_expenses_tenant_date", "tenant_id = ?");
+    }
+    
+    @Test
+    void findPageAfterUsesTenantDateIndex() {
+        assertUsesIndex(sqlOf(() -> expenseRepository.findPageAfter(LocalDate.of(2024, 12, 20), 10L, Limit.of(100))),
+                "idx_expenses_tenant_date", "tenant_id = ?", "date >= ?");
+    }
+    
+    @Test
+    void rollupDateRangeUsesRollupDateIndex() {
+        for (int i = 0; i < 200; i++) {
+            jdbcTemplate.update("INSERT INTO expense_daily_totals " +
+                    "(tenant_id, category, bucket_date, total_amount, expense_count) VALUES (?, ?, ?, 10, 1)",
+                    "tenant-" + i % TENANTS, CATEGORIES[i % CATEGORIES.length], LocalDate.of(2024, 1, 1).plusDays(i));
+        }
+        jdbcTemplate.execute("ANALYZE");
+        
+        assertUsesIndex(sqlOf(() -> dailyTotalRepository.findTotalAmountByDateRange(MARCH_1, MARCH_7)),
+                "idx_expense_daily_totals_tenant_date", "tenant_id = ?", "bucket_date >= ?");
+    }
+    
+    @Test
+    void dueRecurringExpensesUseNextOccurrenceIndex() {
+        for (int i = 0; i < 500; i++) {
+            jdbcTemplate.update("INSERT INTO recurring_expenses (tenant_id, description, amount, category, schedule, " +
+                    "start_date, next_occurrence) VALUES (?, 'Subscription', 10, 'Entertainment', 'FREQ=MONTHLY', ?, ?)",
+                    "tenant-" + i % TENANTS, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 1).plusDays(i));
+        }
+        jdbcTemplate.execute("ANALYZE");
+        
+        // The scheduler reads due rules of every tenant
+        assertUsesIndex(sqlOf(TenantContext.ROOT_TENANT,
+                        () -> recurringExpenseRepository.findDueForUpdate(LocalDate.of(2024, 1, 5), Limit.of(200))),
+                "idx_recurring_expenses_next_occurrence", "next_occurrence <= ?");
+    }
+    
+    // ANALYZE commits the test transaction, so the due rules would outlive it and be materialized by other tests
+    @AfterTransaction
+    void deleteRecurringExpenses() {
+        jdbcTemplate.update("DELETE FROM recurring_expenses");
+    }
+    
+    private String sqlOf(Runnable finder) {
+        return sqlOf("tenant-3", finder);
+    }
+    
+    // The SQL a finder sends when run as the tenant. The test transaction's session was opened as the default
+    // tenant, so the finder runs in a session of its own.
+    private String sqlOf(String tenant, Runnable finder) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        CapturingStatementInspector.STATEMENTS.clear();
+        try (TenantContext.TenantScope scope = TenantContext.enter(tenant)) {
+            transaction.executeWithoutResult(status -> finder.run());
+        }
+        return CapturingStatementInspector.lastSelect();
+    }
+    
+    // The plan must read the index with the given conditions as its search bounds, not merely mention it
+    private void assertUsesIndex(String sql, String index, String... indexConditions) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+        String indexBounds = plan.replaceAll("\\s+", " ")
+                .replaceAll("(?is).*/\\* PUBLIC\\." + index + ": (.*?) \\*/.*", "$1");
+        assertThat(indexBounds).as(plan).isNotEqualTo(plan.replaceAll("\\s+", " "));
+        for (String condition : indexConditions) {
+            assertThat(indexBounds.replaceAll("\\?\\d+", "?")).as(plan).containsIgnoringCase(condition);
+        }
+        assertThat(plan).doesNotContainIgnoringCase("tableScan");
+    }
+    
+    // Records the SQL Hibernate sends, so the plans checked are those of the statements the finders really run
+    public static class CapturingStatementInspector implements StatementInspector {
+        
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+        
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+        
+        static String lastSelect() {
+            for (int i = STATEMENTS.size() - 1; i >= 0; i--) {
+                if (STATEMENTS.get(i).regionMatches(true, 0, "select", 0, 6)) {
+                    return STATEMENTS.get(i);
+                }
+            }
+            throw new AssertionError("No SELECT was sent: " + STATEMENTS);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.finomo.service;
+
+import com.finomo.dto.ExpenseAnomalies;
+import com.finomo.dto.ExpenseAnomalies.DuplicateMatch;
+import com.finomo.entity.Expense;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpenseAnomalyDetectorTests {
+    
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 10);
+    
+    private ExpenseAnomalyDetector detector;
+    private long nextId;
+    
+    @BeforeEach
+    void setUp() {
+        detector = new ExpenseAnomalyDetector(ExpenseAnomalyDetector.DuplicateAction.FLAG, 3, 14, 1000,
+                Duration.ofDays(30), 3.5, 30);
+    }
+    
+    @Test
+    void flagsExactCopiesIgnoringCaseAndReferenceNumbers() {
+        long id = create("t1", "Lunch at Chipotle", "12.50", DAY);
+        
+        ExpenseAnomalies anomalies = detector.screen(expense("t1", "LUNCH AT CHIPOTLE #1234", "12.50", DAY));
+        assertThat(anomalies.duplicate()).isEqualTo(DuplicateMatch.EXACT);
+        assertThat(anomalies.duplicateOf()).isEqualTo(id);
+        
+        assertThat(detector.screen(expense("t1", "Lunch at Chipotle", "12.51", DAY)).isEmpty()).isTrue();
+        assertThat(detector.screen(expense("t2", "Lunch at Chipotle", "12.50", DAY)).isEmpty()).isTrue();
+    }
+    
+    @Test
+    void flagsSimilarDescriptionsWithinTheWindow() {
+        long id = create("t1", "Uber ride to airport", "38.20", DAY);
+        
+        ExpenseAnomalies anomalies = detector.screen(expense("t1", "Uber ride to the airport", "38.20", DAY.plusDays(2)));
+        assertThat(anomalies.duplicate()).isEqualTo(DuplicateMatch.SIMILAR);
+        assertThat(anomalies.duplicateOf()).isEqualTo(id);
+        
+        assertThat(detector.screen(expense("t1", "Uber ride to the airport", "38.20", DAY.plusDays(5))).isEmpty()).isTrue();
+        assertThat(detector.screen(expense("t1", "Coffee", "38.20", DAY)).isEmpty()).isTrue();
+    }
+    
+    @Test
+    void deletedExpensesNoLongerMatch() {
+        long id = create("t1", "Gym membership", "45.00", DAY);
+        Expense deleted = expense("t1", "Gym membership", "45.00", DAY);
+        deleted.setId(id);
+        detector.onDeleted(deleted);
+        
+        assertThat(detector.screen(expense("t1", "Gym membership", "45.00", DAY)).isEmpty()).isTrue();
+    }
+    
+    @Test
+    void reservationCatchesConcurrentCopyAndIsReleasedOnRollback() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThat(detector.screen(expense("t1", "Movie tickets", "24.00", DAY)).isEmpty()).isTrue();
+            // A second request screened before the first has written its expense
+            ExpenseAnomalies copy = detector.screen(expense("t1", "Movie tickets", "24.00", DAY));
+            assertThat(copy.duplicate()).isEqualTo(DuplicateMatch.EXACT);
+            assertThat(copy.duplicateOf()).isNull();
+            
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(detector.screen(expense("t1", "Movie tickets", "24.00", DAY)).isEmpty()).isTrue();
+    }
+    
+    @Test
+    void flagsOutlierAmountsOnceTheCategoryHasEnoughSamples() {
+        for (int i = 0; i < 29; i++) {
+            create("t1", "Groceries " + i, String.valueOf(40 + i), DAY.minusDays(i));
+        }
+        assertThat(detector.screen(expense("t1", "Big shop", "2500.00", DAY)).isAmountOutlier()).isFalse();
+        
+        create("t1", "Groceries 29", "55.00", DAY.minusDays(29));
+        ExpenseAnomalies outlier = detector.screen(expense("t1", "Big shop", "2500.00", DAY));
+        assertThat(outlier.amountZScore()).isGreaterThan(3.5);
+        assertThat(detector.screen(expense("t1", "Weekly shop", "52.00", DAY)).isAmountOutlier()).isFalse();
+        // Statistics are per tenant
+        assertThat(detector.screen(expense("t2", "Big shop", "2500.00", DAY)).isAmountOutlier()).isFalse();
+    }
+    
+    private long create(String tenant, String description, String amount, LocalDate date) {
+        Expense expense = expense(tenant, description, amount, date);
+        expense.setId(++nextId);
+        detector.onCreated(expense);
+        return expense.getId();
+    }
+    
+    private static Expense expense(String tenant, String description, String amount, LocalDate date) {
+        Expense expense = new Expense(description, new BigDecimal(amount), "Groceries", date, null);
+        expense.setTenantId(tenant);
+        return expense;
+    }
+}
@@ -0,0 +1,101 @@
+package com.finomo.service;
+
+import com.finomo.config.TenantContext;
+import com.finomo.entity.Expense;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "finomo.sample-data.count=0")
+class ExpenseCacheTests {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 4, 10);
+
+    @Autowired
+    private ExpenseCache expenseCache;
+
+    @Test
+    void changeEvictsOnlyTheEntriesItTouches() {
+        try (TenantContext.TenantScope scope = TenantContext.enter("cache-targeted")) {
+            Expense lunch = expense("cache-targeted", 1L, "Food", DAY);
+            AtomicInteger loads = new AtomicInteger();
+
+            expenseCache.getById(1L, () -> { loads.incrementAndGet(); return Optional.of(lunch); });
+            expenseCache.getById(2L, () -> { loads.incrementAndGet(); return Optional.empty(); });
+            expenseCache.getByCategory("Food", () -> { loads.incrementAndGet(); return List.of(lunch); });
+            expenseCache.getByCategory("Travel", () -> { loads.incrementAndGet(); return List.of(); });
+            expenseCache.getDateRangeTotal(DAY, DAY.plusDays(5), () -> { loads.incrementAndGet(); return BigDecimal.ONE; });
+            expenseCache.getDateRangeTotal(DAY.plusDays(1), DAY.plusDays(5),
+                    () -> { loads.incrementAndGet(); return BigDecimal.TEN; });
+            assertThat(loads).hasValue(6);
+
+            expenseCache.apply(lunch, expense("cache-targeted", 1L, "Food", DAY));
+
+            AtomicInteger reloads = new AtomicInteger();
+            expenseCache.getById(1L, () -> { reloads.incrementAndGet(); return Optional.of(lunch); });
+            expenseCache.getByCategory("Food", () -> { reloads.incrementAndGet(); return List.of(lunch); });
+            expenseCache.getDateRangeTotal(DAY, DAY.plusDays(5), () -> { reloads.incrementAndGet(); return BigDecimal.ONE; });
+            assertThat(reloads).hasValue(3);
+
+            // Another category and a range that does not contain the date stay cached
+            expenseCache.getByCategory("Travel", () -> { reloads.incrementAndGet(); return List.of(); });
+            expenseCache.getDateRangeTotal(DAY.plusDays(1), DAY.plusDays(5),
+                    () -> { reloads.incrementAndGet(); return BigDecimal.TEN; });
+            assertThat(reloads).hasValue(3);
+        }
+    }
+
+    @Test
+    void changeOfOneTenantKeepsAnotherTenantsEntries() {
+        AtomicInteger loads = new AtomicInteger();
+        try (TenantContext.TenantScope scope = TenantContext.enter("cache-tenant-b")) {
+            expenseCache.getCategoryTotals(() -> { loads.incrementAndGet(); return List.of(); });
+        }
+
+        expenseCache.apply(null, expense("cache-tenant-a", 1L, "Food", DAY));
+        expenseCache.reload("cache-tenant-a");
+
+        try (TenantContext.TenantScope scope = TenantContext.enter("cache-tenant-b")) {
+            expenseCache.getCategoryTotals(() -> { loads.incrementAndGet(); return List.of(); });
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void loadRacingAnEvictionIsNotKept() {
+        try (TenantContext.TenantScope scope = TenantContext.enter("cache-race")) {
+            // Another thread delivers a change in the range while the load is still reading the old total
+            BigDecimal stale = expenseCache.getDateRangeTotal(DAY, DAY.plusDays(5), () -> {
+                Thread evicting = new Thread(() -> expenseCache.apply(null, expense("cache-race", 1L, "Food", DAY)));
+                evicting.start();
+                try {
+                    evicting.join();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return BigDecimal.ONE;
+            });
+            assertThat(stale).isEqualByComparingTo("1");
+
+            AtomicInteger reloads = new AtomicInteger();
+            expenseCache.getDateRangeTotal(DAY, DAY.plusDays(5), () -> { reloads.incrementAndGet(); return BigDecimal.TEN; });
+            expenseCache.getDateRangeTotal(DAY, DAY.plusDays(5), () -> { reloads.incrementAndGet(); return BigDecimal.TEN; });
+            assertThat(reloads).hasValue(1);
+        }
+    }
+
+    private static Expense expense(String tenant, Long id, String category, LocalDate date) {
+        Expense expense = new Expense("Lunch", new BigDecimal("12.50"), category, date, null);
+        expense.setId(id);
+        expense.setTenantId(tenant);
+        return expense;
+    }
+}
@@ -0,0 +1,84 @@
+package com.finomo.service;
+
+import com.finomo.dto.ImportReport;
+import com.finomo.service.ExpenseAnomalyDetector.DuplicateAction;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+
+@SpringBootTest(properties = {
+    "finomo.sample-data.count=0",
+    "finomo.import.chunk-size=2",
+    "finomo.import.queue-capacity=1"
+})
+class ExpenseImportServiceTests {
+
+    @Autowired
+    private ExpenseImportService importService;
+
+    @MockitoSpyBean
+    private ExpenseService expenseService;
+
+    // A write failure that is not a DataAccessException must fail the import, not leave the upload blocked on a
+    // full queue
+    @Test
+    void writeFailureFailsTheImportInsteadOfBlockingTheUpload() throws Exception {
+        doThrow(new CannotCreateTransactionException("Could not open JDBC Connection"))
+                .when(expenseService).createExpenses(anyList(), any(DuplicateAction.class));
+        StringBuilder csv = new StringBuilder("description,amount,category,date\n");
+        for (int i = 0; i < 100; i++) {
+            csv.append("Row ").append(i).append(",12.50,Groceries,2024-06-01\n");
+        }
+
+        ImportReport report = CompletableFuture.supplyAsync(() -> {
+            try {
+                return importService.importExpenses(
+                        new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)),
+                        ExpenseImportService.Format.CSV, 0, "failing-writer", null);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }).get(30, TimeUnit.SECONDS);
+
+        assertThat(report.status()).isEqualTo(ImportReport.Status.FAILED);
+        assertThat(report.rowsImported()).isZero();
+        assertThat(report.committedOffset()).isZero();
+        assertThat(report.errors()).anySatisfy(error ->
+                assertThat(error.message()).contains("Could not open JDBC Connection"));
+    }
+
+    // Duplicates are only flagged by default, but a re-imported statement must not double its expenses
+    @Test
+    void reimportSkipsDuplicates() throws Exception {
+        StringBuilder csv = new StringBuilder("description,amount,category,date\n");
+        for (int i = 0; i < 5; i++) {
+            csv.append("Statement line ").append(i).append(",").append(20 + i).append(".00,Utilities,2024-07-0")
+                    .append(i + 1).append("\n");
+        }
+
+        ImportReport first = importService.importExpenses(
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)),
+                ExpenseImportService.Format.CSV, 0, "statement", null);
+        ImportReport second = importService.importExpenses(
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)),
+                ExpenseImportService.Format.CSV, 0, "statement-again", null);
+
+        assertThat(first.status()).isEqualTo(ImportReport.Status.COMPLETED);
+        assertThat(first.rowsImported()).isEqualTo(5);
+        assertThat(second.status()).isEqualTo(ImportReport.Status.COMPLETED);
+        assertThat(second.rowsImported()).isZero();
+        assertThat(second.rowsFailed()).isEqualTo(5);
+    }
+}
@@ -0,0 +1,45 @@
+package com.finomo.service;
+
+import com.finomo.config.TenantContext;
+import com.finomo.dto.RollupVerification;
+import com.finomo.entity.Expense;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "finomo.sample-data.count=0")
+class ExpenseRollupServiceTests {
+
+    @Autowired
+    private ExpenseRollupService rollupService;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void initializeBackfillsAnEmptyRollup() {
+        try (TenantContext.TenantScope scope = TenantContext.enter("rollup-backfill")) {
+            expenseService.createExpense(new Expense("Train ticket", new BigDecimal("23.40"), "Transportation",
+                    LocalDate.of(2024, 5, 2), null));
+        }
+        jdbcTemplate.update("DELETE FROM expense_daily_totals");
+
+        rollupService.initialize();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT expense_count FROM expense_daily_totals " +
+                "WHERE tenant_id = 'rollup-backfill'", Long.class)).isEqualTo(1);
+        try (TenantContext.TenantScope scope = TenantContext.root()) {
+            RollupVerification verification = rollupService.verify();
+            assertThat(verification.consistent()).as("%s", verification.mismatches()).isTrue();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.finomo.service;
+
+import com.finomo.config.TenantContext;
+import com.finomo.entity.Expense;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpenseSearchIndexTests {
+    
+    private ExpenseSearchIndex index;
+    
+    @BeforeEach
+    void setUp() {
+        index = new ExpenseSearchIndex();
+        index.index(expense(1L, "Grocery shopping at Walmart", "Weekly grocery shopping"));
+        index.index(expense(2L, "Lunch at restaurant", "Business lunch meeting"));
+        index.index(expense(3L, "Netflix subscription", "Monthly subscription"));
+        index.index(expense(4L, "Team lunch", null));
+    }
+    
+    @Test
+    void matchesWholeTokensAndSubstrings() {
+        assertThat(ids(index.search("walmart", ExpenseSearchIndex.Mode.AND, 10))).containsExactly(1L);
+        assertThat(ids(index.search("mart", ExpenseSearchIndex.Mode.AND, 10))).containsExactly(1L);
+        assertThat(ids(index.search("at", ExpenseSearchIndex.Mode.AND, 10))).containsExactlyInAnyOrder(1L, 2L);
+    }
+    
+    @Test
+    void andRequiresEveryTermWhileOrAcceptsAny() {
+        assertThat(ids(index.search("lunch business", ExpenseSearchIndex.Mode.AND, 10))).containsExactly(2L);
+        assertThat(ids(index.search("netflix walmart", ExpenseSearchIndex.Mode.OR, 10)))
+                .containsExactlyInAnyOrder(1L, 3L);
+    }
+    
+    @Test
+    void ranksDescriptionAndNotesMatchesAboveSingleFieldMatches() {
+        List<ExpenseSearchIndex.SearchHit> hits = index.search("lunch", ExpenseSearchIndex.Mode.AND, 10);
+        assertThat(ids(hits)).containsExactly(2L, 4L);
+        assertThat(ids(index.search("lunch", ExpenseSearchIndex.Mode.AND, 1))).containsExactly(2L);
+    }
+    
+    @Test
+    void reflectsUpdatesAndDeletes() {
+        index.index(expense(3L, "Spotify subscription", null));
+        assertThat(index.search("netflix", ExpenseSearchIndex.Mode.AND, 10)).isEmpty();
+        assertThat(ids(index.search("spotify", ExpenseSearchIndex.Mode.AND, 10))).containsExactly(3L);
+        
+        index.remove(TenantContext.DEFAULT_TENANT, 3L);
+        assertThat(index.search("spotify", ExpenseSearchIndex.Mode.AND, 10)).isEmpty();
+        assertThat(index.size()).isEqualTo(3);
+    }
+    
+    @Test
+    void searchesOnlyTheCurrentTenantsDocuments() {
+        Expense other = expense(5L, "Team lunch downtown", null);
+        other.setTenantId("acme");
+        index.index(other);
+        
+        assertThat(ids(index.search("lunch", ExpenseSearchIndex.Mode.AND, 10))).containsExactly(2L, 4L);
+        try (TenantContext.TenantScope scope = TenantContext.enter("acme")) {
+            assertThat(ids(index.search("lunch", ExpenseSearchIndex.Mode.AND, 10))).containsExactly(5L);
+        }
+        assertThat(index.size()).isEqualTo(5);
+    }
+    
+    private static Expense expense(Long id, String description, String notes) {
+        Expense expense = new Expense(description, BigDecimal.TEN, "Other", LocalDate.of(2024, 1, 1), notes);
+        expense.setId(id);
+        return expense;
+    }
+    
+    private static List<Long> ids(List<ExpenseSearchIndex.SearchHit> hits) {
+        return hits.stream().map(ExpenseSearchIndex.SearchHit::id).toList();
+    }
+}
@@ -0,0 +1,209 @@
+package com.finomo.service;
+
+import com.finomo.config.TenantContext;
+import com.finomo.dto.BatchItemResult;
+import com.finomo.dto.BatchItemResult.Status;
+import com.finomo.dto.ExpenseField;
+import com.finomo.dto.ExpensePage;
+import com.finomo.entity.Expense;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Batches are split into chunks of two so a few items span several transactions
+@SpringBootTest(properties = {"finomo.sample-data.count=0", "finomo.batch.chunk-size=2"})
+class ExpenseServiceTests {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 7, 1);
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void cursorOnATieContinuesWithTheNextIdOfTheSameDate() {
+        try (TenantContext.TenantScope scope = TenantContext.enter("service-page-ties")) {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                ids.add(create(DAY).getId());
+            }
+            Long earlier = create(DAY.minusDays(1)).getId();
+
+            ExpensePage first = expenseService.getExpensePage(null, 2);
+            assertThat(first.items()).extracting(Expense::getId).containsExactly(earlier, ids.get(0));
+            assertThat(ExpenseCursor.decode(first.nextCursor())).isEqualTo(new ExpenseCursor(DAY, ids.get(0)));
+
+            ExpensePage second = expenseService.getExpensePage(first.nextCursor(), 2);
+            assertThat(second.items()).extracting(Expense::getId).containsExactly(ids.get(1), ids.get(2));
+            assertThat(second.nextCursor()).isNull();
+
+            // A cursor past the end is valid and yields an empty last page
+            ExpensePage past = expenseService.getExpensePage(new ExpenseCursor(DAY.plusYears(1), 1L).encode(), 2);
+            assertThat(past.items()).isEmpty();
+            assertThat(past.nextCursor()).isNull();
+        }
+    }
+
+    @Test
+    void tamperedCursorIsAnIllegalArgument() {
+        String valid = new ExpenseCursor(DAY, 42L).encode();
+        assertThat(ExpenseCursor.decode(valid)).isEqualTo(new ExpenseCursor(DAY, 42L));
+
+        for (String cursor : List.of(valid + "!", valid.substring(0, valid.length() - 3), "%%%", "")) {
+            assertThatThrownBy(() -> ExpenseCursor.decode(cursor)).isInstanceOf(IllegalArgumentException.class);
+        }
+        // "2024-07-01" with the id cut off
+        assertThatThrownBy(() -> expenseService.getExpensePage("MjAyNC0wNy0wMQ", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> expenseService.getExpensePage(null, ExpenseService.MAX_PAGE_SIZE + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void createCommitsEachChunkOnItsOwn() {
+        String tenant = "batch-create";
+        List<Expense> batch = List.of(expense("First"), expense(""), expense("Second"), expense("Third"),
+                expense("Poison"), expense("Fourth"));
+
+        List<BatchItemResult> results = withPoisonRejected(() -> {
+            try (TenantContext.TenantScope scope = TenantContext.enter(tenant)) {
+                return expenseService.createExpenses(batch);
+            }
+        });
+
+        // Invalid items are left out before chunking: [First, Second], [Third, Poison], [Fourth]
+        assertThat(results).extracting(BatchItemResult::status).containsExactly(Status.CREATED, Status.INVALID,
+                Status.CREATED, Status.FAILED, Status.FAILED, Status.CREATED);
+        assertThat(results.get(3).id()).isNull();
+        assertThat(descriptions(tenant)).containsExactlyInAnyOrder("First", "Second", "Fourth");
+    }
+
+    @Test
+    void failedUpdateChunkRollsBackOnlyItsOwnItems() {
+        String tenant = "batch-update";
+        List<Long> ids = new ArrayList<>();
+        try (TenantContext.TenantScope scope = TenantContext.enter(tenant)) {
+            for (String description : List.of("A", "B", "C", "D")) {
+                ids.add(expenseService.createExpense(expense(description)).getId());
+            }
+        }
+        List<Expense> updates = List.of(update(ids.get(0), "A2"), update(ids.get(1), "B2"),
+                update(ids.get(2), "C2"), update(ids.get(3), "Poison"), update(-1L, "Missing"));
+
+        List<BatchItemResult> results = withPoisonRejected(() -> {
+            try (TenantContext.TenantScope scope = TenantContext.enter(tenant)) {
+                return expenseService.updateExpenses(updates);
+            }
+        });
+
+        assertThat(results).extracting(BatchItemResult::status).containsExactly(Status.UPDATED, Status.UPDATED,
+                Status.FAILED, Status.FAILED, Status.NOT_FOUND);
+        // C2 was valid but shared a transaction with the failing item
+        assertThat(descriptions(tenant)).containsExactlyInAnyOrder("A2", "B2", "C", "D");
+    }
+
+    @Test
+    void failedDeleteChunkKeepsItsRowsAndOtherChunksAreDeleted() {
+        String tenant = "batch-delete";
+        List<Long> ids = new ArrayList<>();
+        try (TenantContext.TenantScope scope = TenantContext.enter(tenant)) {
+            for (String description : List.of("A", "B", "C", "D")) {
+                ids.add(expenseService.createExpense(expense(description)).getId());
+            }
+        }
+        List<Long> deletes = new ArrayList<>(ids);
+        deletes.add(1, null);
+        deletes.add(-1L);
+
+        // A row referencing D makes the DELETE of its chunk fail
+        jdbcTemplate.execute("CREATE TABLE expense_batch_refs (expense_id BIGINT REFERENCES expenses (id))");
+        List<BatchItemResult> results;
+        try {
+            jdbcTemplate.update("INSERT INTO expense_batch_refs (expense_id) VALUES (?)", ids.get(3));
+            try (TenantContext.TenantScope scope = TenantContext.enter(tenant)) {
+                results = expenseService.deleteExpenses(deletes);
+            }
+        } finally {
+            jdbcTemplate.execute("DROP TABLE expense_batch_refs");
+        }
+
+        // Chunks over the valid ids: [A, B], [C, D], [-1]
+        assertThat(results).extracting(BatchItemResult::status).containsExactly(Status.DELETED, Status.INVALID,
+                Status.DELETED, Status.FAILED, Status.FAILED, Status.NOT_FOUND);
+        assertThat(descriptions(tenant)).containsExactlyInAnyOrder("C", "D");
+    }
+
+    @Test
+    void projectionsOnlyReadTheCurrentTenantsExpenses() {
+        LocalDate day = DAY.plusYears(3);
+        Long other;
+        try (TenantContext.TenantScope scope = TenantContext.enter("projection-other")) {
+            other = create(day).getId();
+        }
+        try (TenantContext.TenantScope scope = TenantContext.enter("projection-own")) {
+            Long own = create(day).getId();
+            Set<ExpenseField> fields = ExpenseField.parse("amount,date");
+
+            List<Map<String, Object>> range = expenseService.getExpensesByDateRange(day, day, fields);
+            assertThat(range).extracting(row -> row.get("id")).containsExactly(own);
+            assertThat(range.get(0)).containsOnlyKeys("id", "amount", "date");
+
+            assertThat(expenseService.getAllExpenses(fields)).extracting(row -> row.get("id"))
+                    .containsExactly(own)
+                    .doesNotContain(other);
+            assertThat(expenseService.getExpensesByCategory("Misc", fields)).extracting(row -> row.get("id"))
+                    .containsExactly(own);
+        }
+    }
+
+    @Test
+    void unknownOrMissingFieldsAreAnIllegalArgument() {
+        assertThat(ExpenseField.parse(" Amount , notes")).containsExactly(ExpenseField.ID, ExpenseField.AMOUNT,
+                ExpenseField.NOTES);
+        for (String fields : List.of("amount,total", "tenantId", "", " , ")) {
+            assertThatThrownBy(() -> ExpenseField.parse(fields)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    // Run the batch while the database rejects expenses described as "Poison", as validation cannot
+    private <T> T withPoisonRejected(Supplier<T> batch) {
+        jdbcTemplate.execute("ALTER TABLE expenses ADD CONSTRAINT chk_expenses_no_poison CHECK (description <> 'Poison')");
+        try {
+            return batch.get();
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE expenses DROP CONSTRAINT chk_expenses_no_poison");
+        }
+    }
+
+    private List<String> descriptions(String tenant) {
+        return jdbcTemplate.queryForList("SELECT description FROM expenses WHERE tenant_id = ?", String.class, tenant);
+    }
+
+    private static Expense expense(String description) {
+        return new Expense(description, new BigDecimal("10.00"), "Misc", DAY, null);
+    }
+
+    private static Expense update(Long id, String description) {
+        Expense expense = expense(description);
+        expense.setId(id);
+        return expense;
+    }
+
+    private Expense create(LocalDate date) {
+        return expenseService.createExpense(new Expense("Expense on " + date, new BigDecimal("10.00"), "Misc", date, null));
+    }
+}
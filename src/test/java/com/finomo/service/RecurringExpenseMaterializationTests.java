@@ -0,0 +1,108 @@
+package com.finomo.service;
+
+import com.finomo.config.TenantContext;
+import com.finomo.config.TenantFilter;
+import com.finomo.dto.RecurringOccurrence;
+import com.finomo.repository.RecurringExpenseRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"finomo.sample-data.count=0", "finomo.recurring.batch-size=2"})
+@AutoConfigureMockMvc
+class RecurringExpenseMaterializationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RecurringExpenseService recurringExpenseService;
+
+    @Autowired
+    private RecurringExpenseRepository recurringExpenseRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void dueOccurrencesAreMaterializedOnce() throws Exception {
+        long monthly = create("recurring-a", "Netflix subscription", "FREQ=MONTHLY", "2100-01-31", null);
+        long daily = create("recurring-b", "Parking", "FREQ=DAILY", "2100-03-10", "2100-03-12");
+        create("recurring-b", "Gym", "0 0 0 1 * *", "2100-02-15", null);
+        mockMvc.perform(post("/api/recurring-expenses").header(TenantFilter.TENANT_HEADER, "recurring-a")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body("Bad", "FREQ=FORTNIGHTLY", "2100-01-01", null)))
+                .andExpect(status().isBadRequest());
+
+        // Monthly: Jan 31 and Feb 29 (leap year clamp); daily: Mar 10-12; cron: Mar 1
+        assertThat(recurringExpenseService.materializeDue(LocalDate.of(2100, 3, 15))).isEqualTo(6);
+        assertThat(recurringExpenseService.materializeDue(LocalDate.of(2100, 3, 15))).isZero();
+
+        mockMvc.perform(get("/api/recurring-expenses/" + monthly + "/occurrences")
+                        .header(TenantFilter.TENANT_HEADER, "recurring-a"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].date").value("2100-01-31"))
+                .andExpect(jsonPath("$[1].date").value("2100-02-28"));
+        mockMvc.perform(get("/api/expenses/date-range").header(TenantFilter.TENANT_HEADER, "recurring-a")
+                        .param("startDate", "2100-01-01").param("endDate", "2100-12-31"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].description").value("Netflix subscription"));
+        mockMvc.perform(get("/api/expenses/date-range").header(TenantFilter.TENANT_HEADER, "recurring-b")
+                        .param("startDate", "2100-01-01").param("endDate", "2100-12-31"))
+                .andExpect(jsonPath("$.length()").value(4));
+        mockMvc.perform(get("/api/recurring-expenses/" + monthly).header(TenantFilter.TENANT_HEADER, "recurring-b"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/recurring-expenses/" + daily).header(TenantFilter.TENANT_HEADER, "recurring-b"))
+                .andExpect(jsonPath("$.lastOccurrence").value("2100-03-12"))
+                .andExpect(jsonPath("$.nextOccurrence").doesNotExist());
+
+        // A schedule change resumes after the last materialized date instead of recreating earlier ones
+        mockMvc.perform(put("/api/recurring-expenses/" + monthly).header(TenantFilter.TENANT_HEADER, "recurring-a")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body("Netflix subscription", "FREQ=DAILY", "2100-01-31", null)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextOccurrence").value("2100-03-01"));
+
+        // The occurrence key rejects a second copy of a materialized date
+        RecurringOccurrence first = recurringExpenseRepository.findOccurrences(monthly).get(0);
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+            try (TenantContext.TenantScope scope = TenantContext.root()) {
+                recurringExpenseRepository.insertOccurrences(List.of(first));
+            }
+        })).isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    private long create(String tenant, String description, String schedule, String startDate, String endDate)
+            throws Exception {
+        String response = mockMvc.perform(post("/api/recurring-expenses").header(TenantFilter.TENANT_HEADER, tenant)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body(description, schedule, startDate, endDate)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.nextOccurrence").exists())
+                .andReturn().getResponse().getContentAsString();
+        return Long.parseLong(response.replaceAll(".*\"id\":(\\d+).*", "$1"));
+    }
+
+    private static String body(String description, String schedule, String startDate, String endDate) {
+        return "{\"description\":\"" + description + "\",\"amount\":15.49,\"category\":\"Entertainment\"," +
+               "\"schedule\":\"" + schedule + "\",\"startDate\":\"" + startDate + "\"" +
+               (endDate != null ? ",\"endDate\":\"" + endDate + "\"" : "") + "}";
+    }
+}
@@ -0,0 +1,115 @@
+package com.finomo.service.analytics;
+
+import com.finomo.config.TenantContext;
+import com.finomo.entity.Expense;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpenseColumnStoreTests {
+    
+    private ExpenseColumnStore store;
+    
+    @BeforeEach
+    void setUp() {
+        store = new ExpenseColumnStore();
+        store.upsert(expense(1L, "Food", "12.50", LocalDate.of(2024, 1, 1)));
+        store.upsert(expense(2L, "Travel", "100.00", LocalDate.of(2024, 1, 2)));
+        store.upsert(expense(3L, "Food", "7.25", LocalDate.of(2024, 1, 3)));
+        store.upsert(expense(4L, "Bills", "40.00", LocalDate.of(2024, 2, 1)));
+    }
+    
+    @Test
+    void totalsByCategoryAndDateRange() {
+        assertThat(totals()).containsOnly(
+                Map.entry("Food", new BigDecimal("19.75")),
+                Map.entry("Travel", new BigDecimal("100.00")),
+                Map.entry("Bills", new BigDecimal("40.00")));
+        assertThat(store.totalByDateRange(LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 31)))
+                .isEqualByComparingTo("107.25");
+    }
+    
+    @Test
+    void updatesAndSwapRemovesKeepRowsConsistent() {
+        store.upsert(expense(2L, "Food", "1.00", LocalDate.of(2024, 1, 2)));
+        store.remove(TenantContext.DEFAULT_TENANT, 1L);
+        store.remove(TenantContext.DEFAULT_TENANT, 1L);
+        store.upsert(expense(5L, "Travel", "3.00", LocalDate.of(2024, 1, 5)));
+        
+        assertThat(store.size()).isEqualTo(4);
+        assertThat(totals()).containsOnly(
+                Map.entry("Food", new BigDecimal("8.25")),
+                Map.entry("Travel", new BigDecimal("3.00")),
+                Map.entry("Bills", new BigDecimal("40.00")));
+        
+        store.remove(TenantContext.DEFAULT_TENANT, 4L);
+        store.upsert(expense(4L, "Bills", "2.00", LocalDate.of(2024, 1, 9)));
+        assertThat(store.totalByDateRange(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)))
+                .isEqualByComparingTo("13.25");
+    }
+    
+    @Test
+    void appliesChangesDeliveredFromTheChangeLog() {
+        Expense lunch = expense(1L, "Food", "12.50", LocalDate.of(2024, 1, 1));
+        lunch.setTenantId(TenantContext.DEFAULT_TENANT);
+        Expense moved = expense(1L, "Travel", "20.00", LocalDate.of(2024, 1, 1));
+        moved.setTenantId(TenantContext.DEFAULT_TENANT);
+        
+        store.apply(lunch, moved);
+        assertThat(totals()).containsOnly(
+                Map.entry("Food", new BigDecimal("7.25")),
+                Map.entry("Travel", new BigDecimal("120.00")),
+                Map.entry("Bills", new BigDecimal("40.00")));
+        
+        store.apply(moved, null);
+        Expense other = expense(6L, "Food", "5.00", LocalDate.of(2024, 1, 4));
+        other.setTenantId("acme");
+        store.apply(null, other);
+        assertThat(store.size()).isEqualTo(4);
+        assertThat(totals()).containsOnly(
+                Map.entry("Food", new BigDecimal("7.25")),
+                Map.entry("Travel", new BigDecimal("100.00")),
+                Map.entry("Bills", new BigDecimal("40.00")));
+    }
+    
+    @Test
+    void scansOneCategoryIntoAggregator() {
+        TimeSeriesAggregator aggregator = new TimeSeriesAggregator(TimeBucket.MONTH,
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 29), false);
+        store.scan("Food", aggregator);
+        store.scan("Unknown", aggregator);
+        
+        assertThat(aggregator.result(1)).extracting(point -> point.total().toPlainString())
+                .containsExactly("19.75", "0.00");
+    }
+    
+    @Test
+    void hashMapSurvivesCollidingRemovals() {
+        for (long id = 10; id < 5000; id++) {
+            store.upsert(expense(id, "Bulk", "1.00", LocalDate.of(2024, 3, 1)));
+        }
+        for (long id = 10; id < 5000; id += 2) {
+            store.remove(TenantContext.DEFAULT_TENANT, id);
+        }
+        
+        assertThat(store.size()).isEqualTo(4 + 2495);
+        assertThat(totals()).containsEntry("Bulk", new BigDecimal("2495.00"));
+    }
+    
+    private Map<String, BigDecimal> totals() {
+        return store.totalsByCategory().stream()
+                .collect(Collectors.toMap(row -> (String) row[0], row -> (BigDecimal) row[1]));
+    }
+    
+    private static Expense expense(Long id, String category, String amount, LocalDate date) {
+        Expense expense = new Expense("Expense " + id, new BigDecimal(amount), category, date, null);
+        expense.setId(id);
+        return expense;
+    }
+}
@@ -0,0 +1,69 @@
+package com.finomo.service.analytics;
+
+import com.finomo.dto.TimeSeriesPoint;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TimeSeriesAggregatorTests {
+    
+    @Test
+    void bucketsByMondayWeeksWithMovingAverage() {
+        // 2024-01-03 is a Wednesday, so the first bucket starts on Monday 2024-01-01
+        TimeSeriesAggregator aggregator = new TimeSeriesAggregator(TimeBucket.WEEK,
+                LocalDate.of(2024, 1, 3), LocalDate.of(2024, 1, 16), true);
+        aggregator.add(day(2024, 1, 3), 1000);
+        aggregator.add(day(2024, 1, 7), 2000);
+        aggregator.add(day(2024, 1, 8), 500);
+        aggregator.add(day(2024, 1, 20), 9999);
+        
+        List<TimeSeriesPoint> points = aggregator.result(2);
+        
+        assertThat(points).extracting(TimeSeriesPoint::bucketStart).containsExactly(
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 8), LocalDate.of(2024, 1, 15));
+        assertThat(points).extracting(TimeSeriesPoint::count).containsExactly(2L, 1L, 0L);
+        assertThat(points.get(0).total()).isEqualByComparingTo("30.00");
+        assertThat(points.get(1).movingAverage()).isEqualByComparingTo("17.50");
+        assertThat(points.get(2).movingAverage()).isEqualByComparingTo("2.50");
+        assertThat(points.get(2).p50()).isNull();
+    }
+    
+    @Test
+    void monthlyBucketsFromRollupTotals() {
+        TimeSeriesAggregator aggregator = new TimeSeriesAggregator(TimeBucket.MONTH,
+                LocalDate.of(2024, 1, 15), LocalDate.of(2024, 3, 1), false);
+        aggregator.addTotal(day(2024, 1, 31), 10000, 4);
+        aggregator.addTotal(day(2024, 2, 1), 2550, 1);
+        aggregator.addTotal(day(2024, 2, 29), 50, 1);
+        
+        List<TimeSeriesPoint> points = aggregator.result(1);
+        
+        assertThat(points).hasSize(3);
+        assertThat(points.get(1).bucketStart()).isEqualTo(LocalDate.of(2024, 2, 1));
+        assertThat(points.get(1).total()).isEqualByComparingTo(new BigDecimal("26.00"));
+        assertThat(points.get(1).count()).isEqualTo(2);
+        assertThat(points.get(0).p90()).isNull();
+    }
+    
+    @Test
+    void sketchQuantilesStayWithinRelativeAccuracy() {
+        QuantileSketch sketch = new QuantileSketch(0.01);
+        for (int value = 1; value <= 100_000; value++) {
+            sketch.add(value);
+        }
+        
+        assertThat(sketch.count()).isEqualTo(100_000);
+        assertThat(sketch.quantile(0.5)).isCloseTo(50_000, within(500.0));
+        assertThat(sketch.quantile(0.99)).isCloseTo(99_000, within(990.0));
+        assertThat(sketch.quantile(0.0)).isCloseTo(1, within(0.01));
+    }
+    
+    private static int day(int year, int month, int dayOfMonth) {
+        return (int) LocalDate.of(year, month, dayOfMonth).toEpochDay();
+    }
+}
@@ -0,0 +1,50 @@
+package com.finomo.service.recurring;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RecurrenceScheduleTests {
+
+    @Test
+    void monthlyRuleStaysAnchoredOnTheStartDay() {
+        RecurrenceSchedule schedule = RecurrenceSchedule.parse("FREQ=MONTHLY");
+        LocalDate start = LocalDate.of(2024, 1, 31);
+
+        assertThat(schedule.next(start, LocalDate.of(2023, 6, 1))).isEqualTo(start);
+        assertThat(schedule.next(start, start)).isEqualTo(LocalDate.of(2024, 2, 29));
+        assertThat(schedule.next(start, LocalDate.of(2024, 2, 29))).isEqualTo(LocalDate.of(2024, 3, 31));
+        assertThat(schedule.next(start, LocalDate.of(2024, 4, 15))).isEqualTo(LocalDate.of(2024, 4, 30));
+    }
+
+    @Test
+    void intervalSkipsPeriods() {
+        RecurrenceSchedule schedule = RecurrenceSchedule.parse("RRULE:FREQ=WEEKLY;INTERVAL=2");
+        LocalDate start = LocalDate.of(2024, 1, 1);
+
+        assertThat(schedule.next(start, start)).isEqualTo(LocalDate.of(2024, 1, 15));
+        // Computed from the start date, so a date far ahead does not walk every period
+        assertThat(schedule.next(start, LocalDate.of(2030, 1, 1))).isEqualTo(LocalDate.of(2030, 1, 7));
+    }
+
+    @Test
+    void cronSelectsDates() {
+        RecurrenceSchedule schedule = RecurrenceSchedule.parse("0 0 0 * * MON");
+        LocalDate start = LocalDate.of(2024, 1, 3);
+
+        assertThat(schedule.next(start, LocalDate.of(2023, 12, 1))).isEqualTo(LocalDate.of(2024, 1, 8));
+        assertThat(schedule.next(start, LocalDate.of(2024, 1, 8))).isEqualTo(LocalDate.of(2024, 1, 15));
+        assertThat(RecurrenceSchedule.parse("@monthly").next(start, start)).isEqualTo(LocalDate.of(2024, 2, 1));
+    }
+
+    @Test
+    void rejectsUnsupportedSchedules() {
+        assertThatThrownBy(() -> RecurrenceSchedule.parse("FREQ=HOURLY")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RecurrenceSchedule.parse("FREQ=WEEKLY;BYDAY=MO")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RecurrenceSchedule.parse("FREQ=DAILY;INTERVAL=0")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RecurrenceSchedule.parse("every month")).isInstanceOf(IllegalArgumentException.class);
+    }
+}